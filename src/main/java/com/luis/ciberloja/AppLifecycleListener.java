@@ -0,0 +1,55 @@
+package com.luis.ciberloja;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.glassfish.jersey.server.spi.Container;
+import org.glassfish.jersey.server.spi.ContainerLifecycleListener;
+
+import com.luis.ciberloja.catalogo.CatalogoService;
+import com.luis.ciberloja.catalogo.CatalogoSyncService;
+import com.luis.ciberloja.geo.GeoService;
+import com.luis.ciberloja.mail.MailOutboxService;
+import com.luis.ciberloja.producto.ProductoAutocompletado;
+import com.luis.ciberloja.producto.ProductoIndice;
+import com.luis.ciberloja.util.JDBCUtils;
+import com.luis.ciberloja.ventas.VentasService;
+
+import jakarta.ws.rs.ext.Provider;
+
+/**
+ * Arranca al iniciar la aplicación los servicios en segundo plano (refresco
+ * del catálogo, sincronización con BD...) y los detiene al pararla.
+ */
+@Provider
+public class AppLifecycleListener implements ContainerLifecycleListener {
+
+	private static Logger logger = LogManager.getLogger(AppLifecycleListener.class);
+
+	@Override
+	public void onStartup(Container container) {
+		logger.info("Iniciando servicios en segundo plano");
+		CatalogoService.getInstance();
+		CatalogoSyncService.getInstance();
+		ProductoIndice.getInstance();
+		ProductoAutocompletado.getInstance();
+		MailOutboxService.getInstance();
+		VentasService.getInstance();
+		GeoService.getInstance();
+	}
+
+	@Override
+	public void onReload(Container container) {
+	}
+
+	@Override
+	public void onShutdown(Container container) {
+		logger.info("Deteniendo servicios en segundo plano");
+		CatalogoService.getInstance().stop();
+		MailOutboxService.getInstance().stop();
+		ProductoIndice indice = ProductoIndice.getInstance();
+		if (indice != null) {
+			indice.close();
+		}
+		JDBCUtils.close();
+	}
+}
@@ -1,40 +0,0 @@
-package com.luis.ciberloja;
-
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.lang.annotation.Annotation;
-import java.lang.reflect.Type;
-import java.nio.charset.StandardCharsets;
-
-import com.google.gson.Gson;
-import com.luis.ciberloja.model.ClienteDTO;
-
-import jakarta.ws.rs.WebApplicationException;
-import jakarta.ws.rs.core.MediaType;
-import jakarta.ws.rs.core.MultivaluedMap;
-import jakarta.ws.rs.ext.MessageBodyReader;
-
-public class ClienteReader implements MessageBodyReader<ClienteDTO>{
-
-	@Override
-	public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
-		return ClienteDTO.class.isAssignableFrom(type);
-	}
-
-	@Override
-	public ClienteDTO readFrom(Class<ClienteDTO> type, Type genericType, Annotation[] annotations, MediaType mediaType,
-			MultivaluedMap<String, String> httpHeaders, InputStream entityStream)
-			throws IOException, WebApplicationException {
-		
-		Gson gson = new Gson();
-		
-		BufferedReader reader = new BufferedReader(new InputStreamReader(entityStream, StandardCharsets.UTF_8));
-	
-		ClienteDTO cliente = gson.fromJson(reader, ClienteDTO.class);
-		
-		return cliente;
-	}
-
-}
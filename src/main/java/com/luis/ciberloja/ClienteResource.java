@@ -122,9 +122,16 @@ public class ClienteResource {
 			clienteDTO.setPassword(password);
 			clienteDTO.setRol_id(1l);
 
-			// Registrar cliente y obtener su ID
+			// Registrar cliente y obtener su ID. Se vuelve a leer para devolver también
+			// los campos que completa la BD
 			Long id = clienteService.registrar(clienteDTO);
 			ClienteDTO newCliente = clienteService.findById(id);
+			if (newCliente == null) {
+				return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+						.entity("Cliente registrado pero no encontrado tras el registro.").build();
+			}
+			// Las credenciales no se devuelven
+			newCliente.setPassword(null);
 			return Response.status(Response.Status.OK).entity(newCliente).build();
 		} catch (Exception e) {
 			logger.error("Error en el proceso de registro del cliente", e);
@@ -193,7 +200,14 @@ public class ClienteResource {
 
 			boolean isUpdated = clienteService.update(cliente);
 			if (isUpdated) {
+				// Se vuelve a leer para devolver también los campos que completa la BD
 				ClienteDTO clienteActualizado = clienteService.findById(cliente.getId());
+				if (clienteActualizado == null) {
+					return Response.status(Status.INTERNAL_SERVER_ERROR)
+							.entity("Cliente actualizado pero no encontrado tras la actualización.").build();
+				}
+				// Las credenciales no se devuelven
+				clienteActualizado.setPassword(null);
 				return Response.status(Status.OK).entity(clienteActualizado).build();
 			} else {
 				return Response.status(Status.BAD_REQUEST).entity("Datos introducidos incorrectos o incompletos")
@@ -1,14 +1,14 @@
 package com.luis.ciberloja;
 
-import java.util.List;
-
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import com.luis.ciberloja.geo.GeoJson;
+import com.luis.ciberloja.geo.GeoRespuestas;
+import com.luis.ciberloja.geo.GeoService;
 import com.luis.ciberloja.model.Concelho;
 import com.luis.ciberloja.model.Distrito;
-import com.luis.ciberloja.service.ConcelhoService;
-import com.luis.ciberloja.service.impl.ConcelhoServiceImpl;
+import com.luis.ciberloja.model.Freguesia;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -18,30 +18,32 @@ import jakarta.ws.rs.GET;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.Response.Status;
 
 @Path("/concelho")
 public class ConcelhoResource {
-	private ConcelhoService concelhoService = null;
+	private GeoService geoService = null;
 	private static final Logger logger = LogManager.getLogger(ConcelhoResource.class);
 
 	public ConcelhoResource() {
-		concelhoService = new ConcelhoServiceImpl();
+		geoService = GeoService.getInstance();
 	}
 
 	@GET
 	@Path("/findAll")
 	@Produces(MediaType.APPLICATION_JSON)
-	@Operation(summary = "Obtener todas las concelhos", operationId = "findAllConcelhos", description = "Recupera una lista de todas las concelhos disponibles en la base de datos", responses = {
+	@Operation(summary = "Obtener todas las concelhos", operationId = "findAllConcelhos", description = "Recupera una lista de todas las concelhos disponibles en la base de datos. Se sirve desde memoria con ETag y admite If-None-Match.", responses = {
 			@ApiResponse(responseCode = "200", description = "Lista de concelhos recuperada exitosamente", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = Concelho.class, type = "array"))),
+			@ApiResponse(responseCode = "304", description = "La lista no ha cambiado"),
 			@ApiResponse(responseCode = "500", description = "Error interno al recuperar las concelhos") })
-	public Response findAll() {
+	public Response findAll(@Context Request request, @Context HttpHeaders headers) {
 		try {
-			List<Concelho> concelhos = concelhoService.findAll();
-			logger.info("Retrieved {} concelhos", concelhos.size());
-			return Response.status(Response.Status.OK).entity(concelhos).build();
+			return GeoRespuestas.servir(geoService.getSnapshot().getConcelhosJson(), request, headers);
 		} catch (DataException e) {
 			logger.error("Error retrieving concelhos: {}", e.getMessage(), e);
 			return Response.status(Status.INTERNAL_SERVER_ERROR)
@@ -64,7 +66,7 @@ public class ConcelhoResource {
 				return Response.status(Status.BAD_REQUEST).entity("ID inválido: debe ser un número positivo").build();
 			}
 
-			Concelho provincia = concelhoService.findById(id);
+			Concelho provincia = geoService.getSnapshot().getConcelho(id);
 			if (provincia == null) {
 				logger.warn("concelho with ID {} not found", id);
 				return Response.status(Status.NOT_FOUND).entity("concelho con ID " + id + " no encontraoa.").build();
@@ -77,4 +79,34 @@ public class ConcelhoResource {
 					.entity("Ha ocurrido un error interno al buscar el concelho: " + e.getMessage()).build();
 		}
 	}
-}
\ No newline at end of file
+
+	@GET
+	@Path("/{id}/freguesias")
+	@Produces(MediaType.APPLICATION_JSON)
+	@Operation(summary = "Freguesias de un concelho", operationId = "findFreguesiasByConcelho", description = "Recupera las freguesias de un concelho, para no descargar la lista completa. Se sirve desde memoria con ETag y admite If-None-Match.", responses = {
+			@ApiResponse(responseCode = "200", description = "Lista de freguesias recuperada exitosamente", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = Freguesia.class, type = "array"))),
+			@ApiResponse(responseCode = "304", description = "La lista no ha cambiado"),
+			@ApiResponse(responseCode = "400", description = "ID no proporcionado o inválido"),
+			@ApiResponse(responseCode = "404", description = "Concelho no encontrado"),
+			@ApiResponse(responseCode = "500", description = "Error interno al recuperar las freguesias") })
+	public Response findFreguesias(@PathParam("id") int id, @Context Request request,
+			@Context HttpHeaders headers) {
+		try {
+			if (id <= 0) {
+				logger.warn("Invalid ID provided: {}", id);
+				return Response.status(Status.BAD_REQUEST).entity("ID inválido: debe ser un número positivo").build();
+			}
+
+			GeoJson freguesias = geoService.getSnapshot().getFreguesiasJson(id);
+			if (freguesias == null) {
+				logger.warn("Concelho with ID {} not found", id);
+				return Response.status(Status.NOT_FOUND).entity("Concelho con ID " + id + " no encontrado.").build();
+			}
+			return GeoRespuestas.servir(freguesias, request, headers);
+		} catch (DataException e) {
+			logger.error("Error retrieving freguesias of Concelho {}: {}", id, e.getMessage(), e);
+			return Response.status(Status.INTERNAL_SERVER_ERROR)
+					.entity("Error al recuperar las freguesias: " + e.getMessage()).build();
+		}
+	}
+}
@@ -75,6 +75,8 @@ public class DireccionResource {
 		}
 
 		try {
+			// Se vuelve a leer: los nombres de freguesia, concelho y distrito los
+			// completa el middleware a partir de los ids
 			Long id = direccionService.create(direccion);
 			DireccionDTO createdDireccion = direccionService.findById(id);
 			if (createdDireccion == null) {
@@ -109,7 +111,8 @@ public class DireccionResource {
 			// Intenta actualizar la dirección usando el servicio
 			boolean isUpdated = direccionService.update(direccion);
 			if (isUpdated) {
-				// Si la actualización fue exitosa, busca la dirección actualizada
+				// Si la actualización fue exitosa, busca la dirección actualizada, con los
+				// nombres que completa el middleware
 				DireccionDTO updatedDireccion = direccionService.findById(direccion.getId());
 				if (updatedDireccion == null) {
 					return Response.status(Status.INTERNAL_SERVER_ERROR)
@@ -134,7 +137,7 @@ public class DireccionResource {
 	@Path("/delete")
 	@Consumes(MediaType.APPLICATION_JSON)
 	@Operation(operationId = "deleteDireccion", summary = "Eliminación de una dirección", description = "Elimina una dirección a partir de su ID", responses = {
-			@ApiResponse(responseCode = "200", description = "Dirección eliminada correctamente", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = DireccionDTO.class))),
+			@ApiResponse(responseCode = "200", description = "Dirección eliminada correctamente"),
 			@ApiResponse(responseCode = "400", description = "Datos introducidos inválidos"),
 			@ApiResponse(responseCode = "404", description = "Dirección no encontrada"),
 			@ApiResponse(responseCode = "500", description = "Error en el proceso de eliminación") })
@@ -147,7 +150,8 @@ public class DireccionResource {
 			boolean isDeleted = direccionService.delete(id);
 			if (isDeleted) {
 				logger.info("Direccion con id: " + id + "eliminado correctamente");
-				return Response.status(Status.OK).entity(direccionService.findById(id)).build();
+				// Tras borrarla ya no hay dirección que devolver
+				return Response.status(Status.OK).entity("Dirección eliminada correctamente").build();
 			} else {
 				return Response.status(Status.NOT_FOUND).entity("Dirección con ID " + id + " no encontrada").build();
 			}
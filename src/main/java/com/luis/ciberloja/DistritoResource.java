@@ -1,14 +1,13 @@
 package com.luis.ciberloja;
 
-import java.util.List;
-
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import com.luis.ciberloja.geo.GeoJson;
+import com.luis.ciberloja.geo.GeoRespuestas;
+import com.luis.ciberloja.geo.GeoService;
 import com.luis.ciberloja.model.Concelho;
 import com.luis.ciberloja.model.Distrito;
-import com.luis.ciberloja.service.DistritoService;
-import com.luis.ciberloja.service.impl.DistritoServiceImpl;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -18,7 +17,10 @@ import jakarta.ws.rs.GET;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.Response.Status;
 
@@ -26,24 +28,23 @@ import jakarta.ws.rs.core.Response.Status;
 
 public class DistritoResource {
 
-	private DistritoService distritoService = null;
+	private GeoService geoService = null;
 	private static final Logger logger = LogManager.getLogger(DistritoResource.class);
 
 	public DistritoResource() {
-		distritoService = new DistritoServiceImpl();
+		geoService = GeoService.getInstance();
 	}
 
 	@GET
 	@Path("/findAll")
 	@Produces(MediaType.APPLICATION_JSON)
-	@Operation(summary = "Obtener todas los distritos", operationId = "findAllDistritos", description = "Recupera una lista de todas los distritos disponibles en la base de datos", responses = {
+	@Operation(summary = "Obtener todas los distritos", operationId = "findAllDistritos", description = "Recupera una lista de todas los distritos disponibles en la base de datos. Se sirve desde memoria con ETag y admite If-None-Match.", responses = {
 			@ApiResponse(responseCode = "200", description = "Lista de distritos recuperada exitosamente", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = Distrito.class, type = "array"))),
+			@ApiResponse(responseCode = "304", description = "La lista no ha cambiado"),
 			@ApiResponse(responseCode = "500", description = "Error interno al recuperar los distritos") })
-	public Response findAll() {
+	public Response findAll(@Context Request request, @Context HttpHeaders headers) {
 		try {
-			List<Distrito> distritos = distritoService.findAll();
-			logger.info("Retrieved {} distritos", distritos.size());
-			return Response.status(Response.Status.OK).entity(distritos).build();
+			return GeoRespuestas.servir(geoService.getSnapshot().getDistritosJson(), request, headers);
 		} catch (DataException e) {
 			logger.error("Error retrieving distritos: {}", e.getMessage(), e);
 			return Response.status(Status.INTERNAL_SERVER_ERROR)
@@ -66,7 +67,7 @@ public class DistritoResource {
 				return Response.status(Status.BAD_REQUEST).entity("ID inválido: debe ser un número positivo").build();
 			}
 
-			Distrito distrito = distritoService.findById(id);
+			Distrito distrito = geoService.getSnapshot().getDistrito(id);
 			if (distrito == null) {
 				logger.warn("Distrito with ID {} not found", id);
 				return Response.status(Status.NOT_FOUND).entity("Distrito con ID " + id + " no encontrado.").build();
@@ -79,4 +80,34 @@ public class DistritoResource {
 					.entity("Ha ocurrido un error interno al buscar el Distrito: " + e.getMessage()).build();
 		}
 	}
+
+	@GET
+	@Path("/{id}/concelhos")
+	@Produces(MediaType.APPLICATION_JSON)
+	@Operation(summary = "Concelhos de un distrito", operationId = "findConcelhosByDistrito", description = "Recupera los concelhos de un distrito, para no descargar la lista completa. Se sirve desde memoria con ETag y admite If-None-Match.", responses = {
+			@ApiResponse(responseCode = "200", description = "Lista de concelhos recuperada exitosamente", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = Concelho.class, type = "array"))),
+			@ApiResponse(responseCode = "304", description = "La lista no ha cambiado"),
+			@ApiResponse(responseCode = "400", description = "ID no proporcionado o inválido"),
+			@ApiResponse(responseCode = "404", description = "Distrito no encontrado"),
+			@ApiResponse(responseCode = "500", description = "Error interno al recuperar los concelhos") })
+	public Response findConcelhos(@PathParam("id") int id, @Context Request request,
+			@Context HttpHeaders headers) {
+		try {
+			if (id <= 0) {
+				logger.warn("Invalid ID provided: {}", id);
+				return Response.status(Status.BAD_REQUEST).entity("ID inválido: debe ser un número positivo").build();
+			}
+
+			GeoJson concelhos = geoService.getSnapshot().getConcelhosJson(id);
+			if (concelhos == null) {
+				logger.warn("Distrito with ID {} not found", id);
+				return Response.status(Status.NOT_FOUND).entity("Distrito con ID " + id + " no encontrado.").build();
+			}
+			return GeoRespuestas.servir(concelhos, request, headers);
+		} catch (DataException e) {
+			logger.error("Error retrieving concelhos of Distrito {}: {}", id, e.getMessage(), e);
+			return Response.status(Status.INTERNAL_SERVER_ERROR)
+					.entity("Error al recuperar los concelhos: " + e.getMessage()).build();
+		}
+	}
 }
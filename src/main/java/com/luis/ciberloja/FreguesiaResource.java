@@ -1,19 +1,20 @@
 package com.luis.ciberloja;
 
-import java.util.List;
-
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import com.luis.ciberloja.geo.GeoRespuestas;
+import com.luis.ciberloja.geo.GeoService;
 import com.luis.ciberloja.model.Freguesia;
-import com.luis.ciberloja.service.FreguesiaService;
-import com.luis.ciberloja.service.impl.FreguesiaServiceImpl;
 
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.Response.Status;
 
@@ -24,24 +25,23 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 
 @Path("/freguesia")
 public class FreguesiaResource {
-	private FreguesiaService freguesiaService = null;
+	private GeoService geoService = null;
 	private static final Logger logger = LogManager.getLogger(FreguesiaResource.class);
 
 	public FreguesiaResource() {
-		freguesiaService = new FreguesiaServiceImpl();
+		geoService = GeoService.getInstance();
 	}
 
 	@GET
 	@Path("/findAll")
 	@Produces(MediaType.APPLICATION_JSON)
-	@Operation(summary = "Obtener todas las freguesias", operationId = "findAllFreguesias", description = "Recupera una lista de todas las freguesias disponibles en la base de datos", responses = {
+	@Operation(summary = "Obtener todas las freguesias", operationId = "findAllFreguesias", description = "Recupera una lista de todas las freguesias disponibles en la base de datos. Se sirve desde memoria con ETag y admite If-None-Match.", responses = {
 			@ApiResponse(responseCode = "200", description = "Lista de freguesias recuperada exitosamente", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = Freguesia.class, type = "array"))),
+			@ApiResponse(responseCode = "304", description = "La lista no ha cambiado"),
 			@ApiResponse(responseCode = "500", description = "Error interno al recuperar las freguesias") })
-	public Response findAll() {
+	public Response findAll(@Context Request request, @Context HttpHeaders headers) {
 		try {
-			List<Freguesia> freguesias = freguesiaService.findAll();
-			logger.info("Retrieved {} freguesias", freguesias.size());
-			return Response.status(Response.Status.OK).entity(freguesias).build();
+			return GeoRespuestas.servir(geoService.getSnapshot().getFreguesiasJson(), request, headers);
 		} catch (DataException e) {
 			logger.error("Error retrieving freguesias: {}", e.getMessage(), e);
 			return Response.status(Status.INTERNAL_SERVER_ERROR)
@@ -64,7 +64,7 @@ public class FreguesiaResource {
 				return Response.status(Status.BAD_REQUEST).entity("ID inválido: debe ser un número positivo").build();
 			}
 
-			Freguesia freguesia = freguesiaService.findById(id);
+			Freguesia freguesia = geoService.getSnapshot().getFreguesia(id);
 			if (freguesia == null) {
 				logger.warn("freguesia with ID {} not found", id);
 				return Response.status(Status.NOT_FOUND).entity("freguesia con ID " + id + " no encontrada.").build();
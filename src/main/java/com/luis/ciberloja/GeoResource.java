@@ -0,0 +1,95 @@
+package com.luis.ciberloja;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.luis.ciberloja.geo.GeoResultado;
+import com.luis.ciberloja.geo.GeoService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import jakarta.ws.rs.DefaultValue;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.Response.Status;
+
+@Path("/geo")
+public class GeoResource {
+
+	private static Logger logger = LogManager.getLogger(GeoResource.class);
+
+	private static final int MAX_LIMIT = 100;
+
+	private GeoService geoService = null;
+
+	public GeoResource() {
+		geoService = GeoService.getInstance();
+	}
+
+	@GET
+	@Path("/buscar")
+	@Produces(MediaType.APPLICATION_JSON)
+	@Operation(summary = "Buscar distritos, concelhos y freguesias por nombre", operationId = "buscarGeo", description = "Devuelve los lugares cuyo nombre contiene todas las palabras escritas, enteras o en parte, con los ids de su concelho, distrito y país. No distingue mayúsculas ni acentos. Primero los nombres exactos, luego los que empiezan por el texto.", responses = {
+			@ApiResponse(responseCode = "200", description = "Lugares encontrados", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = GeoResultado.class, type = "array"))),
+			@ApiResponse(responseCode = "400", description = "Texto a buscar no proporcionado o tipo inválido"),
+			@ApiResponse(responseCode = "500", description = "Error interno al buscar") })
+	public Response buscar(@Parameter(description = "Texto a buscar", required = true) @QueryParam("q") String q,
+			@Parameter(description = "Sólo lugares de este tipo: distrito, concelho o freguesia") @QueryParam("tipo") String tipo,
+			@Parameter(description = "Número máximo de resultados (hasta 100)") @QueryParam("limit") @DefaultValue("20") int limit) {
+		if (q == null || q.trim().isEmpty() || limit < 1) {
+			return Response.status(Status.BAD_REQUEST).entity("Parámetros inválidos: q es obligatorio y limit mayor que 0.")
+					.build();
+		}
+		try {
+			GeoResultado.Tipo filtro = tipo == null || tipo.isEmpty() ? null
+					: GeoResultado.Tipo.valueOf(tipo.toUpperCase(Locale.ROOT));
+			List<GeoResultado> resultados = geoService.getSnapshot().getIndice().buscar(q, filtro,
+					Math.min(limit, MAX_LIMIT));
+			return Response.status(Status.OK).entity(resultados).build();
+		} catch (IllegalArgumentException e) {
+			return Response.status(Status.BAD_REQUEST).entity("Tipo inválido: " + tipo).build();
+		} catch (DataException e) {
+			logger.error("Error al buscar '{}': {}", q, e.getMessage(), e);
+			return Response.status(Status.INTERNAL_SERVER_ERROR).entity("Error al buscar: " + e.getMessage()).build();
+		}
+	}
+
+	@GET
+	@Path("/status")
+	@Produces(MediaType.APPLICATION_JSON)
+	@Operation(summary = "Estado de los datos geográficos en memoria", operationId = "getGeoStatus", description = "Devuelve cuándo se cargaron los datos geográficos, su versión y el tamaño de cada lista serializada.", responses = {
+			@ApiResponse(responseCode = "200", description = "Estado de los datos geográficos") })
+	public Response getStatus() {
+		Map<String, Object> estado = geoService.getEstado();
+		return Response.status(Status.OK).entity(estado).build();
+	}
+
+	@POST
+	@Path("/recargar")
+	@Produces(MediaType.APPLICATION_JSON)
+	@Operation(summary = "Recargar los datos geográficos", operationId = "recargarGeo", description = "Vuelve a leer de la base de datos países, distritos, concelhos y freguesias. Sólo hace falta tras modificar esas tablas.", responses = {
+			@ApiResponse(responseCode = "200", description = "Datos geográficos recargados"),
+			@ApiResponse(responseCode = "500", description = "Error interno al recargar; se siguen sirviendo los datos anteriores") })
+	public Response recargar() {
+		try {
+			geoService.recargar();
+			return Response.status(Status.OK).entity(geoService.getEstado()).build();
+		} catch (DataException e) {
+			logger.error("Error al recargar los datos geográficos: {}", e.getMessage(), e);
+			return Response.status(Status.INTERNAL_SERVER_ERROR)
+					.entity("Error al recargar los datos geográficos: " + e.getMessage()).build();
+		}
+	}
+}
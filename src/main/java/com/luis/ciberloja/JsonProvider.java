@@ -0,0 +1,163 @@
+package com.luis.ciberloja;
+
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PushbackInputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import org.eclipse.yasson.JsonBindingProvider;
+import org.eclipse.yasson.YassonJsonb;
+
+import com.luis.ciberloja.util.FechaDeserializer;
+
+import jakarta.json.Json;
+import jakarta.json.bind.JsonbBuilder;
+import jakarta.json.bind.JsonbConfig;
+import jakarta.json.bind.JsonbException;
+import jakarta.json.stream.JsonGenerator;
+import jakarta.json.stream.JsonGeneratorFactory;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.MultivaluedMap;
+import jakarta.ws.rs.core.NoContentException;
+import jakarta.ws.rs.core.StreamingOutput;
+import jakarta.ws.rs.ext.MessageBodyReader;
+import jakarta.ws.rs.ext.MessageBodyWriter;
+import jakarta.ws.rs.ext.Provider;
+
+/**
+ * Lectura y escritura de todos los cuerpos JSON de la API (Pedido, ClienteDTO,
+ * ProductoDTO, DireccionDTO, EmpleadoDTO, listas y resultados paginados) con
+ * una única instancia de JSON-B, que es thread-safe y cachea el modelo de cada
+ * clase.
+ *
+ * Las respuestas salen exactamente como las escribía el provider JSON-B de
+ * Jersey (mismos nombres, orden, formato de fechas y anotaciones @Jsonb* de
+ * los DTOs), pero se escriben directamente sobre el stream de la respuesta en
+ * lugar de construir antes el JSON entero como String y después como byte[].
+ *
+ * Al leer, las fechas aceptan además el formato por defecto de Gson, que es
+ * el que leía el antiguo PedidoReader (ver FechaDeserializer).
+ *
+ * Los tipos que ya son bytes o texto (String, byte[], streams, StreamingOutput)
+ * los siguen escribiendo los providers de Jersey. Las respuestas que se
+ * serializan antes (cachés, geo) o por partes (streams) usan la misma
+ * instancia, getJsonb(), para que salgan igual que las demás.
+ */
+@Provider
+@Consumes({ MediaType.APPLICATION_JSON, "application/*+json" })
+@Produces({ MediaType.APPLICATION_JSON, "application/*+json" })
+public class JsonProvider implements MessageBodyReader<Object>, MessageBodyWriter<Object> {
+
+	// Yasson, para poder escribir y leer elemento a elemento con JSON-P
+	private static final YassonJsonb JSONB = (YassonJsonb) JsonbBuilder.newBuilder(new JsonBindingProvider())
+			.withConfig(new JsonbConfig().withDeserializers(new FechaDeserializer())).build();
+
+	private static final JsonGeneratorFactory GENERADORES = Json.createGeneratorFactory(Map.of());
+
+	/**
+	 * La instancia de JSON-B de las respuestas, para serializar fuera de Jersey.
+	 */
+	public static YassonJsonb getJsonb() {
+		return JSONB;
+	}
+
+	/**
+	 * Generador JSON-P sobre el stream de una respuesta, para escribirla por
+	 * partes con getJsonb().toJson(valor, tipo, generador). Al cerrarlo sólo se
+	 * vacía: el stream lo cierra Jersey.
+	 */
+	public static JsonGenerator createGenerator(OutputStream out) {
+		return GENERADORES.createGenerator(new SinCerrar(out), StandardCharsets.UTF_8);
+	}
+
+	@Override
+	public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+		return esJson(mediaType) && esObjeto(type);
+	}
+
+	@Override
+	public Object readFrom(Class<Object> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+			MultivaluedMap<String, String> httpHeaders, InputStream entityStream)
+			throws IOException, WebApplicationException {
+		PushbackInputStream in = new PushbackInputStream(entityStream, 1);
+		int primero = in.read();
+		if (primero == -1) {
+			// Igual que el provider de Jersey: un cuerpo vacío es un 400
+			throw new NoContentException("Cuerpo JSON vacío");
+		}
+		in.unread(primero);
+		try {
+			return JSONB.fromJson(in, genericType != null ? genericType : type);
+		} catch (JsonbException e) {
+			throw new BadRequestException("JSON no válido: " + e.getMessage(), e);
+		}
+	}
+
+	@Override
+	public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+		return esJson(mediaType) && esObjeto(type);
+	}
+
+	@Override
+	public void writeTo(Object t, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+			MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream)
+			throws IOException, WebApplicationException {
+		// JSON-B cierra el writer al terminar; el stream de la respuesta lo
+		// cierra Jersey, así que aquí solo se vacía
+		Writer writer = new OutputStreamWriter(new SinCerrar(entityStream), getCharset(mediaType));
+		// Por la clase real del objeto, como Jersey: con Response.ok(lista) el
+		// tipo genérico es la clase cruda
+		JSONB.toJson(t, writer);
+	}
+
+	private static boolean esJson(MediaType mediaType) {
+		return mediaType == null || MediaType.APPLICATION_JSON_TYPE.isCompatible(mediaType)
+				|| ("application".equals(mediaType.getType()) && mediaType.getSubtype().endsWith("+json"));
+	}
+
+	private static boolean esObjeto(Class<?> type) {
+		return !(CharSequence.class.isAssignableFrom(type) || byte[].class.equals(type)
+				|| InputStream.class.isAssignableFrom(type) || Reader.class.isAssignableFrom(type)
+				|| File.class.isAssignableFrom(type) || StreamingOutput.class.isAssignableFrom(type));
+	}
+
+	private static Charset getCharset(MediaType mediaType) {
+		String charset = mediaType != null ? mediaType.getParameters().get(MediaType.CHARSET_PARAMETER) : null;
+		try {
+			return charset != null ? Charset.forName(charset) : StandardCharsets.UTF_8;
+		} catch (IllegalArgumentException e) {
+			return StandardCharsets.UTF_8;
+		}
+	}
+
+	private static class SinCerrar extends FilterOutputStream {
+
+		SinCerrar(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+		}
+
+		@Override
+		public void close() throws IOException {
+			flush();
+		}
+	}
+}
@@ -1,13 +1,11 @@
 package com.luis.ciberloja;
 
-import java.util.List;
-
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import com.luis.ciberloja.geo.GeoRespuestas;
+import com.luis.ciberloja.geo.GeoService;
 import com.luis.ciberloja.model.Pais;
-import com.luis.ciberloja.service.PaisService;
-import com.luis.ciberloja.service.impl.PaisServiceImpl;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -17,30 +15,32 @@ import jakarta.ws.rs.GET;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.Response.Status;
 
 @Path("/pais")
 public class PaisResource {
-	private PaisService paisService = null;
+	private GeoService geoService = null;
 	private static final Logger logger = LogManager.getLogger(PaisResource.class);
 
 	public PaisResource() {
-		paisService = new PaisServiceImpl();
+		geoService = GeoService.getInstance();
 	}
 
 	@GET
 	@Path("/findAll")
 	@Produces(MediaType.APPLICATION_JSON)
-	@Operation(summary = "Obtener todas las paises", operationId = "findAllPaises", description = "Recupera una lista de todas las paises disponibles en la base de datos", responses = {
+	@Operation(summary = "Obtener todas las paises", operationId = "findAllPaises", description = "Recupera una lista de todas las paises disponibles en la base de datos. Se sirve desde memoria con ETag y admite If-None-Match.", responses = {
 			@ApiResponse(responseCode = "200", description = "Lista de paises recuperada exitosamente", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = Pais.class, type = "array"))),
+			@ApiResponse(responseCode = "304", description = "La lista no ha cambiado"),
 			@ApiResponse(responseCode = "500", description = "Error interno al recuperar las paises") })
-	public Response findAll() {
+	public Response findAll(@Context Request request, @Context HttpHeaders headers) {
 		try {
-			List<Pais> pais = paisService.findAll();
-			logger.info("Retrieved {} paises", pais.size());
-			return Response.status(Response.Status.OK).entity(pais).build();
+			return GeoRespuestas.servir(geoService.getSnapshot().getPaisesJson(), request, headers);
 		} catch (DataException e) {
 			logger.error("Error retrieving paises: {}", e.getMessage(), e);
 			return Response.status(Status.INTERNAL_SERVER_ERROR)
@@ -63,7 +63,7 @@ public class PaisResource {
 				return Response.status(Status.BAD_REQUEST).entity("ID inválido: debe ser un número positivo").build();
 			}
 
-			Pais pais = paisService.findById(id);
+			Pais pais = geoService.getSnapshot().getPais(id);
 			if (pais == null) {
 				logger.warn("pais with ID {} not found", id);
 				return Response.status(Status.NOT_FOUND).entity("pais con ID " + id + " no encontrada.").build();
@@ -1,25 +1,41 @@
 package com.luis.ciberloja;
 
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
 import java.util.List;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.eclipse.yasson.YassonJsonb;
 
+import com.luis.ciberloja.mail.MailOutboxService;
 import com.luis.ciberloja.model.Pedido;
 import com.luis.ciberloja.model.PedidoCriteria;
+import com.luis.ciberloja.model.Results;
+import com.luis.ciberloja.pedido.PedidoBusquedaService;
+import com.luis.ciberloja.pedido.PedidoClienteCache;
+import com.luis.ciberloja.pedido.PedidoCreacionService;
+import com.luis.ciberloja.pedido.PedidoImportacionResultado;
+import com.luis.ciberloja.pedido.PedidoImportacionService;
 
-import com.luis.ciberloja.service.MailException;
 import com.luis.ciberloja.service.PedidoService;
 import com.luis.ciberloja.service.impl.PedidoServiceImpl;
+import com.luis.ciberloja.util.ConfigUtils;
+import com.luis.ciberloja.util.CursorResults;
+import com.luis.ciberloja.ventas.VentasPedido;
+import com.luis.ciberloja.ventas.VentasService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import jakarta.json.stream.JsonGenerator;
 import jakarta.ws.rs.Consumes;
 import jakarta.ws.rs.DELETE;
+import jakarta.ws.rs.DefaultValue;
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.POST;
 import jakarta.ws.rs.PUT;
@@ -27,9 +43,15 @@ import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.CacheControl;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.Response.Status;
+import jakarta.ws.rs.core.StreamingOutput;
 
 @Path("/pedido")
 public class PedidoResource {
@@ -38,8 +60,32 @@ public class PedidoResource {
 
 	private static Logger logger = LogManager.getLogger(PedidoResource.class);
 
+	private PedidoBusquedaService pedidoBusquedaService = null;
+
+	private PedidoCreacionService pedidoCreacionService = null;
+
+	private PedidoImportacionService pedidoImportacionService = null;
+
+	private VentasService ventasService = null;
+
+	private PedidoClienteCache pedidoClienteCache = null;
+
+	private static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+
+	private static final String NDJSON = "application/x-ndjson";
+
+	private static final int DEFAULT_MAX_PAGE_SIZE = 500;
+
+	private final int maxPageSize;
+
 	public PedidoResource() {
 		pedidoService = new PedidoServiceImpl();
+		pedidoBusquedaService = new PedidoBusquedaService();
+		pedidoCreacionService = new PedidoCreacionService();
+		pedidoImportacionService = new PedidoImportacionService();
+		ventasService = VentasService.getInstance();
+		pedidoClienteCache = PedidoClienteCache.getInstance();
+		maxPageSize = ConfigUtils.getInt("pedido.page.max.size", DEFAULT_MAX_PAGE_SIZE);
 	}
 
 	@GET
@@ -75,18 +121,44 @@ public class PedidoResource {
 		}
 	}
 
+	@GET
+	@Path("/mail/status")
+	@Produces(MediaType.APPLICATION_JSON)
+	@Operation(summary = "Estado de la cola de correos", operationId = "getMailOutboxStatus", description = "Devuelve los correos de confirmación pendientes, enviados y fallidos, y el último error de envío.", responses = {
+			@ApiResponse(responseCode = "200", description = "Estado de la cola de correos"),
+			@ApiResponse(responseCode = "500", description = "Error interno al obtener el estado de la cola") })
+	public Response getMailStatus() {
+		try {
+			return Response.status(Status.OK).entity(MailOutboxService.getInstance().getEstado()).build();
+		} catch (Exception e) {
+			logger.error("Error al obtener el estado de la cola de correos: {}", e.getMessage(), e);
+			return Response.status(Status.INTERNAL_SERVER_ERROR)
+					.entity("Error al obtener el estado de la cola de correos: " + e.getMessage()).build();
+		}
+	}
+
 	@GET
 	@Path("/pedidos") // Explicitly define the path
 	@Produces(MediaType.APPLICATION_JSON)
 	@Operation(operationId = "findPedidosByCriteria", summary = "Búsqueda de pedidos por criteria", description = "Búsqueda de pedidos a partir de varios parámetros introducidos", responses = {
-			@ApiResponse(responseCode = "200", description = "Pedidos encontrados", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = Pedido[].class))),
-			@ApiResponse(responseCode = "400", description = "Datos introducidos incorrectos"),
+			@ApiResponse(responseCode = "200", description = "Pedidos encontrados (página con el total en la cabecera X-Total-Count, CursorResults si se indica after, o todos si stream=true)", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = Pedido[].class))),
+			@ApiResponse(responseCode = "400", description = "Datos introducidos, paginación o cursor incorrectos"),
 			@ApiResponse(responseCode = "500", description = "Error al procesar la solicitud") })
 	public Response findByCriteria(@QueryParam("id") Long id, @QueryParam("fechaDesde") String fechaDesde,
 			@QueryParam("fechaHasta") String fechaHasta, @QueryParam("precioDesde") Double precioDesde,
 			@QueryParam("precioHasta") Double precioHasta, @QueryParam("clienteId") Long clienteId,
 			@QueryParam("tipoEstadoPedidoId") Integer tipoEstadoPedidoId, @QueryParam("productoId") String productoId,
-			@QueryParam("descripcion") String descripcion, @QueryParam("tipoEntregaId") Integer tipoEntregaId) {
+			@QueryParam("descripcion") String descripcion, @QueryParam("tipoEntregaId") Integer tipoEntregaId,
+			@QueryParam("page") @DefaultValue("1") int page, @QueryParam("size") @DefaultValue("30") int size,
+			@Parameter(description = "Cursor devuelto en 'siguiente' por la página anterior. Si se indica (aunque sea vacío) se pagina por cursor, del pedido más reciente al más antiguo") @QueryParam("after") String after,
+			@Parameter(description = "Si es true se devuelven todos los pedidos como un array JSON escrito a medida que se leen, sin paginar. Si falla a mitad, la conexión se corta sin cerrar el array: un JSON incompleto es un error") @QueryParam("stream") @DefaultValue("false") boolean stream) {
+
+		if (!stream && (page < 1 || size < 1 || size > maxPageSize)) {
+			return Response.status(Status.BAD_REQUEST)
+					.entity("Parámetros de paginación inválidos: page debe ser mayor que 0 y size estar entre 1 y "
+							+ maxPageSize + ".")
+					.build();
+		}
 
 		PedidoCriteria pedidoCriteria = new PedidoCriteria();
 		pedidoCriteria.setId(id);
@@ -112,8 +184,20 @@ public class PedidoResource {
 		}
 
 		try {
-			List<Pedido> result = pedidoService.findByCriteria(pedidoCriteria, 1, Integer.MAX_VALUE).getPage();
-			return Response.status(Status.OK).entity(result).build();
+			if (stream) {
+				return Response.status(Status.OK).entity(streamPedidos(pedidoBusquedaService.recorrer(pedidoCriteria)))
+						.build();
+			}
+			if (after != null) {
+				CursorResults<Pedido> result = pedidoBusquedaService.findBy(pedidoCriteria, after, size);
+				return Response.status(Status.OK).entity(result).build();
+			}
+
+			Results<Pedido> result = pedidoService.findByCriteria(pedidoCriteria, page, size);
+			return Response.status(Status.OK).entity(result.getPage()).header(TOTAL_COUNT_HEADER, result.getTotal())
+					.build();
+		} catch (IllegalArgumentException e) {
+			return Response.status(Status.BAD_REQUEST).entity(e.getMessage()).build();
 		} catch (DataException de) {
 			logger.error("Data error: " + de.getMessage(), de);
 			return Response.status(Status.INTERNAL_SERVER_ERROR)
@@ -127,10 +211,12 @@ public class PedidoResource {
 	@Operation(operationId = "findPedidosByClienteId", summary = "Obtener pedidos por ID de cliente", description = "Este endpoint permite obtener todos los pedidos asociados a un cliente por su ID.", responses = {
 			@ApiResponse(responseCode = "200", description = "Pedidos encontrados", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = Pedido[].class))),
 			@ApiResponse(responseCode = "204", description = "No se encontraron pedidos para el cliente"),
+			@ApiResponse(responseCode = "304", description = "Los pedidos no han cambiado desde la versión indicada en If-None-Match"),
 			@ApiResponse(responseCode = "400", description = "ID de cliente inválido"),
 			@ApiResponse(responseCode = "500", description = "Error interno al buscar los pedidos") })
 	public Response findPedidosByClienteId(
-			@Parameter(description = "ID del cliente para buscar sus pedidos", required = true) @PathParam("clienteId") Long clienteId) {
+			@Parameter(description = "ID del cliente para buscar sus pedidos", required = true) @PathParam("clienteId") Long clienteId,
+			@Context Request request) {
 
 		try {
 			if (clienteId == null || clienteId <= 0) {
@@ -141,16 +227,32 @@ public class PedidoResource {
 
 			logger.info("Buscando pedidos para el cliente con ID: {}", clienteId);
 
-			List<Pedido> pedidos = pedidoService.findPedidosByClienteId(clienteId).getPage();
+			PedidoClienteCache.Historial historial = pedidoClienteCache.get(clienteId);
+			if (historial == null) {
+				long generacion = pedidoClienteCache.getGeneracion();
+				List<Pedido> pedidos = pedidoService.findPedidosByClienteId(clienteId).getPage();
+				historial = pedidoClienteCache.put(clienteId, pedidos, generacion);
+			}
 
-			if (pedidos.isEmpty()) {
+			if (historial.isVacio()) {
 				logger.info("No se encontraron pedidos para el cliente con ID: {}", clienteId);
 				return Response.status(Status.NO_CONTENT)
 						.entity("No se encontraron pedidos para el cliente con ID: " + clienteId).build();
 			}
 
-			logger.info("Se encontraron {} pedidos para el cliente con ID: {}", pedidos.size(), clienteId);
-			return Response.status(Status.OK).entity(pedidos).build();
+			// Datos de un cliente: sólo en su navegador, y revalidando cada vez con el ETag
+			EntityTag etag = new EntityTag(historial.getVersion());
+			CacheControl cacheControl = new CacheControl();
+			cacheControl.setPrivate(true);
+			cacheControl.setNoCache(true);
+
+			Response.ResponseBuilder noModificado = request.evaluatePreconditions(etag);
+			if (noModificado != null) {
+				return noModificado.cacheControl(cacheControl).build();
+			}
+
+			return Response.ok(historial.getJson(), MediaType.APPLICATION_JSON).tag(etag).cacheControl(cacheControl)
+					.build();
 
 		} catch (DataException de) {
 			logger.error("Error al buscar pedidos para el cliente con ID: {}", clienteId, de);
@@ -169,7 +271,8 @@ public class PedidoResource {
 	@Produces(MediaType.APPLICATION_JSON)
 	@Operation(operationId = "createPedido", summary = "Creación de un pedido", description = "Crea un pedido introduciendo todos los datos del mismo", responses = {
 			@ApiResponse(responseCode = "200", description = "El pedido fue creado correctamente", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = Pedido.class))),
-			@ApiResponse(responseCode = "400", description = "Error al enviar el correo de creación del pedido") })
+			@ApiResponse(responseCode = "202", description = "El pedido fue creado pero no se ha podido obtener su id (sin cuerpo)"),
+			@ApiResponse(responseCode = "400", description = "Error en el proceso de creación del pedido") })
 	public Response create(Pedido pedido) {
 		if (pedido == null) {
 			logger.error("El objeto Pedido recibido es null");
@@ -177,19 +280,67 @@ public class PedidoResource {
 		}
 		logger.info("Pedido recibido: " + pedido.toString()); // Añade esto para depurar
 		try {
-			Long id = pedidoService.create(pedido);
-			Pedido pedidoCreated = pedidoService.findBy(id);
+			// El correo de confirmación queda en la cola de salida; no se espera al envío
+			// create() completa el pedido con los ids generados, la fecha, el total y
+			// los nombres de los tipos en la misma transacción
+			Pedido pedidoCreated = pedidoCreacionService.create(pedido);
+			if (pedidoCreated == null) {
+				// Creado, pero sin id que devolver: no es un error del servidor
+				return Response.status(Status.ACCEPTED).build();
+			}
 			return Response.status(Status.OK).entity(pedidoCreated).build();
 		} catch (DataException de) {
 			logger.error(de.getMessage(), de);
 			return Response.status(Status.BAD_REQUEST).entity("Error en el proceso de creación del pedido").build();
-		} catch (MailException me) {
-			logger.error("Error al enviar el correo electrónico", me.getMessage(), me);
-			return Response.status(Status.BAD_REQUEST).entity("Error al enviar el correo de creación de pedido")
-					.build();
 		}
 	}
 
+	@POST
+	@Path("/bulk")
+	@Consumes({ MediaType.APPLICATION_JSON, NDJSON })
+	@Produces(MediaType.APPLICATION_JSON)
+	@Operation(operationId = "importPedidos", summary = "Importación masiva de pedidos", description = "Crea los pedidos recibidos como array JSON o como un pedido JSON por línea (NDJSON), insertándolos por bloques. La respuesta se escribe según se confirma cada bloque: 'resultados' con el id creado o el error de cada pedido en el orden recibido, y después los totales y 'error' si la importación se ha interrumpido (JSON no válido o error de BD; los pedidos anteriores quedan creados).", responses = {
+			@ApiResponse(responseCode = "200", description = "Importación procesada (puede haber pedidos fallidos o un error en 'error')", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = PedidoImportacionResultado.class))),
+			@ApiResponse(responseCode = "500", description = "No se puede importar: esquema de BD o cola de correos no disponibles") })
+	public Response importar(InputStream entrada,
+			@Parameter(description = "Si es true se encola el correo de confirmación de cada pedido creado") @QueryParam("notificar") @DefaultValue("false") boolean notificar) {
+
+		try {
+			pedidoImportacionService.verificar(notificar);
+		} catch (DataException de) {
+			logger.error(de.getMessage(), de);
+			return Response.status(Status.INTERNAL_SERVER_ERROR)
+					.entity("Error en el proceso de importación de los pedidos: " + de.getMessage()).build();
+		}
+
+		StreamingOutput salida = output -> {
+			YassonJsonb jsonb = JsonProvider.getJsonb();
+			JsonGenerator generator = JsonProvider.createGenerator(output);
+			PedidoImportacionResultado resultado = new PedidoImportacionResultado();
+			generator.writeStartObject().writeKey("resultados").writeStartArray();
+			try {
+				pedidoImportacionService.importar(new InputStreamReader(entrada, StandardCharsets.UTF_8), notificar,
+						resultado, item -> jsonb.toJson(item, PedidoImportacionResultado.Item.class, generator));
+			} catch (DataException de) {
+				logger.error(de.getMessage(), de);
+				resultado.setError("Error en el proceso de importación de los pedidos: " + de.getMessage());
+			}
+			generator.writeEnd();
+			generator.write("total", resultado.getTotal());
+			generator.write("creados", resultado.getCreados());
+			generator.write("fallidos", resultado.getFallidos());
+			generator.write("duracionMillis", resultado.getDuracionMillis());
+			if (resultado.getError() != null) {
+				generator.write("error", resultado.getError());
+			} else {
+				generator.writeNull("error");
+			}
+			generator.writeEnd();
+			generator.close();
+		};
+		return Response.status(Status.OK).entity(salida).build();
+	}
+
 	@DELETE
 	@Path("/delete")
 	@Consumes(MediaType.APPLICATION_JSON)
@@ -199,7 +350,10 @@ public class PedidoResource {
 	public Response delete(@QueryParam("id") Long id) {
 
 		try {
+			VentasPedido ventasAnteriores = findVentasPedido(id);
 			pedidoService.delete(id);
+			pedidoClienteCache.invalidarPedido(id);
+			actualizarVentas(id, ventasAnteriores);
 			return Response.status(Status.OK).entity("Pedido eliminado correctamente").build();
 		} catch (DataException de) {
 			logger.error(de.getMessage(), de);
@@ -229,9 +383,15 @@ public class PedidoResource {
 			}
 
 			// Intentar actualizar el pedido
+			VentasPedido ventasAnteriores = findVentasPedido(pedido.getId());
 			boolean updated = pedidoService.update(pedido);
 			if (updated) {
-				Pedido pedidoActualizado = pedidoService.findBy(pedido.getId());
+				// El pedido puede haber cambiado de cliente
+				pedidoClienteCache.invalidarPedido(pedido.getId());
+				pedidoClienteCache.invalidarCliente(pedido.getClienteId());
+				actualizarVentas(pedido.getId(), ventasAnteriores);
+				// Lo escrito es lo recibido; sólo se añaden los nombres de los tipos
+				Pedido pedidoActualizado = pedidoCreacionService.completarActualizado(pedido);
 				if (pedidoActualizado == null) {
 					logger.warn("Pedido con ID {} no encontrado después de la actualización", pedido.getId());
 					return Response.status(Status.NOT_FOUND).entity("Pedido no encontrado después de la actualización")
@@ -254,4 +414,54 @@ public class PedidoResource {
 					.entity("Error inesperado en el proceso de actualización del pedido").build();
 		}
 	}
+
+	/**
+	 * Las ventas agregadas no deben impedir modificar o borrar un pedido: si no
+	 * se pueden leer las suyas, pedidoModificado no toca los agregados.
+	 */
+	private VentasPedido findVentasPedido(Long id) {
+		try {
+			return ventasService.findVentasPedido(id);
+		} catch (DataException de) {
+			logger.error("No se han podido leer las ventas del pedido {} antes de modificarlo", id, de);
+			return VentasPedido.sinLeer(id);
+		}
+	}
+
+	/**
+	 * Las ventas agregadas no deben hacer fallar una modificación ya guardada:
+	 * si no se pueden actualizar se registra y se corrigen con
+	 * /ventas/recalcular.
+	 */
+	private void actualizarVentas(Long id, VentasPedido ventasAnteriores) {
+		try {
+			ventasService.pedidoModificado(id, ventasAnteriores);
+		} catch (DataException de) {
+			logger.error("Ventas agregadas sin actualizar tras modificar el pedido {}", id, de);
+		}
+	}
+
+	/**
+	 * Escribe los pedidos como un array JSON a medida que se cargan. Una vez
+	 * empezada la respuesta ya no se puede cambiar el 200: si falla a mitad no se
+	 * cierra el array y la excepción hace que el contenedor corte la conexión,
+	 * para que el cliente no tome por completa una lista truncada.
+	 */
+	private StreamingOutput streamPedidos(PedidoBusquedaService.Recorrido recorrido) {
+		return output -> {
+			YassonJsonb jsonb = JsonProvider.getJsonb();
+			JsonGenerator generator = JsonProvider.createGenerator(output);
+			generator.writeStartArray();
+			try {
+				// Si el cliente corta la conexión, el generador lanza JsonException y se deja de leer
+				int total = recorrido.enviar(pedido -> jsonb.toJson(pedido, Pedido.class, generator));
+				logger.info("{} pedidos enviados en streaming", total);
+			} catch (DataException de) {
+				logger.error("Streaming de pedidos interrumpido: " + de.getMessage(), de);
+				throw new WebApplicationException("Error en el proceso de búsqueda de los pedidos", de);
+			}
+			generator.writeEnd();
+			generator.close();
+		};
+	}
 }
@@ -1,28 +1,46 @@
 package com.luis.ciberloja;
 
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.eclipse.yasson.YassonJsonb;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.luis.ciberloja.catalogo.CatalogoCriteria;
+import com.luis.ciberloja.catalogo.CatalogoFacetas;
+import com.luis.ciberloja.catalogo.CatalogoNoDisponibleException;
+import com.luis.ciberloja.catalogo.CatalogoService;
+import com.luis.ciberloja.catalogo.CatalogoSnapshot;
+import com.luis.ciberloja.catalogo.CatalogoSyncRechazadoException;
+import com.luis.ciberloja.catalogo.CatalogoSyncResultado;
+import com.luis.ciberloja.catalogo.CatalogoSyncService;
 import com.luis.ciberloja.model.ProductoCriteria;
 import com.luis.ciberloja.model.ProductoDTO;
 import com.luis.ciberloja.model.Results;
-import com.luis.ciberloja.service.ArtigosCiberloja;
+import com.luis.ciberloja.producto.DestaquesCache;
+import com.luis.ciberloja.producto.ProductoAutocompletado;
+import com.luis.ciberloja.producto.ProductoBusquedaService;
+import com.luis.ciberloja.producto.ProductoCountCache;
+import com.luis.ciberloja.producto.ProductoIndice;
+import com.luis.ciberloja.producto.ProductoResultCache;
 import com.luis.ciberloja.service.ProductoService;
-import com.luis.ciberloja.service.impl.ArtigosCiberlojaImpl;
 import com.luis.ciberloja.service.impl.ProductoServiceImpl;
+import com.luis.ciberloja.util.ConfigUtils;
+import com.luis.ciberloja.util.CursorResults;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import jakarta.json.stream.JsonGenerator;
 import jakarta.ws.rs.Consumes;
 import jakarta.ws.rs.DELETE;
 import jakarta.ws.rs.DefaultValue;
@@ -34,9 +52,14 @@ import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.CacheControl;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.Response.Status;
+import jakarta.ws.rs.core.StreamingOutput;
 
 @RestController
 @Path("/producto")
@@ -44,13 +67,37 @@ public class ProductoResource {
 
 	private static Logger logger = LogManager.getLogger(ProductoResource.class);
 
+	private static final String CATALOGO_AGE_HEADER = "X-Catalogo-Age";
+
+	private static final String CATALOGO_STALE_HEADER = "X-Catalogo-Stale";
+
+	private static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+
+	private static final int DESTAQUES_MAX_AGE_SECONDS = 60;
+
+	private static final double[] DEFAULT_LIMITES_PRECIO = { 10, 25, 50, 100, 250, 500 };
+
+	private static final int DEFAULT_MAX_PAGE_SIZE = 100;
+
 	private ProductoService productoService;
 
-	private ArtigosCiberloja soapClientService;
+	private CatalogoService catalogoService;
+
+	private CatalogoSyncService catalogoSyncService;
+
+	private ProductoBusquedaService productoBusquedaService;
+
+	private DestaquesCache destaquesCache;
+
+	private final int maxPageSize;
 
 	public ProductoResource() {
-		soapClientService = new ArtigosCiberlojaImpl();
+		catalogoService = CatalogoService.getInstance();
+		catalogoSyncService = CatalogoSyncService.getInstance();
 		productoService = new ProductoServiceImpl();
+		productoBusquedaService = new ProductoBusquedaService();
+		destaquesCache = DestaquesCache.getInstance();
+		maxPageSize = ConfigUtils.getInt("producto.page.max.size", DEFAULT_MAX_PAGE_SIZE);
 	}
 
 	@GET
@@ -90,21 +137,35 @@ public class ProductoResource {
 	@Path("/search")
 	@Produces(MediaType.APPLICATION_JSON)
 	@Operation(summary = "Buscar productos por criterios", operationId = "findProductosByCriteria", description = "Este endpoint permite buscar productos aplicando filtros opcionales como ID, nombre, rango de precios, cantidad de unidades, y localización.", responses = {
-			@ApiResponse(responseCode = "200", description = "Productos encontrados", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = Results.class))),
-			@ApiResponse(responseCode = "400", description = "Criterios de búsqueda no proporcionados o inválidos"),
+			@ApiResponse(responseCode = "200", description = "Productos encontrados (Results, o CursorResults si se indica after)", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = Results.class))),
+			@ApiResponse(responseCode = "400", description = "Criterios de búsqueda o cursor no válidos"),
 			@ApiResponse(responseCode = "404", description = "No se encontraron productos con los criterios proporcionados"),
 			@ApiResponse(responseCode = "500", description = "Error interno en el servidor al procesar la búsqueda") })
 	public Response findByCriteria(@QueryParam("id") String id, @QueryParam("descripcion") String descripcion,
 			@QueryParam("precioMin") Double precioMin, @QueryParam("precioMax") Double precioMax,
 			@QueryParam("stockMin") Integer stockMin, @QueryParam("stockMax") Integer stockMax,
 			@QueryParam("familia") String familia, @QueryParam("page") @DefaultValue("1") int page,
-			@QueryParam("size") @DefaultValue("30") int size) {
+			@QueryParam("size") @DefaultValue("30") int size,
+			@Parameter(description = "Cursor devuelto en 'siguiente' por la página anterior. Si se indica (aunque sea vacío) se pagina por cursor en lugar de por número de página, con size como máximo producto.page.max.size") @QueryParam("after") String after,
+			@Parameter(description = "Si es false no se devuelve el total de resultados (scroll infinito). Con after evita además el recuento; sin after el total lo calcula igualmente ProductoService") @QueryParam("withTotal") @DefaultValue("true") boolean withTotal) {
 
 		try {
 			if (page < 1 || size < 1) {
 				return Response.status(Response.Status.BAD_REQUEST)
 						.entity("Parámetros de paginación inválidos: page y size deben ser mayores que 0.").build();
 			}
+			// Cada producto de una página por cursor se carga por separado
+			if (after != null && size > maxPageSize) {
+				return Response.status(Response.Status.BAD_REQUEST)
+						.entity("Parámetros de paginación inválidos: con after size no puede ser mayor que "
+								+ maxPageSize + ".")
+						.build();
+			}
+			if ((long) (page - 1) * size > Integer.MAX_VALUE) {
+				return Response.status(Response.Status.BAD_REQUEST)
+						.entity("Parámetros de paginación inválidos: page demasiado alto para size " + size + ".")
+						.build();
+			}
 
 			ProductoCriteria criteria = new ProductoCriteria();
 
@@ -132,18 +193,31 @@ public class ProductoResource {
 			}
 
 			logger.info(
-					"Buscando productos con criterios: id={}, descripcion={}, precioMin={}, precioMax={}, stockMin={}, stockMax={}, familia={}, page={}, size={}",
-					id, descripcion, precioMin, precioMax, stockMin, stockMax, familia, page, size);
+					"Buscando productos con criterios: id={}, descripcion={}, precioMin={}, precioMax={}, stockMin={}, stockMax={}, familia={}, page={}, size={}, withTotal={}",
+					id, descripcion, precioMin, precioMax, stockMin, stockMax, familia, page, size, withTotal);
+
+			if (after != null) {
+				CursorResults<ProductoDTO> resultados = productoBusquedaService.findBy(criteria, after, size, withTotal);
+
+				if (resultados.getPage().isEmpty()) {
+					return Response.status(Response.Status.NOT_FOUND)
+							.entity("No se encontraron productos con los criterios proporcionados.").build();
+				}
+
+				return Response.ok(resultados).build();
+			}
 
-			Results<ProductoDTO> resultados = productoService.findBy(criteria, page, size);
+			ProductoResultCache.Pagina resultados = productoBusquedaService.findBy(criteria, page, size, withTotal);
 
-			if (resultados == null || resultados.getPage().isEmpty()) {
+			if (resultados.isVacia()) {
 				return Response.status(Response.Status.NOT_FOUND)
 						.entity("No se encontraron productos con los criterios proporcionados.").build();
 			}
 
-			return Response.ok(resultados).build();
+			return Response.ok(resultados.getJson(), MediaType.APPLICATION_JSON).build();
 
+		} catch (IllegalArgumentException e) {
+			return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
 		} catch (Exception e) {
 			logger.error("Error al buscar productos con criterios: {}", e.getMessage(), e);
 			return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
@@ -154,13 +228,14 @@ public class ProductoResource {
 	@GET
 	@Path("/searchDestaques")
 	@Produces(MediaType.APPLICATION_JSON)
-	@Operation(summary = "Buscar productos por destacados", operationId = "findProductosByDestaques", description = "Este endpoint permite buscar productos destacados", responses = {
+	@Operation(summary = "Buscar productos por destacados", operationId = "findProductosByDestaques", description = "Este endpoint permite buscar productos destacados. Las respuestas llevan un ETag con la versión de la lista de destacados y admiten If-None-Match.", responses = {
 			@ApiResponse(responseCode = "200", description = "Productos encontrados", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = Results.class))),
+			@ApiResponse(responseCode = "304", description = "La lista de destacados no ha cambiado"),
 			@ApiResponse(responseCode = "400", description = "Criterios de búsqueda no proporcionados o inválidos"),
 			@ApiResponse(responseCode = "404", description = "No se encontraron productos con los criterios proporcionados"),
 			@ApiResponse(responseCode = "500", description = "Error interno en el servidor al procesar la búsqueda") })
 	public Response findByDestaques(@QueryParam("page") @DefaultValue("1") int page,
-			@QueryParam("size") @DefaultValue("30") int size) {
+			@QueryParam("size") @DefaultValue("30") int size, @Context Request request) {
 
 		try {
 			if (page < 1 || size < 1) {
@@ -168,14 +243,24 @@ public class ProductoResource {
 						.entity("Parámetros de paginación inválidos: page y size deben ser mayores que 0.").build();
 			}
 
-			Results<ProductoDTO> resultados = productoService.findByDestaques(page, size);
+			DestaquesCache.Pagina pagina = destaquesCache.getPagina(page, size);
 
-			if (resultados == null || resultados.getPage().isEmpty()) {
+			if (pagina == null) {
 				return Response.status(Response.Status.NOT_FOUND)
 						.entity("No se encontraron productos con los criterios proporcionados.").build();
 			}
 
-			return Response.ok(resultados).build();
+			EntityTag etag = new EntityTag(pagina.getVersion());
+			CacheControl cacheControl = new CacheControl();
+			cacheControl.setMaxAge(DESTAQUES_MAX_AGE_SECONDS);
+
+			Response.ResponseBuilder noModificado = request.evaluatePreconditions(etag);
+			if (noModificado != null) {
+				return noModificado.cacheControl(cacheControl).build();
+			}
+
+			return Response.ok(pagina.getJson(), MediaType.APPLICATION_JSON).tag(etag).cacheControl(cacheControl)
+					.build();
 
 		} catch (Exception e) {
 			logger.error("Error al buscar productos con criterios: {}", e.getMessage(), e);
@@ -184,10 +269,90 @@ public class ProductoResource {
 		}
 	}
 
+	@GET
+	@Path("/autocomplete")
+	@Produces(MediaType.APPLICATION_JSON)
+	@Operation(summary = "Autocompletar nombres de producto", operationId = "autocompleteProductos", description = "Devuelve los productos con más stock cuyo nombre contiene las palabras escritas, la última como prefijo. No distingue mayúsculas ni acentos.", responses = {
+			@ApiResponse(responseCode = "200", description = "Sugerencias encontradas"),
+			@ApiResponse(responseCode = "400", description = "Texto a autocompletar no proporcionado"),
+			@ApiResponse(responseCode = "500", description = "Error interno en el servidor al autocompletar") })
+	public Response autocomplete(
+			@Parameter(description = "Texto escrito en el buscador", required = true) @QueryParam("q") String q,
+			@Parameter(description = "Número máximo de sugerencias") @QueryParam("k") @DefaultValue("10") int k) {
+
+		try {
+			if (q == null || q.trim().isEmpty() || k < 1) {
+				return Response.status(Status.BAD_REQUEST).entity("Parámetros inválidos: q es obligatorio y k mayor que 0.")
+						.build();
+			}
+			List<ProductoAutocompletado.Sugerencia> sugerencias = ProductoAutocompletado.getInstance().sugerir(q, k);
+			return Response.status(Status.OK).entity(sugerencias).build();
+		} catch (Exception e) {
+			logger.error("Error al autocompletar '{}': {}", q, e.getMessage(), e);
+			return Response.status(Status.INTERNAL_SERVER_ERROR).entity("Error al autocompletar: " + e.getMessage())
+					.build();
+		}
+	}
+
+	@GET
+	@Path("/facets")
+	@Produces(MediaType.APPLICATION_JSON)
+	@Operation(summary = "Recuentos de productos por familia, precio y stock", operationId = "findProductoFacets", description = "Devuelve, para unos criterios de búsqueda, el número de productos por familia, por tramo de precio y con o sin stock, calculados en una sola pasada sobre el catálogo SOAP en memoria. Los recuentos son los del último snapshot del catálogo (cabeceras X-Catalogo-*), no los de la BD sobre la que busca /search, de modo que pueden diferir de su total mientras la BD no se haya sincronizado con el catálogo.", responses = {
+			@ApiResponse(responseCode = "200", description = "Recuentos calculados", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = CatalogoFacetas.class))),
+			@ApiResponse(responseCode = "400", description = "Criterios de búsqueda o tramos de precio inválidos"),
+			@ApiResponse(responseCode = "503", description = "Servicio SOAP no disponible"),
+			@ApiResponse(responseCode = "500", description = "Error interno en el servidor al calcular los recuentos") })
+	public Response findFacets(@QueryParam("id") String id, @QueryParam("descripcion") String descripcion,
+			@QueryParam("precioMin") Double precioMin, @QueryParam("precioMax") Double precioMax,
+			@QueryParam("stockMin") Double stockMin, @QueryParam("stockMax") Double stockMax,
+			@QueryParam("familia") String familia,
+			@Parameter(description = "Límites de los tramos de precio separados por comas, p. ej. 10,25,50") @QueryParam("precios") String precios) {
+
+		try {
+			double[] limitesPrecio = DEFAULT_LIMITES_PRECIO;
+			if (precios != null && !precios.trim().isEmpty()) {
+				limitesPrecio = Arrays.stream(precios.split(",")).map(String::trim).mapToDouble(Double::parseDouble)
+						.sorted().distinct().toArray();
+				// parseDouble acepta NaN e Infinity, que no delimitan ningún tramo
+				if (Arrays.stream(limitesPrecio).anyMatch(l -> !Double.isFinite(l))) {
+					throw new NumberFormatException(precios);
+				}
+			}
+
+			CatalogoCriteria criteria = new CatalogoCriteria();
+			if (id != null && !id.trim().isEmpty()) {
+				criteria.setId(id.trim());
+			}
+			if (descripcion != null && !descripcion.trim().isEmpty()) {
+				criteria.setNombre(descripcion.trim());
+			}
+			criteria.setPrecioMin(precioMin);
+			criteria.setPrecioMax(precioMax);
+			criteria.setStockMin(stockMin);
+			criteria.setStockMax(stockMax);
+			if (familia != null && !familia.trim().isEmpty()) {
+				criteria.setFamilia(familia.trim());
+			}
+
+			CatalogoSnapshot snapshot = catalogoService.getSnapshot();
+			CatalogoFacetas facetas = snapshot.facetas(criteria, limitesPrecio);
+			return conCabecerasCatalogo(Response.status(Status.OK).entity(facetas), snapshot).build();
+
+		} catch (NumberFormatException e) {
+			return Response.status(Status.BAD_REQUEST).entity("Tramos de precio inválidos: " + precios).build();
+		} catch (CatalogoNoDisponibleException e) {
+			return catalogoNoDisponible(e);
+		} catch (Exception e) {
+			logger.error("Error al calcular los recuentos de productos: {}", e.getMessage(), e);
+			return Response.status(Status.INTERNAL_SERVER_ERROR)
+					.entity("Error al calcular los recuentos de productos: " + e.getMessage()).build();
+		}
+	}
+
 	@GET
 	@Path("/sync-soap")
 	@Produces(MediaType.APPLICATION_JSON)
-	@Operation(summary = "Buscar un producto", operationId = "syncProductosFromSoap", description = "Este endpoint permite buscar un producto del sistema ", responses = {
+	@Operation(summary = "Buscar un producto", operationId = "syncProductosFromSoap", description = "Este endpoint permite buscar un producto del sistema. Sin page ni size devuelve todos los productos encontrados; con alguno de los dos, sólo esa página (page 1 y size 30 por defecto). Con stream=true se envían todos en streaming", responses = {
 			@ApiResponse(responseCode = "200", description = "Producto buscado exitosamente", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = Results.class))),
 			@ApiResponse(responseCode = "404", description = "Producto no encontrado"),
 			@ApiResponse(responseCode = "500", description = "Error interno en el servidor al intentar buscar el producto") })
@@ -195,12 +360,14 @@ public class ProductoResource {
 			@QueryParam("utilizador") String utilizador, @QueryParam("password") String password,
 			@QueryParam("descricao") String nombre, @QueryParam("PVP3Min") Double precioMin,
 			@QueryParam("PVP3Max") Double precioMax, @QueryParam("StockMin") Double stockMin,
-			@QueryParam("StockMax") Double stockMax, @QueryParam("Destaques") Boolean destaques) {
+			@QueryParam("StockMax") Double stockMax, @QueryParam("Destaques") Boolean destaques,
+			@QueryParam("page") Integer page, @QueryParam("size") Integer size,
+			@QueryParam("stream") @DefaultValue("false") boolean stream) {
 
 		try {
 			logger.info(
-					"Iniciando sincronización de productos desde el servicio SOAP con filtros: nombre={}, precioMin={}, precioMax={}, stockMin={}, stockMax={}, destaques={}",
-					nombre, precioMin, precioMax, stockMin, stockMax, destaques);
+					"Iniciando sincronización de productos desde el servicio SOAP con filtros: nombre={}, precioMin={}, precioMax={}, stockMin={}, stockMax={}, destaques={}, page={}, size={}, stream={}",
+					nombre, precioMin, precioMax, stockMin, stockMax, destaques, page, size, stream);
 
 			// Validate credentials
 			if (empresa == null || utilizador == null || password == null || empresa.trim().isEmpty()
@@ -218,11 +385,17 @@ public class ProductoResource {
 				logger.warn("stockMin ({}) no puede ser mayor que stockMax ({})", stockMin, stockMax);
 				return Response.status(Status.BAD_REQUEST).entity("stockMin no puede ser mayor que stockMax").build();
 			}
-			// Fetch products from SOAP service
-			List<ProductoDTO> productos;
-			try {
+			if ((page != null && page < 1) || (size != null && size < 1)) {
+				return Response.status(Response.Status.BAD_REQUEST)
+						.entity("Parámetros de paginación inválidos: page y size deben ser mayores que 0.").build();
+			}
 
-				productos = soapClientService.getArtigosCiberlojaSite();
+			// Products from the in-memory SOAP catalog snapshot
+			CatalogoSnapshot snapshot;
+			try {
+				snapshot = catalogoService.getSnapshot();
+			} catch (CatalogoNoDisponibleException e) {
+				return catalogoNoDisponible(e);
 			} catch (Exception e) {
 				logger.error("Error al obtener productos del servicio SOAP: {}", e.getMessage(), e);
 				return Response.status(Status.INTERNAL_SERVER_ERROR)
@@ -230,29 +403,41 @@ public class ProductoResource {
 			}
 
 			// Apply filters
-			productos = productos.stream()
-					.filter(p -> nombre == null || p.getNombre().toLowerCase().contains(nombre.toLowerCase()))
-					.filter(p -> precioMin == null || p.getPrecio() >= precioMin)
-					.filter(p -> precioMax == null || p.getPrecio() <= precioMax)
-					.filter(p -> stockMin == null || p.getStockDisponible() >= stockMin)
-					.filter(p -> stockMax == null || p.getStockDisponible() <= stockMax)
-					.filter(p -> destaques == null || p.getDestaques() == destaques)
-
-					.collect(Collectors.toList());
+			CatalogoCriteria criteria = new CatalogoCriteria();
+			criteria.setNombre(nombre);
+			criteria.setPrecioMin(precioMin);
+			criteria.setPrecioMax(precioMax);
+			criteria.setStockMin(stockMin);
+			criteria.setStockMax(stockMax);
+			criteria.setDestaques(destaques);
+			BitSet filas = snapshot.filtrar(criteria);
+			int total = filas.cardinality();
 
 			// Check if products were found
-			if (productos.isEmpty()) {
+			if (total == 0) {
 				logger.warn("No se encontraron productos que coincidan con los filtros");
 				return Response.status(Status.NOT_FOUND).entity("No se encontraron productos").build();
 			}
 
-			// Wrap the list in a Results object for the response
+			// Stream every match without materializing the list or the JSON
+			if (stream) {
+				logger.info("Sincronización en streaming: {} productos", total);
+				return conCabecerasCatalogo(Response.status(Status.OK).entity(streamProductos(snapshot, filas))
+						.header(TOTAL_COUNT_HEADER, total), snapshot).build();
+			}
+
+			// Sin page ni size se devuelven todos, como antes de paginar
 			Results<ProductoDTO> resultados = new Results<>();
-			resultados.setPage(productos);
-			resultados.setTotal(productos.size());
+			if (page == null && size == null) {
+				resultados.setPage(snapshot.getPagina(filas, 1, total));
+			} else {
+				resultados.setPage(snapshot.getPagina(filas, page != null ? page : 1, size != null ? size : 30));
+			}
+			resultados.setTotal(total);
 
-			logger.info("Sincronización exitosa: {} productos obtenidos", resultados.getTotal());
-			return Response.status(Status.OK).entity(resultados).build();
+			logger.info("Sincronización exitosa: {} de {} productos obtenidos", resultados.getPage().size(),
+					resultados.getTotal());
+			return conCabecerasCatalogo(Response.status(Status.OK).entity(resultados), snapshot).build();
 
 		} catch (Exception e) {
 			logger.error("Error al sincronizar productos desde el servicio SOAP: {}", e.getMessage(), e);
@@ -290,11 +475,12 @@ public class ProductoResource {
 						.build();
 			}
 
-			// Fetch products from SOAP service
-			List<ProductoDTO> productos;
+			// Products from the in-memory SOAP catalog snapshot
+			CatalogoSnapshot snapshot;
 			try {
-
-				productos = soapClientService.getArtigosCiberlojaSite();
+				snapshot = catalogoService.getSnapshot();
+			} catch (CatalogoNoDisponibleException e) {
+				return catalogoNoDisponible(e);
 			} catch (Exception e) {
 				logger.error("Error al obtener productos del servicio SOAP: {}", e.getMessage(), e);
 				return Response.status(Status.INTERNAL_SERVER_ERROR)
@@ -302,17 +488,17 @@ public class ProductoResource {
 			}
 
 			// Find product by ID
-			Optional<ProductoDTO> producto = productos.stream().filter(p -> p.getId().equals(id)).findFirst();
+			ProductoDTO producto = snapshot.findById(id);
 
 			// Check if product was found
-			if (producto.isEmpty()) {
+			if (producto == null) {
 				logger.warn("No se encontró un producto con ID: {}", id);
 				return Response.status(Status.NOT_FOUND).entity("No se encontró un producto con el ID proporcionado")
 						.build();
 			}
 
 			logger.info("Producto encontrado exitosamente: id={}", id);
-			return Response.status(Status.OK).entity(producto.get()).build();
+			return conCabecerasCatalogo(Response.status(Status.OK).entity(producto), snapshot).build();
 
 		} catch (Exception e) {
 			logger.error("Error al buscar producto por ID: {}", e.getMessage(), e);
@@ -320,4 +506,159 @@ public class ProductoResource {
 					.entity("Error al buscar producto por ID: " + e.getMessage()).build();
 		}
 	}
-}
\ No newline at end of file
+
+	@GET
+	@Path("/sync-soap/findByIds")
+	@Produces(MediaType.APPLICATION_JSON)
+	@Operation(summary = "Buscar varios productos por ID", operationId = "findProductosByIdsFromSoap", description = "Este endpoint permite resolver varios productos en una sola llamada a partir de una lista de IDs separados por comas.", responses = {
+			@ApiResponse(responseCode = "200", description = "Productos encontrados", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = Results.class))),
+			@ApiResponse(responseCode = "400", description = "Credenciales inválidas o IDs inválidos"),
+			@ApiResponse(responseCode = "404", description = "Ningún producto encontrado"),
+			@ApiResponse(responseCode = "500", description = "Error interno en el servidor al intentar buscar los productos") })
+	public Response findProductosByIdsFromSoap(@QueryParam("empresa") String empresa,
+			@QueryParam("utilizador") String utilizador, @QueryParam("password") String password,
+			@QueryParam("ids") String ids) {
+
+		try {
+			logger.info("Iniciando búsqueda de productos por IDs: ids={}", ids);
+
+			// Validate credentials
+			if (empresa == null || utilizador == null || password == null || empresa.trim().isEmpty()
+					|| utilizador.trim().isEmpty() || password.trim().isEmpty()) {
+				logger.warn("Credenciales inválidas o incompletas");
+				return Response.status(Status.BAD_REQUEST).entity("Credenciales inválidas o incompletas").build();
+			}
+
+			// Validate IDs
+			List<String> idList = ids == null ? List.of()
+					: Arrays.stream(ids.split(",")).map(String::trim).filter(s -> !s.isEmpty()).distinct()
+							.collect(Collectors.toList());
+			if (idList.isEmpty()) {
+				logger.warn("IDs de productos no proporcionados o inválidos");
+				return Response.status(Status.BAD_REQUEST).entity("IDs de productos no proporcionados o inválidos")
+						.build();
+			}
+
+			CatalogoSnapshot snapshot;
+			try {
+				snapshot = catalogoService.getSnapshot();
+			} catch (CatalogoNoDisponibleException e) {
+				return catalogoNoDisponible(e);
+			} catch (Exception e) {
+				logger.error("Error al obtener productos del servicio SOAP: {}", e.getMessage(), e);
+				return Response.status(Status.INTERNAL_SERVER_ERROR)
+						.entity("Error al obtener productos del servicio SOAP: " + e.getMessage()).build();
+			}
+
+			List<ProductoDTO> productos = snapshot.findByIds(idList);
+			if (productos.isEmpty()) {
+				logger.warn("No se encontraron productos con IDs: {}", ids);
+				return Response.status(Status.NOT_FOUND).entity("No se encontraron productos con los IDs proporcionados")
+						.build();
+			}
+
+			Results<ProductoDTO> resultados = new Results<>();
+			resultados.setPage(productos);
+			resultados.setTotal(productos.size());
+
+			logger.info("{} de {} productos encontrados", productos.size(), idList.size());
+			return conCabecerasCatalogo(Response.status(Status.OK).entity(resultados), snapshot).build();
+
+		} catch (Exception e) {
+			logger.error("Error al buscar productos por IDs: {}", e.getMessage(), e);
+			return Response.status(Status.INTERNAL_SERVER_ERROR)
+					.entity("Error al buscar productos por IDs: " + e.getMessage()).build();
+		}
+	}
+
+	@GET
+	@Path("/sync-soap/status")
+	@Produces(MediaType.APPLICATION_JSON)
+	@Operation(summary = "Estado del catálogo SOAP en memoria", operationId = "getCatalogoSoapStatus", description = "Devuelve la edad del snapshot del catálogo, la duración del último refresco y los errores de refresco.", responses = {
+			@ApiResponse(responseCode = "200", description = "Estado del catálogo"),
+			@ApiResponse(responseCode = "500", description = "Error interno al obtener el estado del catálogo") })
+	public Response getCatalogoStatus() {
+		try {
+			Map<String, Object> estado = catalogoService.getEstado();
+			estado.put("sincronizacionBD", catalogoSyncService.getEstado());
+			estado.put("cacheTotales", ProductoCountCache.getInstance().getEstado());
+			estado.put("cacheResultados", ProductoResultCache.getInstance().getEstado());
+			estado.put("destaques", destaquesCache.getEstado());
+			estado.put("autocompletado", ProductoAutocompletado.getInstance().getEstado());
+			ProductoIndice indice = ProductoIndice.getInstance();
+			if (indice != null) {
+				estado.put("indiceTexto", indice.getEstado());
+			}
+			return Response.status(Status.OK).entity(estado).build();
+		} catch (Exception e) {
+			logger.error("Error al obtener el estado del catálogo: {}", e.getMessage(), e);
+			return Response.status(Status.INTERNAL_SERVER_ERROR)
+					.entity("Error al obtener el estado del catálogo: " + e.getMessage()).build();
+		}
+	}
+
+	@POST
+	@Path("/sync-soap/db")
+	@Produces(MediaType.APPLICATION_JSON)
+	@Operation(summary = "Sincronizar el catálogo SOAP con la base de datos", operationId = "syncCatalogoSoapToDb", description = "Escribe en la base de datos sólo los productos nuevos, modificados o retirados del catálogo SOAP desde la última sincronización. Sólo funciona con catalogo.sync.db.enabled=true; un catálogo vacío, o uno que retiraría más de catalogo.sync.max.retirados de los productos, se rechaza salvo con forzar=true.", responses = {
+			@ApiResponse(responseCode = "200", description = "Sincronización realizada", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = CatalogoSyncResultado.class))),
+			@ApiResponse(responseCode = "409", description = "Sincronización desactivada o rechazada por parecer incompleto el catálogo"),
+			@ApiResponse(responseCode = "503", description = "Servicio SOAP no disponible"),
+			@ApiResponse(responseCode = "500", description = "Error interno en la sincronización") })
+	public Response syncCatalogoToDb(
+			@Parameter(description = "Retirar productos aunque se supere catalogo.sync.max.retirados") @QueryParam("forzar") @DefaultValue("false") boolean forzar) {
+		if (!catalogoSyncService.isActivada()) {
+			return Response.status(Status.CONFLICT)
+					.entity("La sincronización con la base de datos está desactivada (catalogo.sync.db.enabled)").build();
+		}
+		try {
+			CatalogoSyncResultado resultado = catalogoSyncService.sincronizar(catalogoService.getSnapshot(), forzar);
+			return Response.status(Status.OK).entity(resultado).build();
+		} catch (CatalogoNoDisponibleException e) {
+			return catalogoNoDisponible(e);
+		} catch (CatalogoSyncRechazadoException e) {
+			return Response.status(Status.CONFLICT).entity(e.getMessage()).build();
+		} catch (Exception e) {
+			logger.error("Error al sincronizar el catálogo con la base de datos: {}", e.getMessage(), e);
+			return Response.status(Status.INTERNAL_SERVER_ERROR)
+					.entity("Error al sincronizar el catálogo con la base de datos: " + e.getMessage()).build();
+		}
+	}
+
+	/**
+	 * Añade la edad del catálogo y, si está obsoleto porque el ERP no responde,
+	 * las cabeceras de respuesta obsoleta.
+	 */
+	private Response.ResponseBuilder conCabecerasCatalogo(Response.ResponseBuilder builder,
+			CatalogoSnapshot snapshot) {
+		builder.header(CATALOGO_AGE_HEADER, snapshot.getEdadMillis() / 1000);
+		if (catalogoService.isObsoleto(snapshot)) {
+			builder.header(CATALOGO_STALE_HEADER, true);
+			builder.header("Warning", "110 - \"Response is Stale\"");
+		}
+		return builder;
+	}
+
+	private Response catalogoNoDisponible(CatalogoNoDisponibleException e) {
+		logger.warn("Catálogo SOAP no disponible: {}", e.getMessage());
+		return Response.status(Status.SERVICE_UNAVAILABLE).header("Retry-After", e.getSegundosHastaReintento())
+				.entity(e.getMessage()).build();
+	}
+
+	/**
+	 * Escribe las filas indicadas como un array JSON, producto a producto,
+	 * directamente sobre la respuesta.
+	 */
+	private StreamingOutput streamProductos(CatalogoSnapshot snapshot, BitSet filas) {
+		return output -> {
+			YassonJsonb jsonb = JsonProvider.getJsonb();
+			JsonGenerator generator = JsonProvider.createGenerator(output);
+			generator.writeStartArray();
+			for (int i = filas.nextSetBit(0); i >= 0; i = filas.nextSetBit(i + 1)) {
+				jsonb.toJson(snapshot.get(i), ProductoDTO.class, generator);
+			}
+			generator.writeEnd();
+			generator.close();
+		};
+	}
+}
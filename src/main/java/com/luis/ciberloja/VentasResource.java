@@ -0,0 +1,195 @@
+package com.luis.ciberloja;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.luis.ciberloja.ventas.VentaAgregada;
+import com.luis.ciberloja.ventas.VentasDAO.Agrupacion;
+import com.luis.ciberloja.ventas.VentasService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import jakarta.ws.rs.DefaultValue;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.Response.Status;
+
+/**
+ * Informes de ventas para el back-office. Se leen de las tablas agregadas por
+ * día que mantiene VentasService, así que un mes son unas pocas decenas de
+ * filas por informe. Las fechas van en formato yyyy-MM-dd y ambas se incluyen.
+ *
+ * Las tablas agregadas sólo siguen los pedidos creados, modificados o borrados
+ * a través de esta API. Los cambios hechos por otra vía (el middleware desde
+ * otra aplicación, la BD directamente) no aparecen hasta /ventas/recalcular.
+ */
+@Path("/ventas")
+public class VentasResource {
+
+	private static final Logger logger = LogManager.getLogger(VentasResource.class);
+
+	private static final int MAX_LIMIT = 1000;
+
+	private static final String ALCANCE = " Sólo refleja los pedidos creados, modificados o borrados a través de"
+			+ " esta API; los cambios hechos por otra vía aparecen tras /ventas/recalcular.";
+
+	private static final String NO_DISPONIBLE = "Ventas agregadas no disponibles: se están calculando o faltan"
+			+ " sus tablas (src/main/sql/V3__ventas.sql)";
+
+	private VentasService ventasService = null;
+
+	public VentasResource() {
+		ventasService = VentasService.getInstance();
+	}
+
+	@GET
+	@Path("/dia")
+	@Produces(MediaType.APPLICATION_JSON)
+	@Operation(summary = "Ventas por día", operationId = "findVentasPorDia", description = "Número de pedidos e importe de cada día del periodo, opcionalmente sólo de un estado o tipo de entrega" + ALCANCE, responses = {
+			@ApiResponse(responseCode = "200", description = "Ventas por día", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = VentaAgregada.class, type = "array"))),
+			@ApiResponse(responseCode = "400", description = "Fechas no válidas"),
+			@ApiResponse(responseCode = "500", description = "Error interno al consultar las ventas"),
+			@ApiResponse(responseCode = "503", description = NO_DISPONIBLE) })
+	public Response findPorDia(@QueryParam("desde") String desde, @QueryParam("hasta") String hasta,
+			@QueryParam("tipoEstadoPedidoId") Integer tipoEstadoPedidoId,
+			@QueryParam("tipoEntregaId") Integer tipoEntregaId) {
+		return findBy(Agrupacion.DIA, desde, hasta, tipoEstadoPedidoId, tipoEntregaId);
+	}
+
+	@GET
+	@Path("/estado")
+	@Produces(MediaType.APPLICATION_JSON)
+	@Operation(summary = "Ventas por estado del pedido", operationId = "findVentasPorEstado", description = "Número de pedidos e importe del periodo por tipoEstadoPedidoId" + ALCANCE, responses = {
+			@ApiResponse(responseCode = "200", description = "Ventas por estado", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = VentaAgregada.class, type = "array"))),
+			@ApiResponse(responseCode = "400", description = "Fechas no válidas"),
+			@ApiResponse(responseCode = "500", description = "Error interno al consultar las ventas"),
+			@ApiResponse(responseCode = "503", description = NO_DISPONIBLE) })
+	public Response findPorEstado(@QueryParam("desde") String desde, @QueryParam("hasta") String hasta,
+			@QueryParam("tipoEntregaId") Integer tipoEntregaId) {
+		return findBy(Agrupacion.ESTADO, desde, hasta, null, tipoEntregaId);
+	}
+
+	@GET
+	@Path("/entrega")
+	@Produces(MediaType.APPLICATION_JSON)
+	@Operation(summary = "Ventas por tipo de entrega", operationId = "findVentasPorEntrega", description = "Número de pedidos e importe del periodo por tipoEntregaId" + ALCANCE, responses = {
+			@ApiResponse(responseCode = "200", description = "Ventas por tipo de entrega", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = VentaAgregada.class, type = "array"))),
+			@ApiResponse(responseCode = "400", description = "Fechas no válidas"),
+			@ApiResponse(responseCode = "500", description = "Error interno al consultar las ventas"),
+			@ApiResponse(responseCode = "503", description = NO_DISPONIBLE) })
+	public Response findPorEntrega(@QueryParam("desde") String desde, @QueryParam("hasta") String hasta,
+			@QueryParam("tipoEstadoPedidoId") Integer tipoEstadoPedidoId) {
+		return findBy(Agrupacion.ENTREGA, desde, hasta, tipoEstadoPedidoId, null);
+	}
+
+	@GET
+	@Path("/producto")
+	@Produces(MediaType.APPLICATION_JSON)
+	@Operation(summary = "Productos más vendidos", operationId = "findVentasPorProducto", description = "Productos con más importe (o unidades) vendido en el periodo" + ALCANCE, responses = {
+			@ApiResponse(responseCode = "200", description = "Ventas por producto", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = VentaAgregada.class, type = "array"))),
+			@ApiResponse(responseCode = "400", description = "Fechas, orden o límite no válidos"),
+			@ApiResponse(responseCode = "500", description = "Error interno al consultar las ventas"),
+			@ApiResponse(responseCode = "503", description = NO_DISPONIBLE) })
+	public Response findPorProducto(@QueryParam("desde") String desde, @QueryParam("hasta") String hasta,
+			@Parameter(description = "importe o unidades") @QueryParam("orden") @DefaultValue("importe") String orden,
+			@QueryParam("limit") @DefaultValue("20") int limit) {
+		if (!"importe".equals(orden) && !"unidades".equals(orden)) {
+			return Response.status(Status.BAD_REQUEST).entity("Orden no válido: usa importe o unidades.").build();
+		}
+		if (limit < 1 || limit > MAX_LIMIT) {
+			return Response.status(Status.BAD_REQUEST).entity("limit debe estar entre 1 y " + MAX_LIMIT + ".")
+					.build();
+		}
+		if (!ventasService.isDisponible()) {
+			return Response.status(Status.SERVICE_UNAVAILABLE).entity(NO_DISPONIBLE).build();
+		}
+		try {
+			LocalDate[] periodo = parsePeriodo(desde, hasta);
+			List<VentaAgregada> ventas = ventasService.findTopProductos(periodo[0], periodo[1],
+					"unidades".equals(orden), limit);
+			return Response.status(Status.OK).entity(ventas).build();
+		} catch (IllegalArgumentException e) {
+			return Response.status(Status.BAD_REQUEST).entity(e.getMessage()).build();
+		} catch (DataException e) {
+			logger.error("Error al consultar las ventas por producto: {}", e.getMessage(), e);
+			return Response.status(Status.INTERNAL_SERVER_ERROR)
+					.entity("Error al consultar las ventas: " + e.getMessage()).build();
+		}
+	}
+
+	@POST
+	@Path("/recalcular")
+	@Produces(MediaType.APPLICATION_JSON)
+	@Operation(summary = "Recalcular las ventas agregadas", operationId = "recalcularVentas", description = "Vuelve a calcular las ventas agregadas del periodo a partir de los pedidos, incluidos los cambios hechos fuera de esta API. Sin fechas se recalcula todo.", responses = {
+			@ApiResponse(responseCode = "200", description = "Ventas recalculadas"),
+			@ApiResponse(responseCode = "400", description = "Fechas no válidas"),
+			@ApiResponse(responseCode = "500", description = "Error interno al recalcular las ventas"),
+			@ApiResponse(responseCode = "503", description = NO_DISPONIBLE) })
+	public Response recalcular(@QueryParam("desde") String desde, @QueryParam("hasta") String hasta) {
+		if (!ventasService.isDisponible()) {
+			return Response.status(Status.SERVICE_UNAVAILABLE).entity(NO_DISPONIBLE).build();
+		}
+		try {
+			if (desde == null && hasta == null) {
+				ventasService.recalcular(null, null);
+			} else {
+				LocalDate[] periodo = parsePeriodo(desde, hasta);
+				ventasService.recalcular(periodo[0], periodo[1]);
+			}
+			return Response.status(Status.OK).entity("Ventas recalculadas correctamente").build();
+		} catch (IllegalArgumentException e) {
+			return Response.status(Status.BAD_REQUEST).entity(e.getMessage()).build();
+		} catch (DataException e) {
+			logger.error("Error al recalcular las ventas: {}", e.getMessage(), e);
+			return Response.status(Status.INTERNAL_SERVER_ERROR)
+					.entity("Error al recalcular las ventas: " + e.getMessage()).build();
+		}
+	}
+
+	private Response findBy(Agrupacion agrupacion, String desde, String hasta, Integer tipoEstadoPedidoId,
+			Integer tipoEntregaId) {
+		if (!ventasService.isDisponible()) {
+			return Response.status(Status.SERVICE_UNAVAILABLE).entity(NO_DISPONIBLE).build();
+		}
+		try {
+			LocalDate[] periodo = parsePeriodo(desde, hasta);
+			List<VentaAgregada> ventas = ventasService.findBy(agrupacion, periodo[0], periodo[1], tipoEstadoPedidoId,
+					tipoEntregaId);
+			return Response.status(Status.OK).entity(ventas).build();
+		} catch (IllegalArgumentException e) {
+			return Response.status(Status.BAD_REQUEST).entity(e.getMessage()).build();
+		} catch (DataException e) {
+			logger.error("Error al consultar las ventas por {}: {}", agrupacion, e.getMessage(), e);
+			return Response.status(Status.INTERNAL_SERVER_ERROR)
+					.entity("Error al consultar las ventas: " + e.getMessage()).build();
+		}
+	}
+
+	private static LocalDate[] parsePeriodo(String desde, String hasta) {
+		if (desde == null || hasta == null) {
+			throw new IllegalArgumentException("Los parámetros desde y hasta son obligatorios (yyyy-MM-dd).");
+		}
+		try {
+			LocalDate inicio = LocalDate.parse(desde.trim());
+			LocalDate fin = LocalDate.parse(hasta.trim());
+			if (fin.isBefore(inicio)) {
+				throw new IllegalArgumentException("La fecha hasta no puede ser anterior a desde.");
+			}
+			return new LocalDate[] { inicio, fin };
+		} catch (DateTimeParseException e) {
+			throw new IllegalArgumentException("Formato de fecha inválido. Usa yyyy-MM-dd.");
+		}
+	}
+}
@@ -0,0 +1,36 @@
+package com.luis.ciberloja.catalogo;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.luis.ciberloja.model.ProductoDTO;
+import com.luis.ciberloja.service.ArtigosCiberloja;
+import com.luis.ciberloja.service.ServiceException;
+
+/**
+ * Carga el catálogo con el cliente SOAP del middleware, que devuelve la lista
+ * completa ya materializada.
+ */
+public class ArtigosCiberlojaFuente implements CatalogoFuente {
+
+	private final ArtigosCiberloja artigosCiberloja;
+
+	public ArtigosCiberlojaFuente(ArtigosCiberloja artigosCiberloja) {
+		this.artigosCiberloja = artigosCiberloja;
+	}
+
+	@Override
+	public int leerArtigos(Consumer<ProductoDTO> consumidor) throws Exception {
+		List<ProductoDTO> productos = artigosCiberloja.getArtigosCiberlojaSite();
+		if (productos == null) {
+			throw new ServiceException("El servicio SOAP no devolvió productos");
+		}
+		productos.forEach(consumidor);
+		return productos.size();
+	}
+
+	@Override
+	public String getNombre() {
+		return "lista";
+	}
+}
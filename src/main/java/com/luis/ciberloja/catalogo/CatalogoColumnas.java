@@ -0,0 +1,264 @@
+package com.luis.ciberloja.catalogo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Locale;
+import java.util.stream.IntStream;
+
+import com.luis.ciberloja.model.ProductoDTO;
+
+/**
+ * Representación columnar del catálogo: precio y stock en arrays primitivos,
+ * destaques como bitset, familia codificada con un diccionario y nombres ya en
+ * minúsculas. Los filtros se evalúan en
+ * bloques de 64 filas, intersectando una palabra de bits por predicado, y sólo
+ * se comparan nombres en las filas que siguen vivas tras los filtros
+ * numéricos.
+ */
+public class CatalogoColumnas {
+
+	/** A partir de este número de filas el filtrado se reparte entre varios hilos */
+	static final int UMBRAL_PARALELO = 100_000;
+
+	/** Palabras de 64 bits que procesa cada tarea en el modo paralelo */
+	private static final int PALABRAS_POR_BLOQUE = 256;
+
+	private final int filas;
+	private final String[] ids;
+	private final double[] precios;
+	private final double[] stocks;
+	private final long[] destaques;
+	// Filas con destaques informado: un null no cumple ni true ni false
+	private final long[] conDestaques;
+	private final String[] nombres;
+	// Índice de la familia de cada fila en el diccionario, -1 si no tiene
+	private final int[] familias;
+	private final List<String> diccionarioFamilias = new ArrayList<>();
+	private final Map<String, Integer> familiasPorNombre = new HashMap<>();
+
+	public CatalogoColumnas(List<ProductoDTO> productos) {
+		filas = productos.size();
+		ids = new String[filas];
+		precios = new double[filas];
+		stocks = new double[filas];
+		nombres = new String[filas];
+		familias = new int[filas];
+		BitSet destacados = new BitSet(filas);
+		BitSet informados = new BitSet(filas);
+
+		for (int i = 0; i < filas; i++) {
+			ProductoDTO p = productos.get(i);
+			ids[i] = p.getId();
+			// NaN nunca cumple un rango, igual que un producto sin precio o stock
+			Double precio = p.getPrecio();
+			Double stock = p.getStockDisponible();
+			precios[i] = precio != null ? precio : Double.NaN;
+			stocks[i] = stock != null ? stock : Double.NaN;
+			nombres[i] = p.getNombre() != null ? p.getNombre().toLowerCase(Locale.ROOT) : "";
+			familias[i] = codificarFamilia(p.getFamiliaNombre());
+			if (p.getDestaques() != null) {
+				informados.set(i);
+				if (p.getDestaques()) {
+					destacados.set(i);
+				}
+			}
+		}
+
+		destaques = aPalabras(destacados, filas);
+		conDestaques = aPalabras(informados, filas);
+	}
+
+	private static long[] aPalabras(BitSet bitSet, int filas) {
+		long[] palabras = new long[palabras(filas)];
+		long[] bits = bitSet.toLongArray();
+		System.arraycopy(bits, 0, palabras, 0, bits.length);
+		return palabras;
+	}
+
+	private int codificarFamilia(String familia) {
+		if (familia == null || familia.trim().isEmpty()) {
+			return -1;
+		}
+		String clave = familia.trim().toLowerCase(Locale.ROOT);
+		Integer codigo = familiasPorNombre.get(clave);
+		if (codigo == null) {
+			codigo = diccionarioFamilias.size();
+			diccionarioFamilias.add(familia.trim());
+			familiasPorNombre.put(clave, codigo);
+		}
+		return codigo;
+	}
+
+	public int getFilas() {
+		return filas;
+	}
+
+	/**
+	 * Recuentos por familia, tramo de precio y disponibilidad de las filas
+	 * indicadas, en una sola pasada.
+	 *
+	 * @param limitesPrecio límites de los tramos de precio, en orden creciente
+	 */
+	public CatalogoFacetas facetas(BitSet seleccion, double[] limitesPrecio) {
+		int[] porFamilia = new int[diccionarioFamilias.size()];
+		int sinFamilia = 0;
+		int[] porPrecio = new int[limitesPrecio.length + 1];
+		int sinPrecio = 0;
+		int conStock = 0;
+		int total = 0;
+
+		for (int i = seleccion.nextSetBit(0); i >= 0 && i < filas; i = seleccion.nextSetBit(i + 1)) {
+			total++;
+			if (familias[i] >= 0) {
+				porFamilia[familias[i]]++;
+			} else {
+				sinFamilia++;
+			}
+			if (Double.isNaN(precios[i])) {
+				sinPrecio++;
+			} else {
+				porPrecio[tramo(limitesPrecio, precios[i])]++;
+			}
+			if (stocks[i] > 0) {
+				conStock++;
+			}
+		}
+
+		return new CatalogoFacetas(total, diccionarioFamilias, porFamilia, sinFamilia, limitesPrecio, porPrecio,
+				sinPrecio, conStock, total - conStock);
+	}
+
+	/**
+	 * Tramo [limites[t-1], limites[t]) en el que cae el precio.
+	 */
+	private static int tramo(double[] limites, double precio) {
+		int t = Arrays.binarySearch(limites, precio);
+		return t >= 0 ? t + 1 : -t - 1;
+	}
+
+	/**
+	 * Devuelve el conjunto de filas que cumplen todos los filtros.
+	 */
+	public BitSet filtrar(CatalogoCriteria criteria) {
+		Filtro filtro = new Filtro(criteria);
+		long[] resultado = new long[palabras(filas)];
+
+		if (filas >= UMBRAL_PARALELO) {
+			int bloques = (resultado.length + PALABRAS_POR_BLOQUE - 1) / PALABRAS_POR_BLOQUE;
+			// Cada bloque escribe un rango disjunto de palabras, no hace falta sincronizar
+			IntStream.range(0, bloques).parallel().forEach(b -> evaluar(filtro, resultado, b * PALABRAS_POR_BLOQUE,
+					Math.min(resultado.length, (b + 1) * PALABRAS_POR_BLOQUE)));
+		} else {
+			evaluar(filtro, resultado, 0, resultado.length);
+		}
+
+		return BitSet.valueOf(resultado);
+	}
+
+	private void evaluar(Filtro filtro, long[] resultado, int desde, int hasta) {
+		for (int w = desde; w < hasta; w++) {
+			int base = w << 6;
+			int n = Math.min(64, filas - base);
+			long palabra = n == 64 ? -1L : (1L << n) - 1;
+
+			if (filtro.porId) {
+				palabra &= filtro.filaId >>> 6 == w ? 1L << (filtro.filaId & 63) : 0L;
+			}
+			if (filtro.destaques != null) {
+				palabra &= conDestaques[w] & (filtro.destaques ? destaques[w] : ~destaques[w]);
+			}
+			if (palabra != 0 && filtro.porPrecio) {
+				palabra &= rango(precios, base, n, filtro.precioMin, filtro.precioMax);
+			}
+			if (palabra != 0 && filtro.porStock) {
+				palabra &= rango(stocks, base, n, filtro.stockMin, filtro.stockMax);
+			}
+			if (palabra != 0 && filtro.porFamilia) {
+				palabra &= igual(familias, base, n, filtro.familia);
+			}
+			if (palabra != 0 && filtro.nombre != null) {
+				palabra &= contiene(palabra, base, filtro.nombre);
+			}
+
+			resultado[w] = palabra;
+		}
+	}
+
+	private static long rango(double[] columna, int base, int n, double min, double max) {
+		long palabra = 0L;
+		for (int i = 0; i < n; i++) {
+			double v = columna[base + i];
+			if (v >= min && v <= max) {
+				palabra |= 1L << i;
+			}
+		}
+		return palabra;
+	}
+
+	private static long igual(int[] columna, int base, int n, int valor) {
+		long palabra = 0L;
+		for (int i = 0; i < n; i++) {
+			if (columna[base + i] == valor) {
+				palabra |= 1L << i;
+			}
+		}
+		return palabra;
+	}
+
+	private long contiene(long candidatos, int base, String nombre) {
+		long palabra = 0L;
+		while (candidatos != 0) {
+			int i = Long.numberOfTrailingZeros(candidatos);
+			candidatos &= candidatos - 1;
+			if (nombres[base + i].contains(nombre)) {
+				palabra |= 1L << i;
+			}
+		}
+		return palabra;
+	}
+
+	private static int palabras(int filas) {
+		return (filas + 63) >>> 6;
+	}
+
+	/**
+	 * Criterios ya normalizados a primitivos para el bucle de evaluación.
+	 */
+	private class Filtro {
+		private final boolean porId;
+		private final int filaId;
+		private final String nombre;
+		private final boolean porPrecio;
+		private final double precioMin;
+		private final double precioMax;
+		private final boolean porStock;
+		private final double stockMin;
+		private final double stockMax;
+		private final Boolean destaques;
+		private final boolean porFamilia;
+		private final int familia;
+
+		private Filtro(CatalogoCriteria criteria) {
+			porId = criteria.getId() != null;
+			// Un id que no existe en el catálogo (-1) no coincide con ninguna fila
+			filaId = porId ? Arrays.asList(ids).indexOf(criteria.getId()) : -1;
+			nombre = criteria.getNombre() != null ? criteria.getNombre().toLowerCase(Locale.ROOT) : null;
+			porPrecio = criteria.getPrecioMin() != null || criteria.getPrecioMax() != null;
+			precioMin = criteria.getPrecioMin() != null ? criteria.getPrecioMin() : Double.NEGATIVE_INFINITY;
+			precioMax = criteria.getPrecioMax() != null ? criteria.getPrecioMax() : Double.POSITIVE_INFINITY;
+			porStock = criteria.getStockMin() != null || criteria.getStockMax() != null;
+			stockMin = criteria.getStockMin() != null ? criteria.getStockMin() : Double.NEGATIVE_INFINITY;
+			stockMax = criteria.getStockMax() != null ? criteria.getStockMax() : Double.POSITIVE_INFINITY;
+			destaques = criteria.getDestaques();
+			porFamilia = criteria.getFamilia() != null;
+			// Una familia que no existe en el catálogo (-2) no coincide con ninguna fila
+			familia = porFamilia
+					? familiasPorNombre.getOrDefault(criteria.getFamilia().trim().toLowerCase(Locale.ROOT), -2)
+					: -1;
+		}
+	}
+}
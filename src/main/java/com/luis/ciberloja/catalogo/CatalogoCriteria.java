@@ -0,0 +1,84 @@
+package com.luis.ciberloja.catalogo;
+
+/**
+ * Filtros aplicables sobre el catálogo SOAP en memoria. Un campo a null no
+ * filtra.
+ */
+public class CatalogoCriteria {
+
+	private String id = null;
+	private String nombre = null;
+	private Double precioMin = null;
+	private Double precioMax = null;
+	private Double stockMin = null;
+	private Double stockMax = null;
+	private Boolean destaques = null;
+	private String familia = null;
+
+	public CatalogoCriteria() {
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public String getNombre() {
+		return nombre;
+	}
+
+	public void setNombre(String nombre) {
+		this.nombre = nombre;
+	}
+
+	public Double getPrecioMin() {
+		return precioMin;
+	}
+
+	public void setPrecioMin(Double precioMin) {
+		this.precioMin = precioMin;
+	}
+
+	public Double getPrecioMax() {
+		return precioMax;
+	}
+
+	public void setPrecioMax(Double precioMax) {
+		this.precioMax = precioMax;
+	}
+
+	public Double getStockMin() {
+		return stockMin;
+	}
+
+	public void setStockMin(Double stockMin) {
+		this.stockMin = stockMin;
+	}
+
+	public Double getStockMax() {
+		return stockMax;
+	}
+
+	public void setStockMax(Double stockMax) {
+		this.stockMax = stockMax;
+	}
+
+	public Boolean getDestaques() {
+		return destaques;
+	}
+
+	public void setDestaques(Boolean destaques) {
+		this.destaques = destaques;
+	}
+
+	public String getFamilia() {
+		return familia;
+	}
+
+	public void setFamilia(String familia) {
+		this.familia = familia;
+	}
+}
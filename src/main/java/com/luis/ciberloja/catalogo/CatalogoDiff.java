@@ -0,0 +1,82 @@
+package com.luis.ciberloja.catalogo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.luis.ciberloja.model.ProductoDTO;
+
+/**
+ * Diferencias entre un estado anterior del catálogo (id de artigo -> huella) y
+ * un snapshot nuevo.
+ */
+public class CatalogoDiff {
+
+	private final List<ProductoDTO> insertados;
+	private final List<ProductoDTO> modificados;
+	private final List<String> eliminados;
+	private final int sinCambios;
+
+	private CatalogoDiff(List<ProductoDTO> insertados, List<ProductoDTO> modificados, List<String> eliminados,
+			int sinCambios) {
+		this.insertados = Collections.unmodifiableList(insertados);
+		this.modificados = Collections.unmodifiableList(modificados);
+		this.eliminados = Collections.unmodifiableList(eliminados);
+		this.sinCambios = sinCambios;
+	}
+
+	public static CatalogoDiff calcular(Map<String, Long> hashesAnteriores, CatalogoSnapshot nuevo) {
+		List<ProductoDTO> insertados = new ArrayList<>();
+		List<ProductoDTO> modificados = new ArrayList<>();
+		List<String> eliminados = new ArrayList<>();
+		int sinCambios = 0;
+
+		Map<String, Long> hashesNuevos = nuevo.getHashes();
+		for (Map.Entry<String, Long> entry : hashesNuevos.entrySet()) {
+			Long anterior = hashesAnteriores.get(entry.getKey());
+			if (anterior == null) {
+				insertados.add(nuevo.findById(entry.getKey()));
+			} else if (anterior.longValue() != entry.getValue().longValue()) {
+				modificados.add(nuevo.findById(entry.getKey()));
+			} else {
+				sinCambios++;
+			}
+		}
+
+		Set<String> vistos = new HashSet<>(hashesNuevos.keySet());
+		for (String id : hashesAnteriores.keySet()) {
+			if (!vistos.contains(id)) {
+				eliminados.add(id);
+			}
+		}
+
+		return new CatalogoDiff(insertados, modificados, eliminados, sinCambios);
+	}
+
+	public static CatalogoDiff calcular(CatalogoSnapshot anterior, CatalogoSnapshot nuevo) {
+		return calcular(anterior != null ? anterior.getHashes() : Collections.emptyMap(), nuevo);
+	}
+
+	public List<ProductoDTO> getInsertados() {
+		return insertados;
+	}
+
+	public List<ProductoDTO> getModificados() {
+		return modificados;
+	}
+
+	public List<String> getEliminados() {
+		return eliminados;
+	}
+
+	public int getSinCambios() {
+		return sinCambios;
+	}
+
+	public boolean isVacio() {
+		return insertados.isEmpty() && modificados.isEmpty() && eliminados.isEmpty();
+	}
+}
@@ -0,0 +1,120 @@
+package com.luis.ciberloja.catalogo;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Recuentos de una búsqueda sobre el catálogo por familia, tramo de precio y
+ * disponibilidad, para pintar los filtros de la tienda.
+ */
+public class CatalogoFacetas {
+
+	/**
+	 * Número de productos de una familia.
+	 */
+	public static class Familia {
+		private final String nombre;
+		private final int total;
+
+		public Familia(String nombre, int total) {
+			this.nombre = nombre;
+			this.total = total;
+		}
+
+		public String getNombre() {
+			return nombre;
+		}
+
+		public int getTotal() {
+			return total;
+		}
+	}
+
+	/**
+	 * Número de productos con precio en [desde, hasta). desde es null en el
+	 * primer tramo y hasta en el último.
+	 */
+	public static class TramoPrecio {
+		private final Double desde;
+		private final Double hasta;
+		private final int total;
+
+		public TramoPrecio(Double desde, Double hasta, int total) {
+			this.desde = desde;
+			this.hasta = hasta;
+			this.total = total;
+		}
+
+		public Double getDesde() {
+			return desde;
+		}
+
+		public Double getHasta() {
+			return hasta;
+		}
+
+		public int getTotal() {
+			return total;
+		}
+	}
+
+	private final int total;
+	private final List<Familia> familias;
+	private final int sinFamilia;
+	private final List<TramoPrecio> precios;
+	private final int sinPrecio;
+	private final int conStock;
+	private final int sinStock;
+
+	CatalogoFacetas(int total, List<String> nombresFamilias, int[] porFamilia, int sinFamilia, double[] limitesPrecio,
+			int[] porPrecio, int sinPrecio, int conStock, int sinStock) {
+		this.total = total;
+		this.sinFamilia = sinFamilia;
+		this.sinPrecio = sinPrecio;
+		this.conStock = conStock;
+		this.sinStock = sinStock;
+
+		familias = new ArrayList<>();
+		for (int f = 0; f < porFamilia.length; f++) {
+			if (porFamilia[f] > 0) {
+				familias.add(new Familia(nombresFamilias.get(f), porFamilia[f]));
+			}
+		}
+		familias.sort(Comparator.comparingInt(Familia::getTotal).reversed().thenComparing(Familia::getNombre));
+
+		precios = new ArrayList<>(porPrecio.length);
+		for (int t = 0; t < porPrecio.length; t++) {
+			precios.add(new TramoPrecio(t > 0 ? limitesPrecio[t - 1] : null,
+					t < limitesPrecio.length ? limitesPrecio[t] : null, porPrecio[t]));
+		}
+	}
+
+	public int getTotal() {
+		return total;
+	}
+
+	public List<Familia> getFamilias() {
+		return familias;
+	}
+
+	public int getSinFamilia() {
+		return sinFamilia;
+	}
+
+	public List<TramoPrecio> getPrecios() {
+		return precios;
+	}
+
+	public int getSinPrecio() {
+		return sinPrecio;
+	}
+
+	public int getConStock() {
+		return conStock;
+	}
+
+	public int getSinStock() {
+		return sinStock;
+	}
+}
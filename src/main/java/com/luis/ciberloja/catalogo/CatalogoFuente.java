@@ -0,0 +1,24 @@
+package com.luis.ciberloja.catalogo;
+
+import java.util.function.Consumer;
+
+import com.luis.ciberloja.model.ProductoDTO;
+
+/**
+ * Origen de los artigos del catálogo. Entrega los productos de uno en uno, de
+ * modo que quien los recibe decide qué guardar.
+ */
+public interface CatalogoFuente {
+
+	/**
+	 * Lee el catálogo completo y pasa cada producto al consumidor.
+	 *
+	 * @return número de productos leídos
+	 */
+	int leerArtigos(Consumer<ProductoDTO> consumidor) throws Exception;
+
+	/**
+	 * Nombre del modo de carga, para monitorización.
+	 */
+	String getNombre();
+}
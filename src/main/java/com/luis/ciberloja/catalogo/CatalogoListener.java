@@ -0,0 +1,14 @@
+package com.luis.ciberloja.catalogo;
+
+/**
+ * Recibe cada nuevo snapshot del catálogo. Se invoca en un hilo propio del
+ * CatalogoService, nunca en el hilo de una petición.
+ */
+public interface CatalogoListener {
+
+	/**
+	 * @param anterior snapshot sustituido, null en la primera carga
+	 * @param nuevo    snapshot recién publicado
+	 */
+	void onCatalogoActualizado(CatalogoSnapshot anterior, CatalogoSnapshot nuevo);
+}
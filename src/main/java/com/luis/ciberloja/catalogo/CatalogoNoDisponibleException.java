@@ -0,0 +1,23 @@
+package com.luis.ciberloja.catalogo;
+
+import com.luis.ciberloja.service.ServiceException;
+
+/**
+ * El servicio SOAP del ERP no está disponible (circuito abierto) y no hay
+ * ningún catálogo cargado que servir en su lugar.
+ */
+public class CatalogoNoDisponibleException extends ServiceException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final long segundosHastaReintento;
+
+	public CatalogoNoDisponibleException(String message, long segundosHastaReintento) {
+		super(message);
+		this.segundosHastaReintento = segundosHastaReintento;
+	}
+
+	public long getSegundosHastaReintento() {
+		return segundosHastaReintento;
+	}
+}
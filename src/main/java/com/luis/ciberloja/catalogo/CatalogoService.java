@@ -0,0 +1,416 @@
+package com.luis.ciberloja.catalogo;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.luis.ciberloja.service.ServiceException;
+import com.luis.ciberloja.service.impl.ArtigosCiberlojaImpl;
+import com.luis.ciberloja.util.CircuitBreaker;
+import com.luis.ciberloja.util.ConfigUtils;
+
+/**
+ * Mantiene en memoria el catálogo de artigos del ERP. Un hilo en segundo plano
+ * lo refresca cada catalogo.refresh.seconds y sustituye el snapshot de forma
+ * atómica, de modo que las peticiones nunca esperan al servicio SOAP salvo en
+ * el arranque en frío. Las descargas concurrentes se agrupan en una sola
+ * llamada al ERP cuyo resultado comparten todos los que la esperaban.
+ *
+ * Las llamadas al ERP pasan por un circuit breaker con timeout: si el servicio
+ * falla o tarda se sigue sirviendo el último catálogo bueno (marcado como
+ * obsoleto cuando supera catalogo.stale.seconds) y sólo se vuelve a llamar al
+ * ERP con una llamada de prueba cuando vence el tiempo de apertura.
+ *
+ * Una descarga vacía, o con menos de catalogo.min.fraccion de los artigos del
+ * snapshot anterior, se trata como un fallo del ERP y no se publica: suele ser
+ * una respuesta incompleta, y publicarla dejaría sin productos la tienda y la
+ * sincronización con BD.
+ *
+ * Con catalogo.soap.streaming=true la respuesta SOAP se analiza en streaming
+ * (SoapStreamFuente) en lugar de usar el cliente del middleware, que
+ * materializa el sobre completo. Los artigos se van añadiendo al snapshot en
+ * construcción según se leen.
+ */
+public class CatalogoService {
+
+	private static Logger logger = LogManager.getLogger(CatalogoService.class);
+
+	private static final int DEFAULT_REFRESH_SECONDS = 300;
+	private static final int DEFAULT_SOAP_TIMEOUT_SECONDS = 30;
+	private static final int DEFAULT_BREAKER_FAILURES = 3;
+	private static final int DEFAULT_BREAKER_OPEN_SECONDS = 60;
+	private static final int DEFAULT_SOAP_MAX_THREADS = 2;
+	private static final double DEFAULT_MIN_FRACCION = 0.5;
+
+	private static CatalogoService instance = null;
+
+	private final CatalogoFuente fuente;
+	private final AtomicReference<CatalogoSnapshot> snapshot = new AtomicReference<>();
+	private final AtomicReference<CompletableFuture<CatalogoSnapshot>> refrescoEnCurso = new AtomicReference<>();
+	private final int refreshSeconds;
+	private final long staleMillis;
+	private final long soapTimeoutMillis;
+	private final double minFraccion;
+	private final CircuitBreaker circuitBreaker;
+	private final ThreadPoolExecutor soapExecutor;
+	private final AtomicBoolean revalidacionPendiente = new AtomicBoolean(false);
+	private final List<CatalogoListener> listeners = new CopyOnWriteArrayList<>();
+	private final ExecutorService listenerExecutor;
+
+	private final AtomicLong refrescosCorrectos = new AtomicLong();
+	private final AtomicLong refrescosFallidos = new AtomicLong();
+	private final AtomicLong llamadasSoap = new AtomicLong();
+	private final AtomicLong llamadasDeduplicadas = new AtomicLong();
+	private volatile long ultimoIntento = 0L;
+	private volatile String ultimoError = null;
+	private volatile long bytesAsignadosUltimaCarga = -1L;
+
+	private ScheduledExecutorService scheduler = null;
+
+	/**
+	 * @param soapMaxHilos llamadas al ERP que pueden estar en marcha a la vez,
+	 *                     contando las abandonadas por timeout que todavía no
+	 *                     han terminado
+	 * @param minFraccion  fracción mínima de los artigos del snapshot anterior
+	 *                     que debe traer una descarga para publicarla
+	 */
+	CatalogoService(CatalogoFuente fuente, int refreshSeconds, int staleSeconds, long soapTimeoutMillis,
+			int soapMaxHilos, double minFraccion, CircuitBreaker circuitBreaker) {
+		this.fuente = fuente;
+		this.refreshSeconds = refreshSeconds;
+		this.staleMillis = TimeUnit.SECONDS.toMillis(staleSeconds);
+		this.soapTimeoutMillis = soapTimeoutMillis;
+		this.minFraccion = minFraccion;
+		this.circuitBreaker = circuitBreaker;
+		// Acotado: una llamada que ignora la interrupción sigue ocupando su hilo
+		// tras el timeout, y no se crean más hilos que soapMaxHilos
+		this.soapExecutor = new ThreadPoolExecutor(0, Math.max(1, soapMaxHilos), 60L, TimeUnit.SECONDS,
+				new SynchronousQueue<>(), r -> {
+					Thread t = new Thread(r, "catalogo-soap");
+					t.setDaemon(true);
+					return t;
+				});
+		// Un único hilo: los listeners reciben los snapshots en orden de publicación
+		this.listenerExecutor = Executors.newSingleThreadExecutor(r -> {
+			Thread t = new Thread(r, "catalogo-listeners");
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	public static synchronized CatalogoService getInstance() {
+		if (instance == null) {
+			int refreshSeconds = ConfigUtils.getInt("catalogo.refresh.seconds", DEFAULT_REFRESH_SECONDS);
+			CircuitBreaker circuitBreaker = new CircuitBreaker("soap-artigos",
+					ConfigUtils.getInt("catalogo.breaker.failures", DEFAULT_BREAKER_FAILURES),
+					TimeUnit.SECONDS.toMillis(
+							ConfigUtils.getInt("catalogo.breaker.open.seconds", DEFAULT_BREAKER_OPEN_SECONDS)));
+			int soapTimeoutSeconds = ConfigUtils.getInt("catalogo.soap.timeout.seconds", DEFAULT_SOAP_TIMEOUT_SECONDS);
+			CatalogoFuente fuente = ConfigUtils.getBoolean("catalogo.soap.streaming", false)
+					? SoapStreamFuente.fromConfig((int) TimeUnit.SECONDS.toMillis(soapTimeoutSeconds))
+					: new ArtigosCiberlojaFuente(new ArtigosCiberlojaImpl());
+			instance = new CatalogoService(fuente, refreshSeconds,
+					ConfigUtils.getInt("catalogo.stale.seconds", 2 * refreshSeconds),
+					TimeUnit.SECONDS.toMillis(soapTimeoutSeconds),
+					ConfigUtils.getInt("catalogo.soap.max.threads", DEFAULT_SOAP_MAX_THREADS),
+					ConfigUtils.getDouble("catalogo.min.fraccion", DEFAULT_MIN_FRACCION), circuitBreaker);
+			instance.start();
+		}
+		return instance;
+	}
+
+	synchronized void start() {
+		if (scheduler != null) {
+			return;
+		}
+		scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "catalogo-refresh");
+			t.setDaemon(true);
+			return t;
+		});
+		scheduler.scheduleWithFixedDelay(() -> {
+			try {
+				refrescar();
+			} catch (ServiceException e) {
+				// Ya registrado en refrescar(); se mantiene el snapshot anterior
+			}
+		}, 0, refreshSeconds, TimeUnit.SECONDS);
+		logger.info("Refresco del catálogo programado cada {} segundos", refreshSeconds);
+	}
+
+	public synchronized void stop() {
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+			scheduler = null;
+		}
+		listenerExecutor.shutdown();
+		soapExecutor.shutdownNow();
+	}
+
+	/**
+	 * Registra un listener que recibirá los próximos snapshots. Si ya hay uno
+	 * cargado se le entrega también, como si fuera la primera carga.
+	 */
+	public void addListener(CatalogoListener listener) {
+		listeners.add(listener);
+		CatalogoSnapshot actual = snapshot.get();
+		if (actual != null) {
+			listenerExecutor.execute(() -> notificar(listener, null, actual));
+		}
+	}
+
+	public void removeListener(CatalogoListener listener) {
+		listeners.remove(listener);
+	}
+
+	private void notificar(CatalogoListener listener, CatalogoSnapshot anterior, CatalogoSnapshot nuevo) {
+		try {
+			listener.onCatalogoActualizado(anterior, nuevo);
+		} catch (RuntimeException e) {
+			logger.error("Error en el listener del catálogo {}: {}", listener.getClass().getSimpleName(),
+					e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Devuelve el último snapshot cargado. Sólo bloquea si todavía no se ha
+	 * cargado ninguno. Si el snapshot está obsoleto se devuelve igualmente y se
+	 * pide un refresco en segundo plano.
+	 */
+	public CatalogoSnapshot getSnapshot() throws ServiceException {
+		CatalogoSnapshot actual = snapshot.get();
+		if (actual == null) {
+			return refrescar(true);
+		}
+		if (isObsoleto(actual)) {
+			revalidar();
+		}
+		return actual;
+	}
+
+	public boolean isObsoleto(CatalogoSnapshot snapshot) {
+		return snapshot.getEdadMillis() > staleMillis;
+	}
+
+	private void revalidar() {
+		ScheduledExecutorService executor;
+		synchronized (this) {
+			executor = scheduler;
+		}
+		if (executor == null || !revalidacionPendiente.compareAndSet(false, true)) {
+			return;
+		}
+		executor.execute(() -> {
+			try {
+				refrescar();
+			} catch (ServiceException e) {
+				// Ya registrado; se sigue sirviendo el snapshot obsoleto
+			} finally {
+				revalidacionPendiente.set(false);
+			}
+		});
+	}
+
+	/**
+	 * Descarga el catálogo completo del servicio SOAP y publica un nuevo
+	 * snapshot. Si ya hay una descarga en curso se espera a ella en lugar de
+	 * lanzar otra. Si la descarga falla se conserva el snapshot anterior.
+	 */
+	public CatalogoSnapshot refrescar() throws ServiceException {
+		return refrescar(false);
+	}
+
+	/**
+	 * @param siNoHay sólo se descarga si sigue sin haber snapshot: quien lo vio
+	 *                vacío puede llegar justo después de que terminara la
+	 *                primera carga
+	 */
+	private CatalogoSnapshot refrescar(boolean siNoHay) throws ServiceException {
+		CompletableFuture<CatalogoSnapshot> propio = new CompletableFuture<>();
+		CompletableFuture<CatalogoSnapshot> enCurso = refrescoEnCurso.compareAndExchange(null, propio);
+		if (enCurso != null) {
+			llamadasDeduplicadas.incrementAndGet();
+			return esperar(enCurso);
+		}
+
+		try {
+			CatalogoSnapshot actual = siNoHay ? snapshot.get() : null;
+			if (actual != null) {
+				llamadasDeduplicadas.incrementAndGet();
+				propio.complete(actual);
+				return actual;
+			}
+			CatalogoSnapshot nuevo = cargar();
+			propio.complete(nuevo);
+			return nuevo;
+		} catch (ServiceException | RuntimeException e) {
+			propio.completeExceptionally(e);
+			throw e;
+		} finally {
+			refrescoEnCurso.set(null);
+		}
+	}
+
+	private CatalogoSnapshot esperar(CompletableFuture<CatalogoSnapshot> enCurso) throws ServiceException {
+		try {
+			return enCurso.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof ServiceException) {
+				throw (ServiceException) e.getCause();
+			}
+			throw new ServiceException("Error al obtener productos del servicio SOAP: " + e.getCause().getMessage());
+		}
+	}
+
+	private CatalogoSnapshot cargar() throws ServiceException {
+		if (!circuitBreaker.permitirLlamada()) {
+			logger.warn("Circuito del servicio SOAP abierto, no se llama al ERP");
+			throw new CatalogoNoDisponibleException("Servicio SOAP de artigos no disponible temporalmente",
+					circuitBreaker.getSegundosHastaPrueba());
+		}
+
+		long inicio = System.currentTimeMillis();
+		ultimoIntento = inicio;
+		llamadasSoap.incrementAndGet();
+		CatalogoSnapshot.Carga carga;
+		try {
+			carga = llamarSoap();
+		} catch (Exception e) {
+			circuitBreaker.registrarFallo();
+			refrescosFallidos.incrementAndGet();
+			ultimoError = e.getMessage();
+			logger.error("Error al refrescar el catálogo desde el servicio SOAP: {}", e.getMessage(), e);
+			throw new ServiceException("Error al obtener productos del servicio SOAP: " + e.getMessage());
+		}
+
+		String rechazo = comprobarCantidad(carga.size(), snapshot.get(), minFraccion);
+		if (rechazo != null) {
+			circuitBreaker.registrarFallo();
+			refrescosFallidos.incrementAndGet();
+			ultimoError = rechazo;
+			logger.error("Catálogo descartado: {}", rechazo);
+			throw new ServiceException(rechazo);
+		}
+
+		circuitBreaker.registrarExito();
+		long fin = System.currentTimeMillis();
+		CatalogoSnapshot nuevo = carga.crearSnapshot(fin, fin - inicio);
+		CatalogoSnapshot anterior = snapshot.getAndSet(nuevo);
+		refrescosCorrectos.incrementAndGet();
+		ultimoError = null;
+		logger.info("Catálogo refrescado: {} productos en {} ms", carga.size(), nuevo.getDuracionCargaMillis());
+		for (CatalogoListener listener : listeners) {
+			listenerExecutor.execute(() -> notificar(listener, anterior, nuevo));
+		}
+		return nuevo;
+	}
+
+	/**
+	 * Motivo para descartar una descarga de tamaño sospechoso, o null si se
+	 * puede publicar.
+	 */
+	static String comprobarCantidad(int productos, CatalogoSnapshot anterior, double minFraccion) {
+		if (productos == 0) {
+			return "El servicio SOAP no devolvió productos";
+		}
+		if (anterior != null && productos < anterior.getProductos().size() * minFraccion) {
+			return "El servicio SOAP devolvió " + productos + " productos y el catálogo anterior tenía "
+					+ anterior.getProductos().size() + " (mínimo " + minFraccion + ")";
+		}
+		return null;
+	}
+
+	/**
+	 * Llama al ERP en un hilo aparte para no esperar más de
+	 * catalogo.soap.timeout.seconds aunque el cliente SOAP no tenga timeout.
+	 * Mide además la memoria que asigna el hilo durante la carga.
+	 */
+	private CatalogoSnapshot.Carga llamarSoap() throws Exception {
+		CatalogoSnapshot actual = snapshot.get();
+		int capacidad = actual != null ? actual.getProductos().size() : 1024;
+
+		Future<CatalogoSnapshot.Carga> llamada;
+		try {
+			llamada = soapExecutor.submit(() -> {
+				CatalogoSnapshot.Carga carga = new CatalogoSnapshot.Carga(capacidad);
+				long asignadosAntes = getBytesAsignadosHilo();
+				fuente.leerArtigos(carga);
+				long asignadosDespues = getBytesAsignadosHilo();
+				bytesAsignadosUltimaCarga = asignadosAntes < 0 ? -1L : asignadosDespues - asignadosAntes;
+				return carga;
+			});
+		} catch (RejectedExecutionException e) {
+			throw new ServiceException("Hay " + soapExecutor.getActiveCount()
+					+ " llamadas al servicio SOAP sin terminar, no se lanza otra");
+		}
+		try {
+			return llamada.get(soapTimeoutMillis, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			llamada.cancel(true);
+			throw new TimeoutException("El servicio SOAP no respondió en " + soapTimeoutMillis + " ms");
+		} catch (ExecutionException e) {
+			throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+		}
+	}
+
+	private static long getBytesAsignadosHilo() {
+		ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+		if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) threadMXBean)
+					.getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return -1L;
+	}
+
+	/**
+	 * Estado del catálogo en memoria para monitorización (edad del snapshot,
+	 * duración del último refresco y errores).
+	 */
+	public Map<String, Object> getEstado() {
+		Map<String, Object> estado = new LinkedHashMap<>();
+		CatalogoSnapshot actual = snapshot.get();
+		estado.put("cargado", actual != null);
+		if (actual != null) {
+			estado.put("productos", actual.getProductos().size());
+			estado.put("cargadoEn", actual.getCargadoEn());
+			estado.put("edadMillis", actual.getEdadMillis());
+			estado.put("duracionRefrescoMillis", actual.getDuracionCargaMillis());
+			estado.put("obsoleto", isObsoleto(actual));
+		}
+		estado.put("intervaloRefrescoSegundos", refreshSeconds);
+		estado.put("modoCarga", fuente.getNombre());
+		estado.put("bytesAsignadosUltimaCarga", bytesAsignadosUltimaCarga);
+		estado.put("ultimoIntento", ultimoIntento);
+		estado.put("refrescosCorrectos", refrescosCorrectos.get());
+		estado.put("refrescosFallidos", refrescosFallidos.get());
+		estado.put("llamadasSoap", llamadasSoap.get());
+		estado.put("llamadasDeduplicadas", llamadasDeduplicadas.get());
+		estado.put("llamadasSoapEnCurso", soapExecutor.getActiveCount());
+		if (ultimoError != null) {
+			estado.put("ultimoError", ultimoError);
+		}
+		estado.put("circuito", circuitBreaker.getEstadisticas());
+		return estado;
+	}
+}
@@ -0,0 +1,163 @@
+package com.luis.ciberloja.catalogo;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import com.luis.ciberloja.model.ProductoDTO;
+
+/**
+ * Copia inmutable del catálogo de artigos obtenido del servicio SOAP. Se
+ * sustituye completa en cada refresco, nunca se modifica.
+ */
+public class CatalogoSnapshot {
+
+	private final List<ProductoDTO> productos;
+	private final Map<String, ProductoDTO> productosPorId;
+	private final Map<String, Long> hashes;
+	private final CatalogoColumnas columnas;
+	private final long cargadoEn;
+	private final long duracionCargaMillis;
+
+	public CatalogoSnapshot(List<ProductoDTO> productos, long cargadoEn, long duracionCargaMillis) {
+		this(cargar(productos), cargadoEn, duracionCargaMillis);
+	}
+
+	private CatalogoSnapshot(Carga carga, long cargadoEn, long duracionCargaMillis) {
+		this.productos = Collections.unmodifiableList(carga.productos);
+		this.productosPorId = Collections.unmodifiableMap(carga.productosPorId);
+		this.hashes = Collections.unmodifiableMap(carga.hashes);
+		this.columnas = new CatalogoColumnas(this.productos);
+		this.cargadoEn = cargadoEn;
+		this.duracionCargaMillis = duracionCargaMillis;
+	}
+
+	private static Carga cargar(List<ProductoDTO> productos) {
+		Carga carga = new Carga(productos.size());
+		productos.forEach(carga);
+		return carga;
+	}
+
+	/**
+	 * Construye un snapshot a medida que la fuente entrega los artigos: cada uno
+	 * se indexa por id y se le calcula la huella al llegar, sin lista
+	 * intermedia que copiar al final. Las columnas de filtrado, que son arrays
+	 * del tamaño del catálogo, se crean en crearSnapshot.
+	 */
+	static class Carga implements Consumer<ProductoDTO> {
+
+		private final ArrayList<ProductoDTO> productos;
+		private final Map<String, ProductoDTO> productosPorId;
+		private final Map<String, Long> hashes;
+
+		Carga(int capacidad) {
+			this.productos = new ArrayList<>(capacidad);
+			// Capacidad inicial suficiente para no redimensionar con el factor de carga por defecto
+			this.productosPorId = new HashMap<>((int) (capacidad / 0.75f) + 1);
+			this.hashes = new HashMap<>((int) (capacidad / 0.75f) + 1);
+		}
+
+		@Override
+		public void accept(ProductoDTO p) {
+			productos.add(p);
+			// Si el ERP repite un id se conserva el primero, como hacía la búsqueda lineal
+			if (p.getId() != null && productosPorId.putIfAbsent(p.getId(), p) == null) {
+				hashes.put(p.getId(), ProductoHash.calcular(p));
+			}
+		}
+
+		int size() {
+			return productos.size();
+		}
+
+		CatalogoSnapshot crearSnapshot(long cargadoEn, long duracionCargaMillis) {
+			productos.trimToSize();
+			return new CatalogoSnapshot(this, cargadoEn, duracionCargaMillis);
+		}
+	}
+
+	public List<ProductoDTO> getProductos() {
+		return productos;
+	}
+
+	/**
+	 * Búsqueda en tiempo constante por id de artigo.
+	 */
+	public ProductoDTO findById(String id) {
+		return id == null ? null : productosPorId.get(id);
+	}
+
+	/**
+	 * Resuelve varios ids de una vez, manteniendo el orden de la petición y
+	 * omitiendo los que no existen en el catálogo.
+	 */
+	public List<ProductoDTO> findByIds(List<String> ids) {
+		List<ProductoDTO> encontrados = new ArrayList<>(ids.size());
+		for (String id : ids) {
+			ProductoDTO p = findById(id);
+			if (p != null) {
+				encontrados.add(p);
+			}
+		}
+		return encontrados;
+	}
+
+	/**
+	 * Filas del catálogo que cumplen los criterios.
+	 */
+	public BitSet filtrar(CatalogoCriteria criteria) {
+		return columnas.filtrar(criteria);
+	}
+
+	/**
+	 * Recuentos por familia, tramo de precio y stock de los productos que
+	 * cumplen los criterios.
+	 */
+	public CatalogoFacetas facetas(CatalogoCriteria criteria, double[] limitesPrecio) {
+		return columnas.facetas(columnas.filtrar(criteria), limitesPrecio);
+	}
+
+	public ProductoDTO get(int fila) {
+		return productos.get(fila);
+	}
+
+	/**
+	 * Página (empezando en 1) de las filas indicadas, en el orden del catálogo.
+	 */
+	public List<ProductoDTO> getPagina(BitSet filas, int page, int size) {
+		long desde = (long) (page - 1) * size;
+		List<ProductoDTO> pagina = new ArrayList<>(Math.min(size, filas.cardinality()));
+		int fila = filas.nextSetBit(0);
+		for (long i = 0; i < desde && fila >= 0; i++) {
+			fila = filas.nextSetBit(fila + 1);
+		}
+		while (fila >= 0 && pagina.size() < size) {
+			pagina.add(productos.get(fila));
+			fila = filas.nextSetBit(fila + 1);
+		}
+		return pagina;
+	}
+
+	/**
+	 * Huella de cada artigo por id, para calcular diferencias entre snapshots.
+	 */
+	public Map<String, Long> getHashes() {
+		return hashes;
+	}
+
+	public long getCargadoEn() {
+		return cargadoEn;
+	}
+
+	public long getDuracionCargaMillis() {
+		return duracionCargaMillis;
+	}
+
+	public long getEdadMillis() {
+		return System.currentTimeMillis() - cargadoEn;
+	}
+}
@@ -0,0 +1,10 @@
+package com.luis.ciberloja.catalogo;
+
+/**
+ * Recibe el resultado de cada sincronización del catálogo con BD que ha
+ * escrito cambios, tras el commit. Se invoca en el hilo que sincroniza.
+ */
+public interface CatalogoSyncListener {
+
+	void onProductosSincronizados(CatalogoSyncResultado resultado);
+}
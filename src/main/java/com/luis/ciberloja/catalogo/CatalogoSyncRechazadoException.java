@@ -0,0 +1,16 @@
+package com.luis.ciberloja.catalogo;
+
+import com.luis.ciberloja.DataException;
+
+/**
+ * La sincronización con BD no se ha hecho porque el snapshot parece
+ * incompleto: viene vacío o retiraría más artigos de los permitidos.
+ */
+public class CatalogoSyncRechazadoException extends DataException {
+
+	private static final long serialVersionUID = 1L;
+
+	public CatalogoSyncRechazadoException(String message) {
+		super(message);
+	}
+}
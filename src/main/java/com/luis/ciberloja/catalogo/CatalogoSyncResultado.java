@@ -0,0 +1,92 @@
+package com.luis.ciberloja.catalogo;
+
+/**
+ * Resumen de una ejecución de la sincronización del catálogo con la BD.
+ */
+public class CatalogoSyncResultado {
+
+	private long fecha;
+	private long duracionMillis;
+	private int insertados;
+	private int modificados;
+	private int eliminados;
+	private int sinCambios;
+	// Artigos nuevos que no se pudieron insertar (ver ProductoSyncDAO)
+	private int noInsertados;
+	private int filasEscritas;
+
+	public CatalogoSyncResultado() {
+	}
+
+	public long getFecha() {
+		return fecha;
+	}
+
+	public void setFecha(long fecha) {
+		this.fecha = fecha;
+	}
+
+	public long getDuracionMillis() {
+		return duracionMillis;
+	}
+
+	public void setDuracionMillis(long duracionMillis) {
+		this.duracionMillis = duracionMillis;
+	}
+
+	public int getInsertados() {
+		return insertados;
+	}
+
+	public void setInsertados(int insertados) {
+		this.insertados = insertados;
+	}
+
+	public int getModificados() {
+		return modificados;
+	}
+
+	public void setModificados(int modificados) {
+		this.modificados = modificados;
+	}
+
+	public int getEliminados() {
+		return eliminados;
+	}
+
+	public void setEliminados(int eliminados) {
+		this.eliminados = eliminados;
+	}
+
+	public int getSinCambios() {
+		return sinCambios;
+	}
+
+	public void setSinCambios(int sinCambios) {
+		this.sinCambios = sinCambios;
+	}
+
+	public int getNoInsertados() {
+		return noInsertados;
+	}
+
+	public void setNoInsertados(int noInsertados) {
+		this.noInsertados = noInsertados;
+	}
+
+	public int getFilasEscritas() {
+		return filasEscritas;
+	}
+
+	public void setFilasEscritas(int filasEscritas) {
+		this.filasEscritas = filasEscritas;
+	}
+
+	@Override
+	public String toString() {
+		return "CatalogoSyncResultado [insertados=" + insertados + ", modificados=" + modificados + ", eliminados="
+				+ eliminados + ", sinCambios=" + sinCambios + ", noInsertados="
+				+ noInsertados + ", filasEscritas=" + filasEscritas
+				+ ", duracionMillis=" + duracionMillis + "]";
+	}
+}
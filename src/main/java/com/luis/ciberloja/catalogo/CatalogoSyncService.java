@@ -0,0 +1,245 @@
+package com.luis.ciberloja.catalogo;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.luis.ciberloja.DataException;
+import com.luis.ciberloja.model.ProductoDTO;
+import com.luis.ciberloja.util.ConfigUtils;
+import com.luis.ciberloja.util.JDBCUtils;
+
+/**
+ * Sincroniza el catálogo SOAP con la tabla producto escribiendo sólo los
+ * artigos nuevos, modificados o retirados desde la última sincronización. El
+ * estado anterior se reconstruye a partir de las huellas guardadas en BD, de
+ * modo que un reinicio no provoca una reescritura completa.
+ *
+ * Está desactivada por defecto (catalogo.sync.db.enabled). Un snapshot vacío,
+ * o uno que retiraría más de catalogo.sync.max.retirados (fracción) de los
+ * artigos guardados, se rechaza sin escribir nada: suele ser una descarga
+ * SOAP incompleta y no debe dejar el catálogo sin stock.
+ *
+ * Si la tabla producto tiene columnas obligatorias que la sincronización no
+ * conoce, los artigos nuevos no se insertan: sólo se actualizan los que ya
+ * existen, y los demás se vuelven a intentar en cada sincronización.
+ */
+public class CatalogoSyncService implements CatalogoListener {
+
+	private static Logger logger = LogManager.getLogger(CatalogoSyncService.class);
+
+	private static final double DEFAULT_MAX_RETIRADOS = 0.1;
+
+	private static CatalogoSyncService instance = null;
+
+	private final ProductoSyncDAO productoSyncDAO;
+	private final boolean activada;
+	private final double maxRetirados;
+
+	private final List<CatalogoSyncListener> listeners = new CopyOnWriteArrayList<>();
+
+	// Huellas de lo que hay en BD tras la última sincronización correcta
+	private Map<String, Long> hashesGuardados = null;
+	// Si se pueden insertar artigos nuevos en producto; se comprueba con las huellas
+	private boolean insertar = false;
+	private volatile List<String> columnasSinValor = null;
+
+	private final AtomicLong ejecuciones = new AtomicLong();
+	private final AtomicLong ejecucionesFallidas = new AtomicLong();
+	private final AtomicLong ejecucionesRechazadas = new AtomicLong();
+	private volatile CatalogoSyncResultado ultimoResultado = null;
+	private volatile String ultimoError = null;
+
+	CatalogoSyncService(ProductoSyncDAO productoSyncDAO, boolean activada, double maxRetirados) {
+		this.productoSyncDAO = productoSyncDAO;
+		this.activada = activada;
+		this.maxRetirados = maxRetirados;
+	}
+
+	public static synchronized CatalogoSyncService getInstance() {
+		if (instance == null) {
+			instance = new CatalogoSyncService(new ProductoSyncDAO(),
+					ConfigUtils.getBoolean("catalogo.sync.db.enabled", false),
+					ConfigUtils.getDouble("catalogo.sync.max.retirados", DEFAULT_MAX_RETIRADOS));
+			if (instance.activada) {
+				CatalogoService.getInstance().addListener(instance);
+				logger.info("Sincronización del catálogo con BD activada");
+			}
+		}
+		return instance;
+	}
+
+	public boolean isActivada() {
+		return activada;
+	}
+
+	public void addListener(CatalogoSyncListener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(CatalogoSyncListener listener) {
+		listeners.remove(listener);
+	}
+
+	@Override
+	public void onCatalogoActualizado(CatalogoSnapshot anterior, CatalogoSnapshot nuevo) {
+		try {
+			sincronizar(nuevo, false);
+		} catch (DataException e) {
+			// Ya registrado; se reintentará con el próximo snapshot
+		}
+	}
+
+	/**
+	 * Escribe en BD las diferencias entre el snapshot y lo último sincronizado.
+	 *
+	 * @param forzar escribe aunque se retiren más artigos de los permitidos
+	 *               (un snapshot vacío se rechaza siempre)
+	 * @throws CatalogoSyncRechazadoException si el snapshot parece incompleto
+	 */
+	public synchronized CatalogoSyncResultado sincronizar(CatalogoSnapshot snapshot, boolean forzar)
+			throws DataException {
+		long inicio = System.currentTimeMillis();
+		ejecuciones.incrementAndGet();
+		Connection c = null;
+		try {
+			if (snapshot == null || snapshot.getProductos().isEmpty()) {
+				throw new CatalogoSyncRechazadoException("El catálogo está vacío, no se sincroniza con BD");
+			}
+
+			c = JDBCUtils.getConnection();
+			c.setAutoCommit(false);
+
+			if (hashesGuardados == null) {
+				productoSyncDAO.verificarEsquema(c);
+				columnasSinValor = productoSyncDAO.getColumnasSinValor(c);
+				insertar = columnasSinValor.isEmpty();
+				if (!insertar) {
+					logger.warn("La tabla producto tiene columnas obligatorias sin valor por defecto {}:"
+							+ " sólo se actualizan los productos que ya existen", columnasSinValor);
+				}
+				hashesGuardados = productoSyncDAO.findHashes(c);
+			}
+
+			CatalogoDiff diff = CatalogoDiff.calcular(hashesGuardados, snapshot);
+			if (!forzar) {
+				comprobarRetirados(diff.getEliminados().size(), hashesGuardados.size(), maxRetirados);
+			}
+			int filas = 0;
+			List<String> noInsertados = Collections.emptyList();
+			if (insertar) {
+				filas += productoSyncDAO.upsert(c, diff.getInsertados(), snapshot.getHashes());
+				filas += productoSyncDAO.upsert(c, diff.getModificados(), snapshot.getHashes());
+			} else {
+				// Un INSERT ... ON DUPLICATE KEY también fallaría con las filas existentes
+				List<ProductoDTO> escribir = new ArrayList<>(diff.getInsertados());
+				escribir.addAll(diff.getModificados());
+				noInsertados = productoSyncDAO.actualizar(c, escribir, snapshot.getHashes());
+				filas += escribir.size() - noInsertados.size();
+			}
+			filas += productoSyncDAO.retirar(c, diff.getEliminados());
+			c.commit();
+			if (noInsertados.isEmpty()) {
+				hashesGuardados = snapshot.getHashes();
+			} else {
+				// Sin huella, para volver a intentarlos en la próxima sincronización
+				hashesGuardados = new HashMap<>(snapshot.getHashes());
+				hashesGuardados.keySet().removeAll(noInsertados);
+			}
+
+			CatalogoSyncResultado resultado = new CatalogoSyncResultado();
+			resultado.setFecha(inicio);
+			resultado.setInsertados(diff.getInsertados().size());
+			resultado.setModificados(diff.getModificados().size());
+			resultado.setEliminados(diff.getEliminados().size());
+			resultado.setSinCambios(diff.getSinCambios());
+			resultado.setNoInsertados(noInsertados.size());
+			resultado.setFilasEscritas(filas);
+			resultado.setDuracionMillis(System.currentTimeMillis() - inicio);
+			ultimoResultado = resultado;
+			ultimoError = null;
+			logger.info("Catálogo sincronizado con BD: {}", resultado);
+			if (filas > 0) {
+				notificar(resultado);
+			}
+			return resultado;
+
+		} catch (CatalogoSyncRechazadoException e) {
+			JDBCUtils.rollback(c);
+			ejecucionesRechazadas.incrementAndGet();
+			ultimoError = e.getMessage();
+			logger.warn(e.getMessage());
+			throw e;
+		} catch (SQLException | DataException e) {
+			JDBCUtils.rollback(c);
+			// No se sabe qué llegó a BD: la próxima vez se releen las huellas
+			hashesGuardados = null;
+			ejecucionesFallidas.incrementAndGet();
+			ultimoError = e.getMessage();
+			logger.error("Error al sincronizar el catálogo con BD: {}", e.getMessage(), e);
+			throw e instanceof DataException ? (DataException) e
+					: new DataException("Error al sincronizar el catálogo con BD", e);
+		} finally {
+			if (c != null) {
+				try {
+					c.close();
+				} catch (SQLException e) {
+					logger.warn("Error al cerrar la conexión: {}", e.getMessage());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Rechaza una sincronización que retiraría más de la fracción permitida de
+	 * los artigos guardados.
+	 */
+	static void comprobarRetirados(int retirados, int guardados, double maxRetirados)
+			throws CatalogoSyncRechazadoException {
+		if (retirados > 0 && retirados > guardados * maxRetirados) {
+			throw new CatalogoSyncRechazadoException("La sincronización retiraría " + retirados + " de " + guardados
+					+ " artigos (máximo " + maxRetirados + "), no se escribe nada. Use forzar=true si es correcto");
+		}
+	}
+
+	private void notificar(CatalogoSyncResultado resultado) {
+		for (CatalogoSyncListener listener : listeners) {
+			try {
+				listener.onProductosSincronizados(resultado);
+			} catch (RuntimeException e) {
+				logger.error("Error en el listener de sincronización {}: {}", listener.getClass().getSimpleName(),
+						e.getMessage(), e);
+			}
+		}
+	}
+
+	public Map<String, Object> getEstado() {
+		Map<String, Object> estado = new LinkedHashMap<>();
+		estado.put("activada", activada);
+		estado.put("maxRetirados", maxRetirados);
+		if (columnasSinValor != null) {
+			estado.put("insertaNuevos", columnasSinValor.isEmpty());
+			estado.put("columnasSinValor", columnasSinValor);
+		}
+		estado.put("ejecuciones", ejecuciones.get());
+		estado.put("ejecucionesFallidas", ejecucionesFallidas.get());
+		estado.put("ejecucionesRechazadas", ejecucionesRechazadas.get());
+		if (ultimoResultado != null) {
+			estado.put("ultimaEjecucion", ultimoResultado);
+		}
+		if (ultimoError != null) {
+			estado.put("ultimoError", ultimoError);
+		}
+		return estado;
+	}
+}
@@ -0,0 +1,31 @@
+package com.luis.ciberloja.catalogo;
+
+import java.nio.charset.StandardCharsets;
+
+import com.luis.ciberloja.model.ProductoDTO;
+
+/**
+ * Huella de 64 bits (FNV-1a) de los campos de un artigo que se guardan en BD,
+ * para detectar cambios entre dos descargas del catálogo sin comparar campo a
+ * campo.
+ */
+public class ProductoHash {
+
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private ProductoHash() {
+	}
+
+	public static long calcular(ProductoDTO p) {
+		StringBuilder sb = new StringBuilder(96);
+		sb.append(p.getId()).append('|').append(p.getNombre()).append('|').append(p.getPrecio()).append('|')
+				.append(p.getStockDisponible()).append('|').append(p.getDestaques());
+		long hash = FNV_OFFSET;
+		for (byte b : sb.toString().getBytes(StandardCharsets.UTF_8)) {
+			hash ^= (b & 0xff);
+			hash *= FNV_PRIME;
+		}
+		return hash;
+	}
+}
@@ -0,0 +1,247 @@
+package com.luis.ciberloja.catalogo;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.luis.ciberloja.DataException;
+import com.luis.ciberloja.model.ProductoDTO;
+import com.luis.ciberloja.util.JDBCUtils;
+
+/**
+ * Escritura por lotes de los cambios del catálogo SOAP en la tabla producto
+ * que consulta ProductoService, y de la huella guardada de cada artigo en
+ * producto_sync_hash (src/main/sql/V1__producto_sync_hash.sql).
+ *
+ * La tabla producto es del middleware, cuyo mapeo no está en este proyecto:
+ * antes de escribir se comprueba con los metadatos de la BD que tiene las
+ * columnas que se usan aquí, y si no no se escribe nada. Si además tiene otras
+ * columnas obligatorias sin valor por defecto (familia_id...), un INSERT con
+ * sólo estas fallaría: en ese caso los artigos nuevos no se insertan y sólo se
+ * actualizan las filas que ya existen (actualizar).
+ */
+public class ProductoSyncDAO {
+
+	private static Logger logger = LogManager.getLogger(ProductoSyncDAO.class);
+
+	static final int BATCH_SIZE = 500;
+
+	static final String TABLA_PRODUCTO = "producto";
+	static final List<String> COLUMNAS_PRODUCTO = Arrays.asList("id", "nombre", "precio", "stock_disponible",
+			"destaques");
+	static final String TABLA_HASH = "producto_sync_hash";
+	static final List<String> COLUMNAS_HASH = Arrays.asList("id", "hash");
+
+	private static final String SELECT_HASHES = "SELECT id, hash FROM producto_sync_hash";
+
+	private static final String UPSERT_PRODUCTO = "INSERT INTO producto (id, nombre, precio, stock_disponible, destaques)"
+			+ " VALUES (?, ?, ?, ?, ?)"
+			+ " ON DUPLICATE KEY UPDATE nombre = VALUES(nombre), precio = VALUES(precio),"
+			+ " stock_disponible = VALUES(stock_disponible), destaques = VALUES(destaques)";
+
+	private static final String UPDATE_PRODUCTO = "UPDATE producto SET nombre = ?, precio = ?, stock_disponible = ?,"
+			+ " destaques = ? WHERE id = ?";
+
+	private static final String UPSERT_HASH = "INSERT INTO producto_sync_hash (id, hash) VALUES (?, ?)"
+			+ " ON DUPLICATE KEY UPDATE hash = VALUES(hash)";
+
+	// Los artigos retirados del ERP se dejan sin stock ni destaque en lugar de
+	// borrarlos: pueden estar referenciados por líneas de pedido
+	private static final String RETIRAR_PRODUCTO = "UPDATE producto SET stock_disponible = 0, destaques = 0 WHERE id = ?";
+
+	private static final String DELETE_HASH = "DELETE FROM producto_sync_hash WHERE id = ?";
+
+	public ProductoSyncDAO() {
+	}
+
+	/**
+	 * Comprueba que las tablas producto y producto_sync_hash existen con las
+	 * columnas que escribe este DAO.
+	 *
+	 * @throws DataException si falta alguna, indicando cuáles
+	 */
+	public void verificarEsquema(Connection c) throws DataException {
+		try {
+			List<String> faltan = new ArrayList<>();
+			faltan.addAll(JDBCUtils.getColumnasQueFaltan(c, TABLA_PRODUCTO, COLUMNAS_PRODUCTO));
+			faltan.addAll(JDBCUtils.getColumnasQueFaltan(c, TABLA_HASH, COLUMNAS_HASH));
+			if (!faltan.isEmpty()) {
+				throw new DataException("El esquema de BD no tiene las columnas que usa la sincronización: " + faltan
+						+ ". Aplique src/main/sql/V1__producto_sync_hash.sql y revise el mapeo de producto");
+			}
+		} catch (SQLException e) {
+			logger.error(e.getMessage(), e);
+			throw new DataException("Error al leer los metadatos de la BD", e);
+		}
+	}
+
+	/**
+	 * Columnas obligatorias de producto a las que upsert no da valor. Si hay
+	 * alguna, los artigos nuevos no se pueden insertar.
+	 */
+	public List<String> getColumnasSinValor(Connection c) throws DataException {
+		try {
+			return JDBCUtils.getColumnasObligatorias(c, TABLA_PRODUCTO, COLUMNAS_PRODUCTO);
+		} catch (SQLException e) {
+			logger.error(e.getMessage(), e);
+			throw new DataException("Error al leer los metadatos de la BD", e);
+		}
+	}
+
+	public Map<String, Long> findHashes(Connection c) throws DataException {
+		Map<String, Long> hashes = new HashMap<>();
+		try (PreparedStatement stmt = c.prepareStatement(SELECT_HASHES); ResultSet rs = stmt.executeQuery()) {
+			while (rs.next()) {
+				hashes.put(rs.getString(1), rs.getLong(2));
+			}
+			return hashes;
+		} catch (SQLException e) {
+			logger.error(e.getMessage(), e);
+			throw new DataException("Error al leer las huellas del catálogo", e);
+		}
+	}
+
+	/**
+	 * Inserta o actualiza los productos y su huella.
+	 *
+	 * @return número de sentencias ejecutadas
+	 */
+	public int upsert(Connection c, List<ProductoDTO> productos, Map<String, Long> hashes) throws DataException {
+		if (productos.isEmpty()) {
+			return 0;
+		}
+		try (PreparedStatement producto = c.prepareStatement(UPSERT_PRODUCTO);
+				PreparedStatement hash = c.prepareStatement(UPSERT_HASH)) {
+			int pendientes = 0;
+			for (ProductoDTO p : productos) {
+				int i = 1;
+				producto.setString(i++, p.getId());
+				producto.setString(i++, p.getNombre());
+				setDouble(producto, i++, p.getPrecio());
+				setDouble(producto, i++, p.getStockDisponible());
+				producto.setBoolean(i++, Boolean.TRUE.equals(p.getDestaques()));
+				producto.addBatch();
+
+				hash.setString(1, p.getId());
+				hash.setLong(2, hashes.get(p.getId()));
+				hash.addBatch();
+
+				if (++pendientes == BATCH_SIZE) {
+					producto.executeBatch();
+					hash.executeBatch();
+					pendientes = 0;
+				}
+			}
+			if (pendientes > 0) {
+				producto.executeBatch();
+				hash.executeBatch();
+			}
+			return productos.size();
+		} catch (SQLException e) {
+			logger.error(e.getMessage(), e);
+			throw new DataException("Error al escribir productos del catálogo", e);
+		}
+	}
+
+	/**
+	 * Actualiza los productos que ya existen en la tabla, sin insertar los que
+	 * no, y guarda la huella sólo de los actualizados.
+	 *
+	 * @return ids que no existen en la tabla
+	 */
+	public List<String> actualizar(Connection c, List<ProductoDTO> productos, Map<String, Long> hashes)
+			throws DataException {
+		List<String> noEncontrados = new ArrayList<>();
+		if (productos.isEmpty()) {
+			return noEncontrados;
+		}
+		try (PreparedStatement producto = c.prepareStatement(UPDATE_PRODUCTO);
+				PreparedStatement hash = c.prepareStatement(UPSERT_HASH)) {
+			for (int desde = 0; desde < productos.size(); desde += BATCH_SIZE) {
+				List<ProductoDTO> bloque = productos.subList(desde, Math.min(productos.size(), desde + BATCH_SIZE));
+				for (ProductoDTO p : bloque) {
+					int i = 1;
+					producto.setString(i++, p.getNombre());
+					setDouble(producto, i++, p.getPrecio());
+					setDouble(producto, i++, p.getStockDisponible());
+					producto.setBoolean(i++, Boolean.TRUE.equals(p.getDestaques()));
+					producto.setString(i++, p.getId());
+					producto.addBatch();
+				}
+				// El driver de MySQL devuelve las filas encontradas, aunque no cambien
+				int[] filas = producto.executeBatch();
+				int pendientes = 0;
+				for (int j = 0; j < bloque.size(); j++) {
+					ProductoDTO p = bloque.get(j);
+					if (filas[j] == 0) {
+						noEncontrados.add(p.getId());
+						continue;
+					}
+					hash.setString(1, p.getId());
+					hash.setLong(2, hashes.get(p.getId()));
+					hash.addBatch();
+					pendientes++;
+				}
+				if (pendientes > 0) {
+					hash.executeBatch();
+				}
+			}
+			return noEncontrados;
+		} catch (SQLException e) {
+			logger.error(e.getMessage(), e);
+			throw new DataException("Error al actualizar productos del catálogo", e);
+		}
+	}
+
+	/**
+	 * Marca como retirados los productos que ya no vienen en el catálogo y
+	 * borra su huella.
+	 */
+	public int retirar(Connection c, List<String> ids) throws DataException {
+		if (ids.isEmpty()) {
+			return 0;
+		}
+		try (PreparedStatement producto = c.prepareStatement(RETIRAR_PRODUCTO);
+				PreparedStatement hash = c.prepareStatement(DELETE_HASH)) {
+			int pendientes = 0;
+			for (String id : ids) {
+				producto.setString(1, id);
+				producto.addBatch();
+				hash.setString(1, id);
+				hash.addBatch();
+
+				if (++pendientes == BATCH_SIZE) {
+					producto.executeBatch();
+					hash.executeBatch();
+					pendientes = 0;
+				}
+			}
+			if (pendientes > 0) {
+				producto.executeBatch();
+				hash.executeBatch();
+			}
+			return ids.size();
+		} catch (SQLException e) {
+			logger.error(e.getMessage(), e);
+			throw new DataException("Error al retirar productos del catálogo", e);
+		}
+	}
+
+	private static void setDouble(PreparedStatement stmt, int i, Double value) throws SQLException {
+		if (value == null) {
+			stmt.setNull(i, Types.DOUBLE);
+		} else {
+			stmt.setDouble(i, value);
+		}
+	}
+}
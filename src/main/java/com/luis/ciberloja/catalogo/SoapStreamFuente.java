@@ -0,0 +1,275 @@
+package com.luis.ciberloja.catalogo;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.luis.ciberloja.model.ProductoDTO;
+import com.luis.ciberloja.util.ConfigUtils;
+
+/**
+ * Cliente SOAP de GetArtigosCiberlojaSite que analiza la respuesta con StAX a
+ * medida que llega y entrega cada artigo en cuanto se cierra su elemento. No
+ * se construye el árbol del sobre SOAP ni una lista intermedia: en memoria sólo
+ * están los campos del artigo que se está leyendo.
+ *
+ * Un artigo es cualquier elemento cuyos hijos simples incluyen el campo de id;
+ * así da igual si el servicio devuelve un DataSet o una lista de objetos.
+ *
+ * El contrato (namespace, operación, elementos de la petición, nombres de los
+ * campos y valores verdaderos) no se ha contrastado con el WSDL real: los
+ * valores por defecto son los que se suponen, y todos se pueden ajustar con
+ * las claves soap.stream.* sin tocar el código. Por eso
+ * catalogo.soap.streaming está desactivado por defecto; antes de activarlo hay
+ * que comprobar en /producto/sync-soap/status que el modo streaming carga los
+ * mismos productos que el cliente del middleware.
+ */
+public class SoapStreamFuente implements CatalogoFuente {
+
+	private static Logger logger = LogManager.getLogger(SoapStreamFuente.class);
+
+	private static final String CAMPO_FAULT = "faultstring";
+
+	private final String endpoint;
+	private final Contrato contrato;
+	private final String empresa;
+	private final String utilizador;
+	private final String password;
+	private final int timeoutMillis;
+	private final XMLInputFactory xmlInputFactory;
+
+	/**
+	 * Nombres que usa el servicio SOAP. Los campos se comparan sin distinguir
+	 * mayúsculas.
+	 */
+	public static class Contrato {
+
+		String namespace = "http://tempuri.org/";
+		String operacion = "GetArtigosCiberlojaSite";
+		String paramEmpresa = "empresa";
+		String paramUtilizador = "utilizador";
+		String paramPassword = "password";
+		String campoId = "artigo";
+		String campoNombre = "descricao";
+		String campoPrecio = "pvp3";
+		String campoStock = "stock";
+		String campoDestaques = "destaques";
+		String campoFamilia = "familia";
+		Set<String> valoresVerdaderos = new HashSet<>(Arrays.asList("true", "1"));
+
+		public static Contrato fromConfig() {
+			Contrato c = new Contrato();
+			String namespace = ConfigUtils.getString("soap.service.namespace", c.namespace);
+			c.namespace = namespace.endsWith("/") ? namespace : namespace + "/";
+			c.operacion = ConfigUtils.getString("soap.stream.operacion", c.operacion);
+			c.paramEmpresa = ConfigUtils.getString("soap.stream.param.empresa", c.paramEmpresa);
+			c.paramUtilizador = ConfigUtils.getString("soap.stream.param.utilizador", c.paramUtilizador);
+			c.paramPassword = ConfigUtils.getString("soap.stream.param.password", c.paramPassword);
+			c.campoId = campo("soap.stream.campo.id", c.campoId);
+			c.campoNombre = campo("soap.stream.campo.nombre", c.campoNombre);
+			c.campoPrecio = campo("soap.stream.campo.precio", c.campoPrecio);
+			c.campoStock = campo("soap.stream.campo.stock", c.campoStock);
+			c.campoDestaques = campo("soap.stream.campo.destaques", c.campoDestaques);
+			c.campoFamilia = campo("soap.stream.campo.familia", c.campoFamilia);
+			String verdaderos = ConfigUtils.getString("soap.stream.valores.true", null);
+			if (verdaderos != null) {
+				c.valoresVerdaderos = new HashSet<>();
+				for (String valor : verdaderos.split(",")) {
+					c.valoresVerdaderos.add(valor.trim().toLowerCase(Locale.ROOT));
+				}
+			}
+			return c;
+		}
+
+		private static String campo(String key, String defaultValue) {
+			return ConfigUtils.getString(key, defaultValue).toLowerCase(Locale.ROOT);
+		}
+	}
+
+	public SoapStreamFuente(String endpoint, Contrato contrato, String empresa, String utilizador, String password,
+			int timeoutMillis) {
+		// El endpoint configurado apunta al WSDL; las llamadas van al servicio
+		this.endpoint = endpoint.replaceFirst("(?i)\\?wsdl$", "");
+		this.contrato = contrato;
+		this.empresa = empresa;
+		this.utilizador = utilizador;
+		this.password = password;
+		this.timeoutMillis = timeoutMillis;
+		this.xmlInputFactory = XMLInputFactory.newInstance();
+		this.xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		this.xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		this.xmlInputFactory.setProperty(XMLInputFactory.IS_COALESCING, true);
+	}
+
+	public static SoapStreamFuente fromConfig(int timeoutMillis) {
+		return new SoapStreamFuente(ConfigUtils.getString("soap.service.endpoint", null), Contrato.fromConfig(),
+				ConfigUtils.getString("soap.service.empresa", null),
+				ConfigUtils.getString("soap.service.utilizador", null),
+				ConfigUtils.getString("soap.service.password", null), timeoutMillis);
+	}
+
+	@Override
+	public int leerArtigos(Consumer<ProductoDTO> consumidor) throws Exception {
+		HttpURLConnection con = (HttpURLConnection) new URL(endpoint).openConnection();
+		try {
+			con.setRequestMethod("POST");
+			con.setDoOutput(true);
+			con.setConnectTimeout(timeoutMillis);
+			con.setReadTimeout(timeoutMillis);
+			con.setRequestProperty("Content-Type", "text/xml; charset=utf-8");
+			con.setRequestProperty("SOAPAction", "\"" + contrato.namespace + contrato.operacion + "\"");
+
+			try (OutputStream out = con.getOutputStream()) {
+				out.write(crearPeticion().getBytes(StandardCharsets.UTF_8));
+			}
+
+			int status = con.getResponseCode();
+			InputStream respuesta = status < 400 ? con.getInputStream() : con.getErrorStream();
+			if (respuesta == null) {
+				throw new IOException("Respuesta HTTP " + status + " sin contenido del servicio SOAP");
+			}
+			try (InputStream in = new BufferedInputStream(respuesta)) {
+				int leidos = parsear(in, consumidor);
+				if (status >= 400) {
+					throw new IOException("Respuesta HTTP " + status + " del servicio SOAP");
+				}
+				logger.debug("{} artigos leídos del servicio SOAP en streaming", leidos);
+				return leidos;
+			}
+		} finally {
+			con.disconnect();
+		}
+	}
+
+	/**
+	 * Analiza un sobre SOAP entregando cada artigo al consumidor.
+	 */
+	int parsear(InputStream in, Consumer<ProductoDTO> consumidor) throws XMLStreamException, IOException {
+		XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(in);
+		// Campos simples de cada elemento abierto; null hasta que aparece el primero
+		List<Map<String, String>> pila = new ArrayList<>();
+		StringBuilder texto = new StringBuilder();
+		boolean hoja = false;
+		int leidos = 0;
+
+		try {
+			while (reader.hasNext()) {
+				switch (reader.next()) {
+				case XMLStreamConstants.START_ELEMENT:
+					pila.add(null);
+					texto.setLength(0);
+					hoja = true;
+					break;
+				case XMLStreamConstants.CHARACTERS:
+				case XMLStreamConstants.CDATA:
+					if (hoja) {
+						texto.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+					}
+					break;
+				case XMLStreamConstants.END_ELEMENT:
+					Map<String, String> campos = pila.remove(pila.size() - 1);
+					String nombre = reader.getLocalName().toLowerCase(Locale.ROOT);
+					if (hoja) {
+						if (CAMPO_FAULT.equals(nombre)) {
+							throw new IOException("SOAP Fault: " + texto.toString().trim());
+						}
+						// Elemento simple: es un campo de su padre
+						if (!pila.isEmpty()) {
+							Map<String, String> padre = pila.get(pila.size() - 1);
+							if (padre == null) {
+								padre = new HashMap<>();
+								pila.set(pila.size() - 1, padre);
+							}
+							padre.put(nombre, texto.toString().trim());
+						}
+					} else if (campos != null && campos.containsKey(contrato.campoId)) {
+						consumidor.accept(toProducto(campos));
+						leidos++;
+					}
+					hoja = false;
+					break;
+				default:
+					break;
+				}
+			}
+		} finally {
+			reader.close();
+		}
+		return leidos;
+	}
+
+	private ProductoDTO toProducto(Map<String, String> campos) {
+		ProductoDTO p = new ProductoDTO();
+		p.setId(campos.get(contrato.campoId));
+		p.setNombre(campos.get(contrato.campoNombre));
+		p.setPrecio(parseDouble(campos.get(contrato.campoPrecio)));
+		p.setStockDisponible(parseDouble(campos.get(contrato.campoStock)));
+		p.setDestaques(parseBoolean(campos.get(contrato.campoDestaques)));
+		p.setFamiliaNombre(campos.get(contrato.campoFamilia));
+		return p;
+	}
+
+	private static Double parseDouble(String value) {
+		if (value == null || value.isEmpty()) {
+			return null;
+		}
+		try {
+			return Double.valueOf(value.replace(',', '.'));
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	private Boolean parseBoolean(String value) {
+		if (value == null) {
+			return Boolean.FALSE;
+		}
+		return contrato.valoresVerdaderos.contains(value.toLowerCase(Locale.ROOT));
+	}
+
+	private String crearPeticion() {
+		return "<?xml version=\"1.0\" encoding=\"utf-8\"?>"
+				+ "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\">" + "<soap:Body>"
+				+ "<" + contrato.operacion + " xmlns=\"" + contrato.namespace + "\">"
+				+ elemento(contrato.paramEmpresa, empresa) + elemento(contrato.paramUtilizador, utilizador)
+				+ elemento(contrato.paramPassword, password) + "</" + contrato.operacion + ">" + "</soap:Body>"
+				+ "</soap:Envelope>";
+	}
+
+	private static String elemento(String nombre, String valor) {
+		return "<" + nombre + ">" + escapar(valor) + "</" + nombre + ">";
+	}
+
+	private static String escapar(String value) {
+		if (value == null) {
+			return "";
+		}
+		return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+	}
+
+	@Override
+	public String getNombre() {
+		return "streaming";
+	}
+}
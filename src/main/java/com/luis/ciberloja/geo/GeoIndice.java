@@ -0,0 +1,215 @@
+package com.luis.ciberloja.geo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.luis.ciberloja.model.Concelho;
+import com.luis.ciberloja.model.Distrito;
+import com.luis.ciberloja.model.Freguesia;
+import com.luis.ciberloja.util.TextoUtils;
+
+/**
+ * Búsqueda por nombre de distritos, concelhos y freguesias sobre un trie de
+ * los sufijos de cada palabra (normalizada, sin acentos) de los nombres. Así
+ * una palabra de la consulta encuentra tanto "joao" en "São João da Madeira"
+ * como "madeira" escrita a medias ("deira"). Cada nodo guarda ya ordenadas
+ * las entradas de su subárbol, de modo que una consulta sólo recorre sus
+ * palabras e intersecta listas.
+ *
+ * Es inmutable y se construye con cada GeoSnapshot.
+ */
+public class GeoIndice {
+
+	// De mejor a peor coincidencia
+	private static final int EXACTO = 0;
+	private static final int EMPIEZA = 1;
+	private static final int PALABRAS = 2;
+	private static final int CONTIENE = 3;
+
+	private static final class Entrada {
+		private final GeoResultado resultado;
+		private final String normalizado;
+		private final List<String> palabras;
+
+		private Entrada(GeoResultado resultado) {
+			this.resultado = resultado;
+			this.palabras = TextoUtils.palabras(resultado.getNombre());
+			this.normalizado = String.join(" ", palabras);
+		}
+	}
+
+	private static final class Nodo {
+		private final Map<Character, Nodo> hijos = new HashMap<>(4);
+		private List<Integer> construccion = new ArrayList<>();
+		private int[] entradas;
+	}
+
+	private final Entrada[] entradas;
+	private final Nodo raiz = new Nodo();
+
+	GeoIndice(List<Distrito> distritos, List<Concelho> concelhos, List<Freguesia> freguesias) {
+		Map<Integer, Distrito> distritosPorId = new HashMap<>();
+		for (Distrito d : distritos) {
+			distritosPorId.put(d.getId(), d);
+		}
+		Map<Integer, Concelho> concelhosPorId = new HashMap<>();
+		for (Concelho c : concelhos) {
+			concelhosPorId.put(c.getId(), c);
+		}
+
+		List<Entrada> todas = new ArrayList<>(distritos.size() + concelhos.size() + freguesias.size());
+		for (Distrito d : distritos) {
+			todas.add(new Entrada(new GeoResultado(GeoResultado.Tipo.DISTRITO, d.getId(), d.getNombre(), null, null,
+					null, d.getId(), d.getNombre(), d.getPaisId())));
+		}
+		for (Concelho c : concelhos) {
+			Distrito d = c.getDistritoId() != null ? distritosPorId.get(c.getDistritoId()) : null;
+			todas.add(new Entrada(new GeoResultado(GeoResultado.Tipo.CONCELHO, c.getId(), c.getNombre(), null,
+					c.getId(), c.getNombre(), c.getDistritoId(), d != null ? d.getNombre() : null,
+					d != null ? d.getPaisId() : null)));
+		}
+		for (Freguesia f : freguesias) {
+			Concelho c = f.getConcelhoId() != null ? concelhosPorId.get(f.getConcelhoId()) : null;
+			Distrito d = c != null && c.getDistritoId() != null ? distritosPorId.get(c.getDistritoId()) : null;
+			todas.add(new Entrada(new GeoResultado(GeoResultado.Tipo.FREGUESIA, f.getId(), f.getNombre(), f.getId(),
+					f.getConcelhoId(), c != null ? c.getNombre() : null, c != null ? c.getDistritoId() : null,
+					d != null ? d.getNombre() : null, d != null ? d.getPaisId() : null)));
+		}
+		this.entradas = todas.toArray(new Entrada[0]);
+
+		for (int i = 0; i < entradas.length; i++) {
+			for (String palabra : new HashSet<>(entradas[i].palabras)) {
+				for (int desde = 0; desde < palabra.length(); desde++) {
+					poner(palabra, desde, i);
+				}
+			}
+		}
+		cerrar(raiz);
+	}
+
+	/**
+	 * Las entradas se añaden en orden creciente, así que cada lista queda
+	 * ordenada y basta con no repetir la última.
+	 */
+	private void poner(String palabra, int desde, int entrada) {
+		Nodo nodo = raiz;
+		for (int i = desde; i < palabra.length(); i++) {
+			nodo = nodo.hijos.computeIfAbsent(palabra.charAt(i), c -> new Nodo());
+			List<Integer> lista = nodo.construccion;
+			if (lista.isEmpty() || lista.get(lista.size() - 1) != entrada) {
+				lista.add(entrada);
+			}
+		}
+	}
+
+	private static void cerrar(Nodo nodo) {
+		nodo.entradas = nodo.construccion.stream().mapToInt(Integer::intValue).toArray();
+		nodo.construccion = null;
+		for (Nodo hijo : nodo.hijos.values()) {
+			cerrar(hijo);
+		}
+	}
+
+	/**
+	 * Hasta limite entradas cuyo nombre contiene todas las palabras del texto.
+	 * Primero las que se llaman exactamente así, luego las que empiezan por el
+	 * texto, luego aquellas en que cada palabra es el comienzo de una palabra
+	 * del nombre y por último el resto; a igualdad, distritos antes que
+	 * concelhos y concelhos antes que freguesias, y los nombres más cortos.
+	 *
+	 * @param tipo sólo entradas de este tipo, o todas si es null
+	 */
+	public List<GeoResultado> buscar(String texto, GeoResultado.Tipo tipo, int limite) {
+		List<String> palabras = new ArrayList<>(new LinkedHashSet<>(TextoUtils.palabras(texto)));
+		if (palabras.isEmpty()) {
+			return new ArrayList<>();
+		}
+
+		int[][] listas = new int[palabras.size()][];
+		for (int i = 0; i < palabras.size(); i++) {
+			Nodo nodo = buscarNodo(palabras.get(i));
+			if (nodo == null) {
+				return new ArrayList<>();
+			}
+			listas[i] = nodo.entradas;
+		}
+		// Se recorre la lista más corta y se buscan sus entradas en las demás
+		Arrays.sort(listas, Comparator.comparingInt(l -> l.length));
+
+		String consulta = String.join(" ", palabras);
+		List<Entrada> candidatas = new ArrayList<>();
+		List<Integer> puntuaciones = new ArrayList<>();
+		for (int indice : listas[0]) {
+			if (!enTodas(indice, listas) || (tipo != null && entradas[indice].resultado.getTipo() != tipo)) {
+				continue;
+			}
+			candidatas.add(entradas[indice]);
+			puntuaciones.add(puntuar(entradas[indice], consulta, palabras));
+		}
+
+		Integer[] orden = new Integer[candidatas.size()];
+		for (int i = 0; i < orden.length; i++) {
+			orden[i] = i;
+		}
+		Arrays.sort(orden, Comparator.<Integer>comparingInt(puntuaciones::get)
+				.thenComparing(i -> candidatas.get(i).resultado.getTipo())
+				.thenComparingInt(i -> candidatas.get(i).normalizado.length())
+				.thenComparing(i -> candidatas.get(i).normalizado));
+
+		List<GeoResultado> resultados = new ArrayList<>(Math.min(limite, orden.length));
+		for (int i = 0; i < orden.length && resultados.size() < limite; i++) {
+			resultados.add(candidatas.get(orden[i]).resultado);
+		}
+		return resultados;
+	}
+
+	private Nodo buscarNodo(String palabra) {
+		Nodo nodo = raiz;
+		for (int i = 0; i < palabra.length() && nodo != null; i++) {
+			nodo = nodo.hijos.get(palabra.charAt(i));
+		}
+		return nodo;
+	}
+
+	private static boolean enTodas(int indice, int[][] listas) {
+		for (int i = 1; i < listas.length; i++) {
+			if (Arrays.binarySearch(listas[i], indice) < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int puntuar(Entrada entrada, String consulta, List<String> palabras) {
+		if (entrada.normalizado.equals(consulta)) {
+			return EXACTO;
+		}
+		if (entrada.normalizado.startsWith(consulta)) {
+			return EMPIEZA;
+		}
+		for (String palabra : palabras) {
+			boolean prefijo = false;
+			for (String p : entrada.palabras) {
+				if (p.startsWith(palabra)) {
+					prefijo = true;
+					break;
+				}
+			}
+			if (!prefijo) {
+				return CONTIENE;
+			}
+		}
+		return PALABRAS;
+	}
+
+	public int getEntradas() {
+		return entradas.length;
+	}
+}
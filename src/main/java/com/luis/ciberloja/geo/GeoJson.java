@@ -0,0 +1,106 @@
+package com.luis.ciberloja.geo;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.luis.ciberloja.JsonProvider;
+
+/**
+ * Respuesta JSON ya serializada y guardada comprimida con gzip. La versión es
+ * una huella del JSON sin comprimir: sólo cambia si cambia el contenido.
+ */
+public class GeoJson {
+
+	private final byte[] gzip;
+	private final int longitud;
+	private final String version;
+
+	private GeoJson(byte[] gzip, int longitud, String version) {
+		this.gzip = gzip;
+		this.longitud = longitud;
+		this.version = version;
+	}
+
+	/**
+	 * Serializa el valor con la instancia de JSON-B de las respuestas,
+	 * calculando a la vez la huella y el gzip.
+	 */
+	public static GeoJson de(Object valor) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			ByteArrayOutputStream comprimido = new ByteArrayOutputStream();
+			ContadorOutputStream contador;
+			try (GZIPOutputStream gz = new GZIPOutputStream(comprimido)) {
+				contador = new ContadorOutputStream(new DigestOutputStream(gz, digest));
+				JsonProvider.getJsonb().toJson(valor, contador);
+			}
+			byte[] hash = digest.digest();
+			StringBuilder sb = new StringBuilder();
+			for (int i = 0; i < 8; i++) {
+				sb.append(String.format("%02x", hash[i]));
+			}
+			return new GeoJson(comprimido.toByteArray(), (int) contador.escritos, sb.toString());
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		} catch (IOException e) {
+			// No ocurre al escribir en memoria
+			throw new IllegalStateException(e);
+		}
+	}
+
+	public String getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return el JSON comprimido; no se debe modificar
+	 */
+	public byte[] getGzip() {
+		return gzip;
+	}
+
+	/**
+	 * @return tamaño en bytes del JSON sin comprimir
+	 */
+	public int getLongitud() {
+		return longitud;
+	}
+
+	/**
+	 * Escribe el JSON descomprimido, para los clientes que no aceptan gzip.
+	 */
+	public void escribir(OutputStream out) throws IOException {
+		try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+			in.transferTo(out);
+		}
+	}
+
+	private static final class ContadorOutputStream extends FilterOutputStream {
+		private long escritos = 0L;
+
+		private ContadorOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			escritos++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			escritos += len;
+		}
+	}
+}
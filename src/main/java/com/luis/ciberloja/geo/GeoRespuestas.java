@@ -0,0 +1,72 @@
+package com.luis.ciberloja.geo;
+
+import java.util.List;
+import java.util.Locale;
+
+import com.luis.ciberloja.util.ConfigUtils;
+
+import jakarta.ws.rs.core.CacheControl;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+
+/**
+ * Respuestas HTTP de los datos geográficos pre-serializados: ETag fuerte con
+ * la versión del contenido, Cache-Control largo, 304 con If-None-Match y el
+ * gzip tal cual a los clientes que lo aceptan.
+ */
+public class GeoRespuestas {
+
+	private static final int DEFAULT_MAX_AGE_SECONDS = 86400;
+
+	private static final String GZIP = "gzip";
+
+	private static final int MAX_AGE_SECONDS = ConfigUtils.getInt("geo.cache.max.age.seconds",
+			DEFAULT_MAX_AGE_SECONDS);
+
+	private GeoRespuestas() {
+	}
+
+	public static Response servir(GeoJson json, Request request, HttpHeaders headers) {
+		boolean gzip = aceptaGzip(headers);
+		// Cada codificación es una representación distinta y lleva su ETag
+		EntityTag etag = new EntityTag(gzip ? json.getVersion() + "-" + GZIP : json.getVersion());
+		CacheControl cacheControl = new CacheControl();
+		cacheControl.setMaxAge(MAX_AGE_SECONDS);
+
+		Response.ResponseBuilder noModificado = request.evaluatePreconditions(etag);
+		if (noModificado != null) {
+			return noModificado.cacheControl(cacheControl).header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+					.build();
+		}
+
+		Response.ResponseBuilder builder;
+		if (gzip) {
+			builder = Response.ok(json.getGzip(), MediaType.APPLICATION_JSON).header(HttpHeaders.CONTENT_ENCODING,
+					GZIP);
+		} else {
+			builder = Response.ok((StreamingOutput) json::escribir, MediaType.APPLICATION_JSON);
+		}
+		return builder.tag(etag).cacheControl(cacheControl).header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+				.build();
+	}
+
+	private static boolean aceptaGzip(HttpHeaders headers) {
+		List<String> valores = headers.getRequestHeader(HttpHeaders.ACCEPT_ENCODING);
+		if (valores == null) {
+			return false;
+		}
+		for (String valor : valores) {
+			for (String codificacion : valor.split(",")) {
+				String[] partes = codificacion.trim().toLowerCase(Locale.ROOT).split(";");
+				if (GZIP.equals(partes[0].trim()) || "*".equals(partes[0].trim())) {
+					return partes.length < 2 || !partes[1].replace(" ", "").matches("q=0(\\.0*)?");
+				}
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,71 @@
+package com.luis.ciberloja.geo;
+
+/**
+ * Distrito, concelho o freguesia encontrado por la búsqueda, con los ids de
+ * toda su jerarquía para rellenar directamente una DireccionDTO.
+ */
+public class GeoResultado {
+
+	public enum Tipo {
+		DISTRITO, CONCELHO, FREGUESIA
+	}
+
+	private final Tipo tipo;
+	private final Integer id;
+	private final String nombre;
+	private final Integer freguesiaId;
+	private final Integer concelhoId;
+	private final String concelhoNombre;
+	private final Integer distritoId;
+	private final String distritoNombre;
+	private final Integer paisId;
+
+	GeoResultado(Tipo tipo, Integer id, String nombre, Integer freguesiaId, Integer concelhoId,
+			String concelhoNombre, Integer distritoId, String distritoNombre, Integer paisId) {
+		this.tipo = tipo;
+		this.id = id;
+		this.nombre = nombre;
+		this.freguesiaId = freguesiaId;
+		this.concelhoId = concelhoId;
+		this.concelhoNombre = concelhoNombre;
+		this.distritoId = distritoId;
+		this.distritoNombre = distritoNombre;
+		this.paisId = paisId;
+	}
+
+	public Tipo getTipo() {
+		return tipo;
+	}
+
+	public Integer getId() {
+		return id;
+	}
+
+	public String getNombre() {
+		return nombre;
+	}
+
+	public Integer getFreguesiaId() {
+		return freguesiaId;
+	}
+
+	public Integer getConcelhoId() {
+		return concelhoId;
+	}
+
+	public String getConcelhoNombre() {
+		return concelhoNombre;
+	}
+
+	public Integer getDistritoId() {
+		return distritoId;
+	}
+
+	public String getDistritoNombre() {
+		return distritoNombre;
+	}
+
+	public Integer getPaisId() {
+		return paisId;
+	}
+}
@@ -0,0 +1,140 @@
+package com.luis.ciberloja.geo;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.luis.ciberloja.DataException;
+import com.luis.ciberloja.model.Concelho;
+import com.luis.ciberloja.model.Distrito;
+import com.luis.ciberloja.model.Freguesia;
+import com.luis.ciberloja.model.Pais;
+import com.luis.ciberloja.service.ConcelhoService;
+import com.luis.ciberloja.service.DistritoService;
+import com.luis.ciberloja.service.FreguesiaService;
+import com.luis.ciberloja.service.PaisService;
+import com.luis.ciberloja.service.impl.ConcelhoServiceImpl;
+import com.luis.ciberloja.service.impl.DistritoServiceImpl;
+import com.luis.ciberloja.service.impl.FreguesiaServiceImpl;
+import com.luis.ciberloja.service.impl.PaisServiceImpl;
+
+/**
+ * Datos geográficos de referencia en memoria. Se cargan al arrancar (o en la
+ * primera petición si la BD no estaba disponible) y sólo se vuelven a leer de
+ * BD con una recarga explícita.
+ */
+public class GeoService {
+
+	private static Logger logger = LogManager.getLogger(GeoService.class);
+
+	private static GeoService instance = null;
+
+	private final PaisService paisService;
+	private final DistritoService distritoService;
+	private final ConcelhoService concelhoService;
+	private final FreguesiaService freguesiaService;
+
+	private volatile GeoSnapshot snapshot = null;
+
+	private final AtomicLong recargas = new AtomicLong();
+	private volatile long ultimaDuracionMillis = 0L;
+	private volatile String ultimoError = null;
+
+	GeoService(PaisService paisService, DistritoService distritoService, ConcelhoService concelhoService,
+			FreguesiaService freguesiaService) {
+		this.paisService = paisService;
+		this.distritoService = distritoService;
+		this.concelhoService = concelhoService;
+		this.freguesiaService = freguesiaService;
+	}
+
+	public static synchronized GeoService getInstance() {
+		if (instance == null) {
+			instance = new GeoService(new PaisServiceImpl(), new DistritoServiceImpl(), new ConcelhoServiceImpl(),
+					new FreguesiaServiceImpl());
+			try {
+				instance.recargar();
+			} catch (DataException e) {
+				// Ya registrado; se reintenta en la primera petición
+			}
+		}
+		return instance;
+	}
+
+	public GeoSnapshot getSnapshot() throws DataException {
+		GeoSnapshot actual = snapshot;
+		if (actual == null) {
+			synchronized (this) {
+				actual = snapshot;
+				if (actual == null) {
+					actual = recargar();
+				}
+			}
+		}
+		return actual;
+	}
+
+	/**
+	 * Vuelve a leer de BD todos los datos geográficos. Si falla se sigue
+	 * sirviendo el snapshot anterior.
+	 */
+	public synchronized GeoSnapshot recargar() throws DataException {
+		long inicio = System.currentTimeMillis();
+		recargas.incrementAndGet();
+		GeoSnapshot nuevo;
+		try {
+			nuevo = new GeoSnapshot(cargar(paisService.findAll()), cargar(distritoService.findAll()),
+					cargar(concelhoService.findAll()), cargar(freguesiaService.findAll()), System.currentTimeMillis());
+		} catch (DataException e) {
+			ultimoError = e.getMessage();
+			logger.error("Error al cargar los datos geográficos: {}", e.getMessage(), e);
+			throw e;
+		}
+		snapshot = nuevo;
+		ultimoError = null;
+		ultimaDuracionMillis = System.currentTimeMillis() - inicio;
+		logger.info("Datos geográficos cargados en {} ms: {} paises, {} distritos, {} concelhos, {} freguesias",
+				ultimaDuracionMillis, nuevo.getPaises().size(), nuevo.getDistritos().size(),
+				nuevo.getConcelhos().size(), nuevo.getFreguesias().size());
+		return nuevo;
+	}
+
+	private static <T> List<T> cargar(List<T> elementos) {
+		return elementos != null ? new ArrayList<>(elementos) : new ArrayList<>();
+	}
+
+	public Map<String, Object> getEstado() {
+		Map<String, Object> estado = new LinkedHashMap<>();
+		GeoSnapshot actual = snapshot;
+		if (actual != null) {
+			estado.put("cargadoEn", actual.getCargadoEn());
+			estado.put("paises", resumen(actual.getPaises().size(), actual.getPaisesJson()));
+			estado.put("distritos", resumen(actual.getDistritos().size(), actual.getDistritosJson()));
+			estado.put("concelhos", resumen(actual.getConcelhos().size(), actual.getConcelhosJson()));
+			estado.put("freguesias", resumen(actual.getFreguesias().size(), actual.getFreguesiasJson()));
+			estado.put("distritosConConcelhos", actual.getDistritosConConcelhos());
+			estado.put("concelhosConFreguesias", actual.getConcelhosConFreguesias());
+			estado.put("indiceEntradas", actual.getIndice().getEntradas());
+		}
+		estado.put("recargas", recargas.get());
+		estado.put("ultimaDuracionMillis", ultimaDuracionMillis);
+		if (ultimoError != null) {
+			estado.put("ultimoError", ultimoError);
+		}
+		return estado;
+	}
+
+	private static Map<String, Object> resumen(int elementos, GeoJson json) {
+		Map<String, Object> resumen = new LinkedHashMap<>();
+		resumen.put("elementos", elementos);
+		resumen.put("version", json.getVersion());
+		resumen.put("bytes", json.getLongitud());
+		resumen.put("bytesGzip", json.getGzip().length);
+		return resumen;
+	}
+}
@@ -0,0 +1,187 @@
+package com.luis.ciberloja.geo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import com.luis.ciberloja.model.Concelho;
+import com.luis.ciberloja.model.Distrito;
+import com.luis.ciberloja.model.Freguesia;
+import com.luis.ciberloja.model.Pais;
+
+/**
+ * Datos geográficos de referencia (países, distritos, concelhos y freguesias)
+ * cargados de una vez. Es inmutable: una recarga construye otro snapshot y lo
+ * sustituye, así que las peticiones nunca ven una mezcla de versiones.
+ *
+ * Además de las listas completas guarda, ya serializados, los concelhos de
+ * cada distrito y las freguesias de cada concelho, para que los formularios de
+ * dirección pidan sólo lo que van a mostrar, y el índice de búsqueda por
+ * nombre.
+ */
+public class GeoSnapshot {
+
+	private final List<Pais> paises;
+	private final List<Distrito> distritos;
+	private final List<Concelho> concelhos;
+	private final List<Freguesia> freguesias;
+
+	private final Map<Integer, Pais> paisesPorId;
+	private final Map<Integer, Distrito> distritosPorId;
+	private final Map<Integer, Concelho> concelhosPorId;
+	private final Map<Integer, Freguesia> freguesiasPorId;
+
+	private final GeoJson paisesJson;
+	private final GeoJson distritosJson;
+	private final GeoJson concelhosJson;
+	private final GeoJson freguesiasJson;
+
+	// Hijos serializados por id del padre, en el orden de las listas completas
+	private final Map<Integer, GeoJson> concelhosPorDistrito;
+	private final Map<Integer, GeoJson> freguesiasPorConcelho;
+	private final GeoJson vacio;
+
+	private final GeoIndice indice;
+
+	private final long cargadoEn;
+
+	GeoSnapshot(List<Pais> paises, List<Distrito> distritos, List<Concelho> concelhos, List<Freguesia> freguesias,
+			long cargadoEn) {
+		this.paises = Collections.unmodifiableList(paises);
+		this.distritos = Collections.unmodifiableList(distritos);
+		this.concelhos = Collections.unmodifiableList(concelhos);
+		this.freguesias = Collections.unmodifiableList(freguesias);
+
+		this.paisesPorId = porId(paises, Pais::getId);
+		this.distritosPorId = porId(distritos, Distrito::getId);
+		this.concelhosPorId = porId(concelhos, Concelho::getId);
+		this.freguesiasPorId = porId(freguesias, Freguesia::getId);
+
+		this.paisesJson = GeoJson.de(paises);
+		this.distritosJson = GeoJson.de(distritos);
+		this.concelhosJson = GeoJson.de(concelhos);
+		this.freguesiasJson = GeoJson.de(freguesias);
+
+		this.concelhosPorDistrito = porPadre(concelhos, Concelho::getDistritoId);
+		this.freguesiasPorConcelho = porPadre(freguesias, Freguesia::getConcelhoId);
+		this.vacio = GeoJson.de(Collections.emptyList());
+
+		this.indice = new GeoIndice(distritos, concelhos, freguesias);
+
+		this.cargadoEn = cargadoEn;
+	}
+
+	private static <T> Map<Integer, T> porId(List<T> elementos, Function<T, Integer> id) {
+		Map<Integer, T> porId = new HashMap<>(elementos.size() * 2);
+		for (T e : elementos) {
+			if (id.apply(e) != null) {
+				porId.put(id.apply(e), e);
+			}
+		}
+		return Collections.unmodifiableMap(porId);
+	}
+
+	private static <T> Map<Integer, GeoJson> porPadre(List<T> elementos, Function<T, Integer> padre) {
+		Map<Integer, List<T>> hijos = new LinkedHashMap<>();
+		for (T e : elementos) {
+			if (padre.apply(e) != null) {
+				hijos.computeIfAbsent(padre.apply(e), id -> new ArrayList<>()).add(e);
+			}
+		}
+		Map<Integer, GeoJson> porPadre = new HashMap<>(hijos.size() * 2);
+		for (Map.Entry<Integer, List<T>> entry : hijos.entrySet()) {
+			porPadre.put(entry.getKey(), GeoJson.de(entry.getValue()));
+		}
+		return Collections.unmodifiableMap(porPadre);
+	}
+
+	public List<Pais> getPaises() {
+		return paises;
+	}
+
+	public List<Distrito> getDistritos() {
+		return distritos;
+	}
+
+	public List<Concelho> getConcelhos() {
+		return concelhos;
+	}
+
+	public List<Freguesia> getFreguesias() {
+		return freguesias;
+	}
+
+	public Pais getPais(int id) {
+		return paisesPorId.get(id);
+	}
+
+	public Distrito getDistrito(int id) {
+		return distritosPorId.get(id);
+	}
+
+	public Concelho getConcelho(int id) {
+		return concelhosPorId.get(id);
+	}
+
+	public Freguesia getFreguesia(int id) {
+		return freguesiasPorId.get(id);
+	}
+
+	public GeoJson getPaisesJson() {
+		return paisesJson;
+	}
+
+	public GeoJson getDistritosJson() {
+		return distritosJson;
+	}
+
+	public GeoJson getConcelhosJson() {
+		return concelhosJson;
+	}
+
+	public GeoJson getFreguesiasJson() {
+		return freguesiasJson;
+	}
+
+	/**
+	 * @return los concelhos del distrito serializados, o null si el distrito
+	 *         no existe
+	 */
+	public GeoJson getConcelhosJson(int distritoId) {
+		if (!distritosPorId.containsKey(distritoId)) {
+			return null;
+		}
+		return concelhosPorDistrito.getOrDefault(distritoId, vacio);
+	}
+
+	/**
+	 * @return las freguesias del concelho serializadas, o null si el concelho
+	 *         no existe
+	 */
+	public GeoJson getFreguesiasJson(int concelhoId) {
+		if (!concelhosPorId.containsKey(concelhoId)) {
+			return null;
+		}
+		return freguesiasPorConcelho.getOrDefault(concelhoId, vacio);
+	}
+
+	public GeoIndice getIndice() {
+		return indice;
+	}
+
+	public int getDistritosConConcelhos() {
+		return concelhosPorDistrito.size();
+	}
+
+	public int getConcelhosConFreguesias() {
+		return freguesiasPorConcelho.size();
+	}
+
+	public long getCargadoEn() {
+		return cargadoEn;
+	}
+}
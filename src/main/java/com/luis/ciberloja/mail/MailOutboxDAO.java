@@ -0,0 +1,258 @@
+package com.luis.ciberloja.mail;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.luis.ciberloja.DataException;
+import com.luis.ciberloja.util.JDBCUtils;
+
+/**
+ * Cola de salida de correos en la tabla mail_outbox. Los correos se insertan
+ * en la misma transacción que el cambio que los provoca, de modo que no se
+ * pierden ni se envían por cambios que no llegan a confirmarse.
+ *
+ * Varias instancias de la API pueden enviar de la misma cola: cada una reserva
+ * los pendientes que va a enviar (SELECT ... FOR UPDATE SKIP LOCKED, MySQL
+ * 8.0.1 o posterior) adelantando su proximo_intento, de modo que las demás no
+ * los ven hasta que se marcan o caduca la reserva.
+ */
+public class MailOutboxDAO {
+
+	private static Logger logger = LogManager.getLogger(MailOutboxDAO.class);
+
+	static final String PENDIENTE = "PENDIENTE";
+	static final String ENVIADO = "ENVIADO";
+	static final String FALLIDO = "FALLIDO";
+
+	private static final String INSERT = "INSERT INTO mail_outbox (destinatario, asunto, cuerpo, estado, intentos,"
+			+ " proximo_intento, fecha_creacion) VALUES (?, ?, ?, '" + PENDIENTE + "', 0, ?, ?)";
+
+	private static final String SELECT_PENDIENTES = "SELECT id, destinatario, asunto, cuerpo, intentos"
+			+ " FROM mail_outbox WHERE estado = '" + PENDIENTE + "' AND proximo_intento <= ? ORDER BY id LIMIT ?"
+			+ " FOR UPDATE SKIP LOCKED";
+
+	private static final String RESERVAR = "UPDATE mail_outbox SET proximo_intento = ? WHERE estado = '"
+			+ PENDIENTE + "' AND id IN (";
+
+	private static final String MARCAR_ENVIADO = "UPDATE mail_outbox SET estado = '" + ENVIADO + "',"
+			+ " intentos = intentos + 1, ultimo_error = NULL, fecha_envio = ? WHERE id = ?";
+
+	private static final String MARCAR_ERROR = "UPDATE mail_outbox SET estado = ?, intentos = ?,"
+			+ " proximo_intento = ?, ultimo_error = ? WHERE id = ?";
+
+	private static final String COUNT_POR_ESTADO = "SELECT estado, COUNT(*) FROM mail_outbox GROUP BY estado";
+
+	private static final List<String> COLUMNAS = Arrays.asList("id", "destinatario", "asunto", "cuerpo", "estado",
+			"intentos", "proximo_intento", "ultimo_error", "fecha_creacion", "fecha_envio");
+
+	public MailOutboxDAO() {
+	}
+
+	/**
+	 * Comprueba que existe mail_outbox con las columnas que se usan. La tabla
+	 * se crea con src/main/sql/V2__mail_outbox.sql.
+	 *
+	 * @throws DataException si falta alguna, indicando cuáles
+	 */
+	public void verificarEsquema(Connection c) throws DataException {
+		try {
+			List<String> faltan = JDBCUtils.getColumnasQueFaltan(c, "mail_outbox", COLUMNAS);
+			if (!faltan.isEmpty()) {
+				throw new DataException("El esquema de BD no tiene las columnas de la cola de correos: " + faltan
+						+ ". Aplique src/main/sql/V2__mail_outbox.sql");
+			}
+		} catch (SQLException e) {
+			logger.error(e.getMessage(), e);
+			throw new DataException("Error al leer los metadatos de la BD", e);
+		}
+	}
+
+	public Long create(Connection c, MensajeCorreo mensaje, long ahora) throws DataException {
+		try (PreparedStatement stmt = c.prepareStatement(INSERT, Statement.RETURN_GENERATED_KEYS)) {
+			int i = 1;
+			stmt.setString(i++, mensaje.getDestinatario());
+			stmt.setString(i++, mensaje.getAsunto());
+			stmt.setString(i++, mensaje.getCuerpo());
+			stmt.setLong(i++, ahora);
+			stmt.setLong(i++, ahora);
+			stmt.executeUpdate();
+			try (ResultSet rs = stmt.getGeneratedKeys()) {
+				if (rs.next()) {
+					mensaje.setId(rs.getLong(1));
+				}
+			}
+			return mensaje.getId();
+		} catch (SQLException e) {
+			logger.error(e.getMessage(), e);
+			throw new DataException("Error al encolar el correo para " + mensaje.getDestinatario(), e);
+		}
+	}
+
+	/**
+	 * Encola los mensajes con una sola sentencia por lotes.
+	 */
+	public void createAll(Connection c, List<MensajeCorreo> mensajes, long ahora) throws DataException {
+		if (mensajes.isEmpty()) {
+			return;
+		}
+		try (PreparedStatement stmt = c.prepareStatement(INSERT)) {
+			for (MensajeCorreo mensaje : mensajes) {
+				int i = 1;
+				stmt.setString(i++, mensaje.getDestinatario());
+				stmt.setString(i++, mensaje.getAsunto());
+				stmt.setString(i++, mensaje.getCuerpo());
+				stmt.setLong(i++, ahora);
+				stmt.setLong(i++, ahora);
+				stmt.addBatch();
+			}
+			stmt.executeBatch();
+		} catch (SQLException e) {
+			logger.error(e.getMessage(), e);
+			throw new DataException("Error al encolar " + mensajes.size() + " correos", e);
+		}
+	}
+
+	/**
+	 * Lee y reserva, en una transacción propia, los pendientes cuyo momento de
+	 * envío ha llegado. Los que tengan bloqueados otras instancias se saltan.
+	 *
+	 * @param reservadoHasta nuevo proximo_intento de los reservados: si esta
+	 *                       instancia no llega a marcarlos, otra los volverá a
+	 *                       tomar a partir de ese instante
+	 */
+	public List<MensajeCorreo> reservarPendientes(Connection c, long ahora, int limite, long reservadoHasta)
+			throws DataException {
+		List<MensajeCorreo> mensajes = new ArrayList<>();
+		boolean autoCommit = true;
+		try {
+			autoCommit = c.getAutoCommit();
+			c.setAutoCommit(false);
+			try (PreparedStatement stmt = c.prepareStatement(SELECT_PENDIENTES)) {
+				stmt.setLong(1, ahora);
+				stmt.setInt(2, limite);
+				try (ResultSet rs = stmt.executeQuery()) {
+					while (rs.next()) {
+						int i = 1;
+						MensajeCorreo m = new MensajeCorreo();
+						m.setId(rs.getLong(i++));
+						m.setDestinatario(rs.getString(i++));
+						m.setAsunto(rs.getString(i++));
+						m.setCuerpo(rs.getString(i++));
+						m.setIntentos(rs.getInt(i++));
+						mensajes.add(m);
+					}
+				}
+			}
+			actualizarProximoIntento(c, mensajes, reservadoHasta);
+			c.commit();
+			return mensajes;
+		} catch (SQLException e) {
+			JDBCUtils.rollback(c);
+			logger.error(e.getMessage(), e);
+			throw new DataException("Error al reservar los correos pendientes", e);
+		} finally {
+			try {
+				c.setAutoCommit(autoCommit);
+			} catch (SQLException e) {
+				logger.warn("Error al restaurar el autocommit: {}", e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Deja disponibles ya los reservados que no se han llegado a enviar, sin
+	 * gastar intentos.
+	 */
+	public void liberar(Connection c, List<MensajeCorreo> mensajes, long ahora) throws DataException {
+		try {
+			actualizarProximoIntento(c, mensajes, ahora);
+		} catch (SQLException e) {
+			logger.error(e.getMessage(), e);
+			throw new DataException("Error al liberar " + mensajes.size() + " correos reservados", e);
+		}
+	}
+
+	private static void actualizarProximoIntento(Connection c, List<MensajeCorreo> mensajes, long proximoIntento)
+			throws SQLException {
+		if (mensajes.isEmpty()) {
+			return;
+		}
+		String sql = RESERVAR + String.join(", ", Collections.nCopies(mensajes.size(), "?")) + ")";
+		try (PreparedStatement stmt = c.prepareStatement(sql)) {
+			int i = 1;
+			stmt.setLong(i++, proximoIntento);
+			for (MensajeCorreo m : mensajes) {
+				stmt.setLong(i++, m.getId());
+			}
+			stmt.executeUpdate();
+		}
+	}
+
+	public void marcarEnviado(Connection c, Long id, long ahora) throws DataException {
+		try (PreparedStatement stmt = c.prepareStatement(MARCAR_ENVIADO)) {
+			stmt.setLong(1, ahora);
+			stmt.setLong(2, id);
+			stmt.executeUpdate();
+		} catch (SQLException e) {
+			logger.error(e.getMessage(), e);
+			throw new DataException("Error al marcar como enviado el correo " + id, e);
+		}
+	}
+
+	/**
+	 * @param proximoIntento instante del siguiente intento, o null si no se
+	 *                       va a reintentar más
+	 */
+	public void marcarError(Connection c, Long id, int intentos, Long proximoIntento, String error)
+			throws DataException {
+		try (PreparedStatement stmt = c.prepareStatement(MARCAR_ERROR)) {
+			int i = 1;
+			stmt.setString(i++, proximoIntento != null ? PENDIENTE : FALLIDO);
+			stmt.setInt(i++, intentos);
+			if (proximoIntento != null) {
+				stmt.setLong(i++, proximoIntento);
+			} else {
+				stmt.setLong(i++, Long.MAX_VALUE);
+			}
+			if (error != null) {
+				stmt.setString(i++, error.length() > 500 ? error.substring(0, 500) : error);
+			} else {
+				stmt.setNull(i++, Types.VARCHAR);
+			}
+			stmt.setLong(i++, id);
+			stmt.executeUpdate();
+		} catch (SQLException e) {
+			logger.error(e.getMessage(), e);
+			throw new DataException("Error al registrar el fallo del correo " + id, e);
+		}
+	}
+
+	public Map<String, Integer> countPorEstado(Connection c) throws DataException {
+		Map<String, Integer> totales = new LinkedHashMap<>();
+		totales.put(PENDIENTE, 0);
+		totales.put(ENVIADO, 0);
+		totales.put(FALLIDO, 0);
+		try (PreparedStatement stmt = c.prepareStatement(COUNT_POR_ESTADO); ResultSet rs = stmt.executeQuery()) {
+			while (rs.next()) {
+				totales.put(rs.getString(1), rs.getInt(2));
+			}
+			return totales;
+		} catch (SQLException e) {
+			logger.error(e.getMessage(), e);
+			throw new DataException("Error al contar los correos de la cola", e);
+		}
+	}
+}
@@ -0,0 +1,270 @@
+package com.luis.ciberloja.mail;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.angus.mail.smtp.SMTPAddressFailedException;
+import org.eclipse.angus.mail.smtp.SMTPSendFailedException;
+
+import com.luis.ciberloja.DataException;
+import com.luis.ciberloja.util.ConfigUtils;
+import com.luis.ciberloja.util.JDBCUtils;
+
+import jakarta.mail.MessagingException;
+
+/**
+ * Cola de salida de correos. Quien genera un correo lo encola con la conexión
+ * de su propia transacción y sigue sin esperar al servidor SMTP; un hilo en
+ * segundo plano envía los pendientes en orden, reutilizando la conexión SMTP
+ * entre mensajes, y reintenta los fallidos con espera exponencial hasta
+ * mail.outbox.max.intentos.
+ *
+ * Si el servidor no acepta conexiones, la ronda se corta sin gastar intentos:
+ * los correos siguen pendientes en BD y se envían cuando vuelva.
+ *
+ * Cada ronda reserva en BD los correos que va a enviar durante
+ * mail.outbox.reserva.seconds, así que varias instancias de la API pueden
+ * compartir la cola sin enviar dos veces el mismo correo.
+ *
+ * La tabla mail_outbox se crea con src/main/sql/V2__mail_outbox.sql. Si al
+ * arrancar no está, isDisponible() es false y no se programa el envío.
+ */
+public class MailOutboxService {
+
+	private static Logger logger = LogManager.getLogger(MailOutboxService.class);
+
+	private static final int DEFAULT_INTERVALO_SECONDS = 30;
+	private static final int DEFAULT_LOTE = 50;
+	private static final int DEFAULT_MAX_INTENTOS = 8;
+	private static final int DEFAULT_REINTENTO_SECONDS = 60;
+	private static final int DEFAULT_REINTENTO_MAX_SECONDS = 3600;
+	private static final int DEFAULT_RESERVA_SECONDS = 600;
+
+	private static MailOutboxService instance = null;
+
+	/**
+	 * Crea el cliente SMTP de cada ronda de envío.
+	 */
+	interface EnviadorFactory {
+		SmtpEnviador crear() throws MessagingException;
+	}
+
+	private final MailOutboxDAO mailOutboxDAO;
+	private final EnviadorFactory enviadorFactory;
+	private final int intervaloSeconds;
+	private final int lote;
+	private final int maxIntentos;
+	private final long reintentoMillis;
+	private final long reintentoMaxMillis;
+	private final long reservaMillis;
+
+	// Evita encadenar rondas cuando se encolan muchos correos seguidos
+	private final AtomicBoolean rondaPendiente = new AtomicBoolean(false);
+
+	private final AtomicLong enviados = new AtomicLong();
+	private final AtomicLong reintentos = new AtomicLong();
+	private final AtomicLong fallidos = new AtomicLong();
+	private volatile boolean disponible = false;
+	private volatile long ultimaRonda = 0L;
+	private volatile String ultimoError = null;
+
+	private ScheduledExecutorService scheduler = null;
+
+	MailOutboxService(MailOutboxDAO mailOutboxDAO, EnviadorFactory enviadorFactory, int intervaloSeconds, int lote,
+			int maxIntentos, int reintentoSeconds, int reintentoMaxSeconds, int reservaSeconds) {
+		this.mailOutboxDAO = mailOutboxDAO;
+		this.enviadorFactory = enviadorFactory;
+		this.intervaloSeconds = intervaloSeconds;
+		this.lote = lote;
+		this.maxIntentos = maxIntentos;
+		this.reintentoMillis = TimeUnit.SECONDS.toMillis(reintentoSeconds);
+		this.reintentoMaxMillis = TimeUnit.SECONDS.toMillis(reintentoMaxSeconds);
+		this.reservaMillis = TimeUnit.SECONDS.toMillis(reservaSeconds);
+	}
+
+	public static synchronized MailOutboxService getInstance() {
+		if (instance == null) {
+			instance = new MailOutboxService(new MailOutboxDAO(), SmtpEnviador::fromConfig,
+					ConfigUtils.getInt("mail.outbox.intervalo.seconds", DEFAULT_INTERVALO_SECONDS),
+					ConfigUtils.getInt("mail.outbox.lote", DEFAULT_LOTE),
+					ConfigUtils.getInt("mail.outbox.max.intentos", DEFAULT_MAX_INTENTOS),
+					ConfigUtils.getInt("mail.outbox.reintento.seconds", DEFAULT_REINTENTO_SECONDS),
+					ConfigUtils.getInt("mail.outbox.reintento.max.seconds", DEFAULT_REINTENTO_MAX_SECONDS),
+					ConfigUtils.getInt("mail.outbox.reserva.seconds", DEFAULT_RESERVA_SECONDS));
+			instance.start();
+		}
+		return instance;
+	}
+
+	synchronized void start() {
+		if (scheduler != null) {
+			return;
+		}
+		try (Connection c = JDBCUtils.getConnection()) {
+			mailOutboxDAO.verificarEsquema(c);
+			disponible = true;
+		} catch (SQLException | DataException e) {
+			logger.error("Cola de correos no disponible: {}", e.getMessage(), e);
+			return;
+		}
+		scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "mail-outbox");
+			t.setDaemon(true);
+			return t;
+		});
+		scheduler.scheduleWithFixedDelay(this::ronda, 0, intervaloSeconds, TimeUnit.SECONDS);
+		logger.info("Envío de la cola de correos programado cada {} segundos", intervaloSeconds);
+	}
+
+	/**
+	 * @return si la tabla mail_outbox existe y se pueden encolar correos
+	 */
+	public boolean isDisponible() {
+		return disponible;
+	}
+
+	public synchronized void stop() {
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+			scheduler = null;
+		}
+	}
+
+	/**
+	 * Encola un correo dentro de la transacción de c. Tras confirmarla hay que
+	 * llamar a avisar() para que se envíe sin esperar a la siguiente ronda.
+	 */
+	public Long encolar(Connection c, MensajeCorreo mensaje) throws DataException {
+		return mailOutboxDAO.create(c, mensaje, System.currentTimeMillis());
+	}
+
+	public void encolar(Connection c, List<MensajeCorreo> mensajes) throws DataException {
+		mailOutboxDAO.createAll(c, mensajes, System.currentTimeMillis());
+	}
+
+	/**
+	 * Adelanta la siguiente ronda de envío.
+	 */
+	public synchronized void avisar() {
+		if (scheduler != null && rondaPendiente.compareAndSet(false, true)) {
+			scheduler.execute(this::ronda);
+		}
+	}
+
+	/**
+	 * Envía los correos pendientes cuyo próximo intento ya ha llegado, por
+	 * lotes, con una sola conexión SMTP para toda la ronda.
+	 */
+	void ronda() {
+		rondaPendiente.set(false);
+		ultimaRonda = System.currentTimeMillis();
+		try (Connection c = JDBCUtils.getConnection()) {
+			ronda(c);
+		} catch (SQLException | DataException e) {
+			ultimoError = e.getMessage();
+			logger.error("Error en la ronda de envío de correos: {}", e.getMessage(), e);
+		}
+	}
+
+	void ronda(Connection c) {
+		try (SmtpEnviador enviador = enviadorFactory.crear()) {
+			List<MensajeCorreo> pendientes;
+			do {
+				long ahora = System.currentTimeMillis();
+				pendientes = mailOutboxDAO.reservarPendientes(c, ahora, lote, ahora + reservaMillis);
+				for (int i = 0; i < pendientes.size(); i++) {
+					try {
+						enviador.conectar();
+					} catch (MessagingException e) {
+						ultimoError = e.getMessage();
+						logger.warn("Servidor SMTP no disponible, se reintentará en la siguiente ronda: {}",
+								e.getMessage());
+						mailOutboxDAO.liberar(c, pendientes.subList(i, pendientes.size()), System.currentTimeMillis());
+						return;
+					}
+					enviar(c, enviador, pendientes.get(i));
+				}
+			} while (pendientes.size() == lote);
+		} catch (DataException | MessagingException e) {
+			ultimoError = e.getMessage();
+			logger.error("Error en la ronda de envío de correos: {}", e.getMessage(), e);
+		} catch (RuntimeException e) {
+			// Una excepción no controlada cancelaría la tarea programada
+			ultimoError = e.getMessage();
+			logger.error("Error inesperado en la ronda de envío de correos: {}", e.getMessage(), e);
+		}
+	}
+
+	private void enviar(Connection c, SmtpEnviador enviador, MensajeCorreo mensaje) throws DataException {
+		try {
+			enviador.enviar(mensaje);
+			mailOutboxDAO.marcarEnviado(c, mensaje.getId(), System.currentTimeMillis());
+			enviados.incrementAndGet();
+		} catch (MessagingException e) {
+			int intentos = mensaje.getIntentos() + 1;
+			boolean definitivo = intentos >= maxIntentos || esRechazoPermanente(e);
+			Long proximoIntento = definitivo ? null : System.currentTimeMillis() + espera(intentos);
+			mailOutboxDAO.marcarError(c, mensaje.getId(), intentos, proximoIntento, e.getMessage());
+			ultimoError = e.getMessage();
+			if (definitivo) {
+				fallidos.incrementAndGet();
+				logger.error("Correo {} a {} descartado tras {} intentos: {}", mensaje.getId(),
+						mensaje.getDestinatario(), intentos, e.getMessage());
+			} else {
+				reintentos.incrementAndGet();
+				logger.warn("Error al enviar el correo {} a {} (intento {}): {}", mensaje.getId(),
+						mensaje.getDestinatario(), intentos, e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Un 5xx del servidor (dirección inexistente, mensaje rechazado) no va a
+	 * cambiar en el siguiente intento; un 4xx (buzón lleno, greylisting) sí.
+	 * Jakarta Mail lanza SendFailedException en los dos casos, con el código en
+	 * las excepciones encadenadas.
+	 */
+	static boolean esRechazoPermanente(MessagingException e) {
+		for (Exception ex = e; ex != null; ex = ex instanceof MessagingException
+				? ((MessagingException) ex).getNextException()
+				: null) {
+			int codigo = ex instanceof SMTPAddressFailedException ? ((SMTPAddressFailedException) ex).getReturnCode()
+					: ex instanceof SMTPSendFailedException ? ((SMTPSendFailedException) ex).getReturnCode() : 0;
+			if (codigo >= 500) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private long espera(int intentos) {
+		long espera = reintentoMillis << Math.min(intentos - 1, 20);
+		return Math.min(espera, reintentoMaxMillis);
+	}
+
+	public Map<String, Object> getEstado() {
+		Map<String, Object> estado = new LinkedHashMap<>();
+		try (Connection c = JDBCUtils.getConnection()) {
+			estado.put("cola", mailOutboxDAO.countPorEstado(c));
+		} catch (SQLException | DataException e) {
+			estado.put("cola", null);
+		}
+		estado.put("disponible", disponible);
+		estado.put("enviados", enviados.get());
+		estado.put("reintentos", reintentos.get());
+		estado.put("fallidos", fallidos.get());
+		estado.put("ultimaRonda", ultimaRonda);
+		estado.put("ultimoError", ultimoError);
+		return estado;
+	}
+}
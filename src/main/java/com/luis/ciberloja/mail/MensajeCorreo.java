@@ -0,0 +1,62 @@
+package com.luis.ciberloja.mail;
+
+/**
+ * Correo guardado en la cola de salida (tabla mail_outbox).
+ */
+public class MensajeCorreo {
+
+	private Long id = null;
+	private String destinatario = null;
+	private String asunto = null;
+	private String cuerpo = null;
+	private int intentos = 0;
+
+	public MensajeCorreo() {
+	}
+
+	public MensajeCorreo(String destinatario, String asunto, String cuerpo) {
+		this.destinatario = destinatario;
+		this.asunto = asunto;
+		this.cuerpo = cuerpo;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public void setId(Long id) {
+		this.id = id;
+	}
+
+	public String getDestinatario() {
+		return destinatario;
+	}
+
+	public void setDestinatario(String destinatario) {
+		this.destinatario = destinatario;
+	}
+
+	public String getAsunto() {
+		return asunto;
+	}
+
+	public void setAsunto(String asunto) {
+		this.asunto = asunto;
+	}
+
+	public String getCuerpo() {
+		return cuerpo;
+	}
+
+	public void setCuerpo(String cuerpo) {
+		this.cuerpo = cuerpo;
+	}
+
+	public int getIntentos() {
+		return intentos;
+	}
+
+	public void setIntentos(int intentos) {
+		this.intentos = intentos;
+	}
+}
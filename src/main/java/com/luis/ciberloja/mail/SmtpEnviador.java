@@ -0,0 +1,122 @@
+package com.luis.ciberloja.mail;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.luis.ciberloja.util.ConfigUtils;
+
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+
+/**
+ * Envío SMTP que mantiene abierta la conexión entre mensajes, para no pagar
+ * la conexión, el STARTTLS y la autenticación en cada correo. No es
+ * thread-safe: lo usa sólo el hilo de envío de MailOutboxService.
+ *
+ * Servidor, puerto y credenciales son los mail.server.* del middleware; con
+ * mail.server.user vacío no se autentica, lo que permite apuntar a un
+ * servidor SMTP de pruebas local.
+ */
+public class SmtpEnviador implements AutoCloseable {
+
+	private static Logger logger = LogManager.getLogger(SmtpEnviador.class);
+
+	private static final int DEFAULT_PORT = 587;
+	private static final int DEFAULT_TIMEOUT_SECONDS = 20;
+
+	private final String host;
+	private final int port;
+	private final String usuario;
+	private final String password;
+	private final InternetAddress remitente;
+	private final Session session;
+
+	private Transport transport = null;
+
+	public SmtpEnviador(String host, int port, String usuario, String password, String remitente, boolean starttls,
+			int timeoutMillis) throws MessagingException {
+		this.host = host;
+		this.port = port;
+		this.usuario = usuario == null || usuario.isEmpty() ? null : usuario;
+		this.password = password;
+		this.remitente = new InternetAddress(remitente);
+
+		Properties props = new Properties();
+		props.put("mail.smtp.host", host);
+		props.put("mail.smtp.port", String.valueOf(port));
+		props.put("mail.smtp.auth", String.valueOf(this.usuario != null));
+		props.put("mail.smtp.starttls.enable", String.valueOf(starttls));
+		props.put("mail.smtp.connectiontimeout", String.valueOf(timeoutMillis));
+		props.put("mail.smtp.timeout", String.valueOf(timeoutMillis));
+		props.put("mail.smtp.writetimeout", String.valueOf(timeoutMillis));
+		this.session = Session.getInstance(props);
+	}
+
+	public static SmtpEnviador fromConfig() throws MessagingException {
+		String usuario = ConfigUtils.getString("mail.server.user", null);
+		return new SmtpEnviador(ConfigUtils.getString("mail.server.url", "localhost"),
+				ConfigUtils.getInt("mail.server.port", DEFAULT_PORT), usuario,
+				ConfigUtils.getString("mail.server.password", null), ConfigUtils.getString("mail.from", usuario),
+				ConfigUtils.getBoolean("mail.server.starttls", true), (int) TimeUnit.SECONDS
+						.toMillis(ConfigUtils.getInt("mail.server.timeout.seconds", DEFAULT_TIMEOUT_SECONDS)));
+	}
+
+	/**
+	 * Envía el mensaje reutilizando la conexión abierta, o abriendo una si no
+	 * la hay o el servidor la ha cerrado.
+	 */
+	public void enviar(MensajeCorreo mensaje) throws MessagingException {
+		MimeMessage mime = new MimeMessage(session);
+		mime.setFrom(remitente);
+		mime.setRecipients(Message.RecipientType.TO, InternetAddress.parse(mensaje.getDestinatario()));
+		mime.setSubject(mensaje.getAsunto(), StandardCharsets.UTF_8.name());
+		mime.setText(mensaje.getCuerpo(), StandardCharsets.UTF_8.name());
+		mime.setSentDate(new Date());
+		mime.saveChanges();
+
+		conectar();
+		try {
+			transport.sendMessage(mime, mime.getAllRecipients());
+		} catch (MessagingException e) {
+			// La conexión puede haber quedado en un estado desconocido
+			close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Abre la conexión si no hay una abierta y en uso.
+	 */
+	public void conectar() throws MessagingException {
+		if (transport != null && transport.isConnected()) {
+			return;
+		}
+		close();
+		Transport nuevo = session.getTransport("smtp");
+		nuevo.connect(host, port, usuario, password);
+		transport = nuevo;
+		logger.debug("Conexión SMTP abierta con {}:{}", host, port);
+	}
+
+	@Override
+	public void close() {
+		if (transport == null) {
+			return;
+		}
+		try {
+			transport.close();
+		} catch (MessagingException e) {
+			logger.warn("Error al cerrar la conexión SMTP: {}", e.getMessage());
+		}
+		transport = null;
+	}
+}
@@ -0,0 +1,242 @@
+package com.luis.ciberloja.pedido;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.luis.ciberloja.DataException;
+import com.luis.ciberloja.model.LineaPedido;
+import com.luis.ciberloja.model.Pedido;
+import com.luis.ciberloja.model.PedidoCriteria;
+import com.luis.ciberloja.util.JDBCUtils;
+
+/**
+ * Pedidos que cumplen unos criterios, del más reciente al más antiguo,
+ * paginados por clave (WHERE id < ? ORDER BY id DESC LIMIT ?).
+ *
+ * Cada página se lee con dos consultas, sea cual sea su tamaño: una con los
+ * pedidos y los nombres de su estado y tipo de entrega, y otra con las líneas
+ * de todos ellos (pedido_id IN (...)). Se rellenan los mismos campos que
+ * PedidoService.findBy. Las tablas son del middleware y no están en este
+ * proyecto: verificarEsquema comprueba las columnas que se usan antes de la
+ * primera consulta.
+ */
+public class PedidoBusquedaDAO {
+
+	private static Logger logger = LogManager.getLogger(PedidoBusquedaDAO.class);
+
+	private static final String SELECT_PEDIDOS = "SELECT p.id, p.fecha_realizacion, p.precio, p.cliente_id,"
+			+ " p.tipo_estado_pedido_id, tep.nombre, p.tipo_entrega_id, te.nombre FROM pedido p"
+			+ " LEFT OUTER JOIN tipo_estado_pedido tep ON tep.id = p.tipo_estado_pedido_id"
+			+ " LEFT OUTER JOIN tipo_entrega te ON te.id = p.tipo_entrega_id";
+
+	private static final String SELECT_LINEAS = "SELECT l.id, l.pedido_id, l.producto_id, l.precio, l.unidades"
+			+ " FROM linea_pedido l WHERE l.pedido_id IN (";
+
+	private static final List<String> COLUMNAS_PEDIDO = Arrays.asList("id", "fecha_realizacion", "precio",
+			"cliente_id", "tipo_estado_pedido_id", "tipo_entrega_id");
+	private static final List<String> COLUMNAS_LINEA = Arrays.asList("id", "pedido_id", "producto_id", "precio",
+			"unidades");
+	private static final List<String> COLUMNAS_PRODUCTO = Arrays.asList("id", "nombre");
+	private static final List<String> COLUMNAS_TIPO = Arrays.asList("id", "nombre");
+
+	private static volatile boolean esquemaVerificado = false;
+
+	public PedidoBusquedaDAO() {
+	}
+
+	/**
+	 * Comprueba una vez que pedido, linea_pedido, producto, tipo_estado_pedido y
+	 * tipo_entrega tienen las columnas que usan estas consultas.
+	 *
+	 * @throws DataException si falta alguna, indicando cuáles
+	 */
+	public void verificarEsquema(Connection c) throws DataException {
+		if (esquemaVerificado) {
+			return;
+		}
+		try {
+			List<String> faltan = new ArrayList<>();
+			faltan.addAll(JDBCUtils.getColumnasQueFaltan(c, "pedido", COLUMNAS_PEDIDO));
+			faltan.addAll(JDBCUtils.getColumnasQueFaltan(c, "linea_pedido", COLUMNAS_LINEA));
+			faltan.addAll(JDBCUtils.getColumnasQueFaltan(c, "producto", COLUMNAS_PRODUCTO));
+			faltan.addAll(JDBCUtils.getColumnasQueFaltan(c, "tipo_estado_pedido", COLUMNAS_TIPO));
+			faltan.addAll(JDBCUtils.getColumnasQueFaltan(c, "tipo_entrega", COLUMNAS_TIPO));
+			if (!faltan.isEmpty()) {
+				throw new DataException(
+						"El esquema de BD no tiene las columnas que usa la búsqueda de pedidos: " + faltan);
+			}
+			esquemaVerificado = true;
+		} catch (SQLException e) {
+			logger.error(e.getMessage(), e);
+			throw new DataException("Error al leer los metadatos de la BD", e);
+		}
+	}
+
+	/**
+	 * @param antesDe id desde el que continuar (excluido), o null para empezar
+	 *                por el pedido más reciente
+	 * @return los pedidos con sus líneas
+	 */
+	public List<Pedido> findBy(Connection c, PedidoCriteria criteria, Long antesDe, int size) throws DataException {
+		StringBuilder sql = new StringBuilder(SELECT_PEDIDOS);
+		List<Object> parametros = new ArrayList<>();
+		addCondiciones(sql, parametros, criteria, antesDe);
+		sql.append(" ORDER BY p.id DESC LIMIT ?");
+		parametros.add(size);
+
+		Map<Long, Pedido> pedidos = new LinkedHashMap<>();
+		try (PreparedStatement stmt = c.prepareStatement(sql.toString())) {
+			for (int i = 0; i < parametros.size(); i++) {
+				stmt.setObject(i + 1, parametros.get(i));
+			}
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					Pedido p = loadNext(rs);
+					pedidos.put(p.getId(), p);
+				}
+			}
+		} catch (SQLException e) {
+			logger.error(e.getMessage(), e);
+			throw new DataException("Error al buscar pedidos por criterios", e);
+		}
+		loadLineas(c, pedidos);
+		return new ArrayList<>(pedidos.values());
+	}
+
+	/**
+	 * @return el pedido con sus líneas, o null si no existe
+	 */
+	public Pedido findById(Connection c, Long id) throws DataException {
+		PedidoCriteria criteria = new PedidoCriteria();
+		criteria.setId(id);
+		List<Pedido> pedidos = findBy(c, criteria, null, 1);
+		return pedidos.isEmpty() ? null : pedidos.get(0);
+	}
+
+	private static void loadLineas(Connection c, Map<Long, Pedido> pedidos) throws DataException {
+		for (Pedido p : pedidos.values()) {
+			p.setLineas(new ArrayList<>());
+		}
+		if (pedidos.isEmpty()) {
+			return;
+		}
+		String sql = SELECT_LINEAS + String.join(", ", Collections.nCopies(pedidos.size(), "?"))
+				+ ") ORDER BY l.pedido_id, l.id";
+		try (PreparedStatement stmt = c.prepareStatement(sql)) {
+			int i = 1;
+			for (Long id : pedidos.keySet()) {
+				stmt.setLong(i++, id);
+			}
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					LineaPedido linea = new LineaPedido();
+					linea.setId(rs.getLong(1));
+					linea.setPedidoId(rs.getLong(2));
+					linea.setProductoId(rs.getString(3));
+					linea.setPrecio(getDouble(rs, 4));
+					linea.setUnidades(getInteger(rs, 5));
+					pedidos.get(linea.getPedidoId()).getLineas().add(linea);
+				}
+			}
+		} catch (SQLException e) {
+			logger.error(e.getMessage(), e);
+			throw new DataException("Error al buscar las líneas de los pedidos", e);
+		}
+	}
+
+	private static Pedido loadNext(ResultSet rs) throws SQLException {
+		Pedido p = new Pedido();
+		int i = 1;
+		p.setId(rs.getLong(i++));
+		Timestamp fecha = rs.getTimestamp(i++);
+		p.setFechaRealizacion(fecha != null ? new Date(fecha.getTime()) : null);
+		p.setPrecio(getDouble(rs, i++));
+		p.setClienteId(getLong(rs, i++));
+		p.setTipoEstadoPedidoId(getInteger(rs, i++));
+		p.setTipoEstadoPedidoNombre(rs.getString(i++));
+		p.setTipoEntregaId(getInteger(rs, i++));
+		p.setTipoEntregaNombre(rs.getString(i++));
+		return p;
+	}
+
+	private static Double getDouble(ResultSet rs, int i) throws SQLException {
+		double valor = rs.getDouble(i);
+		return rs.wasNull() ? null : valor;
+	}
+
+	private static Long getLong(ResultSet rs, int i) throws SQLException {
+		long valor = rs.getLong(i);
+		return rs.wasNull() ? null : valor;
+	}
+
+	private static Integer getInteger(ResultSet rs, int i) throws SQLException {
+		int valor = rs.getInt(i);
+		return rs.wasNull() ? null : valor;
+	}
+
+	private static void addCondiciones(StringBuilder sql, List<Object> parametros, PedidoCriteria criteria,
+			Long antesDe) {
+		List<String> condiciones = new ArrayList<>();
+		if (criteria.getId() != null) {
+			condiciones.add("p.id = ?");
+			parametros.add(criteria.getId());
+		}
+		if (criteria.getFechaDesde() != null) {
+			condiciones.add("p.fecha_realizacion >= ?");
+			parametros.add(new Timestamp(criteria.getFechaDesde().getTime()));
+		}
+		if (criteria.getFechaHasta() != null) {
+			condiciones.add("p.fecha_realizacion <= ?");
+			parametros.add(new Timestamp(criteria.getFechaHasta().getTime()));
+		}
+		if (criteria.getPrecioDesde() != null) {
+			condiciones.add("p.precio >= ?");
+			parametros.add(criteria.getPrecioDesde());
+		}
+		if (criteria.getPrecioHasta() != null) {
+			condiciones.add("p.precio <= ?");
+			parametros.add(criteria.getPrecioHasta());
+		}
+		if (criteria.getClienteId() != null) {
+			condiciones.add("p.cliente_id = ?");
+			parametros.add(criteria.getClienteId());
+		}
+		if (criteria.getTipoEstadoPedidoId() != null) {
+			condiciones.add("p.tipo_estado_pedido_id = ?");
+			parametros.add(criteria.getTipoEstadoPedidoId());
+		}
+		if (criteria.getTipoEntregaId() != null) {
+			condiciones.add("p.tipo_entrega_id = ?");
+			parametros.add(criteria.getTipoEntregaId());
+		}
+		if (criteria.getProductoId() != null) {
+			condiciones.add("EXISTS (SELECT 1 FROM linea_pedido lp WHERE lp.pedido_id = p.id AND lp.producto_id = ?)");
+			parametros.add(criteria.getProductoId());
+		}
+		if (criteria.getDescripcionProducto() != null) {
+			condiciones.add("EXISTS (SELECT 1 FROM linea_pedido lp INNER JOIN producto pr ON pr.id = lp.producto_id"
+					+ " WHERE lp.pedido_id = p.id AND UPPER(pr.nombre) LIKE UPPER(?) ESCAPE '!')");
+			parametros.add(JDBCUtils.contienePatron(criteria.getDescripcionProducto()));
+		}
+		if (antesDe != null) {
+			condiciones.add("p.id < ?");
+			parametros.add(antesDe);
+		}
+		if (!condiciones.isEmpty()) {
+			sql.append(" WHERE ").append(String.join(" AND ", condiciones));
+		}
+	}
+}
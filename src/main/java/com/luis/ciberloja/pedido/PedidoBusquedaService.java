@@ -0,0 +1,121 @@
+package com.luis.ciberloja.pedido;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.luis.ciberloja.DataException;
+import com.luis.ciberloja.model.Pedido;
+import com.luis.ciberloja.model.PedidoCriteria;
+import com.luis.ciberloja.util.CursorResults;
+import com.luis.ciberloja.util.CursorUtils;
+import com.luis.ciberloja.util.JDBCUtils;
+
+/**
+ * Búsqueda de pedidos de /pedido/pedidos paginada por cursor o recorrida en
+ * streaming, para no tener que cargar todos los pedidos de una vez.
+ *
+ * Los pedidos, con sus líneas, salen de PedidoBusquedaDAO con dos consultas
+ * por página o por bloque, en lugar de una llamada a PedidoService.findBy por
+ * pedido.
+ */
+public class PedidoBusquedaService {
+
+	private static Logger logger = LogManager.getLogger(PedidoBusquedaService.class);
+
+	// Pedidos leídos por bloque al recorrer en streaming
+	static final int BLOQUE = 500;
+
+	private final PedidoBusquedaDAO pedidoBusquedaDAO;
+
+	public PedidoBusquedaService() {
+		this(new PedidoBusquedaDAO());
+	}
+
+	PedidoBusquedaService(PedidoBusquedaDAO pedidoBusquedaDAO) {
+		this.pedidoBusquedaDAO = pedidoBusquedaDAO;
+	}
+
+	/**
+	 * Recorrido en streaming de unos criterios. El primer bloque se lee al
+	 * crearlo, de modo que un error de la consulta llega antes de empezar a
+	 * escribir la respuesta.
+	 */
+	public class Recorrido {
+		private final PedidoCriteria criteria;
+		private List<Pedido> bloque;
+
+		private Recorrido(PedidoCriteria criteria) throws DataException {
+			this.criteria = criteria;
+			this.bloque = findPedidos(criteria, null, BLOQUE);
+		}
+
+		/**
+		 * Entrega al consumidor todos los pedidos, de uno en uno y sin
+		 * acumularlos. Sólo hay en memoria un bloque de pedidos.
+		 *
+		 * @return número de pedidos entregados
+		 */
+		public int enviar(Consumer<Pedido> consumidor) throws DataException {
+			int total = 0;
+			while (!bloque.isEmpty()) {
+				for (Pedido pedido : bloque) {
+					consumidor.accept(pedido);
+					total++;
+				}
+				bloque = bloque.size() < BLOQUE ? new ArrayList<>()
+						: findPedidos(criteria, bloque.get(bloque.size() - 1).getId(), BLOQUE);
+			}
+			return total;
+		}
+	}
+
+	/**
+	 * Pedidos del más reciente al más antiguo a partir del cursor.
+	 *
+	 * @throws IllegalArgumentException si el cursor no es válido
+	 */
+	public CursorResults<Pedido> findBy(PedidoCriteria criteria, String after, int size) throws DataException {
+		// Se pide uno de más para saber si hay página siguiente sin contar
+		List<Pedido> pedidos = findPedidos(criteria, decodificar(after), size + 1);
+
+		CursorResults<Pedido> results = new CursorResults<>();
+		if (pedidos.size() > size) {
+			pedidos = pedidos.subList(0, size);
+			results.setSiguiente(CursorUtils.codificar(String.valueOf(pedidos.get(size - 1).getId())));
+		}
+		results.setPage(pedidos);
+		return results;
+	}
+
+	public Recorrido recorrer(PedidoCriteria criteria) throws DataException {
+		return new Recorrido(criteria);
+	}
+
+	private List<Pedido> findPedidos(PedidoCriteria criteria, Long antesDe, int size) throws DataException {
+		try (Connection c = JDBCUtils.getConnection()) {
+			pedidoBusquedaDAO.verificarEsquema(c);
+			return pedidoBusquedaDAO.findBy(c, criteria, antesDe, size);
+		} catch (SQLException e) {
+			logger.error(e.getMessage(), e);
+			throw new DataException("Error al cerrar la conexión", e);
+		}
+	}
+
+	private static Long decodificar(String after) {
+		String id = CursorUtils.decodificar(after);
+		if (id == null) {
+			return null;
+		}
+		try {
+			return Long.valueOf(id);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Cursor de paginación inválido: " + after);
+		}
+	}
+}
@@ -0,0 +1,140 @@
+package com.luis.ciberloja.pedido;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.luis.ciberloja.JsonProvider;
+import com.luis.ciberloja.model.Pedido;
+import com.luis.ciberloja.util.ConfigUtils;
+import com.luis.ciberloja.util.LruCache;
+
+/**
+ * Historial de pedidos de cada cliente (/pedido/cliente/{clienteId}), ya
+ * serializado a JSON y con su ETag. Acotada por número de clientes (LRU).
+ *
+ * Las altas, modificaciones y borrados de pedidos hechos por la API invalidan
+ * sólo a los clientes afectados; el TTL es una red de seguridad para cambios
+ * hechos fuera de la API.
+ */
+public class PedidoClienteCache {
+
+	private static Logger logger = LogManager.getLogger(PedidoClienteCache.class);
+
+	private static final int DEFAULT_MAX_ENTRIES = 2000;
+
+	private static final int DEFAULT_TTL_SECONDS = 600;
+
+	private static PedidoClienteCache instance = null;
+
+	/**
+	 * Pedidos de un cliente listos para enviar.
+	 */
+	public static final class Historial {
+		private final byte[] json;
+		private final String version;
+		private final Set<Long> pedidoIds;
+
+		private Historial(byte[] json, String version, Set<Long> pedidoIds) {
+			this.json = json;
+			this.version = version;
+			this.pedidoIds = pedidoIds;
+		}
+
+		public byte[] getJson() {
+			return json;
+		}
+
+		public String getVersion() {
+			return version;
+		}
+
+		public boolean isVacio() {
+			return pedidoIds.isEmpty();
+		}
+	}
+
+	private final LruCache<Long, Historial> historiales;
+
+	// Cambia con cada invalidación, para no guardar un historial leído antes
+	// de un cambio que ha terminado mientras se leía
+	private final AtomicLong generacion = new AtomicLong();
+
+	PedidoClienteCache(int maxEntradas, int ttlSeconds) {
+		this.historiales = new LruCache<>(maxEntradas, ttlSeconds * 1000L);
+	}
+
+	public static synchronized PedidoClienteCache getInstance() {
+		if (instance == null) {
+			instance = new PedidoClienteCache(
+					ConfigUtils.getInt("pedido.cliente.cache.max.entries", DEFAULT_MAX_ENTRIES),
+					ConfigUtils.getInt("pedido.cliente.cache.ttl.seconds", DEFAULT_TTL_SECONDS));
+		}
+		return instance;
+	}
+
+	public Historial get(Long clienteId) {
+		return historiales.get(clienteId);
+	}
+
+	/**
+	 * Valor a pasar a put() tomado antes de leer los pedidos de BD.
+	 */
+	public long getGeneracion() {
+		return generacion.get();
+	}
+
+	/**
+	 * Serializa y guarda los pedidos del cliente, salvo que haya habido una
+	 * invalidación desde que se leyeron.
+	 */
+	public Historial put(Long clienteId, List<Pedido> pedidos, long generacionLeida) {
+		byte[] json = JsonProvider.getJsonb().toJson(pedidos).getBytes(StandardCharsets.UTF_8);
+		Set<Long> ids = new HashSet<>();
+		for (Pedido p : pedidos) {
+			ids.add(p.getId());
+		}
+		Historial historial = new Historial(json, calcularVersion(json), ids);
+		if (generacion.get() == generacionLeida) {
+			historiales.put(clienteId, historial);
+		}
+		return historial;
+	}
+
+	public void invalidarCliente(Long clienteId) {
+		generacion.incrementAndGet();
+		if (clienteId != null) {
+			historiales.remove(clienteId);
+		}
+	}
+
+	/**
+	 * Invalida el historial que contenga el pedido, aunque no se sepa de qué
+	 * cliente es (borrados, cambios de cliente).
+	 */
+	public void invalidarPedido(Long pedidoId) {
+		generacion.incrementAndGet();
+		int eliminados = historiales.removeIf((clienteId, historial) -> historial.pedidoIds.contains(pedidoId));
+		logger.debug("Pedido {} modificado: {} historiales invalidados", pedidoId, eliminados);
+	}
+
+	private static String calcularVersion(byte[] json) {
+		try {
+			byte[] hash = MessageDigest.getInstance("SHA-256").digest(json);
+			StringBuilder sb = new StringBuilder();
+			for (int i = 0; i < 8; i++) {
+				sb.append(String.format("%02x", hash[i]));
+			}
+			return sb.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,277 @@
+package com.luis.ciberloja.pedido;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.luis.ciberloja.DataException;
+import com.luis.ciberloja.model.LineaPedido;
+import com.luis.ciberloja.model.Pedido;
+import com.luis.ciberloja.util.JDBCUtils;
+
+/**
+ * Inserción de pedidos y sus líneas con la conexión (y la transacción) de
+ * quien llama.
+ *
+ * Las tablas pedido, linea_pedido y cliente son del middleware y su mapeo no
+ * está en este proyecto: verificarEsquema comprueba que tienen las columnas que
+ * se escriben aquí antes de usarlas.
+ */
+public class PedidoCreacionDAO {
+
+	private static Logger logger = LogManager.getLogger(PedidoCreacionDAO.class);
+
+	private static final String INSERT_PEDIDO = "INSERT INTO pedido (fecha_realizacion, precio, cliente_id,"
+			+ " tipo_estado_pedido_id, tipo_entrega_id) VALUES (?, ?, ?, ?, ?)";
+
+	private static final String INSERT_LINEA = "INSERT INTO linea_pedido (pedido_id, producto_id, precio, unidades)"
+			+ " VALUES (?, ?, ?, ?)";
+
+	private static final String SELECT_EMAIL_CLIENTE = "SELECT email FROM cliente WHERE id = ?";
+
+	// Una fila aunque no exista alguno de los dos tipos
+	private static final String SELECT_NOMBRES_TIPOS = "SELECT tep.nombre, te.nombre FROM (SELECT 1) t"
+			+ " LEFT OUTER JOIN tipo_estado_pedido tep ON tep.id = ? LEFT OUTER JOIN tipo_entrega te ON te.id = ?";
+
+	private static final String SELECT_ULTIMO_ID = "SELECT MAX(id) FROM pedido WHERE cliente_id = ?"
+			+ " AND fecha_realizacion BETWEEN ? AND ?";
+
+	private static final String SELECT_EMAILS_CLIENTES = "SELECT id, email FROM cliente WHERE id IN (";
+
+	private static final List<String> COLUMNAS_PEDIDO = Arrays.asList("id", "fecha_realizacion", "precio",
+			"cliente_id", "tipo_estado_pedido_id", "tipo_entrega_id");
+	private static final List<String> COLUMNAS_LINEA = Arrays.asList("id", "pedido_id", "producto_id", "precio",
+			"unidades");
+	private static final List<String> COLUMNAS_CLIENTE = Arrays.asList("id", "email");
+	private static final List<String> COLUMNAS_TIPO = Arrays.asList("id", "nombre");
+
+	public PedidoCreacionDAO() {
+	}
+
+	/**
+	 * Comprueba que pedido, linea_pedido y cliente tienen las columnas que usan
+	 * estas sentencias.
+	 *
+	 * @throws DataException si falta alguna, indicando cuáles
+	 */
+	public void verificarEsquema(Connection c) throws DataException {
+		try {
+			List<String> faltan = new ArrayList<>();
+			faltan.addAll(JDBCUtils.getColumnasQueFaltan(c, "pedido", COLUMNAS_PEDIDO));
+			faltan.addAll(JDBCUtils.getColumnasQueFaltan(c, "linea_pedido", COLUMNAS_LINEA));
+			faltan.addAll(JDBCUtils.getColumnasQueFaltan(c, "cliente", COLUMNAS_CLIENTE));
+			if (!faltan.isEmpty()) {
+				throw new DataException("El esquema de BD no tiene las columnas que usa el alta de pedidos: " + faltan);
+			}
+		} catch (SQLException e) {
+			logger.error(e.getMessage(), e);
+			throw new DataException("Error al leer los metadatos de la BD", e);
+		}
+	}
+
+	/**
+	 * Comprueba que tipo_estado_pedido y tipo_entrega tienen las columnas que
+	 * usa completarTipos.
+	 *
+	 * @throws DataException si falta alguna, indicando cuáles
+	 */
+	public void verificarEsquemaTipos(Connection c) throws DataException {
+		try {
+			List<String> faltan = new ArrayList<>();
+			faltan.addAll(JDBCUtils.getColumnasQueFaltan(c, "tipo_estado_pedido", COLUMNAS_TIPO));
+			faltan.addAll(JDBCUtils.getColumnasQueFaltan(c, "tipo_entrega", COLUMNAS_TIPO));
+			if (!faltan.isEmpty()) {
+				throw new DataException("El esquema de BD no tiene las columnas de los tipos de pedido: " + faltan);
+			}
+		} catch (SQLException e) {
+			logger.error(e.getMessage(), e);
+			throw new DataException("Error al leer los metadatos de la BD", e);
+		}
+	}
+
+	/**
+	 * Inserta el pedido y sus líneas, y asigna al pedido y a las líneas el id
+	 * generado.
+	 */
+	public Long create(Connection c, Pedido p) throws DataException {
+		createAll(c, Collections.singletonList(p));
+		return p.getId();
+	}
+
+	/**
+	 * Inserta los pedidos y sus líneas con una sentencia por lotes para los
+	 * pedidos y otra para todas las líneas (el driver las reescribe como
+	 * INSERT de varias filas), y asigna los ids generados.
+	 */
+	public void createAll(Connection c, List<Pedido> pedidos) throws DataException {
+		if (pedidos.isEmpty()) {
+			return;
+		}
+		try (PreparedStatement stmt = c.prepareStatement(INSERT_PEDIDO, Statement.RETURN_GENERATED_KEYS)) {
+			for (Pedido p : pedidos) {
+				int i = 1;
+				stmt.setTimestamp(i++, new Timestamp(p.getFechaRealizacion().getTime()));
+				setNullable(stmt, i++, p.getPrecio(), Types.DOUBLE);
+				setNullable(stmt, i++, p.getClienteId(), Types.BIGINT);
+				setNullable(stmt, i++, p.getTipoEstadoPedidoId(), Types.INTEGER);
+				setNullable(stmt, i++, p.getTipoEntregaId(), Types.INTEGER);
+				stmt.addBatch();
+			}
+			stmt.executeBatch();
+			try (ResultSet rs = stmt.getGeneratedKeys()) {
+				for (Pedido p : pedidos) {
+					if (!rs.next()) {
+						throw new DataException("No se han generado los ids de los pedidos");
+					}
+					p.setId(rs.getLong(1));
+				}
+			}
+		} catch (SQLException e) {
+			logger.error(e.getMessage(), e);
+			throw new DataException("Error al insertar los pedidos", e);
+		}
+		createLineas(c, pedidos);
+	}
+
+	private void createLineas(Connection c, List<Pedido> pedidos) throws DataException {
+		List<LineaPedido> lineas = new ArrayList<>();
+		try (PreparedStatement stmt = c.prepareStatement(INSERT_LINEA, Statement.RETURN_GENERATED_KEYS)) {
+			for (Pedido p : pedidos) {
+				if (p.getLineas() == null) {
+					continue;
+				}
+				for (LineaPedido linea : p.getLineas()) {
+					int i = 1;
+					linea.setPedidoId(p.getId());
+					stmt.setLong(i++, p.getId());
+					stmt.setString(i++, linea.getProductoId());
+					setNullable(stmt, i++, linea.getPrecio(), Types.DOUBLE);
+					setNullable(stmt, i++, linea.getUnidades(), Types.INTEGER);
+					stmt.addBatch();
+					lineas.add(linea);
+				}
+			}
+			if (lineas.isEmpty()) {
+				return;
+			}
+			stmt.executeBatch();
+			try (ResultSet rs = stmt.getGeneratedKeys()) {
+				for (LineaPedido linea : lineas) {
+					if (rs.next()) {
+						linea.setId(rs.getLong(1));
+					}
+				}
+			}
+		} catch (SQLException e) {
+			logger.error(e.getMessage(), e);
+			throw new DataException("Error al insertar las líneas de los pedidos", e);
+		}
+	}
+
+	/**
+	 * Completa el pedido con los nombres de su estado y su tipo de entrega, que
+	 * no vienen en la petición, con una sola consulta sobre las tablas de
+	 * tipos.
+	 */
+	public void completarTipos(Connection c, Pedido p) throws DataException {
+		try (PreparedStatement stmt = c.prepareStatement(SELECT_NOMBRES_TIPOS)) {
+			setNullable(stmt, 1, p.getTipoEstadoPedidoId(), Types.INTEGER);
+			setNullable(stmt, 2, p.getTipoEntregaId(), Types.INTEGER);
+			try (ResultSet rs = stmt.executeQuery()) {
+				if (rs.next()) {
+					p.setTipoEstadoPedidoNombre(rs.getString(1));
+					p.setTipoEntregaNombre(rs.getString(2));
+				}
+			}
+		} catch (SQLException e) {
+			logger.error(e.getMessage(), e);
+			throw new DataException("Error al buscar los tipos del pedido " + p.getId(), e);
+		}
+	}
+
+	/**
+	 * Id del último pedido del cliente con esa fecha de realización (con un
+	 * segundo de margen por la precisión de la columna), para cuando el
+	 * middleware crea el pedido pero no devuelve su id.
+	 *
+	 * @return el id, o null si no hay ninguno
+	 */
+	public Long findUltimoId(Connection c, Long clienteId, Date fechaRealizacion) throws DataException {
+		try (PreparedStatement stmt = c.prepareStatement(SELECT_ULTIMO_ID)) {
+			stmt.setLong(1, clienteId);
+			stmt.setTimestamp(2, new Timestamp(fechaRealizacion.getTime() - 1000L));
+			stmt.setTimestamp(3, new Timestamp(fechaRealizacion.getTime() + 1000L));
+			try (ResultSet rs = stmt.executeQuery()) {
+				long id = rs.next() ? rs.getLong(1) : 0L;
+				return id != 0L ? id : null;
+			}
+		} catch (SQLException e) {
+			logger.error(e.getMessage(), e);
+			throw new DataException("Error al buscar el último pedido del cliente " + clienteId, e);
+		}
+	}
+
+	/**
+	 * @return el email de cada cliente encontrado
+	 */
+	public Map<Long, String> findEmailsClientes(Connection c, Collection<Long> clienteIds) throws DataException {
+		Map<Long, String> emails = new HashMap<>();
+		if (clienteIds.isEmpty()) {
+			return emails;
+		}
+		String sql = SELECT_EMAILS_CLIENTES + String.join(", ", Collections.nCopies(clienteIds.size(), "?")) + ")";
+		try (PreparedStatement stmt = c.prepareStatement(sql)) {
+			int i = 1;
+			for (Long id : clienteIds) {
+				stmt.setLong(i++, id);
+			}
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					emails.put(rs.getLong(1), rs.getString(2));
+				}
+			}
+			return emails;
+		} catch (SQLException e) {
+			logger.error(e.getMessage(), e);
+			throw new DataException("Error al buscar el email de los clientes", e);
+		}
+	}
+
+	/**
+	 * @return el email del cliente, o null si no existe
+	 */
+	public String findEmailCliente(Connection c, Long clienteId) throws DataException {
+		try (PreparedStatement stmt = c.prepareStatement(SELECT_EMAIL_CLIENTE)) {
+			stmt.setLong(1, clienteId);
+			try (ResultSet rs = stmt.executeQuery()) {
+				return rs.next() ? rs.getString(1) : null;
+			}
+		} catch (SQLException e) {
+			logger.error(e.getMessage(), e);
+			throw new DataException("Error al buscar el email del cliente " + clienteId, e);
+		}
+	}
+
+	private static void setNullable(PreparedStatement stmt, int i, Object valor, int tipo) throws SQLException {
+		if (valor == null) {
+			stmt.setNull(i, tipo);
+		} else {
+			stmt.setObject(i, valor, tipo);
+		}
+	}
+}
@@ -0,0 +1,257 @@
+package com.luis.ciberloja.pedido;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.text.NumberFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.luis.ciberloja.DataException;
+import com.luis.ciberloja.mail.MailOutboxService;
+import com.luis.ciberloja.mail.MensajeCorreo;
+import com.luis.ciberloja.model.LineaPedido;
+import com.luis.ciberloja.model.Pedido;
+import com.luis.ciberloja.service.MailException;
+import com.luis.ciberloja.service.PedidoService;
+import com.luis.ciberloja.service.impl.PedidoServiceImpl;
+import com.luis.ciberloja.util.JDBCUtils;
+import com.luis.ciberloja.ventas.VentasService;
+
+/**
+ * Alta de pedidos sin esperar al correo de confirmación: el pedido, sus líneas
+ * y el correo en la cola de salida se guardan en una misma transacción, y el
+ * correo lo envía después MailOutboxService. En la misma transacción se suma
+ * el pedido a las ventas agregadas y se leen los nombres de su estado y tipo
+ * de entrega, de modo que el pedido creado no se vuelve a leer.
+ *
+ * PedidoService.create del middleware envía el correo dentro del alta, por eso
+ * la inserción se hace aquí. Si la cola de correos no está disponible o las
+ * tablas del middleware no tienen las columnas esperadas (se comprueba una vez),
+ * el pedido se crea con PedidoService como antes.
+ */
+public class PedidoCreacionService {
+
+	private static Logger logger = LogManager.getLogger(PedidoCreacionService.class);
+
+	private static final Locale LOCALE_CORREO = new Locale("pt", "PT");
+
+	private final PedidoService pedidoService;
+
+	private final PedidoCreacionDAO pedidoCreacionDAO;
+
+	private final MailOutboxService mailOutboxService;
+
+	private final VentasService ventasService;
+
+	private final PedidoClienteCache pedidoClienteCache;
+
+	// null hasta la primera comprobación del esquema
+	private volatile Boolean esquemaValido = null;
+
+	public PedidoCreacionService() {
+		this(new PedidoServiceImpl(), new PedidoCreacionDAO(), MailOutboxService.getInstance(),
+				VentasService.getInstance(), PedidoClienteCache.getInstance());
+	}
+
+	PedidoCreacionService(PedidoService pedidoService, PedidoCreacionDAO pedidoCreacionDAO,
+			MailOutboxService mailOutboxService, VentasService ventasService, PedidoClienteCache pedidoClienteCache) {
+		this.pedidoService = pedidoService;
+		this.pedidoCreacionDAO = pedidoCreacionDAO;
+		this.mailOutboxService = mailOutboxService;
+		this.ventasService = ventasService;
+		this.pedidoClienteCache = pedidoClienteCache;
+	}
+
+	/**
+	 * @return el pedido creado, con los ids generados, la fecha, el total y los
+	 *         nombres de su estado y tipo de entrega; null si se ha creado pero
+	 *         no se ha podido saber su id
+	 */
+	public Pedido create(Pedido p) throws DataException {
+		completar(p);
+		if (!mailOutboxService.isDisponible() || !isEsquemaValido()) {
+			return createEnMiddleware(p);
+		}
+		Connection c = null;
+		try {
+			c = JDBCUtils.getConnection();
+			c.setAutoCommit(false);
+
+			Long id = pedidoCreacionDAO.create(c, p);
+			ventasService.sumar(c, List.of(id));
+			boolean conCorreo = encolarConfirmacion(c, p);
+			pedidoCreacionDAO.completarTipos(c, p);
+			c.commit();
+			pedidoClienteCache.invalidarCliente(p.getClienteId());
+
+			if (conCorreo) {
+				mailOutboxService.avisar();
+			}
+			logger.info("Pedido {} creado", id);
+			return p;
+
+		} catch (SQLException | DataException e) {
+			JDBCUtils.rollback(c);
+			logger.error("Error al crear el pedido: {}", e.getMessage(), e);
+			throw e instanceof DataException ? (DataException) e : new DataException("Error al crear el pedido", e);
+		} finally {
+			if (c != null) {
+				try {
+					c.close();
+				} catch (SQLException e) {
+					logger.warn("Error al cerrar la conexión: {}", e.getMessage());
+				}
+			}
+		}
+	}
+
+	private boolean isEsquemaValido() throws DataException {
+		if (esquemaValido == null) {
+			try (Connection c = JDBCUtils.getConnection()) {
+				pedidoCreacionDAO.verificarEsquema(c);
+				pedidoCreacionDAO.verificarEsquemaTipos(c);
+				esquemaValido = true;
+			} catch (DataException e) {
+				logger.error("Alta de pedidos con el middleware (correo síncrono): {}", e.getMessage());
+				esquemaValido = false;
+			} catch (SQLException e) {
+				logger.error(e.getMessage(), e);
+				throw new DataException("Error al cerrar la conexión", e);
+			}
+		}
+		return esquemaValido;
+	}
+
+	/**
+	 * Alta con PedidoService, que envía el correo antes de volver. Un fallo del
+	 * correo no deshace un pedido ya confirmado.
+	 *
+	 * Como el esquema no es el esperado, el pedido creado se lee con
+	 * PedidoService.findBy en lugar de completarlo aquí.
+	 *
+	 * @return el pedido creado, o null si está creado pero no se ha podido
+	 *         saber su id
+	 */
+	private Pedido createEnMiddleware(Pedido p) throws DataException {
+		Long id;
+		try {
+			id = pedidoService.create(p);
+		} catch (MailException me) {
+			// El middleware sólo lanza MailException después de confirmar el pedido
+			logger.error("Pedido creado pero no se ha enviado el correo de confirmación: {}", me.getMessage(), me);
+			id = p.getId() != null ? p.getId() : findUltimoId(p);
+		}
+		pedidoClienteCache.invalidarCliente(p.getClienteId());
+		if (id == null) {
+			logger.error("El middleware no ha devuelto el id del pedido: ventas agregadas sin actualizar");
+			return null;
+		}
+		p.setId(id);
+		try {
+			ventasService.pedidoModificado(id, null);
+		} catch (DataException de) {
+			logger.error("Ventas agregadas sin actualizar tras crear el pedido {}", id, de);
+		}
+		logger.info("Pedido {} creado con el middleware", id);
+		Pedido creado = pedidoService.findBy(id);
+		return creado != null ? creado : p;
+	}
+
+	/**
+	 * Pedido a devolver tras actualizarlo con PedidoService.update: el recibido,
+	 * que es lo que se ha escrito, con los nombres de su estado y tipo de
+	 * entrega. Si el esquema no es el esperado se lee con PedidoService.findBy.
+	 */
+	public Pedido completarActualizado(Pedido p) throws DataException {
+		if (!isEsquemaValido()) {
+			return pedidoService.findBy(p.getId());
+		}
+		try (Connection c = JDBCUtils.getConnection()) {
+			pedidoCreacionDAO.completarTipos(c, p);
+			return p;
+		} catch (SQLException e) {
+			logger.error(e.getMessage(), e);
+			throw new DataException("Error al cerrar la conexión", e);
+		}
+	}
+
+	/**
+	 * Id del pedido que el middleware acaba de crear sin devolverlo: el último
+	 * del cliente con la misma fecha de realización.
+	 *
+	 * @return null si no se encuentra o falla la consulta; el pedido ya está
+	 *         creado y eso no debe convertirse en un error
+	 */
+	private Long findUltimoId(Pedido p) {
+		if (p.getClienteId() == null) {
+			return null;
+		}
+		try (Connection c = JDBCUtils.getConnection()) {
+			return pedidoCreacionDAO.findUltimoId(c, p.getClienteId(), p.getFechaRealizacion());
+		} catch (SQLException | DataException e) {
+			logger.error("No se ha podido buscar el id del pedido creado: {}", e.getMessage(), e);
+			return null;
+		}
+	}
+
+	/**
+	 * Fecha actual y precio total a partir de las líneas si no vienen
+	 * indicados.
+	 */
+	static void completar(Pedido p) {
+		if (p.getFechaRealizacion() == null) {
+			p.setFechaRealizacion(new Date());
+		}
+		if (p.getPrecio() == null && p.getLineas() != null) {
+			double total = 0d;
+			for (LineaPedido linea : p.getLineas()) {
+				if (linea.getPrecio() != null && linea.getUnidades() != null) {
+					total += linea.getPrecio() * linea.getUnidades();
+				}
+			}
+			p.setPrecio(total);
+		}
+	}
+
+	private boolean encolarConfirmacion(Connection c, Pedido p) throws DataException {
+		String email = p.getClienteId() != null ? pedidoCreacionDAO.findEmailCliente(c, p.getClienteId()) : null;
+		if (email == null || email.trim().isEmpty()) {
+			logger.warn("Pedido {} sin email de cliente: no se envía confirmación", p.getId());
+			return false;
+		}
+		mailOutboxService.encolar(c, crearConfirmacion(p, email));
+		return true;
+	}
+
+	/**
+	 * Correo de confirmación para el cliente, en portugués como la tienda.
+	 */
+	static MensajeCorreo crearConfirmacion(Pedido p, String email) {
+		return new MensajeCorreo(email.trim(), "Ciberloja: encomenda n.º " + p.getId() + " registada", crearCuerpo(p));
+	}
+
+	static String crearCuerpo(Pedido p) {
+		NumberFormat euros = NumberFormat.getCurrencyInstance(LOCALE_CORREO);
+		StringBuilder cuerpo = new StringBuilder();
+		cuerpo.append("A sua encomenda n.º ").append(p.getId()).append(" foi registada com sucesso.\n\n");
+		if (p.getLineas() != null) {
+			for (LineaPedido linea : p.getLineas()) {
+				cuerpo.append(linea.getUnidades() != null ? linea.getUnidades() : 0).append(" x ")
+						.append(linea.getProductoId());
+				if (linea.getPrecio() != null) {
+					cuerpo.append("  ").append(euros.format(linea.getPrecio()));
+				}
+				cuerpo.append('\n');
+			}
+		}
+		if (p.getPrecio() != null) {
+			cuerpo.append("\nTotal: ").append(euros.format(p.getPrecio())).append('\n');
+		}
+		cuerpo.append("\nObrigado pela sua compra.\nCiberloja\n");
+		return cuerpo.toString();
+	}
+}
@@ -0,0 +1,98 @@
+package com.luis.ciberloja.pedido;
+
+/**
+ * Totales de una importación masiva de pedidos. El id creado o el error de
+ * cada pedido (Item) no se guarda aquí: se entrega según se procesa su bloque,
+ * para que la memoria no crezca con el tamaño de la importación.
+ */
+public class PedidoImportacionResultado {
+
+	/**
+	 * Resultado de un pedido de la importación.
+	 */
+	public static class Item {
+		private int indice;
+		private Long id = null;
+		private String error = null;
+
+		public Item() {
+		}
+
+		Item(int indice) {
+			this.indice = indice;
+		}
+
+		public int getIndice() {
+			return indice;
+		}
+
+		public Long getId() {
+			return id;
+		}
+
+		public void setId(Long id) {
+			this.id = id;
+		}
+
+		public String getError() {
+			return error;
+		}
+
+		public void setError(String error) {
+			this.error = error;
+		}
+	}
+
+	private int total = 0;
+	private int creados = 0;
+	private int fallidos = 0;
+	private long duracionMillis = 0L;
+	// Error que ha interrumpido la lectura de la petición, si lo hay
+	private String error = null;
+
+	public PedidoImportacionResultado() {
+	}
+
+	Item addItem() {
+		return new Item(total++);
+	}
+
+	void creado(Item item, Long id) {
+		item.setId(id);
+		item.setError(null);
+		creados++;
+	}
+
+	void fallido(Item item, String error) {
+		item.setError(error);
+		fallidos++;
+	}
+
+	public int getTotal() {
+		return total;
+	}
+
+	public int getCreados() {
+		return creados;
+	}
+
+	public int getFallidos() {
+		return fallidos;
+	}
+
+	public long getDuracionMillis() {
+		return duracionMillis;
+	}
+
+	public void setDuracionMillis(long duracionMillis) {
+		this.duracionMillis = duracionMillis;
+	}
+
+	public String getError() {
+		return error;
+	}
+
+	public void setError(String error) {
+		this.error = error;
+	}
+}
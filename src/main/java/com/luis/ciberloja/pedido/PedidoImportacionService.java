@@ -0,0 +1,316 @@
+package com.luis.ciberloja.pedido;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.yasson.YassonJsonb;
+
+import com.luis.ciberloja.DataException;
+import com.luis.ciberloja.JsonProvider;
+import com.luis.ciberloja.mail.MailOutboxService;
+import com.luis.ciberloja.mail.MensajeCorreo;
+import com.luis.ciberloja.model.LineaPedido;
+import com.luis.ciberloja.model.Pedido;
+import com.luis.ciberloja.util.ConfigUtils;
+import com.luis.ciberloja.util.JDBCUtils;
+import com.luis.ciberloja.ventas.VentasService;
+
+import jakarta.json.Json;
+import jakarta.json.JsonException;
+import jakarta.json.bind.JsonbException;
+import jakarta.json.stream.JsonParser;
+import jakarta.json.stream.JsonParserFactory;
+
+/**
+ * Importación masiva de pedidos. Los pedidos se leen de la petición según
+ * llegan (array JSON o un pedido JSON por línea) y se insertan por bloques de
+ * pedido.bulk.chunk, cada bloque en una transacción con inserciones por lotes
+ * y la suma de sus pedidos a las ventas agregadas.
+ *
+ * Si un bloque falla se deshace y se reintenta pedido a pedido, de modo que
+ * sólo quedan sin crear los pedidos que realmente fallan.
+ *
+ * El resultado de cada pedido se entrega al consumidor en el orden recibido en
+ * cuanto se confirma su bloque; en memoria sólo está el bloque en curso.
+ */
+public class PedidoImportacionService {
+
+	private static Logger logger = LogManager.getLogger(PedidoImportacionService.class);
+
+	private static final int DEFAULT_CHUNK = 500;
+
+	private static final JsonParserFactory PARSERS = Json.createParserFactory(Map.of());
+
+	private final PedidoCreacionDAO pedidoCreacionDAO;
+
+	private final MailOutboxService mailOutboxService;
+
+	private final VentasService ventasService;
+
+	private final PedidoClienteCache pedidoClienteCache;
+
+	private final int chunk;
+
+	public PedidoImportacionService() {
+		this(new PedidoCreacionDAO(), MailOutboxService.getInstance(), VentasService.getInstance(),
+				PedidoClienteCache.getInstance(), ConfigUtils.getInt("pedido.bulk.chunk", DEFAULT_CHUNK));
+	}
+
+	PedidoImportacionService(PedidoCreacionDAO pedidoCreacionDAO, MailOutboxService mailOutboxService,
+			VentasService ventasService, PedidoClienteCache pedidoClienteCache, int chunk) {
+		this.pedidoCreacionDAO = pedidoCreacionDAO;
+		this.mailOutboxService = mailOutboxService;
+		this.ventasService = ventasService;
+		this.pedidoClienteCache = pedidoClienteCache;
+		this.chunk = chunk;
+	}
+
+	/**
+	 * Comprueba antes de empezar que se puede importar: las tablas de pedidos y,
+	 * si se va a notificar, la cola de correos.
+	 */
+	public void verificar(boolean notificar) throws DataException {
+		if (notificar && !mailOutboxService.isDisponible()) {
+			throw new DataException("La cola de correos no está disponible: no se puede notificar la importación");
+		}
+		try (Connection c = JDBCUtils.getConnection()) {
+			pedidoCreacionDAO.verificarEsquema(c);
+		} catch (SQLException e) {
+			logger.error(e.getMessage(), e);
+			throw new DataException("Error al cerrar la conexión", e);
+		}
+	}
+
+	/**
+	 * @param notificar  si es true se encola el correo de confirmación de cada
+	 *                   pedido creado
+	 * @param resultado  totales, actualizados según avanza; si la entrada no es
+	 *                   JSON válido se crean los pedidos leídos hasta el error y
+	 *                   se indica en getError()
+	 * @param consumidor recibe el resultado de cada pedido
+	 */
+	public void importar(Reader entrada, boolean notificar, PedidoImportacionResultado resultado,
+			Consumer<PedidoImportacionResultado.Item> consumidor) throws DataException {
+		try (Connection c = JDBCUtils.getConnection()) {
+			importar(c, entrada, notificar, resultado, consumidor);
+		} catch (SQLException e) {
+			logger.error(e.getMessage(), e);
+			throw new DataException("Error en la conexión de la importación de pedidos", e);
+		}
+	}
+
+	void importar(Connection c, Reader entrada, boolean notificar, PedidoImportacionResultado resultado,
+			Consumer<PedidoImportacionResultado.Item> consumidor) throws SQLException {
+		long inicio = System.currentTimeMillis();
+		// Todos los pedidos leídos del bloque, para entregarlos en orden, y los válidos
+		List<PedidoImportacionResultado.Item> bloque = new ArrayList<>(chunk);
+		List<PedidoImportacionResultado.Item> items = new ArrayList<>(chunk);
+		List<Pedido> pedidos = new ArrayList<>(chunk);
+
+		c.setAutoCommit(false);
+		try {
+			LectorPedidos lector = new LectorPedidos(entrada);
+			while (lector.hasNext()) {
+				Pedido p = lector.next();
+				PedidoImportacionResultado.Item item = resultado.addItem();
+				bloque.add(item);
+				String error = validar(p);
+				if (error != null) {
+					resultado.fallido(item, error);
+				} else {
+					PedidoCreacionService.completar(p);
+					items.add(item);
+					pedidos.add(p);
+				}
+				if (bloque.size() == chunk) {
+					procesar(c, items, pedidos, notificar, resultado);
+					entregar(bloque, consumidor);
+					items.clear();
+					pedidos.clear();
+				}
+			}
+		} catch (IOException | JsonException | JsonbException e) {
+			resultado.setError("JSON no válido tras " + resultado.getTotal() + " pedidos: " + e.getMessage());
+			logger.warn("Importación de pedidos interrumpida: {}", resultado.getError());
+		}
+		procesar(c, items, pedidos, notificar, resultado);
+		entregar(bloque, consumidor);
+
+		resultado.setDuracionMillis(System.currentTimeMillis() - inicio);
+		logger.info("Importación de pedidos: {} recibidos, {} creados, {} fallidos en {} ms", resultado.getTotal(),
+				resultado.getCreados(), resultado.getFallidos(), resultado.getDuracionMillis());
+	}
+
+	/**
+	 * Pedidos de la entrada según llegan, con el JSON-B de las respuestas: de un
+	 * array JSON, elemento a elemento con un parser JSON-P, o de NDJSON, línea a
+	 * línea.
+	 */
+	private static class LectorPedidos {
+
+		private final YassonJsonb jsonb = JsonProvider.getJsonb();
+		private final BufferedReader entrada;
+		// Null si la entrada es NDJSON
+		private final JsonParser parser;
+		private String linea = null;
+		private Pedido pedido = null;
+
+		LectorPedidos(Reader entrada) throws IOException {
+			this.entrada = new BufferedReader(entrada);
+			int primero;
+			do {
+				this.entrada.mark(1);
+				primero = this.entrada.read();
+			} while (primero != -1 && Character.isWhitespace(primero));
+			if (primero == -1) {
+				throw new JsonException("Entrada vacía");
+			}
+			this.entrada.reset();
+			if (primero == '[') {
+				parser = PARSERS.createParser(this.entrada);
+				parser.next();
+			} else {
+				parser = null;
+			}
+		}
+
+		boolean hasNext() throws IOException {
+			if (parser == null) {
+				do {
+					linea = entrada.readLine();
+				} while (linea != null && linea.isBlank());
+				return linea != null;
+			}
+			switch (parser.next()) {
+			case END_ARRAY:
+				return false;
+			case START_OBJECT:
+				// Yasson empieza a leer por el START_OBJECT, que ya se ha consumido
+				pedido = jsonb.fromJson(PARSERS.createParser(parser.getObject()), Pedido.class);
+				return true;
+			case VALUE_NULL:
+				pedido = null;
+				return true;
+			default:
+				throw new JsonException("Se esperaba un pedido en " + parser.getLocation());
+			}
+		}
+
+		Pedido next() {
+			return parser == null ? jsonb.fromJson(linea, Pedido.class) : pedido;
+		}
+	}
+
+	private static void entregar(List<PedidoImportacionResultado.Item> bloque,
+			Consumer<PedidoImportacionResultado.Item> consumidor) {
+		for (PedidoImportacionResultado.Item item : bloque) {
+			consumidor.accept(item);
+		}
+		bloque.clear();
+	}
+
+	private void procesar(Connection c, List<PedidoImportacionResultado.Item> items, List<Pedido> pedidos,
+			boolean notificar, PedidoImportacionResultado resultado) {
+		if (pedidos.isEmpty()) {
+			return;
+		}
+		try {
+			insertar(c, pedidos, notificar);
+			c.commit();
+			for (int i = 0; i < pedidos.size(); i++) {
+				resultado.creado(items.get(i), pedidos.get(i).getId());
+			}
+		} catch (SQLException | DataException e) {
+			JDBCUtils.rollback(c);
+			logger.warn("Bloque de {} pedidos rechazado, se reintenta pedido a pedido: {}", pedidos.size(),
+					e.getMessage());
+			for (int i = 0; i < pedidos.size(); i++) {
+				Pedido p = pedidos.get(i);
+				limpiarIds(p);
+				try {
+					insertar(c, List.of(p), notificar);
+					c.commit();
+					resultado.creado(items.get(i), p.getId());
+				} catch (SQLException | DataException ex) {
+					JDBCUtils.rollback(c);
+					resultado.fallido(items.get(i), mensaje(ex));
+				}
+			}
+		}
+		for (Pedido p : pedidos) {
+			pedidoClienteCache.invalidarCliente(p.getClienteId());
+		}
+		if (notificar) {
+			mailOutboxService.avisar();
+		}
+	}
+
+	private void insertar(Connection c, List<Pedido> pedidos, boolean notificar) throws DataException {
+		pedidoCreacionDAO.createAll(c, pedidos);
+		List<Long> ids = new ArrayList<>(pedidos.size());
+		for (Pedido p : pedidos) {
+			ids.add(p.getId());
+		}
+		ventasService.sumar(c, ids);
+		if (!notificar) {
+			return;
+		}
+		Set<Long> clienteIds = new HashSet<>();
+		for (Pedido p : pedidos) {
+			clienteIds.add(p.getClienteId());
+		}
+		Map<Long, String> emails = pedidoCreacionDAO.findEmailsClientes(c, clienteIds);
+		List<MensajeCorreo> mensajes = new ArrayList<>();
+		for (Pedido p : pedidos) {
+			String email = emails.get(p.getClienteId());
+			if (email != null && !email.trim().isEmpty()) {
+				mensajes.add(PedidoCreacionService.crearConfirmacion(p, email));
+			}
+		}
+		mailOutboxService.encolar(c, mensajes);
+	}
+
+	static String validar(Pedido p) {
+		if (p == null) {
+			return "Pedido vacío";
+		}
+		if (p.getClienteId() == null) {
+			return "El pedido no tiene clienteId";
+		}
+		if (p.getLineas() == null || p.getLineas().isEmpty()) {
+			return "El pedido no tiene líneas";
+		}
+		for (LineaPedido linea : p.getLineas()) {
+			if (linea == null || linea.getProductoId() == null || linea.getUnidades() == null
+					|| linea.getUnidades() <= 0) {
+				return "Línea de pedido sin productoId o con unidades no válidas";
+			}
+		}
+		return null;
+	}
+
+	// Ids asignados por un intento deshecho
+	private static void limpiarIds(Pedido p) {
+		p.setId(null);
+		for (LineaPedido linea : p.getLineas()) {
+			linea.setId(null);
+			linea.setPedidoId(null);
+		}
+	}
+
+	private static String mensaje(Exception e) {
+		return e.getCause() != null && e.getCause().getMessage() != null ? e.getCause().getMessage()
+				: e.getMessage();
+	}
+}
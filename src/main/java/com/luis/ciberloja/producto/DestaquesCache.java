@@ -0,0 +1,313 @@
+package com.luis.ciberloja.producto;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.yasson.YassonJsonb;
+
+import com.luis.ciberloja.JsonProvider;
+import com.luis.ciberloja.DataException;
+import com.luis.ciberloja.catalogo.CatalogoDiff;
+import com.luis.ciberloja.catalogo.CatalogoListener;
+import com.luis.ciberloja.catalogo.CatalogoService;
+import com.luis.ciberloja.catalogo.CatalogoSnapshot;
+import com.luis.ciberloja.catalogo.CatalogoSyncListener;
+import com.luis.ciberloja.catalogo.CatalogoSyncResultado;
+import com.luis.ciberloja.catalogo.CatalogoSyncService;
+import com.luis.ciberloja.model.ProductoDTO;
+import com.luis.ciberloja.model.Results;
+import com.luis.ciberloja.service.ProductoService;
+import com.luis.ciberloja.service.impl.ProductoServiceImpl;
+import com.luis.ciberloja.util.ConfigUtils;
+
+import jakarta.json.stream.JsonGenerator;
+
+/**
+ * Lista de productos destacados materializada en memoria, con las páginas ya
+ * serializadas a JSON. Se reconstruye cuando la sincronización del catálogo
+ * escribe cambios en BD o, si está desactivada, cuando un nuevo snapshot del
+ * catálogo cambia algún producto destacado; y, como mínimo, cada
+ * producto.destaques.refresh.seconds.
+ * La versión es una huella del contenido: sólo cambia si cambian los
+ * destacados, de modo que sirve como ETag.
+ */
+public class DestaquesCache implements CatalogoSyncListener, CatalogoListener {
+
+	private static Logger logger = LogManager.getLogger(DestaquesCache.class);
+
+	private static final int DEFAULT_REFRESH_SECONDS = 300;
+
+	private static final int PAGINA_CARGA = 100;
+
+	// Tamaños de página distintos cuyas páginas se guardan serializadas
+	private static final int MAX_TAMANOS = 8;
+
+	private static DestaquesCache instance = null;
+
+	/**
+	 * Una versión de la lista de destacados y sus páginas serializadas por
+	 * tamaño de página.
+	 */
+	private static final class Vista {
+		private final List<ProductoDTO> productos;
+		private final String version;
+		private final long construidaEn;
+		private final Map<Integer, AtomicReferenceArray<byte[]>> paginas = new ConcurrentHashMap<>();
+
+		private Vista(List<ProductoDTO> productos, String version, long construidaEn) {
+			this.productos = productos;
+			this.version = version;
+			this.construidaEn = construidaEn;
+		}
+	}
+
+	private final ProductoService productoService;
+	private final long refreshMillis;
+
+	private volatile Vista vista = null;
+
+	private final AtomicLong reconstrucciones = new AtomicLong();
+	private final AtomicLong cambiosVersion = new AtomicLong();
+	private volatile String ultimoError = null;
+
+	DestaquesCache(ProductoService productoService, int refreshSeconds) {
+		this.productoService = productoService;
+		this.refreshMillis = refreshSeconds * 1000L;
+	}
+
+	public static synchronized DestaquesCache getInstance() {
+		if (instance == null) {
+			instance = new DestaquesCache(new ProductoServiceImpl(),
+					ConfigUtils.getInt("producto.destaques.refresh.seconds", DEFAULT_REFRESH_SECONDS));
+			CatalogoSyncService sync = CatalogoSyncService.getInstance();
+			if (sync.isActivada()) {
+				// Se reconstruye después de que la sincronización escriba en BD,
+				// que es de donde lee findByDestaques
+				sync.addListener(instance);
+			} else {
+				CatalogoService.getInstance().addListener(instance);
+			}
+		}
+		return instance;
+	}
+
+	/**
+	 * Página de la lista de destacados junto con la versión de la que sale,
+	 * para que el ETag y el cuerpo coincidan siempre.
+	 */
+	public static final class Pagina {
+		private final byte[] json;
+		private final String version;
+
+		private Pagina(byte[] json, String version) {
+			this.json = json;
+			this.version = version;
+		}
+
+		public byte[] getJson() {
+			return json;
+		}
+
+		public String getVersion() {
+			return version;
+		}
+	}
+
+	/**
+	 * @return la página serializada como Results, o null si no existe
+	 */
+	public Pagina getPagina(int page, int size) throws DataException {
+		if (page < 1 || size < 1) {
+			throw new IllegalArgumentException("page y size deben ser mayores que 0");
+		}
+		Vista actual = getVista();
+		long desde = (long) (page - 1) * size;
+		if (desde >= actual.productos.size()) {
+			return null;
+		}
+		AtomicReferenceArray<byte[]> paginas = actual.paginas.get(size);
+		if (paginas == null) {
+			paginas = new AtomicReferenceArray<>((int) ((actual.productos.size() + (long) size - 1) / size));
+			if (actual.paginas.size() < MAX_TAMANOS) {
+				AtomicReferenceArray<byte[]> previas = actual.paginas.putIfAbsent(size, paginas);
+				if (previas != null) {
+					paginas = previas;
+				}
+			}
+		}
+		byte[] pagina = paginas.get(page - 1);
+		if (pagina == null) {
+			int inicio = (int) desde;
+			pagina = serializar(actual.productos.subList(inicio, (int) Math.min(desde + size, actual.productos.size())),
+					actual.productos.size());
+			paginas.set(page - 1, pagina);
+		}
+		return new Pagina(pagina, actual.version);
+	}
+
+	@Override
+	public void onProductosSincronizados(CatalogoSyncResultado resultado) {
+		try {
+			reconstruir();
+		} catch (DataException e) {
+			// Ya registrado; se sigue sirviendo la versión anterior
+		}
+	}
+
+	@Override
+	public void onCatalogoActualizado(CatalogoSnapshot anterior, CatalogoSnapshot nuevo) {
+		if (anterior == null || !cambianDestaques(anterior, nuevo)) {
+			// La primera carga la hace la primera petición
+			return;
+		}
+		try {
+			reconstruir();
+		} catch (DataException e) {
+			// Ya registrado; se sigue sirviendo la versión anterior
+		}
+	}
+
+	/**
+	 * @return true si entre los dos snapshots aparece, desaparece o cambia algún
+	 *         producto destacado en uno de ellos
+	 */
+	static boolean cambianDestaques(CatalogoSnapshot anterior, CatalogoSnapshot nuevo) {
+		CatalogoDiff diff = CatalogoDiff.calcular(anterior, nuevo);
+		for (ProductoDTO p : diff.getInsertados()) {
+			if (Boolean.TRUE.equals(p.getDestaques())) {
+				return true;
+			}
+		}
+		for (ProductoDTO p : diff.getModificados()) {
+			ProductoDTO previo = anterior.findById(p.getId());
+			if (Boolean.TRUE.equals(p.getDestaques()) || (previo != null && Boolean.TRUE.equals(previo.getDestaques()))) {
+				return true;
+			}
+		}
+		for (String id : diff.getEliminados()) {
+			ProductoDTO previo = anterior.findById(id);
+			if (previo != null && Boolean.TRUE.equals(previo.getDestaques())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private Vista getVista() throws DataException {
+		Vista actual = vista;
+		if (actual == null || System.currentTimeMillis() - actual.construidaEn > refreshMillis) {
+			synchronized (this) {
+				actual = vista;
+				if (actual == null || System.currentTimeMillis() - actual.construidaEn > refreshMillis) {
+					try {
+						actual = reconstruir();
+					} catch (DataException e) {
+						if (actual == null) {
+							throw e;
+						}
+						// Mejor la lista anterior que un error en la portada
+					}
+				}
+			}
+		}
+		return actual;
+	}
+
+	private synchronized Vista reconstruir() throws DataException {
+		reconstrucciones.incrementAndGet();
+		List<ProductoDTO> productos;
+		try {
+			productos = cargar();
+		} catch (DataException e) {
+			ultimoError = e.getMessage();
+			logger.error("Error al cargar los productos destacados: {}", e.getMessage(), e);
+			throw e;
+		}
+		ultimoError = null;
+		String version = calcularVersion(productos);
+		Vista anterior = vista;
+		if (anterior != null && anterior.version.equals(version)) {
+			// Mismo contenido: se conservan las páginas ya serializadas
+			vista = new Vista(anterior.productos, version, System.currentTimeMillis());
+			vista.paginas.putAll(anterior.paginas);
+		} else {
+			vista = new Vista(productos, version, System.currentTimeMillis());
+			cambiosVersion.incrementAndGet();
+			logger.info("Productos destacados reconstruidos: {} productos, versión {}", productos.size(), version);
+		}
+		return vista;
+	}
+
+	private List<ProductoDTO> cargar() throws DataException {
+		List<ProductoDTO> productos = new ArrayList<>();
+		for (int page = 1;; page++) {
+			Results<ProductoDTO> results = productoService.findByDestaques(page, PAGINA_CARGA);
+			if (results == null || results.getPage() == null || results.getPage().isEmpty()) {
+				break;
+			}
+			productos.addAll(results.getPage());
+			if (results.getPage().size() < PAGINA_CARGA
+					|| (results.getTotal() != null && productos.size() >= results.getTotal())) {
+				break;
+			}
+		}
+		return Collections.unmodifiableList(productos);
+	}
+
+	private static String calcularVersion(List<ProductoDTO> productos) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(JsonProvider.getJsonb().toJson(productos).getBytes(StandardCharsets.UTF_8));
+			byte[] hash = digest.digest();
+			StringBuilder sb = new StringBuilder();
+			for (int i = 0; i < 8; i++) {
+				sb.append(String.format("%02x", hash[i]));
+			}
+			return sb.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static byte[] serializar(List<ProductoDTO> pagina, int total) {
+		YassonJsonb jsonb = JsonProvider.getJsonb();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (JsonGenerator generator = JsonProvider.createGenerator(out)) {
+			generator.writeStartObject().writeKey("page").writeStartArray();
+			for (ProductoDTO p : pagina) {
+				jsonb.toJson(p, ProductoDTO.class, generator);
+			}
+			generator.writeEnd().write("total", total).writeEnd();
+		}
+		return out.toByteArray();
+	}
+
+	public Map<String, Object> getEstado() {
+		Map<String, Object> estado = new LinkedHashMap<>();
+		Vista actual = vista;
+		if (actual != null) {
+			estado.put("version", actual.version);
+			estado.put("productos", actual.productos.size());
+			estado.put("construidaEn", actual.construidaEn);
+			estado.put("tamanosSerializados", actual.paginas.keySet());
+		}
+		estado.put("reconstrucciones", reconstrucciones.get());
+		estado.put("cambiosVersion", cambiosVersion.get());
+		if (ultimoError != null) {
+			estado.put("ultimoError", ultimoError);
+		}
+		return estado;
+	}
+}
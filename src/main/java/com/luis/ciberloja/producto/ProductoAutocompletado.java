@@ -0,0 +1,328 @@
+package com.luis.ciberloja.producto;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.luis.ciberloja.catalogo.CatalogoListener;
+import com.luis.ciberloja.catalogo.CatalogoService;
+import com.luis.ciberloja.catalogo.CatalogoSnapshot;
+import com.luis.ciberloja.model.ProductoDTO;
+import com.luis.ciberloja.util.ConfigUtils;
+import com.luis.ciberloja.util.TextoUtils;
+
+/**
+ * Autocompletado de nombres de producto sobre un trie en memoria de las
+ * palabras (normalizadas, sin acentos) de los nombres del catálogo. Cada nodo
+ * guarda ya calculados los k productos con más stock de su subárbol, de modo
+ * que una consulta por prefijo sólo recorre el prefijo.
+ *
+ * Con cada snapshot del catálogo se actualizan sólo los productos cuyo nombre o
+ * stock ha cambiado, y se recalcula el top-k de los nodos afectados.
+ */
+public class ProductoAutocompletado implements CatalogoListener {
+
+	private static Logger logger = LogManager.getLogger(ProductoAutocompletado.class);
+
+	private static final int DEFAULT_K = 10;
+
+	private static ProductoAutocompletado instance = null;
+
+	private static final Comparator<Sugerencia> POR_STOCK = Comparator.comparingDouble(Sugerencia::getStock)
+			.reversed().thenComparing(Sugerencia::getNombre).thenComparing(Sugerencia::getId);
+
+	/**
+	 * Producto propuesto por el autocompletado.
+	 */
+	public static class Sugerencia {
+		private final String id;
+		private final String nombre;
+		private final double stock;
+		private final transient List<String> palabras;
+
+		private Sugerencia(String id, String nombre, double stock) {
+			this.id = id;
+			this.nombre = nombre;
+			this.stock = stock;
+			this.palabras = TextoUtils.palabras(nombre);
+		}
+
+		public String getId() {
+			return id;
+		}
+
+		public String getNombre() {
+			return nombre;
+		}
+
+		public double getStock() {
+			return stock;
+		}
+	}
+
+	private static final class Nodo {
+		private final Map<Character, Nodo> hijos = new HashMap<>(4);
+		// Productos con alguna palabra que termina en este nodo, y los mismos
+		// ordenados por stock
+		private Set<Sugerencia> terminales = null;
+		private Sugerencia[] terminalesPorStock = null;
+		private Sugerencia[] top = new Sugerencia[0];
+		// Apariciones de palabras en el subárbol: cota superior de sus productos
+		private int apariciones = 0;
+		private boolean sucio = false;
+	}
+
+	private final int k;
+	private final Nodo raiz = new Nodo();
+	private final Map<String, Sugerencia> productos = new HashMap<>();
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private volatile long ultimaActualizacion = 0L;
+	private volatile int ultimosCambios = 0;
+
+	ProductoAutocompletado(int k) {
+		this.k = k;
+	}
+
+	public static synchronized ProductoAutocompletado getInstance() {
+		if (instance == null) {
+			instance = new ProductoAutocompletado(ConfigUtils.getInt("producto.autocomplete.k", DEFAULT_K));
+			CatalogoService.getInstance().addListener(instance);
+		}
+		return instance;
+	}
+
+	public int getK() {
+		return k;
+	}
+
+	@Override
+	public void onCatalogoActualizado(CatalogoSnapshot anterior, CatalogoSnapshot nuevo) {
+		actualizar(nuevo.getProductos());
+	}
+
+	/**
+	 * Sólo lo llama el hilo de listeners del catálogo. Los cambios se calculan
+	 * fuera del lock y sólo la modificación del trie bloquea las consultas.
+	 */
+	void actualizar(List<ProductoDTO> catalogo) {
+		Set<String> vigentes = new HashSet<>();
+		List<Sugerencia> nuevas = new ArrayList<>();
+		for (ProductoDTO p : catalogo) {
+			if (p.getId() == null || p.getNombre() == null || !vigentes.add(p.getId())) {
+				continue;
+			}
+			double stock = p.getStockDisponible() != null ? p.getStockDisponible() : 0d;
+			Sugerencia actual = productos.get(p.getId());
+			if (actual == null || !actual.nombre.equals(p.getNombre()) || actual.stock != stock) {
+				nuevas.add(new Sugerencia(p.getId(), p.getNombre(), stock));
+			}
+		}
+		List<Sugerencia> retiradas = new ArrayList<>();
+		for (Sugerencia s : productos.values()) {
+			if (!vigentes.contains(s.id)) {
+				retiradas.add(s);
+			}
+		}
+
+		lock.writeLock().lock();
+		try {
+			for (Sugerencia nueva : nuevas) {
+				Sugerencia actual = productos.put(nueva.id, nueva);
+				if (actual != null) {
+					quitar(actual);
+				}
+				poner(nueva);
+			}
+			for (Sugerencia s : retiradas) {
+				quitar(s);
+				productos.remove(s.id);
+			}
+			recalcular(raiz);
+		} finally {
+			lock.writeLock().unlock();
+		}
+		ultimaActualizacion = System.currentTimeMillis();
+		ultimosCambios = nuevas.size() + retiradas.size();
+		logger.info("Autocompletado actualizado: {} cambios, {} productos", ultimosCambios, productos.size());
+	}
+
+	/**
+	 * Hasta limite productos cuyo nombre contiene todas las palabras del texto,
+	 * la última como prefijo, ordenados por stock.
+	 */
+	public List<Sugerencia> sugerir(String texto, int limite) {
+		List<String> palabras = TextoUtils.palabras(texto);
+		if (palabras.isEmpty()) {
+			return new ArrayList<>();
+		}
+		String prefijo = palabras.get(palabras.size() - 1);
+		List<String> completas = palabras.subList(0, palabras.size() - 1);
+		int n = Math.min(limite, k);
+
+		lock.readLock().lock();
+		try {
+			if (completas.isEmpty()) {
+				Nodo nodo = buscar(prefijo);
+				return nodo == null ? new ArrayList<>() : new ArrayList<>(Arrays.asList(nodo.top).subList(0,
+						Math.min(n, nodo.top.length)));
+			}
+
+			// Varias palabras: se recorren por stock los productos de la palabra
+			// completa menos frecuente hasta tener n que cumplan el resto. Si el
+			// subárbol del prefijo es mucho más pequeño se parte de él, porque
+			// entonces el recorrido apenas encontraría coincidencias
+			Nodo nodoPrefijo = buscar(prefijo);
+			if (nodoPrefijo == null) {
+				return new ArrayList<>();
+			}
+			Sugerencia[] candidatos = null;
+			for (String palabra : completas) {
+				Nodo nodo = buscar(palabra);
+				if (nodo == null || nodo.terminalesPorStock == null) {
+					return new ArrayList<>();
+				}
+				if (candidatos == null || nodo.terminalesPorStock.length < candidatos.length) {
+					candidatos = nodo.terminalesPorStock;
+				}
+			}
+			if ((long) nodoPrefijo.apariciones * 8 < candidatos.length) {
+				Set<Sugerencia> delPrefijo = new HashSet<>();
+				recoger(nodoPrefijo, delPrefijo);
+				candidatos = delPrefijo.stream().sorted(POR_STOCK).toArray(Sugerencia[]::new);
+			}
+			List<Sugerencia> encontradas = new ArrayList<>(n);
+			for (int i = 0; i < candidatos.length && encontradas.size() < n; i++) {
+				if (coincide(candidatos[i], completas, prefijo)) {
+					encontradas.add(candidatos[i]);
+				}
+			}
+			return encontradas;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private static boolean coincide(Sugerencia s, List<String> completas, String prefijo) {
+		for (String palabra : completas) {
+			if (!s.palabras.contains(palabra)) {
+				return false;
+			}
+		}
+		for (String palabra : s.palabras) {
+			if (palabra.startsWith(prefijo)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static void recoger(Nodo nodo, Set<Sugerencia> productos) {
+		if (nodo.terminales != null) {
+			productos.addAll(nodo.terminales);
+		}
+		for (Nodo hijo : nodo.hijos.values()) {
+			recoger(hijo, productos);
+		}
+	}
+
+	private Nodo buscar(String prefijo) {
+		Nodo nodo = raiz;
+		for (int i = 0; i < prefijo.length() && nodo != null; i++) {
+			nodo = nodo.hijos.get(prefijo.charAt(i));
+		}
+		return nodo;
+	}
+
+	private void poner(Sugerencia s) {
+		for (String palabra : new HashSet<>(s.palabras)) {
+			Nodo nodo = raiz;
+			nodo.sucio = true;
+			for (int i = 0; i < palabra.length(); i++) {
+				nodo = nodo.hijos.computeIfAbsent(palabra.charAt(i), c -> new Nodo());
+				nodo.sucio = true;
+			}
+			if (nodo.terminales == null) {
+				nodo.terminales = new HashSet<>();
+			}
+			nodo.terminales.add(s);
+		}
+	}
+
+	private void quitar(Sugerencia s) {
+		for (String palabra : new HashSet<>(s.palabras)) {
+			Nodo nodo = raiz;
+			nodo.sucio = true;
+			for (int i = 0; i < palabra.length() && nodo != null; i++) {
+				nodo = nodo.hijos.get(palabra.charAt(i));
+				if (nodo != null) {
+					nodo.sucio = true;
+				}
+			}
+			if (nodo != null && nodo.terminales != null) {
+				nodo.terminales.remove(s);
+			}
+		}
+	}
+
+	/**
+	 * Recalcula el top-k de los nodos marcados, de las hojas hacia la raíz,
+	 * y poda las ramas que se han quedado vacías.
+	 */
+	private void recalcular(Nodo nodo) {
+		if (!nodo.sucio) {
+			return;
+		}
+		List<Sugerencia> candidatos = new ArrayList<>();
+		nodo.apariciones = 0;
+		if (nodo.terminales != null) {
+			if (nodo.terminales.isEmpty()) {
+				nodo.terminales = null;
+				nodo.terminalesPorStock = null;
+			} else {
+				nodo.terminalesPorStock = nodo.terminales.stream().sorted(POR_STOCK).toArray(Sugerencia[]::new);
+				nodo.apariciones = nodo.terminalesPorStock.length;
+				candidatos.addAll(Arrays.asList(nodo.terminalesPorStock).subList(0,
+						Math.min(k, nodo.terminalesPorStock.length)));
+			}
+		}
+		nodo.hijos.values().removeIf(hijo -> {
+			recalcular(hijo);
+			return hijo.top.length == 0;
+		});
+		for (Nodo hijo : nodo.hijos.values()) {
+			candidatos.addAll(Arrays.asList(hijo.top));
+			nodo.apariciones += hijo.apariciones;
+		}
+		// Un producto puede llegar por varias palabras del mismo subárbol
+		nodo.top = candidatos.stream().filter(Objects::nonNull).distinct().sorted(POR_STOCK).limit(k)
+				.toArray(Sugerencia[]::new);
+		nodo.sucio = false;
+	}
+
+	public Map<String, Object> getEstado() {
+		Map<String, Object> estado = new LinkedHashMap<>();
+		lock.readLock().lock();
+		try {
+			estado.put("productos", productos.size());
+		} finally {
+			lock.readLock().unlock();
+		}
+		estado.put("k", k);
+		estado.put("ultimaActualizacion", ultimaActualizacion);
+		estado.put("ultimosCambios", ultimosCambios);
+		return estado;
+	}
+}
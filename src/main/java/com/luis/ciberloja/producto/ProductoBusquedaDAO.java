@@ -0,0 +1,166 @@
+package com.luis.ciberloja.producto;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.luis.ciberloja.DataException;
+import com.luis.ciberloja.model.ProductoCriteria;
+import com.luis.ciberloja.util.JDBCUtils;
+
+/**
+ * Ids de los productos que cumplen unos criterios, ordenados por id, con
+ * paginación por clave (WHERE id > ? ORDER BY id LIMIT ?), cuyo coste no
+ * depende de la posición de la página. La paginación por número de página es
+ * la de ProductoService.
+ *
+ * ProductoService del middleware no tiene paginación por clave, así que la
+ * consulta se escribe aquí contra las tablas producto y familia. Sólo se leen
+ * ids: los productos se cargan con ProductoService para que tengan los mismos
+ * campos que en el resto de la API. El mapeo de las tablas es del middleware y
+ * no está en este proyecto: verificarEsquema comprueba las columnas que se usan
+ * antes de la primera consulta.
+ */
+public class ProductoBusquedaDAO {
+
+	private static Logger logger = LogManager.getLogger(ProductoBusquedaDAO.class);
+
+	private static final String FROM = " FROM producto p LEFT OUTER JOIN familia f ON f.id = p.familia_id";
+
+	private static final String SELECT_IDS = "SELECT p.id" + FROM;
+
+	private static final String SELECT_COUNT = "SELECT COUNT(*)" + FROM;
+
+	private static final List<String> COLUMNAS_PRODUCTO = Arrays.asList("id", "nombre", "precio",
+			"stock_disponible", "familia_id");
+	private static final List<String> COLUMNAS_FAMILIA = Arrays.asList("id", "nombre");
+
+	private static volatile boolean esquemaVerificado = false;
+
+	public ProductoBusquedaDAO() {
+	}
+
+	/**
+	 * Comprueba una vez que producto y familia tienen las columnas que usan
+	 * estas consultas.
+	 *
+	 * @throws DataException si falta alguna, indicando cuáles
+	 */
+	public void verificarEsquema(Connection c) throws DataException {
+		if (esquemaVerificado) {
+			return;
+		}
+		try {
+			List<String> faltan = new ArrayList<>();
+			faltan.addAll(JDBCUtils.getColumnasQueFaltan(c, "producto", COLUMNAS_PRODUCTO));
+			faltan.addAll(JDBCUtils.getColumnasQueFaltan(c, "familia", COLUMNAS_FAMILIA));
+			if (!faltan.isEmpty()) {
+				throw new DataException(
+						"El esquema de BD no tiene las columnas que usa la búsqueda de productos: " + faltan);
+			}
+			esquemaVerificado = true;
+		} catch (SQLException e) {
+			logger.error(e.getMessage(), e);
+			throw new DataException("Error al leer los metadatos de la BD", e);
+		}
+	}
+
+	/**
+	 * @param despuesDe id tras el que empezar, o null para la primera página
+	 */
+	public List<String> findIdsBy(Connection c, ProductoCriteria criteria, String despuesDe, int size)
+			throws DataException {
+		StringBuilder sql = new StringBuilder(SELECT_IDS);
+		List<Object> parametros = new ArrayList<>();
+		addCondiciones(sql, parametros, criteria);
+		if (despuesDe != null) {
+			sql.append(parametros.isEmpty() ? " WHERE " : " AND ").append("p.id > ?");
+			parametros.add(despuesDe);
+		}
+		sql.append(" ORDER BY p.id LIMIT ?");
+		parametros.add(size);
+
+		return executeQuery(c, sql.toString(), parametros, size);
+	}
+
+	/**
+	 * Número de productos que cumplen los criterios, con las mismas
+	 * condiciones que findIdsBy.
+	 */
+	public int contar(Connection c, ProductoCriteria criteria) throws DataException {
+		StringBuilder sql = new StringBuilder(SELECT_COUNT);
+		List<Object> parametros = new ArrayList<>();
+		addCondiciones(sql, parametros, criteria);
+		try (PreparedStatement stmt = prepare(c, sql.toString(), parametros); ResultSet rs = stmt.executeQuery()) {
+			rs.next();
+			return rs.getInt(1);
+		} catch (SQLException e) {
+			logger.error(e.getMessage(), e);
+			throw new DataException("Error al contar productos por criterios", e);
+		}
+	}
+
+	private static List<String> executeQuery(Connection c, String sql, List<Object> parametros, int size)
+			throws DataException {
+		try (PreparedStatement stmt = prepare(c, sql, parametros); ResultSet rs = stmt.executeQuery()) {
+			List<String> ids = new ArrayList<>(size);
+			while (rs.next()) {
+				ids.add(rs.getString(1));
+			}
+			return ids;
+		} catch (SQLException e) {
+			logger.error(e.getMessage(), e);
+			throw new DataException("Error al buscar productos por criterios", e);
+		}
+	}
+
+	private static PreparedStatement prepare(Connection c, String sql, List<Object> parametros) throws SQLException {
+		PreparedStatement stmt = c.prepareStatement(sql);
+		for (int i = 0; i < parametros.size(); i++) {
+			stmt.setObject(i + 1, parametros.get(i));
+		}
+		return stmt;
+	}
+
+	static void addCondiciones(StringBuilder sql, List<Object> parametros, ProductoCriteria criteria) {
+		List<String> condiciones = new ArrayList<>();
+		if (criteria.getArtigo() != null) {
+			condiciones.add("p.id = ?");
+			parametros.add(criteria.getArtigo());
+		}
+		if (criteria.getDescripcion() != null) {
+			condiciones.add("UPPER(p.nombre) LIKE UPPER(?) ESCAPE '!'");
+			parametros.add(JDBCUtils.contienePatron(criteria.getDescripcion()));
+		}
+		if (criteria.getPvp3Min() != null) {
+			condiciones.add("p.precio >= ?");
+			parametros.add(criteria.getPvp3Min());
+		}
+		if (criteria.getPvp3Max() != null) {
+			condiciones.add("p.precio <= ?");
+			parametros.add(criteria.getPvp3Max());
+		}
+		if (criteria.getStockMin() != null) {
+			condiciones.add("p.stock_disponible >= ?");
+			parametros.add(criteria.getStockMin());
+		}
+		if (criteria.getStockMax() != null) {
+			condiciones.add("p.stock_disponible <= ?");
+			parametros.add(criteria.getStockMax());
+		}
+		if (criteria.getFamiliaNombre() != null) {
+			condiciones.add("UPPER(f.nombre) = UPPER(?)");
+			parametros.add(criteria.getFamiliaNombre());
+		}
+		if (!condiciones.isEmpty()) {
+			sql.append(" WHERE ").append(String.join(" AND ", condiciones));
+		}
+	}
+}
@@ -0,0 +1,173 @@
+package com.luis.ciberloja.producto;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.luis.ciberloja.DataException;
+import com.luis.ciberloja.model.ProductoCriteria;
+import com.luis.ciberloja.model.ProductoDTO;
+import com.luis.ciberloja.model.Results;
+import com.luis.ciberloja.service.ProductoService;
+import com.luis.ciberloja.service.impl.ProductoServiceImpl;
+import com.luis.ciberloja.util.CursorResults;
+import com.luis.ciberloja.util.CursorUtils;
+import com.luis.ciberloja.util.JDBCUtils;
+
+/**
+ * Búsqueda de productos por criterios de /producto/search, paginada por
+ * número de página o por cursor.
+ *
+ * La paginación por número de página es la de ProductoService del middleware,
+ * con ProductoResultCache delante: en cada fallo de la caché ProductoService
+ * cuenta, también con withTotal=false. La paginación por cursor no cuenta de
+ * por sí; con withTotal el total sale de la misma consulta que las páginas
+ * (ProductoBusquedaDAO.contar) y se guarda en ProductoCountCache. Las
+ * búsquedas por descripción usan el índice de texto completo (ProductoIndice)
+ * cuando está disponible y se ordenan por relevancia; del índice salen los ids
+ * y el total, y los productos se cargan también con ProductoService.
+ */
+public class ProductoBusquedaService {
+
+	private static Logger logger = LogManager.getLogger(ProductoBusquedaService.class);
+
+	private final ProductoService productoService;
+
+	private final ProductoBusquedaDAO productoBusquedaDAO;
+
+	private final ProductoCountCache productoCountCache;
+
+	private final ProductoResultCache productoResultCache;
+
+	// null si el índice de texto completo está desactivado
+	private final ProductoIndice productoIndice;
+
+	public ProductoBusquedaService() {
+		this(new ProductoServiceImpl(), new ProductoBusquedaDAO(), ProductoCountCache.getInstance(),
+				ProductoResultCache.getInstance(), ProductoIndice.getInstance());
+	}
+
+	ProductoBusquedaService(ProductoService productoService, ProductoBusquedaDAO productoBusquedaDAO,
+			ProductoCountCache productoCountCache, ProductoResultCache productoResultCache,
+			ProductoIndice productoIndice) {
+		this.productoService = productoService;
+		this.productoBusquedaDAO = productoBusquedaDAO;
+		this.productoCountCache = productoCountCache;
+		this.productoResultCache = productoResultCache;
+		this.productoIndice = productoIndice;
+	}
+
+	/**
+	 * @param withTotal si es false no se incluye el total, aunque
+	 *                  ProductoService lo calcula igualmente
+	 * @return la página serializada como Results
+	 */
+	public ProductoResultCache.Pagina findBy(ProductoCriteria criteria, int page, int size, boolean withTotal)
+			throws DataException {
+		ProductoResultCache.Pagina cacheada = productoResultCache.get(criteria, page, size, withTotal);
+		if (cacheada != null) {
+			return cacheada;
+		}
+		long generacion = productoResultCache.getGeneracion();
+
+		Results<ProductoDTO> results = null;
+		if (criteria.getDescripcion() != null && productoIndice != null && productoIndice.isListo()) {
+			results = findByTexto(criteria, page, size, withTotal);
+		}
+		if (results == null) {
+			results = productoService.findBy(criteria, page, size);
+			if (results == null) {
+				results = new Results<>();
+			}
+			if (!withTotal) {
+				results.setTotal(null);
+			}
+		}
+		return productoResultCache.put(criteria, page, size, withTotal, results, generacion);
+	}
+
+	/**
+	 * Busca en el índice de texto completo, que aplica también el resto de
+	 * criterios, pagina y cuenta; los productos de la página se cargan con
+	 * ProductoService.
+	 *
+	 * @return null si el índice falla y hay que buscar con ProductoService
+	 */
+	private Results<ProductoDTO> findByTexto(ProductoCriteria criteria, int page, int size, boolean withTotal)
+			throws DataException {
+		Results<String> ids;
+		try {
+			ids = productoIndice.buscar(criteria, page, size, withTotal);
+		} catch (IOException e) {
+			logger.error("Error al buscar en el índice de productos, se busca en BD: {}", e.getMessage(), e);
+			return null;
+		}
+		Results<ProductoDTO> results = new Results<>();
+		results.setPage(cargar(ids.getPage()));
+		results.setTotal(ids.getTotal());
+		return results;
+	}
+
+	/**
+	 * @param after     cursor devuelto en la página anterior, o null/vacío para
+	 *                  la primera página
+	 * @param withTotal si es true se añade el total, de ProductoCountCache o,
+	 *                  si no lo tiene, contado con las mismas condiciones que
+	 *                  la página
+	 * @throws IllegalArgumentException si el cursor no es válido
+	 */
+	public CursorResults<ProductoDTO> findBy(ProductoCriteria criteria, String after, int size, boolean withTotal)
+			throws DataException {
+		String despuesDe = CursorUtils.decodificar(after);
+		CursorResults<ProductoDTO> results = new CursorResults<>();
+		List<String> ids;
+		try (Connection c = JDBCUtils.getConnection()) {
+			productoBusquedaDAO.verificarEsquema(c);
+			// Se pide uno de más para saber si hay página siguiente sin contar
+			ids = productoBusquedaDAO.findIdsBy(c, criteria, despuesDe, size + 1);
+			if (withTotal) {
+				results.setTotal(contar(c, criteria));
+			}
+		} catch (SQLException e) {
+			logger.error(e.getMessage(), e);
+			throw new DataException("Error al cerrar la conexión", e);
+		}
+		if (ids.size() > size) {
+			ids = ids.subList(0, size);
+			results.setSiguiente(CursorUtils.codificar(ids.get(size - 1)));
+		}
+		results.setPage(cargar(ids));
+		return results;
+	}
+
+	/**
+	 * Productos de los ids con ProductoService, en el mismo orden. Los que se
+	 * hayan borrado después de leer el id (o que estén en el catálogo pero aún
+	 * no en BD) no se devuelven.
+	 */
+	private List<ProductoDTO> cargar(List<String> ids) throws DataException {
+		List<ProductoDTO> productos = new ArrayList<>(ids.size());
+		for (String id : ids) {
+			ProductoDTO p = productoService.findById(id);
+			if (p != null) {
+				productos.add(p);
+			}
+		}
+		return productos;
+	}
+
+	private Integer contar(Connection c, ProductoCriteria criteria) throws DataException {
+		Integer total = productoCountCache.get(criteria);
+		if (total == null) {
+			long generacion = productoCountCache.getGeneracion();
+			total = productoBusquedaDAO.contar(c, criteria);
+			productoCountCache.put(criteria, total, generacion);
+		}
+		return total;
+	}
+}
@@ -0,0 +1,133 @@
+package com.luis.ciberloja.producto;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.luis.ciberloja.catalogo.CatalogoSyncListener;
+import com.luis.ciberloja.catalogo.CatalogoSyncResultado;
+import com.luis.ciberloja.catalogo.CatalogoSyncService;
+import com.luis.ciberloja.model.ProductoCriteria;
+import com.luis.ciberloja.util.ConfigUtils;
+
+/**
+ * Totales de las búsquedas de productos, por criterios normalizados, con un
+ * TTL corto. Se vacía cuando la sincronización del catálogo escribe cambios en
+ * BD, y no guarda totales contados antes de una invalidación que ha terminado
+ * mientras se contaba.
+ */
+public class ProductoCountCache implements CatalogoSyncListener {
+
+	private static Logger logger = LogManager.getLogger(ProductoCountCache.class);
+
+	private static final int DEFAULT_TTL_SECONDS = 60;
+
+	private static final int DEFAULT_MAX_ENTRIES = 1000;
+
+	private static ProductoCountCache instance = null;
+
+	private static final class Entrada {
+		private final int total;
+		private final long caducaEn;
+
+		private Entrada(int total, long caducaEn) {
+			this.total = total;
+			this.caducaEn = caducaEn;
+		}
+	}
+
+	private final Map<String, Entrada> totales = new ConcurrentHashMap<>();
+	private final long ttlMillis;
+	private final int maxEntradas;
+
+	// Cambia con cada invalidación, como en PedidoClienteCache
+	private final AtomicLong generacion = new AtomicLong();
+
+	private final AtomicLong aciertos = new AtomicLong();
+	private final AtomicLong fallos = new AtomicLong();
+	private final AtomicLong invalidaciones = new AtomicLong();
+
+	ProductoCountCache(int ttlSeconds, int maxEntradas) {
+		this.ttlMillis = ttlSeconds * 1000L;
+		this.maxEntradas = maxEntradas;
+	}
+
+	public static synchronized ProductoCountCache getInstance() {
+		if (instance == null) {
+			instance = new ProductoCountCache(ConfigUtils.getInt("producto.count.ttl.seconds", DEFAULT_TTL_SECONDS),
+					ConfigUtils.getInt("producto.count.max.entries", DEFAULT_MAX_ENTRIES));
+			CatalogoSyncService.getInstance().addListener(instance);
+		}
+		return instance;
+	}
+
+	/**
+	 * @return el total guardado para los criterios, o null si no hay o ha
+	 *         caducado
+	 */
+	public Integer get(ProductoCriteria criteria) {
+		String clave = ProductoCriteriaClave.calcular(criteria);
+		Entrada entrada = totales.get(clave);
+		if (entrada == null || entrada.caducaEn < System.currentTimeMillis()) {
+			if (entrada != null) {
+				totales.remove(clave, entrada);
+			}
+			fallos.incrementAndGet();
+			return null;
+		}
+		aciertos.incrementAndGet();
+		return entrada.total;
+	}
+
+	/**
+	 * Valor a pasar a put() tomado antes de contar.
+	 */
+	public long getGeneracion() {
+		return generacion.get();
+	}
+
+	/**
+	 * Guarda el total, salvo que haya habido una invalidación desde que se
+	 * empezó a contar.
+	 */
+	public void put(ProductoCriteria criteria, int total, long generacionLeida) {
+		if (generacion.get() != generacionLeida) {
+			return;
+		}
+		long ahora = System.currentTimeMillis();
+		if (totales.size() >= maxEntradas) {
+			totales.values().removeIf(e -> e.caducaEn < ahora);
+			if (totales.size() >= maxEntradas) {
+				// Sin huecos: se empieza de cero antes que crecer sin límite
+				totales.clear();
+			}
+		}
+		totales.put(ProductoCriteriaClave.calcular(criteria), new Entrada(total, ahora + ttlMillis));
+	}
+
+	public void invalidar() {
+		generacion.incrementAndGet();
+		totales.clear();
+		invalidaciones.incrementAndGet();
+	}
+
+	@Override
+	public void onProductosSincronizados(CatalogoSyncResultado resultado) {
+		logger.debug("Productos sincronizados, se vacía la caché de totales");
+		invalidar();
+	}
+
+	public Map<String, Object> getEstado() {
+		Map<String, Object> estado = new LinkedHashMap<>();
+		estado.put("entradas", totales.size());
+		estado.put("ttlSegundos", ttlMillis / 1000);
+		estado.put("aciertos", aciertos.get());
+		estado.put("fallos", fallos.get());
+		estado.put("invalidaciones", invalidaciones.get());
+		return estado;
+	}
+}
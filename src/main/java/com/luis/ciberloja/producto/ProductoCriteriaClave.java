@@ -0,0 +1,40 @@
+package com.luis.ciberloja.producto;
+
+import com.luis.ciberloja.model.ProductoCriteria;
+
+/**
+ * Forma canónica de un ProductoCriteria para usarla como clave de caché:
+ * criterios en orden fijo. Los textos se toman tal cual (ProductoResource ya
+ * les quita los espacios de los extremos): la consulta del middleware no
+ * colapsa espacios ni se sabe si distingue mayúsculas, así que dos textos
+ * distintos pueden dar resultados distintos y no deben compartir clave.
+ */
+class ProductoCriteriaClave {
+
+	private ProductoCriteriaClave() {
+	}
+
+	static String calcular(ProductoCriteria criteria) {
+		StringBuilder sb = new StringBuilder();
+		append(sb, "artigo", normalizar(criteria.getArtigo()));
+		append(sb, "descripcion", normalizar(criteria.getDescripcion()));
+		append(sb, "pvp3Min", criteria.getPvp3Min());
+		append(sb, "pvp3Max", criteria.getPvp3Max());
+		append(sb, "stockMin", criteria.getStockMin());
+		append(sb, "stockMax", criteria.getStockMax());
+		append(sb, "familia", normalizar(criteria.getFamiliaNombre()));
+		return sb.toString();
+	}
+
+	private static String normalizar(String valor) {
+		return valor == null || valor.isEmpty() ? null : valor;
+	}
+
+	private static void append(StringBuilder sb, String nombre, Object valor) {
+		if (valor != null) {
+			// Con la longitud delante un '|' dentro del texto no se confunde con el separador
+			String texto = valor.toString();
+			sb.append(nombre).append('=').append(texto.length()).append(':').append(texto).append('|');
+		}
+	}
+}
@@ -0,0 +1,427 @@
+package com.luis.ciberloja.producto;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.miscellaneous.ASCIIFoldingFilter;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.DoublePoint;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.FuzzyQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TotalHits;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.Bits;
+
+import com.luis.ciberloja.catalogo.CatalogoListener;
+import com.luis.ciberloja.catalogo.CatalogoService;
+import com.luis.ciberloja.catalogo.CatalogoSnapshot;
+import com.luis.ciberloja.model.ProductoCriteria;
+import com.luis.ciberloja.model.ProductoDTO;
+import com.luis.ciberloja.model.Results;
+import com.luis.ciberloja.util.ConfigUtils;
+
+/**
+ * Índice de texto completo (Lucene, en disco) sobre el id, la descripción y la
+ * familia de los productos del catálogo. Se actualiza con cada snapshot del
+ * catálogo reindexando sólo los productos que han cambiado; los campos
+ * indexados se guardan en el propio índice, de modo que tras un reinicio no
+ * hace falta reconstruirlo.
+ *
+ * Las búsquedas no distinguen mayúsculas ni acentos, admiten prefijos y
+ * toleran una errata por palabra (dos en palabras largas). El resto de
+ * criterios (id, precio, stock, familia) se aplican como filtros en el propio
+ * índice, que pagina y cuenta, pero sólo devuelve los ids: los campos
+ * guardados son los del catálogo SOAP y sirven para detectar cambios, no para
+ * responder, de modo que los productos se cargan con ProductoService.
+ */
+public class ProductoIndice implements CatalogoListener {
+
+	private static Logger logger = LogManager.getLogger(ProductoIndice.class);
+
+	private static final String CAMPO_ID = "id";
+	private static final String CAMPO_DESCRIPCION = "descripcion";
+	private static final String CAMPO_FAMILIA = "familia";
+	private static final String CAMPO_FAMILIA_EXACTA = "familia_exacta";
+	private static final String CAMPO_PRECIO = "precio";
+	private static final String CAMPO_STOCK = "stock";
+	private static final String CAMPO_DESTAQUES = "destaques";
+
+	// Cambia cuando cambian los campos del documento: un índice de otro
+	// formato se vacía al abrirlo y se reconstruye con el siguiente snapshot
+	private static final String CLAVE_FORMATO = "formato";
+	private static final String FORMATO = "2";
+
+	private static ProductoIndice instance = null;
+
+	// Si no se pudo abrir no se reintenta en cada petición
+	private static boolean aperturaFallida = false;
+
+	/**
+	 * Minúsculas y sin acentos, tanto al indexar como al buscar.
+	 */
+	private static final class IndiceAnalyzer extends Analyzer {
+		@Override
+		protected TokenStreamComponents createComponents(String fieldName) {
+			StandardTokenizer tokenizer = new StandardTokenizer();
+			return new TokenStreamComponents(tokenizer, new ASCIIFoldingFilter(new LowerCaseFilter(tokenizer)));
+		}
+
+		@Override
+		protected TokenStream normalize(String fieldName, TokenStream in) {
+			return new ASCIIFoldingFilter(new LowerCaseFilter(in));
+		}
+	}
+
+	private final Analyzer analyzer = new IndiceAnalyzer();
+	private final FSDirectory directorio;
+	private final IndexWriter writer;
+	private final SearcherManager searcherManager;
+
+	// Campos indexados de cada producto, por id, para saber qué ha cambiado
+	private final Map<String, String> textosIndexados;
+
+	private volatile boolean listo;
+	private volatile long ultimaActualizacion = 0L;
+	private volatile int ultimosReindexados = 0;
+	private volatile int ultimosEliminados = 0;
+	private volatile String ultimoError = null;
+
+	ProductoIndice(Path ruta) throws IOException {
+		this.directorio = FSDirectory.open(ruta);
+		IndexWriterConfig.OpenMode modo = IndexWriterConfig.OpenMode.CREATE_OR_APPEND;
+		if (DirectoryReader.indexExists(directorio)) {
+			String formato = SegmentInfos.readLatestCommit(directorio).getUserData().get(CLAVE_FORMATO);
+			if (!FORMATO.equals(formato)) {
+				logger.info("Índice de productos con formato {}, se vacía para reconstruirlo con el formato {}",
+						formato, FORMATO);
+				modo = IndexWriterConfig.OpenMode.CREATE;
+			}
+		}
+		this.writer = new IndexWriter(directorio, new IndexWriterConfig(analyzer).setOpenMode(modo));
+		this.searcherManager = new SearcherManager(writer, null);
+		this.textosIndexados = leerTextosIndexados();
+		this.listo = !textosIndexados.isEmpty();
+		logger.info("Índice de productos abierto en {} con {} productos", ruta, textosIndexados.size());
+	}
+
+	/**
+	 * @return el índice, o null si está desactivado o no se ha podido abrir
+	 */
+	public static synchronized ProductoIndice getInstance() {
+		if (instance == null && !aperturaFallida && ConfigUtils.getBoolean("producto.indice.enabled", false)) {
+			String ruta = ConfigUtils.getString("producto.indice.dir",
+					Paths.get(System.getProperty("java.io.tmpdir"), "ciberloja-indice-productos").toString());
+			try {
+				instance = new ProductoIndice(Paths.get(ruta));
+				CatalogoService.getInstance().addListener(instance);
+			} catch (IOException e) {
+				aperturaFallida = true;
+				logger.error("No se ha podido abrir el índice de productos en {}, se busca en BD hasta reiniciar: {}",
+						ruta, e.getMessage(), e);
+			}
+		}
+		return instance;
+	}
+
+	/**
+	 * Indica si el índice tiene datos con los que buscar. Hasta que se indexa
+	 * el primer snapshot las búsquedas deben ir a BD.
+	 */
+	public boolean isListo() {
+		return listo;
+	}
+
+	@Override
+	public void onCatalogoActualizado(CatalogoSnapshot anterior, CatalogoSnapshot nuevo) {
+		try {
+			actualizar(nuevo);
+		} catch (IOException e) {
+			ultimoError = e.getMessage();
+			logger.error("Error al actualizar el índice de productos: {}", e.getMessage(), e);
+		}
+	}
+
+	synchronized void actualizar(CatalogoSnapshot snapshot) throws IOException {
+		Set<String> vigentes = new HashSet<>();
+		int reindexados = 0;
+		for (ProductoDTO p : snapshot.getProductos()) {
+			if (p.getId() == null || !vigentes.add(p.getId())) {
+				continue;
+			}
+			String texto = texto(p);
+			if (!texto.equals(textosIndexados.get(p.getId()))) {
+				writer.updateDocument(new Term(CAMPO_ID, p.getId()), documento(p));
+				textosIndexados.put(p.getId(), texto);
+				reindexados++;
+			}
+		}
+
+		List<String> eliminados = new ArrayList<>();
+		for (String id : textosIndexados.keySet()) {
+			if (!vigentes.contains(id)) {
+				eliminados.add(id);
+			}
+		}
+		for (String id : eliminados) {
+			writer.deleteDocuments(new Term(CAMPO_ID, id));
+			textosIndexados.remove(id);
+		}
+
+		if (reindexados > 0 || !eliminados.isEmpty()) {
+			writer.setLiveCommitData(Map.of(CLAVE_FORMATO, FORMATO).entrySet());
+			writer.commit();
+			searcherManager.maybeRefresh();
+		}
+		ultimaActualizacion = System.currentTimeMillis();
+		ultimosReindexados = reindexados;
+		ultimosEliminados = eliminados.size();
+		ultimoError = null;
+		listo = true;
+		logger.info("Índice de productos actualizado: {} reindexados, {} eliminados", reindexados, eliminados.size());
+	}
+
+	/**
+	 * Página (empezando en 1) de los ids de los productos que coinciden con la
+	 * descripción y cumplen el resto de criterios, de más a menos relevante.
+	 *
+	 * @param withTotal si es false getTotal() es null
+	 */
+	public Results<String> buscar(ProductoCriteria criteria, int page, int size, boolean withTotal)
+			throws IOException {
+		Results<String> results = new Results<>();
+		List<String> ids = new ArrayList<>();
+		results.setPage(ids);
+		Query query = crearQuery(criteria);
+		if (query == null) {
+			if (withTotal) {
+				results.setTotal(0);
+			}
+			return results;
+		}
+		IndexSearcher searcher = searcherManager.acquire();
+		try {
+			long desde = (long) (page - 1) * size;
+			int documentos = searcher.getIndexReader().numDocs();
+			TopDocs topDocs = null;
+			if (desde < documentos) {
+				topDocs = searcher.search(query, (int) Math.min(desde + size, documentos));
+				StoredFields storedFields = searcher.storedFields();
+				for (int i = (int) desde; i < topDocs.scoreDocs.length; i++) {
+					ids.add(storedFields.document(topDocs.scoreDocs[i].doc, Set.of(CAMPO_ID)).get(CAMPO_ID));
+				}
+			}
+			if (withTotal) {
+				// totalHits es exacto salvo que Lucene haya dejado de contar al
+				// pasar de su umbral; entonces se cuenta aparte
+				if (topDocs != null && topDocs.totalHits.relation == TotalHits.Relation.EQUAL_TO) {
+					results.setTotal((int) topDocs.totalHits.value);
+				} else {
+					results.setTotal(searcher.count(query));
+				}
+			}
+			return results;
+		} finally {
+			searcherManager.release(searcher);
+		}
+	}
+
+	private Query crearQuery(ProductoCriteria criteria) throws IOException {
+		Query texto = crearQuery(criteria.getDescripcion());
+		if (texto == null) {
+			return null;
+		}
+		BooleanQuery.Builder query = new BooleanQuery.Builder();
+		query.add(texto, Occur.MUST);
+		if (criteria.getArtigo() != null) {
+			query.add(new TermQuery(new Term(CAMPO_ID, criteria.getArtigo())), Occur.FILTER);
+		}
+		if (criteria.getPvp3Min() != null || criteria.getPvp3Max() != null) {
+			query.add(rango(CAMPO_PRECIO, criteria.getPvp3Min(), criteria.getPvp3Max()), Occur.FILTER);
+		}
+		if (criteria.getStockMin() != null || criteria.getStockMax() != null) {
+			query.add(rango(CAMPO_STOCK, criteria.getStockMin(), criteria.getStockMax()), Occur.FILTER);
+		}
+		if (criteria.getFamiliaNombre() != null) {
+			query.add(new TermQuery(new Term(CAMPO_FAMILIA_EXACTA, criteria.getFamiliaNombre().toLowerCase(Locale.ROOT))),
+					Occur.FILTER);
+		}
+		return query.build();
+	}
+
+	private static Query rango(String campo, Double min, Double max) {
+		return DoublePoint.newRangeQuery(campo, min != null ? min : Double.NEGATIVE_INFINITY,
+				max != null ? max : Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * Todas las palabras deben aparecer en la descripción o la familia, de
+	 * forma exacta, como prefijo o con alguna errata. Un id exacto también
+	 * coincide.
+	 */
+	private Query crearQuery(String texto) throws IOException {
+		List<String> terminos = analizar(texto);
+		if (terminos.isEmpty()) {
+			return null;
+		}
+		BooleanQuery.Builder palabras = new BooleanQuery.Builder();
+		for (String termino : terminos) {
+			BooleanQuery.Builder palabra = new BooleanQuery.Builder();
+			palabra.add(new BoostQuery(new TermQuery(new Term(CAMPO_DESCRIPCION, termino)), 3f), Occur.SHOULD);
+			palabra.add(new BoostQuery(new PrefixQuery(new Term(CAMPO_DESCRIPCION, termino)), 2f), Occur.SHOULD);
+			if (termino.length() >= 4) {
+				palabra.add(new FuzzyQuery(new Term(CAMPO_DESCRIPCION, termino), termino.length() >= 8 ? 2 : 1),
+						Occur.SHOULD);
+			}
+			palabra.add(new BoostQuery(new TermQuery(new Term(CAMPO_FAMILIA, termino)), 1.5f), Occur.SHOULD);
+			palabras.add(palabra.build(), Occur.MUST);
+		}
+
+		BooleanQuery.Builder query = new BooleanQuery.Builder();
+		query.add(palabras.build(), Occur.SHOULD);
+		query.add(new BoostQuery(new TermQuery(new Term(CAMPO_ID, texto.trim())), 10f), Occur.SHOULD);
+		return query.build();
+	}
+
+	private List<String> analizar(String texto) throws IOException {
+		List<String> terminos = new ArrayList<>();
+		try (TokenStream ts = analyzer.tokenStream(CAMPO_DESCRIPCION, new StringReader(texto))) {
+			CharTermAttribute term = ts.addAttribute(CharTermAttribute.class);
+			ts.reset();
+			while (ts.incrementToken()) {
+				terminos.add(term.toString());
+			}
+			ts.end();
+		}
+		return terminos;
+	}
+
+	private static Document documento(ProductoDTO p) {
+		Document doc = new Document();
+		doc.add(new StringField(CAMPO_ID, p.getId(), Field.Store.YES));
+		doc.add(new TextField(CAMPO_DESCRIPCION, nulo(p.getNombre()), Field.Store.YES));
+		doc.add(new TextField(CAMPO_FAMILIA, nulo(p.getFamiliaNombre()), Field.Store.YES));
+		if (p.getFamiliaNombre() != null) {
+			doc.add(new StringField(CAMPO_FAMILIA_EXACTA, p.getFamiliaNombre().toLowerCase(Locale.ROOT),
+					Field.Store.NO));
+		}
+		if (p.getPrecio() != null) {
+			doc.add(new DoublePoint(CAMPO_PRECIO, p.getPrecio()));
+			doc.add(new StoredField(CAMPO_PRECIO, p.getPrecio()));
+		}
+		if (p.getStockDisponible() != null) {
+			doc.add(new DoublePoint(CAMPO_STOCK, p.getStockDisponible()));
+			doc.add(new StoredField(CAMPO_STOCK, p.getStockDisponible()));
+		}
+		doc.add(new StoredField(CAMPO_DESTAQUES, Boolean.TRUE.equals(p.getDestaques()) ? 1 : 0));
+		return doc;
+	}
+
+	private static Double doble(Document doc, String campo) {
+		IndexableField field = doc.getField(campo);
+		return field != null ? field.numericValue().doubleValue() : null;
+	}
+
+	private static String texto(ProductoDTO p) {
+		return texto(p.getNombre(), p.getFamiliaNombre(), p.getPrecio(), p.getStockDisponible(),
+				Boolean.TRUE.equals(p.getDestaques()));
+	}
+
+	private static String texto(Document doc) {
+		IndexableField destaques = doc.getField(CAMPO_DESTAQUES);
+		return texto(doc.get(CAMPO_DESCRIPCION), doc.get(CAMPO_FAMILIA), doble(doc, CAMPO_PRECIO),
+				doble(doc, CAMPO_STOCK), destaques != null && destaques.numericValue().intValue() == 1);
+	}
+
+	private static String texto(String descripcion, String familia, Double precio, Double stock, boolean destaques) {
+		return nulo(descripcion) + '\u0001' + nulo(familia) + '\u0001' + precio + '\u0001' + stock + '\u0001'
+				+ destaques;
+	}
+
+	private static String nulo(String valor) {
+		return valor != null ? valor : "";
+	}
+
+	/**
+	 * Reconstruye en memoria el texto indexado de cada producto a partir de los
+	 * campos guardados en el índice.
+	 */
+	private Map<String, String> leerTextosIndexados() throws IOException {
+		Map<String, String> textos = new HashMap<>();
+		try (DirectoryReader reader = DirectoryReader.open(writer)) {
+			for (LeafReaderContext contexto : reader.leaves()) {
+				LeafReader leaf = contexto.reader();
+				Bits vivos = leaf.getLiveDocs();
+				StoredFields storedFields = leaf.storedFields();
+				for (int i = 0; i < leaf.maxDoc(); i++) {
+					if (vivos != null && !vivos.get(i)) {
+						continue;
+					}
+					Document doc = storedFields.document(i);
+					textos.put(doc.get(CAMPO_ID), texto(doc));
+				}
+			}
+		}
+		return textos;
+	}
+
+	public void close() {
+		try {
+			searcherManager.close();
+			writer.close();
+			directorio.close();
+		} catch (IOException e) {
+			logger.warn("Error al cerrar el índice de productos: {}", e.getMessage());
+		}
+	}
+
+	public Map<String, Object> getEstado() {
+		Map<String, Object> estado = new LinkedHashMap<>();
+		estado.put("listo", listo);
+		estado.put("productos", textosIndexados.size());
+		estado.put("ultimaActualizacion", ultimaActualizacion);
+		estado.put("ultimosReindexados", ultimosReindexados);
+		estado.put("ultimosEliminados", ultimosEliminados);
+		if (ultimoError != null) {
+			estado.put("ultimoError", ultimoError);
+		}
+		return estado;
+	}
+}
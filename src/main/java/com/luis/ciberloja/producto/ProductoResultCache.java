@@ -0,0 +1,140 @@
+package com.luis.ciberloja.producto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.luis.ciberloja.JsonProvider;
+import com.luis.ciberloja.catalogo.CatalogoDiff;
+import com.luis.ciberloja.catalogo.CatalogoListener;
+import com.luis.ciberloja.catalogo.CatalogoService;
+import com.luis.ciberloja.catalogo.CatalogoSnapshot;
+import com.luis.ciberloja.catalogo.CatalogoSyncListener;
+import com.luis.ciberloja.catalogo.CatalogoSyncResultado;
+import com.luis.ciberloja.catalogo.CatalogoSyncService;
+import com.luis.ciberloja.model.ProductoCriteria;
+import com.luis.ciberloja.model.ProductoDTO;
+import com.luis.ciberloja.model.Results;
+import com.luis.ciberloja.util.ConfigUtils;
+import com.luis.ciberloja.util.LruCache;
+
+/**
+ * Resultados de las búsquedas de productos por número de página, por criterios
+ * normalizados, página y tamaño, ya serializados a JSON: lo guardado no se
+ * puede modificar desde fuera. Acotada por número de entradas (LRU) y vaciada
+ * cada vez que la sincronización del catálogo escribe productos en BD o, si
+ * está desactivada, cada vez que un nuevo snapshot del catálogo trae cambios,
+ * sin guardar resultados leídos antes de una invalidación que ha terminado
+ * mientras se leían. El TTL es sólo una red de seguridad para cambios hechos
+ * fuera de la API.
+ */
+public class ProductoResultCache implements CatalogoSyncListener, CatalogoListener {
+
+	private static Logger logger = LogManager.getLogger(ProductoResultCache.class);
+
+	private static final int DEFAULT_MAX_ENTRIES = 500;
+
+	private static final int DEFAULT_TTL_SECONDS = 600;
+
+	private static ProductoResultCache instance = null;
+
+	/**
+	 * Página de resultados lista para enviar.
+	 */
+	public static final class Pagina {
+		private final byte[] json;
+		private final boolean vacia;
+
+		private Pagina(byte[] json, boolean vacia) {
+			this.json = json;
+			this.vacia = vacia;
+		}
+
+		public byte[] getJson() {
+			return json;
+		}
+
+		public boolean isVacia() {
+			return vacia;
+		}
+	}
+
+	private final LruCache<String, Pagina> resultados;
+
+	// Cambia con cada invalidación, como en PedidoClienteCache
+	private final AtomicLong generacion = new AtomicLong();
+
+	ProductoResultCache(int maxEntradas, int ttlSeconds) {
+		this.resultados = new LruCache<>(maxEntradas, ttlSeconds * 1000L);
+	}
+
+	public static synchronized ProductoResultCache getInstance() {
+		if (instance == null) {
+			instance = new ProductoResultCache(ConfigUtils.getInt("producto.cache.max.entries", DEFAULT_MAX_ENTRIES),
+					ConfigUtils.getInt("producto.cache.ttl.seconds", DEFAULT_TTL_SECONDS));
+			CatalogoSyncService sync = CatalogoSyncService.getInstance();
+			if (sync.isActivada()) {
+				// Se vacía después de que la sincronización escriba en BD
+				sync.addListener(instance);
+			} else {
+				CatalogoService.getInstance().addListener(instance);
+			}
+		}
+		return instance;
+	}
+
+	public Pagina get(ProductoCriteria criteria, int page, int size, boolean withTotal) {
+		return resultados.get(clave(criteria, page, size, withTotal));
+	}
+
+	/**
+	 * Valor a pasar a put() tomado antes de buscar.
+	 */
+	public long getGeneracion() {
+		return generacion.get();
+	}
+
+	/**
+	 * Serializa y guarda los resultados, salvo que haya habido una
+	 * invalidación desde que se empezaron a leer.
+	 */
+	public Pagina put(ProductoCriteria criteria, int page, int size, boolean withTotal, Results<ProductoDTO> results,
+			long generacionLeida) {
+		Pagina pagina = new Pagina(JsonProvider.getJsonb().toJson(results).getBytes(StandardCharsets.UTF_8),
+				results.getPage() == null || results.getPage().isEmpty());
+		if (generacion.get() == generacionLeida) {
+			resultados.put(clave(criteria, page, size, withTotal), pagina);
+		}
+		return pagina;
+	}
+
+	public void invalidar() {
+		generacion.incrementAndGet();
+		resultados.clear();
+	}
+
+	@Override
+	public void onProductosSincronizados(CatalogoSyncResultado resultado) {
+		logger.debug("Productos sincronizados, se vacía la caché de resultados");
+		invalidar();
+	}
+
+	@Override
+	public void onCatalogoActualizado(CatalogoSnapshot anterior, CatalogoSnapshot nuevo) {
+		if (anterior != null && !CatalogoDiff.calcular(anterior, nuevo).isVacio()) {
+			logger.debug("Nuevo snapshot del catálogo con cambios, se vacía la caché de resultados");
+			invalidar();
+		}
+	}
+
+	private static String clave(ProductoCriteria criteria, int page, int size, boolean withTotal) {
+		return ProductoCriteriaClave.calcular(criteria) + "page=" + page + "|size=" + size + "|total=" + withTotal;
+	}
+
+	public Map<String, Object> getEstado() {
+		return resultados.getEstado();
+	}
+}
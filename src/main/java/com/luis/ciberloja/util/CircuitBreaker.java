@@ -0,0 +1,114 @@
+package com.luis.ciberloja.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Circuit breaker para dependencias remotas. Tras un número de fallos
+ * consecutivos se abre y rechaza las llamadas sin intentarlas; pasado el tiempo
+ * de apertura deja pasar una única llamada de prueba (semiabierto) que decide
+ * si se vuelve a cerrar o a abrir.
+ */
+public class CircuitBreaker {
+
+	public enum Estado {
+		CERRADO, ABIERTO, SEMIABIERTO
+	}
+
+	private static Logger logger = LogManager.getLogger(CircuitBreaker.class);
+
+	private final String nombre;
+	private final int umbralFallos;
+	private final long aperturaMillis;
+
+	private Estado estado = Estado.CERRADO;
+	private int fallosConsecutivos = 0;
+	private long abiertoDesde = 0L;
+	private boolean pruebaEnCurso = false;
+
+	private final AtomicLong llamadasRechazadas = new AtomicLong();
+	private final AtomicLong aperturas = new AtomicLong();
+
+	public CircuitBreaker(String nombre, int umbralFallos, long aperturaMillis) {
+		this.nombre = nombre;
+		this.umbralFallos = Math.max(1, umbralFallos);
+		this.aperturaMillis = aperturaMillis;
+	}
+
+	/**
+	 * Indica si se puede intentar la llamada. Con el circuito abierto sólo se
+	 * permite una llamada de prueba cuando ha pasado el tiempo de apertura.
+	 */
+	public synchronized boolean permitirLlamada() {
+		switch (estado) {
+		case CERRADO:
+			return true;
+		case ABIERTO:
+			if (System.currentTimeMillis() - abiertoDesde >= aperturaMillis) {
+				estado = Estado.SEMIABIERTO;
+				pruebaEnCurso = true;
+				logger.info("Circuito {} semiabierto, probando la dependencia", nombre);
+				return true;
+			}
+			break;
+		case SEMIABIERTO:
+			if (!pruebaEnCurso) {
+				pruebaEnCurso = true;
+				return true;
+			}
+			break;
+		}
+		llamadasRechazadas.incrementAndGet();
+		return false;
+	}
+
+	public synchronized void registrarExito() {
+		if (estado != Estado.CERRADO) {
+			logger.info("Circuito {} cerrado", nombre);
+		}
+		estado = Estado.CERRADO;
+		fallosConsecutivos = 0;
+		pruebaEnCurso = false;
+	}
+
+	public synchronized void registrarFallo() {
+		fallosConsecutivos++;
+		pruebaEnCurso = false;
+		if (estado == Estado.SEMIABIERTO || fallosConsecutivos >= umbralFallos) {
+			if (estado != Estado.ABIERTO) {
+				aperturas.incrementAndGet();
+				logger.warn("Circuito {} abierto tras {} fallos consecutivos", nombre, fallosConsecutivos);
+			}
+			estado = Estado.ABIERTO;
+			abiertoDesde = System.currentTimeMillis();
+		}
+	}
+
+	public synchronized Estado getEstado() {
+		return estado;
+	}
+
+	/**
+	 * Segundos que faltan para permitir la siguiente llamada de prueba.
+	 */
+	public synchronized long getSegundosHastaPrueba() {
+		if (estado != Estado.ABIERTO) {
+			return 0L;
+		}
+		long restante = aperturaMillis - (System.currentTimeMillis() - abiertoDesde);
+		return Math.max(0L, (restante + 999) / 1000);
+	}
+
+	public synchronized Map<String, Object> getEstadisticas() {
+		Map<String, Object> estadisticas = new LinkedHashMap<>();
+		estadisticas.put("estado", estado.name());
+		estadisticas.put("fallosConsecutivos", fallosConsecutivos);
+		estadisticas.put("aperturas", aperturas.get());
+		estadisticas.put("llamadasRechazadas", llamadasRechazadas.get());
+		return estadisticas;
+	}
+}
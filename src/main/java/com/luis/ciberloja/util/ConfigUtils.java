@@ -0,0 +1,75 @@
+package com.luis.ciberloja.util;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.luis.ciberloja.conf.ConfigurationParametersManager;
+
+/**
+ * Lectura de parámetros opcionales de ciberloja-cfg.properties con valor por
+ * defecto cuando no están definidos o no son válidos.
+ */
+public class ConfigUtils {
+
+	private static Logger logger = LogManager.getLogger(ConfigUtils.class);
+
+	private ConfigUtils() {
+	}
+
+	public static String getString(String name, String defaultValue) {
+		try {
+			String value = ConfigurationParametersManager.getParameterValue(name);
+			if (value == null || value.trim().isEmpty()) {
+				return defaultValue;
+			}
+			return value.trim();
+		} catch (RuntimeException e) {
+			logger.warn("Parámetro {} no disponible, usando valor por defecto {}", name, defaultValue);
+			return defaultValue;
+		}
+	}
+
+	public static int getInt(String name, int defaultValue) {
+		String value = getString(name, null);
+		if (value == null) {
+			return defaultValue;
+		}
+		try {
+			return Integer.parseInt(value);
+		} catch (NumberFormatException e) {
+			logger.warn("Valor inválido para {}: {}, usando {}", name, value, defaultValue);
+			return defaultValue;
+		}
+	}
+
+	public static long getLong(String name, long defaultValue) {
+		String value = getString(name, null);
+		if (value == null) {
+			return defaultValue;
+		}
+		try {
+			return Long.parseLong(value);
+		} catch (NumberFormatException e) {
+			logger.warn("Valor inválido para {}: {}, usando {}", name, value, defaultValue);
+			return defaultValue;
+		}
+	}
+
+	public static double getDouble(String name, double defaultValue) {
+		String value = getString(name, null);
+		if (value == null) {
+			return defaultValue;
+		}
+		try {
+			return Double.parseDouble(value);
+		} catch (NumberFormatException e) {
+			logger.warn("Valor inválido para {}: {}, usando {}", name, value, defaultValue);
+			return defaultValue;
+		}
+	}
+
+	public static boolean getBoolean(String name, boolean defaultValue) {
+		String value = getString(name, null);
+		return value == null ? defaultValue : Boolean.parseBoolean(value);
+	}
+}
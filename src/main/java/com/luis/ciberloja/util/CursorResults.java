@@ -0,0 +1,41 @@
+package com.luis.ciberloja.util;
+
+import java.util.List;
+
+/**
+ * Página de resultados paginada por cursor. siguiente es null cuando no hay
+ * más resultados, y total cuando no se ha pedido.
+ */
+public class CursorResults<T> {
+
+	private List<T> page = null;
+	private String siguiente = null;
+	private Integer total = null;
+
+	public CursorResults() {
+	}
+
+	public List<T> getPage() {
+		return page;
+	}
+
+	public void setPage(List<T> page) {
+		this.page = page;
+	}
+
+	public String getSiguiente() {
+		return siguiente;
+	}
+
+	public void setSiguiente(String siguiente) {
+		this.siguiente = siguiente;
+	}
+
+	public Integer getTotal() {
+		return total;
+	}
+
+	public void setTotal(Integer total) {
+		this.total = total;
+	}
+}
@@ -0,0 +1,41 @@
+package com.luis.ciberloja.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Cursores opacos para la paginación por clave. Guardan la clave de
+ * ordenación (el id) del último elemento devuelto.
+ */
+public class CursorUtils {
+
+	private static final String VERSION = "1:";
+
+	private CursorUtils() {
+	}
+
+	public static String codificar(String ultimoId) {
+		return Base64.getUrlEncoder().withoutPadding()
+				.encodeToString((VERSION + ultimoId).getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * @return el id tras el que continuar, o null para la primera página
+	 * @throws IllegalArgumentException si el cursor no es válido
+	 */
+	public static String decodificar(String cursor) {
+		if (cursor == null || cursor.trim().isEmpty()) {
+			return null;
+		}
+		String valor;
+		try {
+			valor = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Cursor de paginación inválido: " + cursor);
+		}
+		if (!valor.startsWith(VERSION) || valor.length() == VERSION.length()) {
+			throw new IllegalArgumentException("Cursor de paginación inválido: " + cursor);
+		}
+		return valor.substring(VERSION.length());
+	}
+}
@@ -0,0 +1,53 @@
+package com.luis.ciberloja.util;
+
+import java.lang.reflect.Type;
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Date;
+import java.util.Locale;
+
+import jakarta.json.bind.JsonbException;
+import jakarta.json.bind.serializer.DeserializationContext;
+import jakarta.json.bind.serializer.JsonbDeserializer;
+import jakarta.json.stream.JsonParser;
+
+/**
+ * Lectura de fechas (java.util.Date) en los cuerpos JSON con JSON-B. Se acepta
+ * todo lo que acepta JSON-B (ISO-8601 con o sin desplazamiento; sin él se toma
+ * UTC) y además el formato por defecto de Gson (Mar 1, 2025, 10:15:30 AM), que
+ * es el que leía el antiguo PedidoReader. Solo afecta a la lectura: la
+ * escritura sigue siendo la de JSON-B por defecto.
+ */
+public class FechaDeserializer implements JsonbDeserializer<Date> {
+
+	private static final DateTimeFormatter FORMATO = DateTimeFormatter.ISO_DATE_TIME.withZone(ZoneId.of("UTC"));
+
+	@Override
+	public Date deserialize(JsonParser parser, DeserializationContext ctx, Type rtType) {
+		return parsear(parser.getString());
+	}
+
+	/**
+	 * @throws JsonbException si el texto no está en ninguno de los formatos
+	 *                        aceptados.
+	 */
+	public static Date parsear(String valor) {
+		try {
+			return Date.from(ZonedDateTime.parse(valor, FORMATO).toInstant());
+		} catch (DateTimeParseException e) {
+			// Como Gson: en inglés de EE. UU. y, si no, en el idioma de la JVM
+			for (Locale locale : new Locale[] { Locale.US, Locale.getDefault() }) {
+				try {
+					return DateFormat.getDateTimeInstance(DateFormat.DEFAULT, DateFormat.DEFAULT, locale).parse(valor);
+				} catch (ParseException pe) {
+					// Siguiente formato
+				}
+			}
+			throw new JsonbException("Fecha no válida: " + valor, e);
+		}
+	}
+}
@@ -0,0 +1,159 @@
+package com.luis.ciberloja.util;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.luis.ciberloja.DataException;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Conexiones JDBC para los accesos a BD propios de la API REST (sincronización
+ * de catálogo, inserciones masivas...), con la misma configuración db.* que el
+ * middleware. Salen de un pool HikariCP que se crea en el primer uso y se
+ * cierra al parar la aplicación.
+ */
+public class JDBCUtils {
+
+	private static Logger logger = LogManager.getLogger(JDBCUtils.class);
+
+	private static final int DEFAULT_POOL_SIZE = 10;
+	private static final long DEFAULT_CONNECTION_TIMEOUT_MILLIS = 10_000L;
+
+	private static HikariDataSource dataSource = null;
+
+	private JDBCUtils() {
+	}
+
+	public static Connection getConnection() throws DataException {
+		try {
+			return getDataSource().getConnection();
+		} catch (SQLException e) {
+			logger.error("Error al obtener una conexión a BD: {}", e.getMessage(), e);
+			throw new DataException("Error al obtener una conexión a BD", e);
+		}
+	}
+
+	/**
+	 * Columnas de la lista que no existen en la tabla según los metadatos de la
+	 * conexión, como tabla.columna. Sirve para comprobar, antes de usarlo, el
+	 * esquema de tablas cuyo mapeo es del middleware.
+	 */
+	public static List<String> getColumnasQueFaltan(Connection c, String tabla, List<String> columnas)
+			throws SQLException {
+		Set<String> existentes = new HashSet<>();
+		DatabaseMetaData metaData = c.getMetaData();
+		try (ResultSet rs = metaData.getColumns(c.getCatalog(), null, tabla, null)) {
+			while (rs.next()) {
+				existentes.add(rs.getString("COLUMN_NAME").toLowerCase(Locale.ROOT));
+			}
+		}
+		List<String> faltan = new ArrayList<>();
+		for (String columna : columnas) {
+			if (!existentes.contains(columna)) {
+				faltan.add(tabla + "." + columna);
+			}
+		}
+		return faltan;
+	}
+
+	/**
+	 * Columnas NOT NULL de la tabla, sin valor por defecto y que no se generan
+	 * solas (autoincrementales o calculadas), que no están en la lista. Un
+	 * INSERT que sólo dé valor a las columnas de la lista falla si hay alguna.
+	 */
+	public static List<String> getColumnasObligatorias(Connection c, String tabla, List<String> conValor)
+			throws SQLException {
+		List<String> obligatorias = new ArrayList<>();
+		DatabaseMetaData metaData = c.getMetaData();
+		try (ResultSet rs = metaData.getColumns(c.getCatalog(), null, tabla, null)) {
+			while (rs.next()) {
+				String columna = rs.getString("COLUMN_NAME").toLowerCase(Locale.ROOT);
+				if (!conValor.contains(columna) && "NO".equals(rs.getString("IS_NULLABLE"))
+						&& rs.getString("COLUMN_DEF") == null && !"YES".equals(rs.getString("IS_AUTOINCREMENT"))
+						&& !"YES".equals(rs.getString("IS_GENERATEDCOLUMN"))) {
+					obligatorias.add(tabla + "." + columna);
+				}
+			}
+		}
+		return obligatorias;
+	}
+
+	/**
+	 * Si la tabla tiene algún índice que empiece por la columna, según los
+	 * metadatos de la conexión.
+	 */
+	public static boolean isIndexada(Connection c, String tabla, String columna) throws SQLException {
+		DatabaseMetaData metaData = c.getMetaData();
+		try (ResultSet rs = metaData.getIndexInfo(c.getCatalog(), null, tabla, false, true)) {
+			while (rs.next()) {
+				if (rs.getShort("ORDINAL_POSITION") == 1 && columna.equalsIgnoreCase(rs.getString("COLUMN_NAME"))) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Patrón para un LIKE ... ESCAPE '!' que busca el texto en cualquier
+	 * posición, con %, _ y ! del texto tomados literalmente.
+	 */
+	public static String contienePatron(String texto) {
+		return "%" + texto.replace("!", "!!").replace("%", "!%").replace("_", "!_") + "%";
+	}
+
+	public static void rollback(Connection c) {
+		if (c == null) {
+			return;
+		}
+		try {
+			c.rollback();
+		} catch (SQLException e) {
+			logger.error("Error al hacer rollback: {}", e.getMessage(), e);
+		}
+	}
+
+	public static synchronized void close() {
+		if (dataSource != null) {
+			dataSource.close();
+			dataSource = null;
+		}
+	}
+
+	private static synchronized HikariDataSource getDataSource() {
+		if (dataSource == null) {
+			HikariConfig config = new HikariConfig();
+			config.setPoolName("ciberloja-rest");
+			config.setJdbcUrl(ConfigUtils.getString("db.url", null));
+			config.setUsername(ConfigUtils.getString("db.user", null));
+			config.setPassword(ConfigUtils.getString("db.password", null));
+			String driver = ConfigUtils.getString("db.driver", null);
+			if (driver != null) {
+				config.setDriverClassName(driver);
+			}
+			config.setMaximumPoolSize(ConfigUtils.getInt("db.pool.max.size", DEFAULT_POOL_SIZE));
+			config.setConnectionTimeout(
+					ConfigUtils.getLong("db.pool.connection.timeout.millis", DEFAULT_CONNECTION_TIMEOUT_MILLIS));
+			// Propiedad del driver de MySQL: sin ella los batches se envían
+			// sentencia a sentencia. Se puede desactivar con db.rewrite.batched=false
+			if (ConfigUtils.getBoolean("db.rewrite.batched", true)) {
+				config.addDataSourceProperty("rewriteBatchedStatements", "true");
+			}
+			dataSource = new HikariDataSource(config);
+			logger.info("Pool de conexiones {} creado con un máximo de {} conexiones", config.getPoolName(),
+					config.getMaximumPoolSize());
+		}
+		return dataSource;
+	}
+}
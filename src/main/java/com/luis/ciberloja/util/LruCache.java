@@ -0,0 +1,99 @@
+package com.luis.ciberloja.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiPredicate;
+
+/**
+ * Caché LRU acotada por número de entradas, con contadores de aciertos,
+ * fallos y expulsiones. Las entradas pueden caducar además tras un TTL (0 para
+ * no caducar nunca).
+ */
+public class LruCache<K, V> {
+
+	private static final class Entrada<V> {
+		private final V valor;
+		private final long guardadaEn;
+
+		private Entrada(V valor, long guardadaEn) {
+			this.valor = valor;
+			this.guardadaEn = guardadaEn;
+		}
+	}
+
+	private final int maxEntradas;
+	private final long ttlMillis;
+	private final LinkedHashMap<K, Entrada<V>> entradas;
+
+	private long aciertos = 0;
+	private long fallos = 0;
+	private long expulsiones = 0;
+	private long invalidaciones = 0;
+
+	public LruCache(int maxEntradas, long ttlMillis) {
+		this.maxEntradas = maxEntradas;
+		this.ttlMillis = ttlMillis;
+		this.entradas = new LinkedHashMap<K, Entrada<V>>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<K, Entrada<V>> eldest) {
+				if (size() > LruCache.this.maxEntradas) {
+					expulsiones++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	public synchronized V get(K clave) {
+		Entrada<V> entrada = entradas.get(clave);
+		if (entrada == null) {
+			fallos++;
+			return null;
+		}
+		if (ttlMillis > 0 && System.currentTimeMillis() - entrada.guardadaEn > ttlMillis) {
+			entradas.remove(clave);
+			fallos++;
+			return null;
+		}
+		aciertos++;
+		return entrada.valor;
+	}
+
+	public synchronized void put(K clave, V valor) {
+		entradas.put(clave, new Entrada<>(valor, System.currentTimeMillis()));
+	}
+
+	public synchronized void remove(K clave) {
+		entradas.remove(clave);
+	}
+
+	/**
+	 * Elimina las entradas que cumplen la condición.
+	 *
+	 * @return número de entradas eliminadas
+	 */
+	public synchronized int removeIf(BiPredicate<K, V> condicion) {
+		int antes = entradas.size();
+		entradas.entrySet().removeIf(e -> condicion.test(e.getKey(), e.getValue().valor));
+		return antes - entradas.size();
+	}
+
+	public synchronized void clear() {
+		entradas.clear();
+		invalidaciones++;
+	}
+
+	public synchronized Map<String, Object> getEstado() {
+		Map<String, Object> estado = new LinkedHashMap<>();
+		estado.put("entradas", entradas.size());
+		estado.put("maxEntradas", maxEntradas);
+		estado.put("aciertos", aciertos);
+		estado.put("fallos", fallos);
+		estado.put("expulsiones", expulsiones);
+		estado.put("invalidaciones", invalidaciones);
+		return estado;
+	}
+}
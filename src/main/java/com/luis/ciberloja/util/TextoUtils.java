@@ -0,0 +1,46 @@
+package com.luis.ciberloja.util;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Normalización de textos para búsquedas que no distinguen mayúsculas ni
+ * acentos.
+ */
+public class TextoUtils {
+
+	private static final Pattern MARCAS = Pattern.compile("\\p{M}+");
+
+	private static final Pattern SEPARADORES = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+	private TextoUtils() {
+	}
+
+	/**
+	 * Texto en minúsculas y sin acentos ("Évora" → "evora").
+	 */
+	public static String normalizar(String texto) {
+		if (texto == null) {
+			return "";
+		}
+		return MARCAS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("")
+				.toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * Palabras del texto normalizado, separadas por cualquier carácter que no
+	 * sea letra ni dígito.
+	 */
+	public static List<String> palabras(String texto) {
+		List<String> palabras = new ArrayList<>();
+		for (String palabra : SEPARADORES.split(normalizar(texto))) {
+			if (!palabra.isEmpty()) {
+				palabras.add(palabra);
+			}
+		}
+		return palabras;
+	}
+}
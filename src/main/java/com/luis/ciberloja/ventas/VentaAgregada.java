@@ -0,0 +1,75 @@
+package com.luis.ciberloja.ventas;
+
+/**
+ * Fila de un informe de ventas. Sólo se rellena la clave por la que se ha
+ * agrupado (fecha, tipoEstadoPedidoId, tipoEntregaId o productoId).
+ */
+public class VentaAgregada {
+
+	private String fecha = null;
+	private Integer tipoEstadoPedidoId = null;
+	private Integer tipoEntregaId = null;
+	private String productoId = null;
+	private long pedidos = 0L;
+	private Long unidades = null;
+	private double importe = 0d;
+
+	public VentaAgregada() {
+	}
+
+	public String getFecha() {
+		return fecha;
+	}
+
+	public void setFecha(String fecha) {
+		this.fecha = fecha;
+	}
+
+	public Integer getTipoEstadoPedidoId() {
+		return tipoEstadoPedidoId;
+	}
+
+	public void setTipoEstadoPedidoId(Integer tipoEstadoPedidoId) {
+		this.tipoEstadoPedidoId = tipoEstadoPedidoId;
+	}
+
+	public Integer getTipoEntregaId() {
+		return tipoEntregaId;
+	}
+
+	public void setTipoEntregaId(Integer tipoEntregaId) {
+		this.tipoEntregaId = tipoEntregaId;
+	}
+
+	public String getProductoId() {
+		return productoId;
+	}
+
+	public void setProductoId(String productoId) {
+		this.productoId = productoId;
+	}
+
+	public long getPedidos() {
+		return pedidos;
+	}
+
+	public void setPedidos(long pedidos) {
+		this.pedidos = pedidos;
+	}
+
+	public Long getUnidades() {
+		return unidades;
+	}
+
+	public void setUnidades(Long unidades) {
+		this.unidades = unidades;
+	}
+
+	public double getImporte() {
+		return importe;
+	}
+
+	public void setImporte(double importe) {
+		this.importe = importe;
+	}
+}
@@ -0,0 +1,386 @@
+package com.luis.ciberloja.ventas;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.luis.ciberloja.DataException;
+import com.luis.ciberloja.util.JDBCUtils;
+
+/**
+ * Tablas de ventas agregadas por día: venta_diaria (por estado y tipo de
+ * entrega) y venta_producto_diaria (por producto). Los pedidos sin estado o
+ * sin tipo de entrega se agregan con id 0.
+ *
+ * El día de cada pedido lo calcula siempre MySQL (DATE(fecha_realizacion)),
+ * tanto al sumar y restar pedidos como al recalcular, para que todos los
+ * caminos coincidan.
+ */
+public class VentasDAO {
+
+	private static Logger logger = LogManager.getLogger(VentasDAO.class);
+
+	/**
+	 * Columna de venta_diaria por la que agrupar un informe.
+	 */
+	public enum Agrupacion {
+		DIA("fecha"), ESTADO("tipo_estado_pedido_id"), ENTREGA("tipo_entrega_id");
+
+		private final String columna;
+
+		Agrupacion(String columna) {
+			this.columna = columna;
+		}
+	}
+
+	private static final String SELECT_VACIA = "SELECT 1 FROM venta_diaria LIMIT 1";
+
+	private static final String SELECT_DIARIA = "SELECT DATE(p.fecha_realizacion),"
+			+ " COALESCE(p.tipo_estado_pedido_id, 0), COALESCE(p.tipo_entrega_id, 0), COUNT(*),"
+			+ " COALESCE(SUM(p.precio), 0) FROM pedido p";
+
+	private static final String GROUP_DIARIA = " GROUP BY DATE(p.fecha_realizacion),"
+			+ " COALESCE(p.tipo_estado_pedido_id, 0), COALESCE(p.tipo_entrega_id, 0)";
+
+	private static final String SELECT_PRODUCTO = "SELECT DATE(p.fecha_realizacion), l.producto_id,"
+			+ " COALESCE(SUM(l.unidades), 0), COALESCE(SUM(l.precio * l.unidades), 0), COUNT(DISTINCT p.id)"
+			+ " FROM pedido p INNER JOIN linea_pedido l ON l.pedido_id = p.id";
+
+	private static final String GROUP_PRODUCTO = " GROUP BY DATE(p.fecha_realizacion), l.producto_id";
+
+	private static final String INSERT_DIARIA = "INSERT INTO venta_diaria (fecha, tipo_estado_pedido_id,"
+			+ " tipo_entrega_id, pedidos, importe) ";
+
+	private static final String INSERT_PRODUCTO = "INSERT INTO venta_producto_diaria (fecha, producto_id, unidades,"
+			+ " importe, pedidos) ";
+
+	private static final String SUMAR_DIARIA = " ON DUPLICATE KEY UPDATE pedidos = pedidos + VALUES(pedidos),"
+			+ " importe = importe + VALUES(importe)";
+
+	private static final String SUMAR_PRODUCTO = " ON DUPLICATE KEY UPDATE unidades = unidades + VALUES(unidades),"
+			+ " importe = importe + VALUES(importe), pedidos = pedidos + VALUES(pedidos)";
+
+	private static final String VALUES_FILA = "VALUES (?, ?, ?, ?, ?)";
+
+	private static final String DELETE_DIARIA_SIN_PEDIDOS = "DELETE FROM venta_diaria WHERE fecha = ? AND pedidos <= 0";
+
+	private static final String DELETE_PRODUCTO_SIN_PEDIDOS = "DELETE FROM venta_producto_diaria"
+			+ " WHERE fecha = ? AND pedidos <= 0";
+
+	private static final String SELECT_FECHA_PEDIDO = "SELECT DATE(fecha_realizacion) FROM pedido WHERE id = ?";
+
+	// Con el índice de V4 los MIN y MAX de pedido se leen del índice; los de las
+	// tablas agregadas, de su clave primaria
+	private static final String SELECT_RANGO = "SELECT MIN(d), MAX(d) FROM ("
+			+ "SELECT DATE(MIN(fecha_realizacion)) d FROM pedido"
+			+ " UNION ALL SELECT DATE(MAX(fecha_realizacion)) FROM pedido"
+			+ " UNION ALL SELECT MIN(fecha) FROM venta_diaria UNION ALL SELECT MAX(fecha) FROM venta_diaria"
+			+ " UNION ALL SELECT MIN(fecha) FROM venta_producto_diaria"
+			+ " UNION ALL SELECT MAX(fecha) FROM venta_producto_diaria) r";
+
+	private static final List<String> COLUMNAS_VENTA_DIARIA = Arrays.asList("fecha", "tipo_estado_pedido_id",
+			"tipo_entrega_id", "pedidos", "importe");
+	private static final List<String> COLUMNAS_VENTA_PRODUCTO = Arrays.asList("fecha", "producto_id", "unidades",
+			"importe", "pedidos");
+	private static final List<String> COLUMNAS_PEDIDO = Arrays.asList("id", "fecha_realizacion", "precio",
+			"tipo_estado_pedido_id", "tipo_entrega_id");
+	private static final List<String> COLUMNAS_LINEA = Arrays.asList("pedido_id", "producto_id", "precio",
+			"unidades");
+
+	public VentasDAO() {
+	}
+
+	/**
+	 * Comprueba que existen las tablas agregadas (src/main/sql/V3__ventas.sql) y
+	 * que pedido y linea_pedido tienen las columnas de las que se calculan.
+	 *
+	 * @throws DataException si falta alguna, indicando cuáles
+	 */
+	public void verificarEsquema(Connection c) throws DataException {
+		try {
+			List<String> faltan = new ArrayList<>();
+			faltan.addAll(JDBCUtils.getColumnasQueFaltan(c, "venta_diaria", COLUMNAS_VENTA_DIARIA));
+			faltan.addAll(JDBCUtils.getColumnasQueFaltan(c, "venta_producto_diaria", COLUMNAS_VENTA_PRODUCTO));
+			faltan.addAll(JDBCUtils.getColumnasQueFaltan(c, "pedido", COLUMNAS_PEDIDO));
+			faltan.addAll(JDBCUtils.getColumnasQueFaltan(c, "linea_pedido", COLUMNAS_LINEA));
+			if (!faltan.isEmpty()) {
+				throw new DataException("El esquema de BD no tiene las columnas de las ventas agregadas: " + faltan
+						+ ". Aplique src/main/sql/V3__ventas.sql");
+			}
+		} catch (SQLException e) {
+			logger.error(e.getMessage(), e);
+			throw new DataException("Error al leer los metadatos de la BD", e);
+		}
+	}
+
+	/**
+	 * @return si pedido tiene un índice por fecha_realizacion
+	 *         (src/main/sql/V4__pedido_fecha_realizacion.sql), sin el que cada
+	 *         recálculo recorre la tabla entera
+	 */
+	public boolean isFechaIndexada(Connection c) throws DataException {
+		try {
+			return JDBCUtils.isIndexada(c, "pedido", "fecha_realizacion");
+		} catch (SQLException e) {
+			logger.error(e.getMessage(), e);
+			throw new DataException("Error al leer los índices de pedido", e);
+		}
+	}
+
+	public boolean isVacia(Connection c) throws DataException {
+		try (PreparedStatement stmt = c.prepareStatement(SELECT_VACIA); ResultSet rs = stmt.executeQuery()) {
+			return !rs.next();
+		} catch (SQLException e) {
+			logger.error(e.getMessage(), e);
+			throw new DataException("Error al consultar las tablas de ventas", e);
+		}
+	}
+
+	/**
+	 * Suma a los agregados los pedidos indicados, que deben ser nuevos. Se
+	 * ejecuta en la transacción que los inserta.
+	 */
+	public void sumar(Connection c, Collection<Long> pedidoIds) throws DataException {
+		if (pedidoIds.isEmpty()) {
+			return;
+		}
+		String in = " WHERE p.id IN (" + String.join(", ", Collections.nCopies(pedidoIds.size(), "?")) + ")";
+		try {
+			ejecutar(c, INSERT_DIARIA + SELECT_DIARIA + in + GROUP_DIARIA + SUMAR_DIARIA, pedidoIds);
+			ejecutar(c, INSERT_PRODUCTO + SELECT_PRODUCTO + in + " AND l.producto_id IS NOT NULL" + GROUP_PRODUCTO
+					+ SUMAR_PRODUCTO, pedidoIds);
+		} catch (SQLException e) {
+			logger.error(e.getMessage(), e);
+			throw new DataException("Error al sumar " + pedidoIds.size() + " pedidos a las ventas", e);
+		}
+	}
+
+	/**
+	 * Lo que aporta ahora el pedido a los agregados, con los mismos valores que
+	 * sumaría sumar(), para restarlo con restar() antes de volver a sumarlo.
+	 */
+	public VentasPedido findVentasPedido(Connection c, Long pedidoId) throws DataException {
+		List<Long> parametros = List.of(pedidoId);
+		try {
+			LocalDate fecha = null;
+			VentaAgregada diaria = null;
+			try (PreparedStatement stmt = prepare(c, SELECT_DIARIA + " WHERE p.id = ?" + GROUP_DIARIA, parametros);
+					ResultSet rs = stmt.executeQuery()) {
+				if (rs.next()) {
+					fecha = rs.getDate(1).toLocalDate();
+					diaria = new VentaAgregada();
+					diaria.setFecha(fecha.toString());
+					diaria.setTipoEstadoPedidoId(rs.getInt(2));
+					diaria.setTipoEntregaId(rs.getInt(3));
+					diaria.setPedidos(rs.getLong(4));
+					diaria.setImporte(rs.getDouble(5));
+				}
+			}
+			List<VentaAgregada> productos = new ArrayList<>();
+			if (diaria != null) {
+				try (PreparedStatement stmt = prepare(c,
+						SELECT_PRODUCTO + " WHERE p.id = ? AND l.producto_id IS NOT NULL" + GROUP_PRODUCTO, parametros);
+						ResultSet rs = stmt.executeQuery()) {
+					while (rs.next()) {
+						VentaAgregada v = new VentaAgregada();
+						v.setFecha(fecha.toString());
+						v.setProductoId(rs.getString(2));
+						v.setUnidades(rs.getLong(3));
+						v.setImporte(rs.getDouble(4));
+						v.setPedidos(rs.getLong(5));
+						productos.add(v);
+					}
+				}
+			}
+			return new VentasPedido(pedidoId, fecha, diaria, productos);
+		} catch (SQLException e) {
+			logger.error(e.getMessage(), e);
+			throw new DataException("Error al leer las ventas del pedido " + pedidoId, e);
+		}
+	}
+
+	/**
+	 * Resta de los agregados lo que aportaba un pedido según
+	 * findVentasPedido(), y borra las filas que se quedan sin pedidos.
+	 */
+	public void restar(Connection c, VentasPedido ventas) throws DataException {
+		if (ventas.getDiaria() == null) {
+			return;
+		}
+		Date fecha = Date.valueOf(ventas.getFecha());
+		VentaAgregada diaria = ventas.getDiaria();
+		try {
+			ejecutar(c, INSERT_DIARIA + VALUES_FILA + SUMAR_DIARIA, List.of(fecha, diaria.getTipoEstadoPedidoId(),
+					diaria.getTipoEntregaId(), -diaria.getPedidos(), -diaria.getImporte()));
+			if (!ventas.getProductos().isEmpty()) {
+				try (PreparedStatement stmt = c.prepareStatement(INSERT_PRODUCTO + VALUES_FILA + SUMAR_PRODUCTO)) {
+					for (VentaAgregada v : ventas.getProductos()) {
+						stmt.setDate(1, fecha);
+						stmt.setString(2, v.getProductoId());
+						stmt.setLong(3, -v.getUnidades());
+						stmt.setDouble(4, -v.getImporte());
+						stmt.setLong(5, -v.getPedidos());
+						stmt.addBatch();
+					}
+					stmt.executeBatch();
+				}
+			}
+			ejecutar(c, DELETE_DIARIA_SIN_PEDIDOS, List.of(fecha));
+			ejecutar(c, DELETE_PRODUCTO_SIN_PEDIDOS, List.of(fecha));
+		} catch (SQLException e) {
+			logger.error(e.getMessage(), e);
+			throw new DataException("Error al restar de las ventas el pedido " + ventas.getPedidoId(), e);
+		}
+	}
+
+	/**
+	 * Vuelve a calcular los agregados de los días indicados (ambos incluidos)
+	 * a partir de los pedidos. Para periodos largos conviene ir por partes (ver
+	 * VentasService.recalcular).
+	 */
+	public void recalcular(Connection c, LocalDate desde, LocalDate hasta) throws DataException {
+		String dias = " WHERE fecha BETWEEN ? AND ?";
+		String pedidos = " WHERE p.fecha_realizacion >= ? AND p.fecha_realizacion < ?";
+		List<Object> diasParametros = List.of(Date.valueOf(desde), Date.valueOf(hasta));
+		List<Object> pedidosParametros = List.of(Date.valueOf(desde), Date.valueOf(hasta.plusDays(1)));
+		try {
+			ejecutar(c, "DELETE FROM venta_diaria" + dias, diasParametros);
+			ejecutar(c, "DELETE FROM venta_producto_diaria" + dias, diasParametros);
+			ejecutar(c, INSERT_DIARIA + SELECT_DIARIA + pedidos + GROUP_DIARIA, pedidosParametros);
+			ejecutar(c, INSERT_PRODUCTO + SELECT_PRODUCTO + pedidos + " AND l.producto_id IS NOT NULL"
+					+ GROUP_PRODUCTO, pedidosParametros);
+		} catch (SQLException e) {
+			logger.error(e.getMessage(), e);
+			throw new DataException("Error al recalcular las ventas", e);
+		}
+	}
+
+	/**
+	 * Primer y último día con pedidos o con ventas agregadas, para recalcular
+	 * todo por partes.
+	 *
+	 * @return null si no hay ninguno
+	 */
+	public LocalDate[] findRangoFechas(Connection c) throws DataException {
+		try (PreparedStatement stmt = c.prepareStatement(SELECT_RANGO); ResultSet rs = stmt.executeQuery()) {
+			if (!rs.next() || rs.getDate(1) == null) {
+				return null;
+			}
+			return new LocalDate[] { rs.getDate(1).toLocalDate(), rs.getDate(2).toLocalDate() };
+		} catch (SQLException e) {
+			logger.error(e.getMessage(), e);
+			throw new DataException("Error al consultar el rango de fechas de los pedidos", e);
+		}
+	}
+
+	/**
+	 * @return el día del pedido, o null si no existe
+	 */
+	public LocalDate findFechaPedido(Connection c, Long pedidoId) throws DataException {
+		try (PreparedStatement stmt = c.prepareStatement(SELECT_FECHA_PEDIDO)) {
+			stmt.setLong(1, pedidoId);
+			try (ResultSet rs = stmt.executeQuery()) {
+				Date fecha = rs.next() ? rs.getDate(1) : null;
+				return fecha != null ? fecha.toLocalDate() : null;
+			}
+		} catch (SQLException e) {
+			logger.error(e.getMessage(), e);
+			throw new DataException("Error al buscar la fecha del pedido " + pedidoId, e);
+		}
+	}
+
+	public List<VentaAgregada> findBy(Connection c, Agrupacion agrupacion, LocalDate desde, LocalDate hasta,
+			Integer tipoEstadoPedidoId, Integer tipoEntregaId) throws DataException {
+		StringBuilder sql = new StringBuilder("SELECT ").append(agrupacion.columna)
+				.append(", SUM(pedidos), SUM(importe) FROM venta_diaria WHERE fecha BETWEEN ? AND ?");
+		List<Object> parametros = new ArrayList<>(List.of(Date.valueOf(desde), Date.valueOf(hasta)));
+		if (tipoEstadoPedidoId != null) {
+			sql.append(" AND tipo_estado_pedido_id = ?");
+			parametros.add(tipoEstadoPedidoId);
+		}
+		if (tipoEntregaId != null) {
+			sql.append(" AND tipo_entrega_id = ?");
+			parametros.add(tipoEntregaId);
+		}
+		sql.append(" GROUP BY ").append(agrupacion.columna).append(" ORDER BY ").append(agrupacion.columna);
+
+		List<VentaAgregada> ventas = new ArrayList<>();
+		try (PreparedStatement stmt = prepare(c, sql.toString(), parametros); ResultSet rs = stmt.executeQuery()) {
+			while (rs.next()) {
+				VentaAgregada v = new VentaAgregada();
+				switch (agrupacion) {
+				case DIA:
+					v.setFecha(rs.getDate(1).toLocalDate().toString());
+					break;
+				case ESTADO:
+					v.setTipoEstadoPedidoId(rs.getInt(1) != 0 ? rs.getInt(1) : null);
+					break;
+				case ENTREGA:
+					v.setTipoEntregaId(rs.getInt(1) != 0 ? rs.getInt(1) : null);
+					break;
+				}
+				v.setPedidos(rs.getLong(2));
+				v.setImporte(rs.getDouble(3));
+				ventas.add(v);
+			}
+			return ventas;
+		} catch (SQLException e) {
+			logger.error(e.getMessage(), e);
+			throw new DataException("Error al consultar las ventas por " + agrupacion.columna, e);
+		}
+	}
+
+	/**
+	 * @param porUnidades si es true se ordena por unidades vendidas; si no, por
+	 *                    importe
+	 */
+	public List<VentaAgregada> findTopProductos(Connection c, LocalDate desde, LocalDate hasta, boolean porUnidades,
+			int limite) throws DataException {
+		String sql = "SELECT producto_id, SUM(pedidos), SUM(unidades), SUM(importe) FROM venta_producto_diaria"
+				+ " WHERE fecha BETWEEN ? AND ? GROUP BY producto_id ORDER BY "
+				+ (porUnidades ? "SUM(unidades)" : "SUM(importe)") + " DESC, producto_id LIMIT ?";
+		List<VentaAgregada> ventas = new ArrayList<>();
+		try (PreparedStatement stmt = prepare(c, sql, List.of(Date.valueOf(desde), Date.valueOf(hasta), limite));
+				ResultSet rs = stmt.executeQuery()) {
+			while (rs.next()) {
+				VentaAgregada v = new VentaAgregada();
+				v.setProductoId(rs.getString(1));
+				v.setPedidos(rs.getLong(2));
+				v.setUnidades(rs.getLong(3));
+				v.setImporte(rs.getDouble(4));
+				ventas.add(v);
+			}
+			return ventas;
+		} catch (SQLException e) {
+			logger.error(e.getMessage(), e);
+			throw new DataException("Error al consultar las ventas por producto", e);
+		}
+	}
+
+	private static void ejecutar(Connection c, String sql, Collection<?> parametros) throws SQLException {
+		try (PreparedStatement stmt = prepare(c, sql, parametros)) {
+			stmt.executeUpdate();
+		}
+	}
+
+	private static PreparedStatement prepare(Connection c, String sql, Collection<?> parametros)
+			throws SQLException {
+		PreparedStatement stmt = c.prepareStatement(sql);
+		int i = 1;
+		for (Object parametro : parametros) {
+			stmt.setObject(i++, parametro);
+		}
+		return stmt;
+	}
+}
@@ -0,0 +1,71 @@
+package com.luis.ciberloja.ventas;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Lo que aporta un pedido a las ventas agregadas, leído antes de modificarlo o
+ * borrarlo para restarlo después: su fila de venta_diaria y una fila de
+ * venta_producto_diaria por producto, con los mismos valores que suma
+ * VentasDAO.sumar.
+ */
+public class VentasPedido {
+
+	private final Long pedidoId;
+	private final boolean leido;
+	private final LocalDate fecha;
+	private final VentaAgregada diaria;
+	private final List<VentaAgregada> productos;
+
+	VentasPedido(Long pedidoId, LocalDate fecha, VentaAgregada diaria, List<VentaAgregada> productos) {
+		this.pedidoId = pedidoId;
+		this.leido = true;
+		this.fecha = fecha;
+		this.diaria = diaria;
+		this.productos = Collections.unmodifiableList(new ArrayList<>(productos));
+	}
+
+	private VentasPedido(Long pedidoId) {
+		this.pedidoId = pedidoId;
+		this.leido = false;
+		this.fecha = null;
+		this.diaria = null;
+		this.productos = Collections.emptyList();
+	}
+
+	/**
+	 * Ventas de un pedido que no se han podido leer: con ellas no se sabe qué
+	 * restar y pedidoModificado no toca los agregados.
+	 */
+	public static VentasPedido sinLeer(Long pedidoId) {
+		return new VentasPedido(pedidoId);
+	}
+
+	public Long getPedidoId() {
+		return pedidoId;
+	}
+
+	public boolean isLeido() {
+		return leido;
+	}
+
+	/**
+	 * @return el día del pedido, o null si no existía
+	 */
+	public LocalDate getFecha() {
+		return fecha;
+	}
+
+	/**
+	 * @return la fila de venta_diaria, o null si el pedido no existía
+	 */
+	VentaAgregada getDiaria() {
+		return diaria;
+	}
+
+	List<VentaAgregada> getProductos() {
+		return productos;
+	}
+}
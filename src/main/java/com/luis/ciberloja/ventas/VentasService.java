@@ -0,0 +1,309 @@
+package com.luis.ciberloja.ventas;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.luis.ciberloja.DataException;
+import com.luis.ciberloja.util.JDBCUtils;
+
+/**
+ * Informes de ventas servidos desde las tablas agregadas de VentasDAO, que se
+ * mantienen al día con cada alta, modificación o borrado de pedidos:
+ * <ul>
+ * <li>las altas se suman en la misma transacción que inserta los pedidos;</li>
+ * <li>antes de modificar o borrar un pedido se lee lo que aporta
+ * (findVentasPedido) y después se resta y se suma lo que aporta ahora, sin
+ * recalcular días enteros.</li>
+ * </ul>
+ * Sólo se reflejan los cambios hechos a través de esta API: lo que se escriba
+ * directamente en BD o desde otra aplicación del middleware no aparece hasta
+ * recalcular.
+ *
+ * Las tablas se crean con src/main/sql/V3__ventas.sql; si no están, los
+ * informes no están disponibles y las altas no se suman. Si están vacías al
+ * arrancar se calculan a partir de todos los pedidos en segundo plano, mes a
+ * mes. Mientras tanto los informes no están disponibles, y los pedidos que se
+ * crean o modifican se apuntan para recalcular sus días al terminar.
+ */
+public class VentasService {
+
+	private static Logger logger = LogManager.getLogger(VentasService.class);
+
+	private static VentasService instance = null;
+
+	private final VentasDAO ventasDAO;
+
+	private volatile boolean disponible = true;
+
+	// Cálculo inicial en curso, y lo que cambia mientras tanto (protegidos por
+	// pendientesRelleno)
+	private boolean rellenando = false;
+	private final Set<Long> pendientesRelleno = new HashSet<>();
+	private final Set<LocalDate> diasPendientesRelleno = new TreeSet<>();
+
+	VentasService(VentasDAO ventasDAO) {
+		this.ventasDAO = ventasDAO;
+	}
+
+	public static synchronized VentasService getInstance() {
+		if (instance == null) {
+			instance = new VentasService(new VentasDAO());
+			instance.init();
+		}
+		return instance;
+	}
+
+	void init() {
+		boolean vacia;
+		try (Connection c = JDBCUtils.getConnection()) {
+			ventasDAO.verificarEsquema(c);
+			if (!ventasDAO.isFechaIndexada(c)) {
+				logger.warn("pedido no tiene índice por fecha_realizacion: cada recálculo recorrerá la tabla entera."
+						+ " Aplique src/main/sql/V4__pedido_fecha_realizacion.sql");
+			}
+			vacia = ventasDAO.isVacia(c);
+		} catch (SQLException | DataException e) {
+			disponible = false;
+			logger.error("Ventas agregadas no disponibles: {}", e.getMessage(), e);
+			return;
+		}
+		if (vacia) {
+			synchronized (pendientesRelleno) {
+				rellenando = true;
+			}
+			Thread t = new Thread(this::rellenar, "ventas-relleno");
+			t.setDaemon(true);
+			t.start();
+		}
+	}
+
+	/**
+	 * Cálculo inicial de las tablas vacías. Después recalcula los días de los
+	 * pedidos creados o modificados mientras se hacía.
+	 */
+	void rellenar() {
+		long inicio = System.currentTimeMillis();
+		try {
+			recalcular(null, null);
+			logger.info("Ventas agregadas calculadas desde cero en {} ms", System.currentTimeMillis() - inicio);
+		} catch (DataException e) {
+			logger.error("No se han podido calcular las ventas agregadas: {}", e.getMessage(), e);
+		}
+		Set<Long> pedidos;
+		Set<LocalDate> dias;
+		synchronized (pendientesRelleno) {
+			rellenando = false;
+			pedidos = new HashSet<>(pendientesRelleno);
+			dias = new TreeSet<>(diasPendientesRelleno);
+			pendientesRelleno.clear();
+			diasPendientesRelleno.clear();
+		}
+		try {
+			for (Long pedidoId : pedidos) {
+				LocalDate dia = findFechaPedido(pedidoId);
+				if (dia != null) {
+					dias.add(dia);
+				}
+			}
+			for (LocalDate dia : dias) {
+				recalcular(dia, dia);
+			}
+		} catch (DataException e) {
+			logger.error("Ventas de {} días sin recalcular tras el cálculo inicial: {}", dias.size(), e.getMessage(),
+					e);
+		}
+	}
+
+	/**
+	 * @return si los informes se pueden servir: las tablas existen y no se están
+	 *         calculando desde cero
+	 */
+	public boolean isDisponible() {
+		synchronized (pendientesRelleno) {
+			return disponible && !rellenando;
+		}
+	}
+
+	/**
+	 * Apunta los pedidos para después del cálculo inicial si está en curso.
+	 *
+	 * @return si estaba en curso
+	 */
+	private boolean apuntarSiRellenando(Collection<Long> pedidoIds, LocalDate dia) {
+		synchronized (pendientesRelleno) {
+			if (!rellenando) {
+				return false;
+			}
+			pendientesRelleno.addAll(pedidoIds);
+			if (dia != null) {
+				diasPendientesRelleno.add(dia);
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Suma a los agregados pedidos recién insertados, con la conexión de la
+	 * transacción que los inserta.
+	 */
+	public void sumar(Connection c, Collection<Long> pedidoIds) throws DataException {
+		if (!disponible || apuntarSiRellenando(pedidoIds, null)) {
+			return;
+		}
+		ventasDAO.sumar(c, pedidoIds);
+	}
+
+	/**
+	 * Lo que aporta el pedido a los agregados antes de modificarlo o borrarlo,
+	 * para pasarlo después a pedidoModificado().
+	 */
+	public VentasPedido findVentasPedido(Long pedidoId) throws DataException {
+		if (!disponible) {
+			return VentasPedido.sinLeer(pedidoId);
+		}
+		try (Connection c = JDBCUtils.getConnection()) {
+			return ventasDAO.findVentasPedido(c, pedidoId);
+		} catch (SQLException e) {
+			logger.error(e.getMessage(), e);
+			throw new DataException("Error al cerrar la conexión", e);
+		}
+	}
+
+	private LocalDate findFechaPedido(Long pedidoId) throws DataException {
+		if (!disponible) {
+			return null;
+		}
+		try (Connection c = JDBCUtils.getConnection()) {
+			return ventasDAO.findFechaPedido(c, pedidoId);
+		} catch (SQLException e) {
+			logger.error(e.getMessage(), e);
+			throw new DataException("Error al cerrar la conexión", e);
+		}
+	}
+
+	/**
+	 * Actualiza los agregados tras crear, modificar o borrar un pedido: resta lo
+	 * que aportaba antes y suma lo que aporta ahora (nada si se ha borrado).
+	 *
+	 * @param anterior lo que aportaba según findVentasPedido(), o null si el
+	 *                 pedido es nuevo. Si no se pudo leer no se toca nada y el
+	 *                 cambio queda para /ventas/recalcular.
+	 */
+	public void pedidoModificado(Long pedidoId, VentasPedido anterior) throws DataException {
+		if (!disponible
+				|| apuntarSiRellenando(List.of(pedidoId), anterior != null ? anterior.getFecha() : null)) {
+			return;
+		}
+		if (anterior != null && !anterior.isLeido()) {
+			logger.warn("Ventas agregadas sin actualizar tras modificar el pedido {}: no se leyeron las anteriores",
+					pedidoId);
+			return;
+		}
+		Connection c = JDBCUtils.getConnection();
+		try {
+			pedidoModificado(c, pedidoId, anterior);
+		} finally {
+			close(c);
+		}
+	}
+
+	void pedidoModificado(Connection c, Long pedidoId, VentasPedido anterior) throws DataException {
+		try {
+			c.setAutoCommit(false);
+			if (anterior != null) {
+				ventasDAO.restar(c, anterior);
+			}
+			ventasDAO.sumar(c, List.of(pedidoId));
+			c.commit();
+		} catch (SQLException | DataException e) {
+			JDBCUtils.rollback(c);
+			logger.error("Error al actualizar las ventas del pedido {}: {}", pedidoId, e.getMessage(), e);
+			throw e instanceof DataException ? (DataException) e
+					: new DataException("Error al actualizar las ventas del pedido " + pedidoId, e);
+		}
+	}
+
+	/**
+	 * Recalcula los agregados de los días indicados (ambos incluidos), o de
+	 * todos los pedidos si son null. Se va mes a mes, cada uno en su
+	 * transacción, para no bloquear a la vez todas las filas ni mantener una
+	 * transacción durante todo el cálculo.
+	 */
+	public void recalcular(LocalDate desde, LocalDate hasta) throws DataException {
+		Connection c = JDBCUtils.getConnection();
+		try {
+			recalcular(c, desde, hasta);
+		} finally {
+			close(c);
+		}
+	}
+
+	void recalcular(Connection c, LocalDate desde, LocalDate hasta) throws DataException {
+		if (desde == null || hasta == null) {
+			LocalDate[] rango = ventasDAO.findRangoFechas(c);
+			if (rango == null) {
+				logger.info("Ventas recalculadas: no hay pedidos");
+				return;
+			}
+			desde = rango[0];
+			hasta = rango[1];
+		}
+		for (LocalDate mes = desde; !mes.isAfter(hasta); mes = mes.withDayOfMonth(1).plusMonths(1)) {
+			LocalDate finMes = mes.withDayOfMonth(mes.lengthOfMonth());
+			recalcularPeriodo(c, mes, finMes.isBefore(hasta) ? finMes : hasta);
+		}
+		logger.info("Ventas recalculadas: {} - {}", desde, hasta);
+	}
+
+	private void recalcularPeriodo(Connection c, LocalDate desde, LocalDate hasta) throws DataException {
+		try {
+			c.setAutoCommit(false);
+			ventasDAO.recalcular(c, desde, hasta);
+			c.commit();
+		} catch (SQLException | DataException e) {
+			JDBCUtils.rollback(c);
+			logger.error("Error al recalcular las ventas del {} al {}: {}", desde, hasta, e.getMessage(), e);
+			throw e instanceof DataException ? (DataException) e
+					: new DataException("Error al recalcular las ventas del " + desde + " al " + hasta, e);
+		}
+	}
+
+	public List<VentaAgregada> findBy(VentasDAO.Agrupacion agrupacion, LocalDate desde, LocalDate hasta,
+			Integer tipoEstadoPedidoId, Integer tipoEntregaId) throws DataException {
+		try (Connection c = JDBCUtils.getConnection()) {
+			return ventasDAO.findBy(c, agrupacion, desde, hasta, tipoEstadoPedidoId, tipoEntregaId);
+		} catch (SQLException e) {
+			logger.error(e.getMessage(), e);
+			throw new DataException("Error al cerrar la conexión", e);
+		}
+	}
+
+	public List<VentaAgregada> findTopProductos(LocalDate desde, LocalDate hasta, boolean porUnidades, int limite)
+			throws DataException {
+		try (Connection c = JDBCUtils.getConnection()) {
+			return ventasDAO.findTopProductos(c, desde, hasta, porUnidades, limite);
+		} catch (SQLException e) {
+			logger.error(e.getMessage(), e);
+			throw new DataException("Error al cerrar la conexión", e);
+		}
+	}
+
+	private static void close(Connection c) {
+		if (c != null) {
+			try {
+				c.close();
+			} catch (SQLException e) {
+				logger.warn("Error al cerrar la conexión: {}", e.getMessage());
+			}
+		}
+	}
+}
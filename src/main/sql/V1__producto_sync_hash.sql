@@ -0,0 +1,6 @@
+-- Huella de cada artigo escrito en producto por CatalogoSyncService, para que
+-- la sincronizacion incremental sobreviva a un reinicio sin reescribir todo.
+CREATE TABLE IF NOT EXISTS producto_sync_hash (
+	id VARCHAR(50) NOT NULL PRIMARY KEY,
+	hash BIGINT NOT NULL
+);
@@ -0,0 +1,15 @@
+-- Cola de salida de correos de MailOutboxService. Los correos se insertan en
+-- la misma transaccion que el pedido que los provoca.
+CREATE TABLE IF NOT EXISTS mail_outbox (
+	id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+	destinatario VARCHAR(255) NOT NULL,
+	asunto VARCHAR(255) NOT NULL,
+	cuerpo TEXT NOT NULL,
+	estado VARCHAR(10) NOT NULL,
+	intentos INT NOT NULL DEFAULT 0,
+	proximo_intento BIGINT NOT NULL,
+	ultimo_error VARCHAR(500) NULL,
+	fecha_creacion BIGINT NOT NULL,
+	fecha_envio BIGINT NULL,
+	INDEX mail_outbox_pendientes (estado, proximo_intento)
+);
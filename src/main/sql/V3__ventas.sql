@@ -0,0 +1,20 @@
+-- Ventas agregadas por dia que mantiene VentasService. Los pedidos sin estado
+-- o sin tipo de entrega se agregan con id 0. Si estan vacias al arrancar se
+-- calculan en segundo plano a partir de todos los pedidos.
+CREATE TABLE IF NOT EXISTS venta_diaria (
+	fecha DATE NOT NULL,
+	tipo_estado_pedido_id INT NOT NULL,
+	tipo_entrega_id INT NOT NULL,
+	pedidos INT NOT NULL,
+	importe DOUBLE NOT NULL,
+	PRIMARY KEY (fecha, tipo_estado_pedido_id, tipo_entrega_id)
+);
+
+CREATE TABLE IF NOT EXISTS venta_producto_diaria (
+	fecha DATE NOT NULL,
+	producto_id VARCHAR(50) NOT NULL,
+	unidades BIGINT NOT NULL,
+	importe DOUBLE NOT NULL,
+	pedidos INT NOT NULL,
+	PRIMARY KEY (fecha, producto_id)
+);
@@ -0,0 +1,4 @@
+-- Indice por fecha para VentasService: el calculo inicial y /ventas/recalcular
+-- recorren los pedidos mes a mes por fecha_realizacion. Se aplica una vez; si
+-- falta, VentasService lo avisa al arrancar.
+CREATE INDEX pedido_fecha_realizacion ON pedido (fecha_realizacion);
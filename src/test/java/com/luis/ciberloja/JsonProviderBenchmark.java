@@ -0,0 +1,136 @@
+package com.luis.ciberloja;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.glassfish.jersey.jsonb.internal.JsonBindingProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.google.gson.Gson;
+import com.luis.ciberloja.catalogo.CatalogoDatos;
+import com.luis.ciberloja.model.LineaPedido;
+import com.luis.ciberloja.model.Pedido;
+import com.luis.ciberloja.model.ProductoDTO;
+import com.luis.ciberloja.model.Results;
+
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.ext.Providers;
+
+/**
+ * JsonProvider frente a lo que había antes:
+ *
+ * - escritura de una página de productos: el provider JSON-B de Jersey, que
+ * construye el JSON como String y lo pasa a byte[], frente a JsonProvider, que
+ * escribe sobre el stream. La salida es la misma (JsonProviderTest).
+ *
+ * - lectura de un pedido: el antiguo PedidoReader, con un Gson nuevo en cada
+ * petición, frente a JsonProvider.
+ *
+ * La salida se descarta. Con el profiler gc (se añade en main)
+ * gc.alloc.rate.norm da los bytes asignados por petición.
+ *
+ * mvn test-compile y después, con el classpath de test:
+ * java com.luis.ciberloja.JsonProviderBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonProviderBenchmark {
+
+	private static final Annotation[] SIN_ANOTACIONES = new Annotation[0];
+
+	@Param({ "30", "1000" })
+	public int productos;
+
+	private Results<ProductoDTO> pagina;
+	private byte[] pedido;
+	private JsonProvider provider;
+	private JsonBindingProvider jersey;
+
+	@Setup
+	public void setup() {
+		pagina = new Results<>();
+		pagina.setPage(new ArrayList<>(CatalogoDatos.generar(productos, 42L)));
+		pagina.setTotal(productos);
+
+		Pedido p = new Pedido();
+		p.setClienteId(3L);
+		p.setFechaRealizacion(new Date());
+		p.setPrecio(120.0);
+		List<LineaPedido> lineas = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			LineaPedido linea = new LineaPedido();
+			linea.setProductoId("ART-" + i);
+			linea.setUnidades(i + 1);
+			linea.setPrecio(12.0);
+			lineas.add(linea);
+		}
+		p.setLineas(lineas);
+		pedido = new Gson().toJson(p).getBytes(StandardCharsets.UTF_8);
+
+		provider = new JsonProvider();
+		Providers sinResolvers = (Providers) Proxy.newProxyInstance(Providers.class.getClassLoader(),
+				new Class<?>[] { Providers.class }, (proxy, method, args) -> null);
+		jersey = new JsonBindingProvider(sinResolvers);
+	}
+
+	@Benchmark
+	public void escribirJersey() throws IOException {
+		jersey.writeTo(pagina, Results.class, Results.class, SIN_ANOTACIONES, MediaType.APPLICATION_JSON_TYPE, null,
+				OutputStream.nullOutputStream());
+	}
+
+	@Benchmark
+	public void escribirJsonProvider() throws IOException {
+		provider.writeTo(pagina, Results.class, Results.class, SIN_ANOTACIONES, MediaType.APPLICATION_JSON_TYPE,
+				null, OutputStream.nullOutputStream());
+	}
+
+	@Benchmark
+	public Pedido leerPedidoReader() {
+		// Lo que hacía PedidoReader.readFrom
+		Gson gson = new Gson();
+		BufferedReader reader = new BufferedReader(
+				new InputStreamReader(new ByteArrayInputStream(pedido), StandardCharsets.UTF_8));
+		return gson.fromJson(reader, Pedido.class);
+	}
+
+	@Benchmark
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public Object leerJsonProvider() throws IOException {
+		return provider.readFrom((Class) Pedido.class, Pedido.class, SIN_ANOTACIONES, MediaType.APPLICATION_JSON_TYPE,
+				null, new ByteArrayInputStream(pedido));
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(JsonProviderBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class).build()).run();
+	}
+}
@@ -0,0 +1,183 @@
+package com.luis.ciberloja;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.glassfish.jersey.jsonb.internal.JsonBindingProvider;
+import org.junit.Test;
+
+import com.luis.ciberloja.catalogo.CatalogoDatos;
+import com.luis.ciberloja.model.LineaPedido;
+import com.luis.ciberloja.model.Pedido;
+import com.luis.ciberloja.model.ProductoDTO;
+import com.luis.ciberloja.model.Results;
+
+import jakarta.json.bind.annotation.JsonbProperty;
+import jakarta.json.bind.annotation.JsonbTransient;
+import jakarta.json.stream.JsonGenerator;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.NoContentException;
+import jakarta.ws.rs.ext.Providers;
+
+public class JsonProviderTest {
+
+	private static final Annotation[] SIN_ANOTACIONES = new Annotation[0];
+
+	/**
+	 * DTO con lo que JSON-B trata de forma especial y Gson no: una propiedad
+	 * oculta, una renombrada, una calculada sin campo y un campo sin getter.
+	 */
+	public static class Cuenta {
+		private String nombre = "ana";
+		private String password = "secreta";
+		private String email = "ana@ciberloja.pt";
+		private String interno = "sin getter";
+		private Date alta = new Date(1740820530123L);
+
+		public String getNombre() {
+			return nombre;
+		}
+
+		@JsonbTransient
+		public String getPassword() {
+			return password;
+		}
+
+		@JsonbProperty("correo")
+		public String getEmail() {
+			return email;
+		}
+
+		public String getIniciales() {
+			return nombre.substring(0, 1).toUpperCase();
+		}
+
+		public Date getAlta() {
+			return alta;
+		}
+	}
+
+	private static Pedido pedido() {
+		Pedido pedido = new Pedido();
+		pedido.setId(7L);
+		pedido.setClienteId(3L);
+		pedido.setFechaRealizacion(new Date(1740820530000L));
+		pedido.setPrecio(12.5);
+		List<LineaPedido> lineas = new ArrayList<>();
+		LineaPedido linea = new LineaPedido();
+		linea.setProductoId("HDMI-2M");
+		linea.setUnidades(2);
+		linea.setPrecio(6.25);
+		lineas.add(linea);
+		pedido.setLineas(lineas);
+		return pedido;
+	}
+
+	private static String escribir(Object o) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new JsonProvider().writeTo(o, o.getClass(), o.getClass(), SIN_ANOTACIONES, MediaType.APPLICATION_JSON_TYPE,
+				null, out);
+		return out.toString(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Lo que escribía Jersey antes de JsonProvider.
+	 */
+	private static String escribirConJersey(Object o) throws IOException {
+		Providers sinResolvers = (Providers) Proxy.newProxyInstance(Providers.class.getClassLoader(),
+				new Class<?>[] { Providers.class }, (proxy, method, args) -> null);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new JsonBindingProvider(sinResolvers).writeTo(o, o.getClass(), o.getClass(), SIN_ANOTACIONES,
+				MediaType.APPLICATION_JSON_TYPE, null, out);
+		return out.toString(StandardCharsets.UTF_8);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T leer(Class<T> type, String json) throws IOException {
+		return (T) new JsonProvider().readFrom((Class<Object>) type, type, SIN_ANOTACIONES,
+				MediaType.APPLICATION_JSON_TYPE, null, new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	@Test
+	public void escribeLoMismoQueElProviderJsonbDeJersey() throws IOException {
+		Results<ProductoDTO> results = new Results<>();
+		results.setPage(new ArrayList<>(CatalogoDatos.generar(5, 1L)));
+		results.setTotal(5);
+
+		for (Object o : new Object[] { pedido(), new Cuenta(), results, CatalogoDatos.generar(3, 2L) }) {
+			assertEquals(escribirConJersey(o), escribir(o));
+		}
+	}
+
+	@Test
+	public void respetaLasAnotacionesJsonb() throws IOException {
+		String json = escribir(new Cuenta());
+		assertFalse(json.contains("secreta"));
+		assertFalse(json.contains("sin getter"));
+		assertTrue(json.contains("\"correo\":\"ana@ciberloja.pt\""));
+		assertTrue(json.contains("\"iniciales\":\"A\""));
+	}
+
+	@Test
+	public void leeLasFechasDeJsonbYLasDelAntiguoPedidoReader() throws IOException {
+		Pedido pedido = pedido();
+		assertEquals(pedido.getFechaRealizacion(), leer(Pedido.class, escribir(pedido)).getFechaRealizacion());
+
+		String[] fechas = { "2025-03-01T09:15:30Z[UTC]", "2025-03-01T09:15:30Z", "2025-03-01T10:15:30+01:00",
+				"2025-03-01T09:15:30" };
+		for (String fecha : fechas) {
+			Pedido leido = leer(Pedido.class, "{\"id\":7,\"fechaRealizacion\":\"" + fecha + "\"}");
+			assertEquals(fecha, 1740820530000L, leido.getFechaRealizacion().getTime());
+		}
+
+		// Formato por defecto de Gson, en la zona de la JVM como lo escribía
+		String gson = new com.google.gson.Gson().toJson(pedido);
+		Pedido leido = leer(Pedido.class, gson);
+		assertEquals(pedido.getFechaRealizacion(), leido.getFechaRealizacion());
+		assertEquals("HDMI-2M", leido.getLineas().get(0).getProductoId());
+	}
+
+	@Test(expected = NoContentException.class)
+	public void cuerpoVacio() throws IOException {
+		leer(Pedido.class, "");
+	}
+
+	@Test(expected = BadRequestException.class)
+	public void jsonNoValido() throws IOException {
+		leer(Pedido.class, "{\"id\":");
+	}
+
+	@Test(expected = BadRequestException.class)
+	public void fechaNoValida() throws IOException {
+		leer(Pedido.class, "{\"fechaRealizacion\":\"ayer\"}");
+	}
+
+	@Test
+	public void lasRespuestasPreSerializadasSalenComoLasDemas() throws IOException {
+		assertEquals(escribir(new Cuenta()), JsonProvider.getJsonb().toJson(new Cuenta()));
+
+		// Por partes, un elemento cada vez, como los streams
+		List<ProductoDTO> productos = CatalogoDatos.generar(3, 2L);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (JsonGenerator generator = JsonProvider.createGenerator(out)) {
+			generator.writeStartArray();
+			for (ProductoDTO p : productos) {
+				JsonProvider.getJsonb().toJson(p, ProductoDTO.class, generator);
+			}
+			generator.writeEnd();
+		}
+		assertEquals(escribir(productos), out.toString(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,90 @@
+package com.luis.ciberloja.catalogo;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.luis.ciberloja.model.ProductoDTO;
+
+/**
+ * Filtro de /producto/sync-soap (nombre + precio + stock) sobre 50k y 500k
+ * artigos: el recorrido con streams que había antes frente a CatalogoColumnas.
+ * Ambos devuelven la lista de productos que cumplen.
+ *
+ * mvn test-compile y después, con el classpath de test:
+ * java com.luis.ciberloja.catalogo.CatalogoColumnasBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CatalogoColumnasBenchmark {
+
+	@Param({ "50000", "500000" })
+	public int articulos;
+
+	private List<ProductoDTO> productos;
+	private CatalogoColumnas columnas;
+	private CatalogoCriteria criteria;
+
+	private final String nombre = "cabo";
+	private final Double precioMin = 10d;
+	private final Double precioMax = 200d;
+	private final Double stockMin = 1d;
+
+	@Setup
+	public void setup() {
+		productos = CatalogoDatos.generar(articulos, 42L);
+		columnas = new CatalogoColumnas(productos);
+		criteria = new CatalogoCriteria();
+		criteria.setNombre(nombre);
+		criteria.setPrecioMin(precioMin);
+		criteria.setPrecioMax(precioMax);
+		criteria.setStockMin(stockMin);
+		if (stream().size() != columnar().size()) {
+			throw new IllegalStateException("Los dos filtros no coinciden");
+		}
+	}
+
+	@Benchmark
+	public List<ProductoDTO> stream() {
+		return productos.stream()
+				.filter(p -> nombre == null || p.getNombre().toLowerCase().contains(nombre.toLowerCase()))
+				.filter(p -> precioMin == null || p.getPrecio() >= precioMin)
+				.filter(p -> precioMax == null || p.getPrecio() <= precioMax)
+				.filter(p -> stockMin == null || p.getStockDisponible() >= stockMin).collect(Collectors.toList());
+	}
+
+	@Benchmark
+	public List<ProductoDTO> columnar() {
+		BitSet filas = columnas.filtrar(criteria);
+		List<ProductoDTO> resultado = new ArrayList<>(filas.cardinality());
+		for (int i = filas.nextSetBit(0); i >= 0; i = filas.nextSetBit(i + 1)) {
+			resultado.add(productos.get(i));
+		}
+		return resultado;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(CatalogoColumnasBenchmark.class.getSimpleName()).build()).run();
+	}
+}
@@ -0,0 +1,115 @@
+package com.luis.ciberloja.catalogo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+
+import org.junit.Test;
+
+import com.luis.ciberloja.model.ProductoDTO;
+
+public class CatalogoColumnasTest {
+
+	@Test
+	public void filtraIgualQueRecorrerLaLista() {
+		List<ProductoDTO> productos = CatalogoDatos.generar(5_000, 42L);
+		CatalogoColumnas columnas = new CatalogoColumnas(productos);
+
+		CatalogoCriteria criteria = new CatalogoCriteria();
+		criteria.setNombre("CABO");
+		criteria.setPrecioMin(10d);
+		criteria.setPrecioMax(200d);
+		criteria.setStockMin(1d);
+		criteria.setDestaques(false);
+		criteria.setFamilia("redes");
+
+		BitSet esperado = new BitSet();
+		for (int i = 0; i < productos.size(); i++) {
+			ProductoDTO p = productos.get(i);
+			if (p.getNombre().toLowerCase(Locale.ROOT).contains("cabo") && p.getPrecio() >= 10
+					&& p.getPrecio() <= 200 && p.getStockDisponible() >= 1 && !p.getDestaques()
+					&& "Redes".equals(p.getFamiliaNombre())) {
+				esperado.set(i);
+			}
+		}
+		assertTrue(esperado.cardinality() > 0);
+		assertEquals(esperado, columnas.filtrar(criteria));
+	}
+
+	@Test
+	public void filtraEnParaleloIgualQueEnSecuencia() {
+		List<ProductoDTO> productos = CatalogoDatos.generar(CatalogoColumnas.UMBRAL_PARALELO + 1_000, 7L);
+		CatalogoCriteria criteria = new CatalogoCriteria();
+		criteria.setPrecioMax(100d);
+		criteria.setDestaques(true);
+
+		BitSet paralelo = new CatalogoColumnas(productos).filtrar(criteria);
+		BitSet secuencia = new CatalogoColumnas(productos.subList(0, 1_000)).filtrar(criteria);
+		assertEquals(secuencia, paralelo.get(0, 1_000));
+	}
+
+	@Test
+	public void sinPrecioOStockNoCumpleLosRangos() {
+		ProductoDTO sinDatos = new ProductoDTO();
+		sinDatos.setId("A");
+		sinDatos.setNombre("Cabo");
+		ProductoDTO completo = new ProductoDTO();
+		completo.setId("B");
+		completo.setNombre("Cabo");
+		completo.setPrecio(5d);
+		completo.setStockDisponible(1d);
+		CatalogoColumnas columnas = new CatalogoColumnas(new ArrayList<>(Arrays.asList(sinDatos, completo)));
+
+		CatalogoCriteria criteria = new CatalogoCriteria();
+		criteria.setPrecioMin(0d);
+		criteria.setStockMin(0d);
+		assertEquals(BitSet.valueOf(new long[] { 0b10 }), columnas.filtrar(criteria));
+
+		criteria = new CatalogoCriteria();
+		criteria.setFamilia("No existe");
+		assertTrue(columnas.filtrar(criteria).isEmpty());
+	}
+
+	@Test
+	public void destaquesNullNoCumpleNiTrueNiFalse() {
+		List<ProductoDTO> productos = new ArrayList<>();
+		for (Boolean destaques : new Boolean[] { null, true, false }) {
+			ProductoDTO p = new ProductoDTO();
+			p.setNombre("Cabo");
+			p.setDestaques(destaques);
+			productos.add(p);
+		}
+		CatalogoColumnas columnas = new CatalogoColumnas(productos);
+
+		CatalogoCriteria criteria = new CatalogoCriteria();
+		criteria.setDestaques(true);
+		assertEquals(BitSet.valueOf(new long[] { 0b010 }), columnas.filtrar(criteria));
+		criteria.setDestaques(false);
+		assertEquals(BitSet.valueOf(new long[] { 0b100 }), columnas.filtrar(criteria));
+	}
+
+	@Test
+	public void filtraPorIdConElRestoDeCriterios() {
+		List<ProductoDTO> productos = CatalogoDatos.generar(200, 3L);
+		CatalogoColumnas columnas = new CatalogoColumnas(productos);
+		ProductoDTO p = productos.get(130);
+
+		CatalogoCriteria criteria = new CatalogoCriteria();
+		criteria.setId(p.getId());
+		BitSet esperado = new BitSet();
+		esperado.set(130);
+		assertEquals(esperado, columnas.filtrar(criteria));
+
+		criteria.setPrecioMin(p.getPrecio() + 1);
+		assertTrue(columnas.filtrar(criteria).isEmpty());
+
+		criteria = new CatalogoCriteria();
+		criteria.setId("NO-EXISTE");
+		assertTrue(columnas.filtrar(criteria).isEmpty());
+	}
+}
@@ -0,0 +1,61 @@
+package com.luis.ciberloja.catalogo;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.luis.ciberloja.model.ProductoDTO;
+
+/**
+ * Catálogos sintéticos y reproducibles para tests y benchmarks.
+ */
+public class CatalogoDatos {
+
+	private static final String[] PALABRAS = { "cabo", "hdmi", "usb", "rato", "teclado", "monitor", "portátil",
+			"impressora", "tinteiro", "disco", "ssd", "memória", "router", "switch", "webcam", "coluna" };
+
+	private static final String[] FAMILIAS = { "Informática", "Imagem e Som", "Redes", "Consumíveis", "Acessórios" };
+
+	private CatalogoDatos() {
+	}
+
+	public static List<ProductoDTO> generar(int articulos, long semilla) {
+		Random random = new Random(semilla);
+		List<ProductoDTO> productos = new ArrayList<>(articulos);
+		for (int i = 0; i < articulos; i++) {
+			ProductoDTO p = new ProductoDTO();
+			p.setId(String.format("ART%07d", i));
+			p.setNombre(PALABRAS[random.nextInt(PALABRAS.length)] + " " + PALABRAS[random.nextInt(PALABRAS.length)]
+					+ " " + i);
+			p.setPrecio(Math.round(random.nextDouble() * 50000) / 100d);
+			p.setStockDisponible((double) random.nextInt(100));
+			p.setDestaques(random.nextInt(10) == 0);
+			p.setFamiliaNombre(FAMILIAS[random.nextInt(FAMILIAS.length)]);
+			productos.add(p);
+		}
+		return productos;
+	}
+
+	/**
+	 * Respuesta de GetArtigosCiberlojaSite con los productos, con la forma de
+	 * DataSet que supone SoapStreamFuente por defecto.
+	 */
+	public static byte[] respuestaSoap(List<ProductoDTO> productos) {
+		StringBuilder xml = new StringBuilder(productos.size() * 200);
+		xml.append("<?xml version=\"1.0\" encoding=\"utf-8\"?>")
+				.append("<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\"><soap:Body>")
+				.append("<GetArtigosCiberlojaSiteResponse xmlns=\"http://tempuri.org/\">")
+				.append("<GetArtigosCiberlojaSiteResult><diffgram><NewDataSet>");
+		for (ProductoDTO p : productos) {
+			xml.append("<Table><Artigo>").append(p.getId()).append("</Artigo><Descricao>").append(p.getNombre())
+					.append("</Descricao><PVP3>").append(p.getPrecio()).append("</PVP3><Stock>")
+					.append(p.getStockDisponible()).append("</Stock><Destaques>")
+					.append(Boolean.TRUE.equals(p.getDestaques()) ? "true" : "false").append("</Destaques><Familia>")
+					.append(p.getFamiliaNombre()).append("</Familia></Table>");
+		}
+		xml.append("</NewDataSet></diffgram></GetArtigosCiberlojaSiteResult>")
+				.append("</GetArtigosCiberlojaSiteResponse></soap:Body></soap:Envelope>");
+		return xml.toString().getBytes(StandardCharsets.UTF_8);
+	}
+}
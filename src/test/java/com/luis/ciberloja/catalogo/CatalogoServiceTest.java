@@ -0,0 +1,125 @@
+package com.luis.ciberloja.catalogo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.luis.ciberloja.model.ProductoDTO;
+import com.luis.ciberloja.service.ServiceException;
+import com.luis.ciberloja.util.CircuitBreaker;
+
+public class CatalogoServiceTest {
+
+	private static final long APERTURA_MILLIS = 300L;
+
+	private CatalogoService service;
+
+	@After
+	public void tearDown() {
+		if (service != null) {
+			service.stop();
+		}
+	}
+
+	@Test
+	public void semiabiertoDejaPasarUnaPruebaYSigueSirviendoElUltimoCatalogo() throws Exception {
+		FuenteSimulada erp = new FuenteSimulada(CatalogoDatos.generar(100, 1L), 600L);
+		CircuitBreaker breaker = new CircuitBreaker("test", 2, APERTURA_MILLIS);
+		service = new CatalogoService(erp, 300, 600, 200L, 2, 0.5, breaker);
+
+		CatalogoSnapshot bueno = service.refrescar();
+		assertEquals(100, bueno.getProductos().size());
+
+		erp.setModo(FuenteSimulada.Modo.FALLO);
+		refrescarConError(ServiceException.class);
+		refrescarConError(ServiceException.class);
+		assertEquals(CircuitBreaker.Estado.ABIERTO, breaker.getEstado());
+		assertEquals(3, erp.getLlamadas());
+
+		// Abierto: no se llama al ERP y se sigue sirviendo el catálogo anterior
+		refrescarConError(CatalogoNoDisponibleException.class);
+		assertEquals(3, erp.getLlamadas());
+		assertSame(bueno, service.getSnapshot());
+
+		// La prueba tarda más que el timeout: vuelve a abrirse
+		Thread.sleep(APERTURA_MILLIS + 50L);
+		erp.setModo(FuenteSimulada.Modo.LENTO);
+		long inicio = System.currentTimeMillis();
+		refrescarConError(ServiceException.class);
+		assertTrue(System.currentTimeMillis() - inicio < 500L);
+		assertEquals(CircuitBreaker.Estado.ABIERTO, breaker.getEstado());
+		assertEquals(4, erp.getLlamadas());
+		refrescarConError(CatalogoNoDisponibleException.class);
+		assertEquals(4, erp.getLlamadas());
+
+		// Una prueba correcta cierra el circuito
+		Thread.sleep(APERTURA_MILLIS + 50L);
+		erp.setModo(FuenteSimulada.Modo.OK);
+		CatalogoSnapshot nuevo = service.refrescar();
+		assertEquals(CircuitBreaker.Estado.CERRADO, breaker.getEstado());
+		assertEquals(5, erp.getLlamadas());
+		assertSame(nuevo, service.getSnapshot());
+	}
+
+	@Test
+	public void lasLlamadasQueIgnoranElTimeoutNoAcumulanHilos() throws Exception {
+		FuenteSimulada erp = new FuenteSimulada(CatalogoDatos.generar(10, 1L), 1_000L);
+		erp.setModo(FuenteSimulada.Modo.LENTO);
+		service = new CatalogoService(erp, 300, 600, 50L, 2, 0.5, new CircuitBreaker("test", 100, 60_000L));
+
+		for (int i = 0; i < 6; i++) {
+			refrescarConError(ServiceException.class);
+		}
+		// Las dos primeras siguen bloqueadas; el resto se rechaza sin crear hilos
+		assertEquals(2, erp.getLlamadas());
+		assertEquals(2, service.getEstado().get("llamadasSoapEnCurso"));
+		assertTrue(contarHilosSoap() <= 2);
+	}
+
+	@Test
+	public void noSePublicaUnaDescargaVaciaOMenguada() throws Exception {
+		List<ProductoDTO> catalogo = CatalogoDatos.generar(100, 1L);
+		FuenteSimulada erp = new FuenteSimulada(catalogo, 0L);
+		service = new CatalogoService(erp, 300, 600, 1_000L, 2, 0.5, new CircuitBreaker("test", 100, 60_000L));
+		CatalogoSnapshot bueno = service.refrescar();
+
+		erp.setProductos(Collections.emptyList());
+		refrescarConError(ServiceException.class);
+		assertSame(bueno, service.getSnapshot());
+
+		erp.setProductos(catalogo.subList(0, 49));
+		refrescarConError(ServiceException.class);
+		assertSame(bueno, service.getSnapshot());
+		assertEquals(2L, service.getEstado().get("refrescosFallidos"));
+
+		// Hasta la mitad del catálogo anterior se acepta
+		erp.setProductos(catalogo.subList(0, 50));
+		assertEquals(50, service.refrescar().getProductos().size());
+	}
+
+	private void refrescarConError(Class<? extends ServiceException> esperada) {
+		try {
+			service.refrescar();
+			fail("Se esperaba " + esperada.getSimpleName());
+		} catch (ServiceException e) {
+			assertEquals(esperada, e.getClass());
+		}
+	}
+
+	private static int contarHilosSoap() {
+		int hilos = 0;
+		for (Thread t : Thread.getAllStackTraces().keySet()) {
+			if ("catalogo-soap".equals(t.getName()) && t.isAlive()) {
+				hilos++;
+			}
+		}
+		return hilos;
+	}
+}
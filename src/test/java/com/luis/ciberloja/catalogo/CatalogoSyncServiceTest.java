@@ -0,0 +1,35 @@
+package com.luis.ciberloja.catalogo;
+
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+public class CatalogoSyncServiceTest {
+
+	@Test
+	public void permiteRetirarHastaElMaximo() throws Exception {
+		CatalogoSyncService.comprobarRetirados(0, 0, 0.1);
+		CatalogoSyncService.comprobarRetirados(0, 1000, 0.1);
+		CatalogoSyncService.comprobarRetirados(100, 1000, 0.1);
+	}
+
+	@Test
+	public void rechazaRetirarMasDelMaximo() {
+		try {
+			CatalogoSyncService.comprobarRetirados(101, 1000, 0.1);
+			fail("Debería rechazar retirar el 10,1% del catálogo");
+		} catch (CatalogoSyncRechazadoException e) {
+			// esperado
+		}
+	}
+
+	@Test
+	public void rechazaRetirarTodoElCatalogo() {
+		try {
+			CatalogoSyncService.comprobarRetirados(1000, 1000, 0.1);
+			fail("Debería rechazar retirar todo el catálogo");
+		} catch (CatalogoSyncRechazadoException e) {
+			// esperado
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package com.luis.ciberloja.catalogo;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import com.luis.ciberloja.model.ProductoDTO;
+
+/**
+ * ERP simulado para los tests: responde bien, falla o tarda más que el
+ * timeout. En modo lento no atiende la interrupción, como un cliente SOAP
+ * bloqueado en el socket.
+ */
+public class FuenteSimulada implements CatalogoFuente {
+
+	public enum Modo {
+		OK, FALLO, LENTO
+	}
+
+	private volatile List<ProductoDTO> productos;
+	private final long latenciaLentoMillis;
+	private volatile Modo modo = Modo.OK;
+	private final AtomicInteger llamadas = new AtomicInteger();
+
+	public FuenteSimulada(List<ProductoDTO> productos, long latenciaLentoMillis) {
+		this.productos = productos;
+		this.latenciaLentoMillis = latenciaLentoMillis;
+	}
+
+	public void setProductos(List<ProductoDTO> productos) {
+		this.productos = productos;
+	}
+
+	public void setModo(Modo modo) {
+		this.modo = modo;
+	}
+
+	public int getLlamadas() {
+		return llamadas.get();
+	}
+
+	@Override
+	public int leerArtigos(Consumer<ProductoDTO> consumidor) throws Exception {
+		llamadas.incrementAndGet();
+		switch (modo) {
+		case FALLO:
+			throw new IOException("Respuesta HTTP 500 del servicio SOAP");
+		case LENTO:
+			long fin = System.currentTimeMillis() + latenciaLentoMillis;
+			while (System.currentTimeMillis() < fin) {
+				try {
+					Thread.sleep(Math.max(1L, fin - System.currentTimeMillis()));
+				} catch (InterruptedException e) {
+					// Se ignora a propósito
+				}
+			}
+			break;
+		default:
+			break;
+		}
+		List<ProductoDTO> respuesta = productos;
+		respuesta.forEach(consumidor);
+		return respuesta.size();
+	}
+
+	@Override
+	public String getNombre() {
+		return "simulada";
+	}
+}
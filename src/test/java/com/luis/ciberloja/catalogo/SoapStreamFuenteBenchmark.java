@@ -0,0 +1,123 @@
+package com.luis.ciberloja.catalogo;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import com.luis.ciberloja.model.ProductoDTO;
+
+/**
+ * Carga de un catálogo desde la respuesta SOAP hasta el snapshot publicado:
+ * SoapStreamFuente alimentando CatalogoSnapshot.Carga frente a un análisis DOM
+ * del sobre completo seguido de la lista y el snapshot, que es lo que hace un
+ * cliente que materializa la respuesta. El cliente del middleware no está en
+ * este proyecto, así que el DOM es una aproximación a él.
+ *
+ * Con el profiler gc (se añade en main) gc.alloc.rate.norm da los bytes
+ * asignados por carga.
+ *
+ * mvn test-compile y después, con el classpath de test:
+ * java com.luis.ciberloja.catalogo.SoapStreamFuenteBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = { "-Xmx2g" })
+public class SoapStreamFuenteBenchmark {
+
+	@Param({ "10000", "100000" })
+	public int articulos;
+
+	private byte[] respuesta;
+	private SoapStreamFuente fuente;
+	private DocumentBuilderFactory documentBuilderFactory;
+
+	@Setup
+	public void setup() throws Exception {
+		respuesta = CatalogoDatos.respuestaSoap(CatalogoDatos.generar(articulos, 42L));
+		fuente = new SoapStreamFuente("http://localhost/website.asmx", new SoapStreamFuente.Contrato(), "e", "u",
+				"p", 1000);
+		documentBuilderFactory = DocumentBuilderFactory.newInstance();
+		documentBuilderFactory.setNamespaceAware(true);
+		if (stax().getProductos().size() != articulos || dom().getProductos().size() != articulos) {
+			throw new IllegalStateException("Las dos cargas no leen todos los artigos");
+		}
+	}
+
+	@Benchmark
+	public CatalogoSnapshot stax() throws Exception {
+		CatalogoSnapshot.Carga carga = new CatalogoSnapshot.Carga(1024);
+		fuente.parsear(new ByteArrayInputStream(respuesta), carga);
+		return carga.crearSnapshot(0L, 0L);
+	}
+
+	@Benchmark
+	public CatalogoSnapshot dom() throws Exception {
+		DocumentBuilder builder = documentBuilderFactory.newDocumentBuilder();
+		Document document = builder.parse(new ByteArrayInputStream(respuesta));
+		NodeList tablas = document.getElementsByTagNameNS("*", "Table");
+		List<ProductoDTO> productos = new ArrayList<>();
+		for (int i = 0; i < tablas.getLength(); i++) {
+			Element tabla = (Element) tablas.item(i);
+			ProductoDTO p = new ProductoDTO();
+			for (Node campo = tabla.getFirstChild(); campo != null; campo = campo.getNextSibling()) {
+				String valor = campo.getTextContent();
+				switch (campo.getLocalName()) {
+				case "Artigo":
+					p.setId(valor);
+					break;
+				case "Descricao":
+					p.setNombre(valor);
+					break;
+				case "PVP3":
+					p.setPrecio(Double.valueOf(valor));
+					break;
+				case "Stock":
+					p.setStockDisponible(Double.valueOf(valor));
+					break;
+				case "Destaques":
+					p.setDestaques(Boolean.valueOf(valor));
+					break;
+				case "Familia":
+					p.setFamiliaNombre(valor);
+					break;
+				default:
+					break;
+				}
+			}
+			productos.add(p);
+		}
+		return new CatalogoSnapshot(productos, 0L, 0L);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(SoapStreamFuenteBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class).build()).run();
+	}
+}
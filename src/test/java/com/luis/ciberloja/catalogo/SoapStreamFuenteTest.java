@@ -0,0 +1,86 @@
+package com.luis.ciberloja.catalogo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.luis.ciberloja.model.ProductoDTO;
+
+public class SoapStreamFuenteTest {
+
+	private static SoapStreamFuente fuente(SoapStreamFuente.Contrato contrato) {
+		return new SoapStreamFuente("http://localhost/website.asmx?WSDL", contrato, "e", "u", "p", 1000);
+	}
+
+	private static List<ProductoDTO> parsear(SoapStreamFuente fuente, byte[] xml) throws Exception {
+		List<ProductoDTO> leidos = new ArrayList<>();
+		int n = fuente.parsear(new ByteArrayInputStream(xml), leidos::add);
+		assertEquals(leidos.size(), n);
+		return leidos;
+	}
+
+	@Test
+	public void leeLosMismosProductosQueSeEnvian() throws Exception {
+		List<ProductoDTO> catalogo = CatalogoDatos.generar(500, 7L);
+		List<ProductoDTO> leidos = parsear(fuente(new SoapStreamFuente.Contrato()),
+				CatalogoDatos.respuestaSoap(catalogo));
+
+		assertEquals(catalogo.size(), leidos.size());
+		for (int i = 0; i < catalogo.size(); i++) {
+			ProductoDTO esperado = catalogo.get(i);
+			ProductoDTO leido = leidos.get(i);
+			assertEquals(esperado.getId(), leido.getId());
+			assertEquals(esperado.getNombre(), leido.getNombre());
+			assertEquals(esperado.getPrecio(), leido.getPrecio());
+			assertEquals(esperado.getStockDisponible(), leido.getStockDisponible());
+			assertEquals(esperado.getDestaques(), leido.getDestaques());
+			assertEquals(esperado.getFamiliaNombre(), leido.getFamiliaNombre());
+		}
+	}
+
+	@Test
+	public void soloSonVerdaderosLosValoresDelContrato() throws Exception {
+		byte[] xml = ("<r><a><artigo>1</artigo><destaques>s</destaques></a>"
+				+ "<a><artigo>2</artigo><destaques>1</destaques></a></r>").getBytes(StandardCharsets.UTF_8);
+
+		List<ProductoDTO> leidos = parsear(fuente(new SoapStreamFuente.Contrato()), xml);
+		assertFalse(leidos.get(0).getDestaques());
+		assertTrue(leidos.get(1).getDestaques());
+	}
+
+	@Test
+	public void usaLosNombresDeCampoConfigurados() throws Exception {
+		SoapStreamFuente.Contrato contrato = new SoapStreamFuente.Contrato();
+		contrato.campoId = "codigo";
+		contrato.campoPrecio = "preco";
+		byte[] xml = "<r><a><Codigo>X1</Codigo><Preco>9,5</Preco><Artigo>no</Artigo></a></r>"
+				.getBytes(StandardCharsets.UTF_8);
+
+		List<ProductoDTO> leidos = parsear(fuente(contrato), xml);
+		assertEquals(1, leidos.size());
+		assertEquals("X1", leidos.get(0).getId());
+		assertEquals(Double.valueOf(9.5), leidos.get(0).getPrecio());
+	}
+
+	@Test
+	public void unSoapFaultEsUnError() throws Exception {
+		byte[] xml = ("<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\"><soap:Body>"
+				+ "<soap:Fault><faultcode>soap:Server</faultcode><faultstring>Login inválido</faultstring>"
+				+ "</soap:Fault></soap:Body></soap:Envelope>").getBytes(StandardCharsets.UTF_8);
+		try {
+			parsear(fuente(new SoapStreamFuente.Contrato()), xml);
+			fail("Se esperaba IOException");
+		} catch (IOException e) {
+			assertTrue(e.getMessage().contains("Login inválido"));
+		}
+	}
+}
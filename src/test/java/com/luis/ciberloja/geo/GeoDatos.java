@@ -0,0 +1,74 @@
+package com.luis.ciberloja.geo;
+
+import java.util.List;
+
+import com.luis.ciberloja.model.Concelho;
+import com.luis.ciberloja.model.Distrito;
+import com.luis.ciberloja.model.Freguesia;
+import com.luis.ciberloja.model.Pais;
+
+/**
+ * Datos geográficos pequeños para tests: tres distritos con sus concelhos y
+ * freguesias, con nombres acentuados, compuestos y repetidos entre niveles.
+ */
+public class GeoDatos {
+
+	private GeoDatos() {
+	}
+
+	public static List<Pais> paises() {
+		return List.of(pais(1, "Portugal"));
+	}
+
+	public static List<Distrito> distritos() {
+		return List.of(distrito(1, "Aveiro"), distrito(2, "Porto"), distrito(3, "Lisboa"), distrito(4, "Faro"));
+	}
+
+	public static List<Concelho> concelhos() {
+		return List.of(concelho(10, "São João da Madeira", 1), concelho(11, "Santa Maria da Feira", 1),
+				concelho(20, "Porto", 2), concelho(21, "Vila Nova de Gaia", 2), concelho(30, "Lisboa", 3),
+				concelho(31, "Oeiras", 3));
+	}
+
+	public static List<Freguesia> freguesias() {
+		return List.of(freguesia(100, "São João da Madeira", 10), freguesia(110, "Santa Maria de Lamas", 11),
+				freguesia(200, "Paranhos", 20), freguesia(201, "Aeroporto", 20), freguesia(210, "Vila do Porto", 21),
+				freguesia(300, "Santa Maria Maior", 30), freguesia(301, "Alcântara", 30),
+				freguesia(310, "Porto Salvo", 31));
+	}
+
+	public static GeoSnapshot snapshot() {
+		return new GeoSnapshot(paises(), distritos(), concelhos(), freguesias(), 0L);
+	}
+
+	private static Pais pais(int id, String nombre) {
+		Pais p = new Pais();
+		p.setId(id);
+		p.setNombre(nombre);
+		return p;
+	}
+
+	private static Distrito distrito(int id, String nombre) {
+		Distrito d = new Distrito();
+		d.setId(id);
+		d.setNombre(nombre);
+		d.setPaisId(1);
+		return d;
+	}
+
+	private static Concelho concelho(int id, String nombre, int distritoId) {
+		Concelho c = new Concelho();
+		c.setId(id);
+		c.setNombre(nombre);
+		c.setDistritoId(distritoId);
+		return c;
+	}
+
+	private static Freguesia freguesia(int id, String nombre, int concelhoId) {
+		Freguesia f = new Freguesia();
+		f.setId(id);
+		f.setNombre(nombre);
+		f.setConcelhoId(concelhoId);
+		return f;
+	}
+}
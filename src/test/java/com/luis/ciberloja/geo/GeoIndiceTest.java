@@ -0,0 +1,73 @@
+package com.luis.ciberloja.geo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+public class GeoIndiceTest {
+
+	private final GeoIndice indice = new GeoIndice(GeoDatos.distritos(), GeoDatos.concelhos(),
+			GeoDatos.freguesias());
+
+	private List<String> buscar(String texto) {
+		return buscar(texto, null, 20);
+	}
+
+	private List<String> buscar(String texto, GeoResultado.Tipo tipo, int limite) {
+		return indice.buscar(texto, tipo, limite).stream().map(r -> r.getTipo() + ":" + r.getNombre())
+				.collect(Collectors.toList());
+	}
+
+	@Test
+	public void ignoraAcentosYMayusculas() {
+		List<String> esperado = List.of("CONCELHO:São João da Madeira", "FREGUESIA:São João da Madeira");
+		assertEquals(esperado, buscar("sao joao"));
+		assertEquals(esperado, buscar("SÃO JOÃO"));
+		assertEquals(List.of("FREGUESIA:Alcântara"), buscar("alcantara"));
+		assertEquals(List.of("FREGUESIA:Alcântara"), buscar("Alcântara"));
+	}
+
+	@Test
+	public void encuentraPalabrasEscritasAMedias() {
+		assertEquals(List.of("CONCELHO:São João da Madeira", "FREGUESIA:São João da Madeira"), buscar("deira"));
+		assertEquals(List.of("FREGUESIA:Paranhos"), buscar("ranh"));
+		// A igual coincidencia, por tipo y los nombres más cortos antes
+		assertEquals(List.of("CONCELHO:Oeiras", "CONCELHO:São João da Madeira", "CONCELHO:Santa Maria da Feira",
+				"FREGUESIA:São João da Madeira"), buscar("eira"));
+	}
+
+	@Test
+	public void todasLasPalabrasDebenAparecer() {
+		assertEquals(List.of("CONCELHO:Santa Maria da Feira", "FREGUESIA:Santa Maria Maior",
+				"FREGUESIA:Santa Maria de Lamas"), buscar("santa maria"));
+		assertEquals(List.of("FREGUESIA:Santa Maria de Lamas"), buscar("lamas santa"));
+		assertEquals(List.of(), buscar("maria porto"));
+		assertEquals(List.of(), buscar("inexistente"));
+		assertEquals(List.of(), buscar("  "));
+	}
+
+	@Test
+	public void ordenaDeMejorAPeorCoincidencia() {
+		// Exacto (distrito antes que concelho), empieza, palabras y contiene
+		assertEquals(List.of("DISTRITO:Porto", "CONCELHO:Porto", "FREGUESIA:Porto Salvo", "FREGUESIA:Vila do Porto",
+				"FREGUESIA:Aeroporto"), buscar("porto"));
+		assertEquals(List.of("FREGUESIA:Porto Salvo", "FREGUESIA:Vila do Porto"),
+				buscar("porto", GeoResultado.Tipo.FREGUESIA, 2));
+	}
+
+	@Test
+	public void losResultadosTraenSuJerarquia() {
+		GeoResultado lamas = indice.buscar("lamas", null, 1).get(0);
+		assertEquals(Integer.valueOf(110), lamas.getFreguesiaId());
+		assertEquals(Integer.valueOf(11), lamas.getConcelhoId());
+		assertEquals("Santa Maria da Feira", lamas.getConcelhoNombre());
+		assertEquals(Integer.valueOf(1), lamas.getDistritoId());
+		assertEquals("Aveiro", lamas.getDistritoNombre());
+		assertEquals(Integer.valueOf(1), lamas.getPaisId());
+		assertTrue(indice.getEntradas() > 0);
+	}
+}
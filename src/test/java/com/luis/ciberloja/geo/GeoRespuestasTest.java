@@ -0,0 +1,117 @@
+package com.luis.ciberloja.geo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import org.glassfish.jersey.internal.MapPropertiesDelegate;
+import org.glassfish.jersey.server.ContainerRequest;
+import org.junit.Test;
+
+import com.luis.ciberloja.JsonProvider;
+
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+
+public class GeoRespuestasTest {
+
+	private final GeoJson json = GeoJson.de(GeoDatos.distritos());
+
+	/**
+	 * Petición GET de Jersey con las cabeceras indicadas (nombre, valor, ...),
+	 * que evalúa If-None-Match como en el servidor.
+	 */
+	private static ContainerRequest peticion(String... cabeceras) {
+		ContainerRequest request = new ContainerRequest(URI.create("http://localhost/"),
+				URI.create("http://localhost/geo/distritos"), "GET", null, new MapPropertiesDelegate(), null);
+		for (int i = 0; i < cabeceras.length; i += 2) {
+			request.header(cabeceras[i], cabeceras[i + 1]);
+		}
+		return request;
+	}
+
+	private static Response servir(GeoJson json, ContainerRequest request) {
+		return GeoRespuestas.servir(json, request, request);
+	}
+
+	private static String descomprimir(byte[] gzip) throws IOException {
+		try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+			return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+		}
+	}
+
+	private static String escribir(Response response) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		((StreamingOutput) response.getEntity()).write(out);
+		return out.toString(StandardCharsets.UTF_8);
+	}
+
+	@Test
+	public void guardaElJsonDeLasRespuestasComprimido() throws IOException {
+		String esperado = JsonProvider.getJsonb().toJson(GeoDatos.distritos());
+		assertEquals(esperado, descomprimir(json.getGzip()));
+		assertEquals(esperado.getBytes(StandardCharsets.UTF_8).length, json.getLongitud());
+
+		// La versión sólo depende del contenido
+		assertEquals(json.getVersion(), GeoJson.de(GeoDatos.distritos()).getVersion());
+		assertNotEquals(json.getVersion(), GeoJson.de(GeoDatos.concelhos()).getVersion());
+	}
+
+	@Test
+	public void sirveElGzipTalCualALosQueLoAceptan() {
+		Response response = servir(json, peticion(HttpHeaders.ACCEPT_ENCODING, "br, gzip;q=0.8"));
+
+		assertEquals(200, response.getStatus());
+		assertSame(json.getGzip(), response.getEntity());
+		assertEquals("gzip", response.getHeaderString(HttpHeaders.CONTENT_ENCODING));
+		assertEquals(json.getVersion() + "-gzip", response.getEntityTag().getValue());
+		assertEquals(HttpHeaders.ACCEPT_ENCODING, response.getHeaderString(HttpHeaders.VARY));
+		assertTrue(response.getHeaderString(HttpHeaders.CACHE_CONTROL).contains("max-age="));
+	}
+
+	@Test
+	public void sinGzipSeEscribeDescomprimido() throws IOException {
+		String esperado = JsonProvider.getJsonb().toJson(GeoDatos.distritos());
+		for (ContainerRequest request : new ContainerRequest[] { peticion(),
+				peticion(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, deflate") }) {
+			Response response = servir(json, request);
+
+			assertEquals(200, response.getStatus());
+			assertNull(response.getHeaderString(HttpHeaders.CONTENT_ENCODING));
+			assertEquals(json.getVersion(), response.getEntityTag().getValue());
+			assertEquals(esperado, escribir(response));
+		}
+	}
+
+	@Test
+	public void devuelve304SiElClienteTieneLaMismaRepresentacion() {
+		String gzip = "\"" + json.getVersion() + "-gzip\"";
+		String sinGzip = "\"" + json.getVersion() + "\"";
+
+		Response response = servir(json,
+				peticion(HttpHeaders.ACCEPT_ENCODING, "gzip", HttpHeaders.IF_NONE_MATCH, gzip));
+		assertEquals(304, response.getStatus());
+		assertNull(response.getEntity());
+		assertEquals(HttpHeaders.ACCEPT_ENCODING, response.getHeaderString(HttpHeaders.VARY));
+
+		assertEquals(304, servir(json, peticion(HttpHeaders.IF_NONE_MATCH, sinGzip)).getStatus());
+
+		// El ETag de la otra codificación o de otra versión no vale
+		assertEquals(200, servir(json, peticion(HttpHeaders.IF_NONE_MATCH, gzip)).getStatus());
+		assertEquals(200, servir(json, peticion(HttpHeaders.ACCEPT_ENCODING, "gzip", HttpHeaders.IF_NONE_MATCH,
+				sinGzip)).getStatus());
+		assertEquals(200, servir(GeoJson.de(GeoDatos.concelhos()),
+				peticion(HttpHeaders.ACCEPT_ENCODING, "gzip", HttpHeaders.IF_NONE_MATCH, gzip)).getStatus());
+	}
+}
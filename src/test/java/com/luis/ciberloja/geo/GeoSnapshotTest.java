@@ -0,0 +1,67 @@
+package com.luis.ciberloja.geo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import com.luis.ciberloja.JsonProvider;
+import com.luis.ciberloja.model.Concelho;
+import com.luis.ciberloja.model.Freguesia;
+
+public class GeoSnapshotTest {
+
+	private final GeoSnapshot snapshot = GeoDatos.snapshot();
+
+	private static String json(GeoJson json) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		json.escribir(out);
+		return out.toString(StandardCharsets.UTF_8);
+	}
+
+	private static String concelhosDe(int distritoId) {
+		List<Concelho> concelhos = GeoDatos.concelhos().stream().filter(c -> c.getDistritoId() == distritoId)
+				.collect(Collectors.toList());
+		return JsonProvider.getJsonb().toJson(concelhos);
+	}
+
+	private static String freguesiasDe(int concelhoId) {
+		List<Freguesia> freguesias = GeoDatos.freguesias().stream().filter(f -> f.getConcelhoId() == concelhoId)
+				.collect(Collectors.toList());
+		return JsonProvider.getJsonb().toJson(freguesias);
+	}
+
+	@Test
+	public void sirveLosHijosDeCadaPadreEnElOrdenDeLaLista() throws IOException {
+		for (int distritoId : new int[] { 1, 2, 3 }) {
+			assertEquals(concelhosDe(distritoId), json(snapshot.getConcelhosJson(distritoId)));
+		}
+		for (int concelhoId : new int[] { 10, 11, 20, 21, 30, 31 }) {
+			assertEquals(freguesiasDe(concelhoId), json(snapshot.getFreguesiasJson(concelhoId)));
+		}
+		assertEquals(3, snapshot.getDistritosConConcelhos());
+		assertEquals(6, snapshot.getConcelhosConFreguesias());
+	}
+
+	@Test
+	public void unPadreSinHijosDevuelveUnaListaVaciaYUnoQueNoExisteNull() throws IOException {
+		// Faro no tiene concelhos en los datos de prueba
+		assertEquals("[]", json(snapshot.getConcelhosJson(4)));
+		assertNull(snapshot.getConcelhosJson(99));
+		assertNull(snapshot.getFreguesiasJson(999));
+	}
+
+	@Test
+	public void lasListasCompletasSonLasDeLasRespuestas() throws IOException {
+		assertEquals(JsonProvider.getJsonb().toJson(GeoDatos.paises()), json(snapshot.getPaisesJson()));
+		assertEquals(JsonProvider.getJsonb().toJson(GeoDatos.freguesias()), json(snapshot.getFreguesiasJson()));
+		assertEquals("Lisboa", snapshot.getDistrito(3).getNombre());
+		assertEquals(Integer.valueOf(20), snapshot.getFreguesia(201).getConcelhoId());
+	}
+}
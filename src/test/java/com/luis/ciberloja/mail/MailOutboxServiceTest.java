@@ -0,0 +1,151 @@
+package com.luis.ciberloja.mail;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+
+public class MailOutboxServiceTest {
+
+	/**
+	 * Cola en memoria con el comportamiento de MailOutboxDAO.
+	 */
+	private static class ColaSimulada extends MailOutboxDAO {
+		private final Map<Long, MensajeCorreo> pendientes = new LinkedHashMap<>();
+		private final Map<Long, Long> proximoIntento = new LinkedHashMap<>();
+		private final List<Long> enviados = new ArrayList<>();
+		private final List<Long> fallidos = new ArrayList<>();
+
+		void add(MensajeCorreo mensaje) {
+			mensaje.setId((long) (pendientes.size() + enviados.size() + fallidos.size() + 1));
+			pendientes.put(mensaje.getId(), mensaje);
+			proximoIntento.put(mensaje.getId(), 0L);
+		}
+
+		@Override
+		public List<MensajeCorreo> reservarPendientes(Connection c, long ahora, int limite, long reservadoHasta) {
+			List<MensajeCorreo> mensajes = new ArrayList<>();
+			for (MensajeCorreo m : pendientes.values()) {
+				if (proximoIntento.get(m.getId()) <= ahora && mensajes.size() < limite) {
+					mensajes.add(m);
+					proximoIntento.put(m.getId(), reservadoHasta);
+				}
+			}
+			return mensajes;
+		}
+
+		@Override
+		public void liberar(Connection c, List<MensajeCorreo> mensajes, long ahora) {
+			for (MensajeCorreo m : mensajes) {
+				proximoIntento.put(m.getId(), ahora);
+			}
+		}
+
+		@Override
+		public void marcarEnviado(Connection c, Long id, long ahora) {
+			pendientes.remove(id);
+			enviados.add(id);
+		}
+
+		@Override
+		public void marcarError(Connection c, Long id, int intentos, Long proximo, String error) {
+			pendientes.get(id).setIntentos(intentos);
+			if (proximo == null) {
+				pendientes.remove(id);
+				fallidos.add(id);
+			} else {
+				proximoIntento.put(id, proximo);
+			}
+		}
+	}
+
+	private SmtpFalso smtp;
+	private ColaSimulada cola;
+
+	@Before
+	public void setUp() throws Exception {
+		smtp = new SmtpFalso();
+		cola = new ColaSimulada();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		smtp.close();
+	}
+
+	private MailOutboxService servicio(int puerto, int lote) {
+		return new MailOutboxService(cola,
+				() -> new SmtpEnviador("localhost", puerto, null, null, "loja@ciberloja.pt", false, 5000), 30, lote, 3,
+				60, 3600, 600);
+	}
+
+	private static MimeMessage leer(String raw) throws Exception {
+		return new MimeMessage(Session.getInstance(new Properties()),
+				new ByteArrayInputStream(raw.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	@Test
+	public void enviaLaColaConUnaSolaConexion() throws Exception {
+		for (int i = 1; i <= 5; i++) {
+			cola.add(new MensajeCorreo("cliente" + i + "@example.com", "Encomenda n.º " + i, "Obrigado, " + i));
+		}
+
+		servicio(smtp.getPuerto(), 2).ronda(null);
+
+		assertEquals(5, cola.enviados.size());
+		assertTrue(cola.pendientes.isEmpty());
+		assertEquals(1, smtp.getConexiones());
+		assertEquals(5, smtp.getMensajes().size());
+		MimeMessage primero = leer(smtp.getMensajes().get(0));
+		assertEquals("Encomenda n.º 1", primero.getSubject());
+		assertEquals("cliente1@example.com", primero.getAllRecipients()[0].toString());
+		assertEquals("Obrigado, 1", primero.getContent().toString().trim());
+	}
+
+	@Test
+	public void unRechazoPermanenteNoSeReintentaYUnoTemporalSi() throws Exception {
+		smtp.setRespuestaRcpt("noexiste@example.com", "550 5.1.1 Mailbox unavailable");
+		smtp.setRespuestaRcpt("lleno@example.com", "452 4.2.2 Mailbox full");
+		cola.add(new MensajeCorreo("noexiste@example.com", "a", "a"));
+		cola.add(new MensajeCorreo("lleno@example.com", "b", "b"));
+		cola.add(new MensajeCorreo("bien@example.com", "c", "c"));
+
+		servicio(smtp.getPuerto(), 50).ronda(null);
+
+		assertEquals(List.of(1L), cola.fallidos);
+		assertEquals(List.of(3L), cola.enviados);
+		assertEquals(1, cola.pendientes.get(2L).getIntentos());
+		assertTrue(cola.proximoIntento.get(2L) > System.currentTimeMillis());
+	}
+
+	@Test
+	public void sinServidorNoSeGastanIntentos() throws Exception {
+		int puertoCerrado;
+		try (ServerSocket s = new ServerSocket(0)) {
+			puertoCerrado = s.getLocalPort();
+		}
+		cola.add(new MensajeCorreo("cliente@example.com", "a", "a"));
+
+		servicio(puertoCerrado, 50).ronda(null);
+
+		assertEquals(0, cola.pendientes.get(1L).getIntentos());
+		assertTrue(cola.enviados.isEmpty());
+		// La reserva se libera: la siguiente ronda, de esta u otra instancia, lo vuelve a tomar
+		assertTrue(cola.proximoIntento.get(1L) <= System.currentTimeMillis());
+	}
+}
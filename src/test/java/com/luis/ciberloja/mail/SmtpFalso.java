@@ -0,0 +1,119 @@
+package com.luis.ciberloja.mail;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Servidor SMTP local para las pruebas: acepta cualquier remitente, responde a
+ * cada destinatario con el código configurado (250 por defecto) y guarda el
+ * contenido de cada mensaje recibido. Atiende las conexiones de una en una.
+ */
+public class SmtpFalso implements AutoCloseable {
+
+	private final ServerSocket serverSocket;
+	private final Thread hilo;
+	private final AtomicInteger conexiones = new AtomicInteger();
+	private final List<String> mensajes = Collections.synchronizedList(new ArrayList<>());
+	private final Map<String, String> respuestasRcpt = new HashMap<>();
+
+	public SmtpFalso() throws IOException {
+		serverSocket = new ServerSocket(0);
+		hilo = new Thread(this::atender, "smtp-falso");
+		hilo.setDaemon(true);
+		hilo.start();
+	}
+
+	public int getPuerto() {
+		return serverSocket.getLocalPort();
+	}
+
+	/**
+	 * @param respuesta línea completa, por ejemplo "550 5.1.1 No existe"
+	 */
+	public synchronized void setRespuestaRcpt(String destinatario, String respuesta) {
+		respuestasRcpt.put(destinatario, respuesta);
+	}
+
+	public int getConexiones() {
+		return conexiones.get();
+	}
+
+	public List<String> getMensajes() {
+		return new ArrayList<>(mensajes);
+	}
+
+	private synchronized String respuestaRcpt(String linea) {
+		for (Map.Entry<String, String> e : respuestasRcpt.entrySet()) {
+			if (linea.contains("<" + e.getKey() + ">")) {
+				return e.getValue();
+			}
+		}
+		return "250 2.1.5 OK";
+	}
+
+	private void atender() {
+		while (!serverSocket.isClosed()) {
+			try (Socket socket = serverSocket.accept()) {
+				conexiones.incrementAndGet();
+				sesion(socket);
+			} catch (IOException e) {
+				// Servidor cerrado o cliente desconectado
+			}
+		}
+	}
+
+	private void sesion(Socket socket) throws IOException {
+		BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+		OutputStream out = socket.getOutputStream();
+		responder(out, "220 localhost SMTP de pruebas");
+		String linea;
+		while ((linea = in.readLine()) != null) {
+			String comando = linea.length() >= 4 ? linea.substring(0, 4).toUpperCase() : linea.toUpperCase();
+			switch (comando) {
+			case "EHLO":
+				responder(out, "250-localhost\r\n250 8BITMIME");
+				break;
+			case "RCPT":
+				responder(out, respuestaRcpt(linea));
+				break;
+			case "DATA":
+				responder(out, "354 Fin con <CRLF>.<CRLF>");
+				StringBuilder datos = new StringBuilder();
+				while ((linea = in.readLine()) != null && !linea.equals(".")) {
+					datos.append(linea.startsWith("..") ? linea.substring(1) : linea).append("\r\n");
+				}
+				mensajes.add(datos.toString());
+				responder(out, "250 2.0.0 Aceptado");
+				break;
+			case "QUIT":
+				responder(out, "221 2.0.0 Adios");
+				return;
+			default:
+				// HELO, MAIL, RSET, NOOP
+				responder(out, "250 2.0.0 OK");
+				break;
+			}
+		}
+	}
+
+	private static void responder(OutputStream out, String respuesta) throws IOException {
+		out.write((respuesta + "\r\n").getBytes(StandardCharsets.UTF_8));
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		serverSocket.close();
+	}
+}
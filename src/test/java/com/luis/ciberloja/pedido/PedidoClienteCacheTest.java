@@ -0,0 +1,101 @@
+package com.luis.ciberloja.pedido;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.luis.ciberloja.JsonProvider;
+import com.luis.ciberloja.model.Pedido;
+
+public class PedidoClienteCacheTest {
+
+	private final PedidoClienteCache cache = new PedidoClienteCache(100, 60);
+
+	private static Pedido pedido(long id, long clienteId, double precio) {
+		Pedido p = new Pedido();
+		p.setId(id);
+		p.setClienteId(clienteId);
+		p.setPrecio(precio);
+		return p;
+	}
+
+	private PedidoClienteCache.Historial guardar(long clienteId, Pedido... pedidos) {
+		return cache.put(clienteId, List.of(pedidos), cache.getGeneracion());
+	}
+
+	@Test
+	public void guardaElHistorialSerializadoConSuVersion() {
+		List<Pedido> pedidos = List.of(pedido(1, 3, 10.0), pedido(2, 3, 20.0));
+		PedidoClienteCache.Historial historial = cache.put(3L, pedidos, cache.getGeneracion());
+
+		assertSame(historial, cache.get(3L));
+		assertEquals(JsonProvider.getJsonb().toJson(pedidos), new String(historial.getJson(), StandardCharsets.UTF_8));
+		assertFalse(historial.isVacio());
+		assertTrue(guardar(4L).isVacio());
+
+		// La versión sólo cambia si cambia el contenido
+		assertEquals(historial.getVersion(), guardar(3L, pedido(1, 3, 10.0), pedido(2, 3, 20.0)).getVersion());
+		assertNotEquals(historial.getVersion(), guardar(3L, pedido(1, 3, 10.0), pedido(2, 3, 25.0)).getVersion());
+	}
+
+	@Test
+	public void noGuardaLoLeidoAntesDeUnaInvalidacion() {
+		long leida = cache.getGeneracion();
+		// Otro hilo crea un pedido del cliente mientras se leían sus pedidos
+		cache.invalidarCliente(3L);
+		PedidoClienteCache.Historial historial = cache.put(3L, List.of(pedido(1, 3, 10.0)), leida);
+		assertNotNull(historial);
+		assertNull(cache.get(3L));
+
+		// También si lo que cambia es un pedido de cualquier otro cliente
+		leida = cache.getGeneracion();
+		cache.invalidarPedido(99L);
+		cache.put(3L, List.of(pedido(1, 3, 10.0)), leida);
+		assertNull(cache.get(3L));
+
+		// Leído después del cambio sí se guarda
+		guardar(3L, pedido(1, 3, 10.0));
+		assertNotNull(cache.get(3L));
+	}
+
+	@Test
+	public void invalidarPedidoQuitaSoloLosHistorialesQueLoContienen() {
+		guardar(3L, pedido(1, 3, 10.0), pedido(2, 3, 20.0));
+		guardar(4L, pedido(5, 4, 50.0));
+		guardar(6L);
+
+		cache.invalidarPedido(2L);
+		assertNull(cache.get(3L));
+		assertNotNull(cache.get(4L));
+		assertNotNull(cache.get(6L));
+
+		// Un pedido que pasa a otro cliente invalida el historial donde estaba
+		cache.invalidarPedido(5L);
+		assertNull(cache.get(4L));
+		assertNotNull(cache.get(6L));
+	}
+
+	@Test
+	public void invalidarClienteQuitaSoloElSuyo() {
+		guardar(3L, pedido(1, 3, 10.0));
+		guardar(4L, pedido(5, 4, 50.0));
+
+		cache.invalidarCliente(3L);
+		assertNull(cache.get(3L));
+		assertNotNull(cache.get(4L));
+
+		long antes = cache.getGeneracion();
+		cache.invalidarCliente(null);
+		assertNotEquals(antes, cache.getGeneracion());
+		assertNotNull(cache.get(4L));
+	}
+}
@@ -0,0 +1,66 @@
+package com.luis.ciberloja.pedido;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.Test;
+
+import com.luis.ciberloja.mail.MensajeCorreo;
+import com.luis.ciberloja.mail.SmtpEnviador;
+import com.luis.ciberloja.mail.SmtpFalso;
+import com.luis.ciberloja.model.LineaPedido;
+import com.luis.ciberloja.model.Pedido;
+
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+
+public class PedidoCreacionServiceTest {
+
+	private static Pedido pedido() {
+		LineaPedido linea = new LineaPedido();
+		linea.setProductoId("CAB-HDMI-2M");
+		linea.setPrecio(4.5d);
+		linea.setUnidades(3);
+		Pedido p = new Pedido();
+		p.setId(1234L);
+		p.setClienteId(7L);
+		p.setLineas(List.of(linea));
+		return p;
+	}
+
+	@Test
+	public void completaElTotalConLasLineas() {
+		Pedido p = pedido();
+		PedidoCreacionService.completar(p);
+		assertEquals(13.5d, p.getPrecio(), 0d);
+		assertTrue(p.getFechaRealizacion() != null);
+	}
+
+	@Test
+	public void laConfirmacionLlegaAlServidorSmtpEnPortugues() throws Exception {
+		Pedido p = pedido();
+		PedidoCreacionService.completar(p);
+		MensajeCorreo confirmacion = PedidoCreacionService.crearConfirmacion(p, " cliente@example.com ");
+
+		try (SmtpFalso smtp = new SmtpFalso();
+				SmtpEnviador enviador = new SmtpEnviador("localhost", smtp.getPuerto(), null, null,
+						"loja@ciberloja.pt", false, 5000)) {
+			enviador.enviar(confirmacion);
+
+			MimeMessage recibido = new MimeMessage(Session.getInstance(new Properties()),
+					new ByteArrayInputStream(smtp.getMensajes().get(0).getBytes(StandardCharsets.UTF_8)));
+			assertEquals("cliente@example.com", recibido.getAllRecipients()[0].toString());
+			assertEquals("Ciberloja: encomenda n.º 1234 registada", recibido.getSubject());
+			String cuerpo = recibido.getContent().toString();
+			assertTrue(cuerpo, cuerpo.startsWith("A sua encomenda n.º 1234 foi registada com sucesso."));
+			assertTrue(cuerpo, cuerpo.contains("3 x CAB-HDMI-2M  4,50 €"));
+			assertTrue(cuerpo, cuerpo.contains("Total: 13,50 €"));
+			assertTrue(cuerpo, cuerpo.contains("Obrigado pela sua compra."));
+		}
+	}
+}
@@ -0,0 +1,53 @@
+package com.luis.ciberloja.pedido;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.List;
+
+import com.luis.ciberloja.DataException;
+import com.luis.ciberloja.model.LineaPedido;
+import com.luis.ciberloja.model.Pedido;
+
+/**
+ * PedidoCreacionDAO sin BD: asigna ids consecutivos y rechaza el lote entero
+ * si algún pedido tiene una línea del producto FALLA, como haría una clave
+ * ajena.
+ */
+class PedidoCreacionSimulada extends PedidoCreacionDAO {
+
+	static final String PRODUCTO_QUE_FALLA = "FALLA";
+
+	private long siguienteId = 1L;
+	private int lotes = 0;
+
+	/**
+	 * Conexión que acepta setAutoCommit, commit y rollback sin hacer nada.
+	 */
+	static Connection conexion() {
+		return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+				new Class<?>[] { Connection.class }, (proxy, method, args) -> null);
+	}
+
+	@Override
+	public void verificarEsquema(Connection c) {
+	}
+
+	@Override
+	public void createAll(Connection c, List<Pedido> pedidos) throws DataException {
+		lotes++;
+		for (Pedido p : pedidos) {
+			for (LineaPedido linea : p.getLineas()) {
+				if (PRODUCTO_QUE_FALLA.equals(linea.getProductoId())) {
+					throw new DataException("Producto inexistente: " + PRODUCTO_QUE_FALLA);
+				}
+			}
+		}
+		for (Pedido p : pedidos) {
+			p.setId(siguienteId++);
+		}
+	}
+
+	int getLotes() {
+		return lotes;
+	}
+}
@@ -0,0 +1,108 @@
+package com.luis.ciberloja.pedido;
+
+import java.io.OutputStream;
+import java.io.Reader;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.yasson.YassonJsonb;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.luis.ciberloja.JsonProvider;
+import com.luis.ciberloja.ventas.VentasSimuladas;
+
+import jakarta.json.stream.JsonGenerator;
+
+/**
+ * Importación de /pedido/bulk de principio a fin dentro de la aplicación:
+ * lectura del NDJSON, validación, bloques, reintentos y escritura de los
+ * resultados como en PedidoResource, con un DAO que asigna ids sin BD. Mide el
+ * coste propio de la API por pedido; las inserciones en MySQL no están
+ * incluidas.
+ *
+ * La entrada se genera según se lee y la salida se descarta, y el fork tiene
+ * el heap limitado a 64 MB: con un millón de pedidos sólo termina si la memoria
+ * no crece con el tamaño de la importación.
+ *
+ * mvn test-compile y después, con el classpath de test:
+ * java com.luis.ciberloja.pedido.PedidoImportacionBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = { "-Xmx64m" })
+public class PedidoImportacionBenchmark {
+
+	@Param({ "100000", "1000000" })
+	public int pedidos;
+
+	/**
+	 * NDJSON de pedidos generado bajo demanda.
+	 */
+	private static final class PedidosGenerados extends Reader {
+		private final int total;
+		private int siguiente = 0;
+		private String actual = "";
+		private int posicion = 0;
+
+		PedidosGenerados(int total) {
+			this.total = total;
+		}
+
+		@Override
+		public int read(char[] cbuf, int off, int len) {
+			if (posicion == actual.length()) {
+				if (siguiente == total) {
+					return -1;
+				}
+				int i = siguiente++;
+				actual = "{\"clienteId\":" + (i % 5000 + 1) + ",\"tipoEntregaId\":1,\"lineas\":[{\"productoId\":\"P"
+						+ (i % 997) + "\",\"precio\":12.5,\"unidades\":2},{\"productoId\":\"Q" + (i % 31)
+						+ "\",\"precio\":3.99,\"unidades\":1}]}\n";
+				posicion = 0;
+			}
+			int n = Math.min(len, actual.length() - posicion);
+			actual.getChars(posicion, posicion + n, cbuf, off);
+			posicion += n;
+			return n;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+
+	@Benchmark
+	public PedidoImportacionResultado importar() throws Exception {
+		PedidoImportacionService servicio = new PedidoImportacionService(new PedidoCreacionSimulada(), null,
+				VentasSimuladas.crear(), new PedidoClienteCache(100, 60), 500);
+		YassonJsonb jsonb = JsonProvider.getJsonb();
+		JsonGenerator generator = JsonProvider.createGenerator(OutputStream.nullOutputStream());
+		PedidoImportacionResultado resultado = new PedidoImportacionResultado();
+		generator.writeStartObject().writeKey("resultados").writeStartArray();
+		servicio.importar(PedidoCreacionSimulada.conexion(), new PedidosGenerados(pedidos), false, resultado,
+				item -> jsonb.toJson(item, PedidoImportacionResultado.Item.class, generator));
+		generator.writeEnd().writeEnd().close();
+		if (resultado.getCreados() != pedidos) {
+			throw new IllegalStateException("Creados " + resultado.getCreados() + " de " + pedidos);
+		}
+		return resultado;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(PedidoImportacionBenchmark.class.getSimpleName()).build()).run();
+	}
+}
@@ -0,0 +1,90 @@
+package com.luis.ciberloja.pedido;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.luis.ciberloja.ventas.VentasSimuladas;
+
+public class PedidoImportacionServiceTest {
+
+	private static String pedido(long clienteId, String productoId, int unidades) {
+		return "{\"clienteId\":" + clienteId + ",\"lineas\":[{\"productoId\":\"" + productoId + "\",\"precio\":2.5,"
+				+ "\"unidades\":" + unidades + "}]}";
+	}
+
+	private static PedidoImportacionService servicio(PedidoCreacionSimulada dao, int chunk) {
+		return new PedidoImportacionService(dao, null, VentasSimuladas.crear(), new PedidoClienteCache(100, 60),
+				chunk);
+	}
+
+	@Test
+	public void entregaCadaResultadoEnOrdenPorBloques() throws Exception {
+		StringBuilder ndjson = new StringBuilder();
+		for (int i = 0; i < 10; i++) {
+			// El 3 no es válido y el 7 hace fallar su bloque
+			ndjson.append(pedido(i + 1, i == 7 ? PedidoCreacionSimulada.PRODUCTO_QUE_FALLA : "P" + i, i == 3 ? 0 : 1))
+					.append('\n');
+		}
+		PedidoCreacionSimulada dao = new PedidoCreacionSimulada();
+		PedidoImportacionResultado resultado = new PedidoImportacionResultado();
+		List<PedidoImportacionResultado.Item> items = new ArrayList<>();
+
+		servicio(dao, 4).importar(PedidoCreacionSimulada.conexion(), new StringReader(ndjson.toString()), false,
+				resultado, items::add);
+
+		assertEquals(10, items.size());
+		for (int i = 0; i < items.size(); i++) {
+			assertEquals(i, items.get(i).getIndice());
+			boolean falla = i == 3 || i == 7;
+			assertEquals("pedido " + i, falla, items.get(i).getError() != null);
+			assertEquals("pedido " + i, falla, items.get(i).getId() == null);
+		}
+		assertEquals(10, resultado.getTotal());
+		assertEquals(8, resultado.getCreados());
+		assertEquals(2, resultado.getFallidos());
+		assertNull(resultado.getError());
+	}
+
+	@Test
+	public void unJsonRotoCreaLoLeidoAntes() throws Exception {
+		String array = "[" + pedido(1, "A", 1) + "," + pedido(2, "B", 1) + ",{\"clienteId\":";
+		PedidoImportacionResultado resultado = new PedidoImportacionResultado();
+		List<PedidoImportacionResultado.Item> items = new ArrayList<>();
+
+		servicio(new PedidoCreacionSimulada(), 500).importar(PedidoCreacionSimulada.conexion(),
+				new StringReader(array), false, resultado, items::add);
+
+		assertEquals(2, items.size());
+		assertEquals(2, resultado.getCreados());
+		assertNotNull(resultado.getError());
+		assertTrue(resultado.getError(), resultado.getError().startsWith("JSON no válido tras 2 pedidos"));
+	}
+
+	@Test
+	public void losPedidosNoValidosCuentanParaElBloque() throws Exception {
+		StringBuilder ndjson = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			ndjson.append(pedido(1, "P", 0)).append('\n');
+		}
+		List<PedidoImportacionResultado.Item> items = new ArrayList<>();
+		PedidoImportacionResultado resultado = new PedidoImportacionResultado();
+
+		servicio(new PedidoCreacionSimulada(), 100).importar(PedidoCreacionSimulada.conexion(),
+				new StringReader(ndjson.toString()), false, resultado, item -> {
+					// Se entregan al cerrar cada bloque, no al final
+					assertTrue(resultado.getTotal() - items.size() <= 100);
+					items.add(item);
+				});
+
+		assertEquals(1000, items.size());
+		assertEquals(1000, resultado.getFallidos());
+	}
+}
@@ -0,0 +1,106 @@
+package com.luis.ciberloja.producto;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.luis.ciberloja.DataException;
+import com.luis.ciberloja.catalogo.CatalogoDatos;
+import com.luis.ciberloja.catalogo.CatalogoSnapshot;
+import com.luis.ciberloja.model.ProductoCriteria;
+import com.luis.ciberloja.model.ProductoDTO;
+import com.luis.ciberloja.model.Results;
+import com.luis.ciberloja.service.ProductoService;
+
+public class DestaquesCacheTest {
+
+	/**
+	 * Middleware simulado: devuelve los destacados paginados.
+	 */
+	private static final class DestaquesSimulados implements ProductoService {
+
+		private volatile List<ProductoDTO> destacados;
+
+		private DestaquesSimulados(List<ProductoDTO> destacados) {
+			this.destacados = destacados;
+		}
+
+		@Override
+		public ProductoDTO findById(String id) {
+			return null;
+		}
+
+		@Override
+		public Results<ProductoDTO> findBy(ProductoCriteria criteria, int page, int size) {
+			return null;
+		}
+
+		@Override
+		public Results<ProductoDTO> findByDestaques(int page, int size) throws DataException {
+			List<ProductoDTO> todos = destacados;
+			int desde = Math.min((page - 1) * size, todos.size());
+			Results<ProductoDTO> results = new Results<>();
+			results.setPage(new ArrayList<>(todos.subList(desde, Math.min(desde + size, todos.size()))));
+			results.setTotal(todos.size());
+			return results;
+		}
+	}
+
+	@Test
+	public void laVersionEsLaDeLaVistaDeLaQueSaleLaPagina() throws Exception {
+		DestaquesSimulados middleware = new DestaquesSimulados(CatalogoDatos.generar(250, 1L));
+		DestaquesCache cache = new DestaquesCache(middleware, 0);
+
+		DestaquesCache.Pagina antes = cache.getPagina(1, 30);
+		middleware.destacados = CatalogoDatos.generar(250, 2L);
+		// refresh de 0 s: cada petición reconstruye la vista
+		DestaquesCache.Pagina despues = cache.getPagina(1, 30);
+
+		assertTrue(!antes.getVersion().equals(despues.getVersion()));
+		String json = new String(despues.getJson(), StandardCharsets.UTF_8);
+		assertTrue(json.contains(middleware.destacados.get(0).getId()));
+	}
+
+	@Test
+	public void unaPaginaFueraDeRangoNoExisteAunqueDesborde() throws Exception {
+		DestaquesCache cache = new DestaquesCache(new DestaquesSimulados(CatalogoDatos.generar(250, 1L)), 300);
+
+		assertNotNull(cache.getPagina(9, 30));
+		assertNull(cache.getPagina(10, 30));
+		assertNull(cache.getPagina(Integer.MAX_VALUE, 500));
+		assertEquals(cache.getPagina(1, 30).getVersion(), cache.getPagina(9, 30).getVersion());
+	}
+
+	private static ProductoDTO primero(List<ProductoDTO> productos, boolean destacado) {
+		return productos.stream().filter(p -> destacado == Boolean.TRUE.equals(p.getDestaques())).findFirst().get();
+	}
+
+	@Test
+	public void soloSeReconstruyeSiCambiaAlgunDestacado() {
+		CatalogoSnapshot anterior = new CatalogoSnapshot(CatalogoDatos.generar(200, 1L), 0L, 0L);
+
+		List<ProductoDTO> productos = CatalogoDatos.generar(200, 1L);
+		primero(productos, false).setPrecio(1.5);
+		assertFalse(DestaquesCache.cambianDestaques(anterior, new CatalogoSnapshot(productos, 0L, 0L)));
+
+		productos = CatalogoDatos.generar(200, 1L);
+		primero(productos, true).setPrecio(1.5);
+		assertTrue(DestaquesCache.cambianDestaques(anterior, new CatalogoSnapshot(productos, 0L, 0L)));
+
+		productos = CatalogoDatos.generar(200, 1L);
+		primero(productos, false).setDestaques(true);
+		assertTrue(DestaquesCache.cambianDestaques(anterior, new CatalogoSnapshot(productos, 0L, 0L)));
+
+		productos = CatalogoDatos.generar(200, 1L);
+		productos.remove(primero(productos, true));
+		assertTrue(DestaquesCache.cambianDestaques(anterior, new CatalogoSnapshot(productos, 0L, 0L)));
+	}
+}
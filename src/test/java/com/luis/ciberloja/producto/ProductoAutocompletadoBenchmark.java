@@ -0,0 +1,66 @@
+package com.luis.ciberloja.producto;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.luis.ciberloja.catalogo.CatalogoDatos;
+
+/**
+ * Tiempo de una sugerencia de ProductoAutocompletado sobre un catálogo
+ * sintético: un prefijo corto (el caso más frecuente mientras se escribe), una
+ * palabra completa seguida de un prefijo, una consulta sin resultados y una
+ * palabra frecuente con un prefijo que sólo tiene un producto, y el peor caso,
+ * dos palabras frecuentes que coinciden poco con un prefijo frecuente.
+ * ProductoAutocompletadoTest comprueba que las respuestas coinciden con un
+ * recorrido completo del catálogo.
+ *
+ * mvn test-compile y después, con el classpath de test:
+ * java com.luis.ciberloja.producto.ProductoAutocompletadoBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = { "-Xmx2g" })
+public class ProductoAutocompletadoBenchmark {
+
+	@Param({ "100000" })
+	public int articulos;
+
+	@Param({ "ca", "cabo h", "teclado rato 1", "hdmi inexistente", "hdmi 99999", "hdmi cabo 1" })
+	public String consulta;
+
+	private ProductoAutocompletado autocompletado;
+
+	@Setup
+	public void setup() {
+		autocompletado = new ProductoAutocompletado(10);
+		autocompletado.actualizar(CatalogoDatos.generar(articulos, 42L));
+	}
+
+	@Benchmark
+	public List<ProductoAutocompletado.Sugerencia> sugerir() {
+		return autocompletado.sugerir(consulta, 10);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(ProductoAutocompletadoBenchmark.class.getSimpleName()).build())
+				.run();
+	}
+}
@@ -0,0 +1,74 @@
+package com.luis.ciberloja.producto;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import com.luis.ciberloja.catalogo.CatalogoDatos;
+import com.luis.ciberloja.model.ProductoDTO;
+import com.luis.ciberloja.util.TextoUtils;
+
+public class ProductoAutocompletadoTest {
+
+	private static final String[] CONSULTAS = { "c", "ca", "cabo", "mon", "memo", "Memória", "cabo h", "usb ssd",
+			"teclado rato 12", "portatil w", "x", "hdmi inexistente", "hdmi 1999", "cabo usb 77" };
+
+	/**
+	 * Lo que debe devolver sugerir(): recorrido completo del catálogo.
+	 */
+	private static List<String> fuerzaBruta(List<ProductoDTO> catalogo, String texto, int n) {
+		List<String> palabras = TextoUtils.palabras(texto);
+		String prefijo = palabras.get(palabras.size() - 1);
+		List<String> completas = palabras.subList(0, palabras.size() - 1);
+		return catalogo.stream().filter(p -> {
+			List<String> delNombre = TextoUtils.palabras(p.getNombre());
+			return delNombre.containsAll(completas) && delNombre.stream().anyMatch(w -> w.startsWith(prefijo));
+		}).sorted(Comparator.comparingDouble(ProductoDTO::getStockDisponible).reversed()
+				.thenComparing(ProductoDTO::getNombre).thenComparing(ProductoDTO::getId)).limit(n)
+				.map(ProductoDTO::getId).collect(Collectors.toList());
+	}
+
+	private static List<String> ids(List<ProductoAutocompletado.Sugerencia> sugerencias) {
+		return sugerencias.stream().map(ProductoAutocompletado.Sugerencia::getId).collect(Collectors.toList());
+	}
+
+	@Test
+	public void coincideConElRecorridoCompleto() {
+		List<ProductoDTO> catalogo = CatalogoDatos.generar(20_000, 5L);
+		ProductoAutocompletado autocompletado = new ProductoAutocompletado(10);
+		autocompletado.actualizar(catalogo);
+
+		for (String consulta : CONSULTAS) {
+			assertEquals(consulta, fuerzaBruta(catalogo, consulta, 10), ids(autocompletado.sugerir(consulta, 10)));
+		}
+		assertFalse(autocompletado.sugerir("cabo", 10).isEmpty());
+	}
+
+	@Test
+	public void sigueCoincidiendoTrasActualizacionesIncrementales() {
+		List<ProductoDTO> catalogo = new ArrayList<>(CatalogoDatos.generar(20_000, 5L));
+		ProductoAutocompletado autocompletado = new ProductoAutocompletado(10);
+		autocompletado.actualizar(catalogo);
+
+		// Cambia el stock de unos, se retiran otros y entran nuevos
+		for (int i = 0; i < catalogo.size(); i += 7) {
+			catalogo.get(i).setStockDisponible(catalogo.get(i).getStockDisponible() + 100);
+		}
+		catalogo.subList(0, 500).clear();
+		for (ProductoDTO p : CatalogoDatos.generar(300, 9L)) {
+			p.setId("NUEVO" + p.getId());
+			catalogo.add(p);
+		}
+		autocompletado.actualizar(catalogo);
+
+		for (String consulta : CONSULTAS) {
+			assertEquals(consulta, fuerzaBruta(catalogo, consulta, 10), ids(autocompletado.sugerir(consulta, 10)));
+		}
+	}
+}
@@ -0,0 +1,25 @@
+package com.luis.ciberloja.producto;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+import com.luis.ciberloja.model.ProductoCriteria;
+
+public class ProductoCountCacheTest {
+
+	@Test
+	public void noGuardaUnTotalContadoAntesDeUnaInvalidacion() {
+		ProductoCountCache cache = new ProductoCountCache(60, 100);
+		ProductoCriteria criteria = new ProductoCriteria();
+
+		long generacion = cache.getGeneracion();
+		cache.invalidar();
+		cache.put(criteria, 42, generacion);
+		assertNull(cache.get(criteria));
+
+		cache.put(criteria, 41, cache.getGeneracion());
+		assertEquals(Integer.valueOf(41), cache.get(criteria));
+	}
+}
@@ -0,0 +1,94 @@
+package com.luis.ciberloja.producto;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.luis.ciberloja.catalogo.CatalogoDatos;
+import com.luis.ciberloja.catalogo.CatalogoSnapshot;
+import com.luis.ciberloja.model.ProductoCriteria;
+import com.luis.ciberloja.model.ProductoDTO;
+import com.luis.ciberloja.model.Results;
+
+public class ProductoIndiceTest {
+
+	private Path ruta;
+	private ProductoIndice indice;
+	private List<ProductoDTO> catalogo;
+	private Map<String, ProductoDTO> porId;
+
+	@Before
+	public void setUp() throws Exception {
+		ruta = Files.createTempDirectory("indice-productos");
+		catalogo = CatalogoDatos.generar(5000, 3L);
+		indice = new ProductoIndice(ruta);
+		porId = catalogo.stream().collect(Collectors.toMap(ProductoDTO::getId, Function.identity()));
+		indice.actualizar(new CatalogoSnapshot(catalogo, 0L, 0L));
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		indice.close();
+		try (var ficheros = Files.walk(ruta)) {
+			ficheros.sorted((a, b) -> b.compareTo(a)).forEach(f -> f.toFile().delete());
+		}
+	}
+
+	private static ProductoCriteria criteria(String descripcion, Double precioMax) {
+		ProductoCriteria criteria = new ProductoCriteria();
+		criteria.setDescripcion(descripcion);
+		criteria.setPvp3Max(precioMax);
+		return criteria;
+	}
+
+	@Test
+	public void paginaEnElIndiceYDaElTotalExacto() throws Exception {
+		long esperados = catalogo.stream().filter(p -> p.getNombre().contains("hdmi") && p.getPrecio() <= 100)
+				.count();
+
+		Results<String> primera = indice.buscar(criteria("hdmi", 100d), 1, 30, true);
+		Results<String> segunda = indice.buscar(criteria("hdmi", 100d), 2, 30, true);
+
+		assertEquals(Integer.valueOf((int) esperados), primera.getTotal());
+		assertEquals(30, primera.getPage().size());
+		Set<String> ids = new HashSet<>();
+		for (String id : primera.getPage()) {
+			ProductoDTO p = porId.get(id);
+			assertTrue(p.getNombre().contains("hdmi"));
+			assertTrue(p.getPrecio() <= 100);
+			ids.add(id);
+		}
+		for (String id : segunda.getPage()) {
+			assertTrue(ids.add(id));
+		}
+
+		int ultima = (int) ((esperados + 29) / 30);
+		assertEquals(esperados - (ultima - 1) * 30L, indice.buscar(criteria("hdmi", 100d), ultima, 30, false)
+				.getPage().size());
+		assertTrue(indice.buscar(criteria("hdmi", 100d), Integer.MAX_VALUE, 100, false).getPage().isEmpty());
+	}
+
+	@Test
+	public void seConservaTrasReabrirlo() throws Exception {
+		Results<String> antes = indice.buscar(criteria("monitor", null), 1, 10, true);
+		indice.close();
+
+		indice = new ProductoIndice(ruta);
+		assertTrue(indice.isListo());
+		Results<String> despues = indice.buscar(criteria("monitor", null), 1, 10, true);
+		assertEquals(antes.getTotal(), despues.getTotal());
+		assertEquals(antes.getPage(), despues.getPage());
+	}
+}
@@ -0,0 +1,71 @@
+package com.luis.ciberloja.producto;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.luis.ciberloja.catalogo.CatalogoDatos;
+import com.luis.ciberloja.catalogo.CatalogoSnapshot;
+import com.luis.ciberloja.model.ProductoCriteria;
+import com.luis.ciberloja.model.ProductoDTO;
+import com.luis.ciberloja.model.Results;
+
+public class ProductoResultCacheTest {
+
+	private static Results<ProductoDTO> resultados() {
+		Results<ProductoDTO> results = new Results<>();
+		results.setPage(new ArrayList<>(CatalogoDatos.generar(3, 1L)));
+		results.setTotal(3);
+		return results;
+	}
+
+	@Test
+	public void noGuardaResultadosLeidosAntesDeUnaInvalidacion() {
+		ProductoResultCache cache = new ProductoResultCache(10, 600);
+		ProductoCriteria criteria = new ProductoCriteria();
+
+		long generacion = cache.getGeneracion();
+		cache.invalidar();
+		ProductoResultCache.Pagina pagina = cache.put(criteria, 1, 30, true, resultados(), generacion);
+		assertFalse(pagina.isVacia());
+		assertNull(cache.get(criteria, 1, 30, true));
+
+		cache.put(criteria, 1, 30, true, resultados(), cache.getGeneracion());
+		assertNotNull(cache.get(criteria, 1, 30, true));
+	}
+
+	@Test
+	public void loGuardadoNoCambiaSiSeModificanLosResultados() {
+		ProductoResultCache cache = new ProductoResultCache(10, 600);
+		ProductoCriteria criteria = new ProductoCriteria();
+		Results<ProductoDTO> results = resultados();
+
+		byte[] json = cache.put(criteria, 1, 30, true, results, cache.getGeneracion()).getJson().clone();
+		results.getPage().get(0).setNombre("modificado");
+		results.getPage().clear();
+
+		assertArrayEquals(json, cache.get(criteria, 1, 30, true).getJson());
+	}
+
+	@Test
+	public void seVaciaConUnSnapshotDelCatalogoQueTraeCambios() {
+		ProductoResultCache cache = new ProductoResultCache(10, 600);
+		ProductoCriteria criteria = new ProductoCriteria();
+		CatalogoSnapshot anterior = new CatalogoSnapshot(CatalogoDatos.generar(50, 1L), 0L, 0L);
+
+		cache.put(criteria, 1, 30, true, resultados(), cache.getGeneracion());
+		cache.onCatalogoActualizado(anterior, new CatalogoSnapshot(CatalogoDatos.generar(50, 1L), 0L, 0L));
+		assertNotNull(cache.get(criteria, 1, 30, true));
+
+		List<ProductoDTO> productos = CatalogoDatos.generar(50, 1L);
+		productos.get(0).setPrecio(1.5);
+		cache.onCatalogoActualizado(anterior, new CatalogoSnapshot(productos, 0L, 0L));
+		assertNull(cache.get(criteria, 1, 30, true));
+	}
+}
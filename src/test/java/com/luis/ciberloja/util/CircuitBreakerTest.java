@@ -0,0 +1,44 @@
+package com.luis.ciberloja.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class CircuitBreakerTest {
+
+	@Test
+	public void semiabiertoSoloPermiteUnaLlamadaDePrueba() throws Exception {
+		CircuitBreaker breaker = new CircuitBreaker("test", 1, 100L);
+		breaker.registrarFallo();
+		assertEquals(CircuitBreaker.Estado.ABIERTO, breaker.getEstado());
+		assertFalse(breaker.permitirLlamada());
+
+		Thread.sleep(120L);
+		assertTrue(breaker.permitirLlamada());
+		assertEquals(CircuitBreaker.Estado.SEMIABIERTO, breaker.getEstado());
+		assertFalse(breaker.permitirLlamada());
+
+		breaker.registrarExito();
+		assertEquals(CircuitBreaker.Estado.CERRADO, breaker.getEstado());
+		assertTrue(breaker.permitirLlamada());
+	}
+
+	@Test
+	public void unaPruebaFallidaVuelveAAbrir() throws Exception {
+		CircuitBreaker breaker = new CircuitBreaker("test", 3, 100L);
+		breaker.registrarFallo();
+		breaker.registrarFallo();
+		assertEquals(CircuitBreaker.Estado.CERRADO, breaker.getEstado());
+		breaker.registrarFallo();
+		assertEquals(CircuitBreaker.Estado.ABIERTO, breaker.getEstado());
+
+		Thread.sleep(120L);
+		assertTrue(breaker.permitirLlamada());
+		breaker.registrarFallo();
+		assertEquals(CircuitBreaker.Estado.ABIERTO, breaker.getEstado());
+		assertFalse(breaker.permitirLlamada());
+		assertTrue(breaker.getSegundosHastaPrueba() > 0);
+	}
+}
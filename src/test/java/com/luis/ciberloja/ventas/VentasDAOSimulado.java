@@ -0,0 +1,161 @@
+package com.luis.ciberloja.ventas;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * VentasDAO en memoria: los pedidos y las dos tablas agregadas, con las mismas
+ * reglas que el SQL (estado y tipo de entrega null como 0, una fila por
+ * producto y pedido, y restar() borra las filas que se quedan sin pedidos).
+ */
+class VentasDAOSimulado extends VentasDAO {
+
+	static final class PedidoSimulado {
+		final LocalDate fecha;
+		final Integer tipoEstadoPedidoId;
+		final Integer tipoEntregaId;
+		final double precio;
+		// productoId, unidades y precio de cada línea
+		final List<Object[]> lineas = new ArrayList<>();
+
+		PedidoSimulado(LocalDate fecha, Integer tipoEstadoPedidoId, Integer tipoEntregaId, double precio) {
+			this.fecha = fecha;
+			this.tipoEstadoPedidoId = tipoEstadoPedidoId;
+			this.tipoEntregaId = tipoEntregaId;
+			this.precio = precio;
+		}
+
+		PedidoSimulado linea(String productoId, int unidades, double precio) {
+			lineas.add(new Object[] { productoId, unidades, precio });
+			return this;
+		}
+	}
+
+	final Map<Long, PedidoSimulado> pedidos = new HashMap<>();
+
+	// fecha|estado|entrega -> pedidos, importe
+	final Map<String, double[]> diaria = new TreeMap<>();
+
+	// fecha|producto -> unidades, importe, pedidos
+	final Map<String, double[]> productos = new TreeMap<>();
+
+	// Periodos pasados a recalcular(), en orden
+	final List<LocalDate[]> recalculados = new ArrayList<>();
+
+	static Connection conexion() {
+		return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+				new Class<?>[] { Connection.class }, (proxy, method, args) -> null);
+	}
+
+	@Override
+	public VentasPedido findVentasPedido(Connection c, Long pedidoId) {
+		PedidoSimulado p = pedidos.get(pedidoId);
+		if (p == null) {
+			return new VentasPedido(pedidoId, null, null, List.of());
+		}
+		VentaAgregada d = new VentaAgregada();
+		d.setFecha(p.fecha.toString());
+		d.setTipoEstadoPedidoId(p.tipoEstadoPedidoId != null ? p.tipoEstadoPedidoId : 0);
+		d.setTipoEntregaId(p.tipoEntregaId != null ? p.tipoEntregaId : 0);
+		d.setPedidos(1);
+		d.setImporte(p.precio);
+
+		Map<String, VentaAgregada> porProducto = new LinkedHashMap<>();
+		for (Object[] linea : p.lineas) {
+			VentaAgregada v = porProducto.computeIfAbsent((String) linea[0], id -> {
+				VentaAgregada nueva = new VentaAgregada();
+				nueva.setFecha(p.fecha.toString());
+				nueva.setProductoId(id);
+				nueva.setUnidades(0L);
+				nueva.setPedidos(1);
+				return nueva;
+			});
+			v.setUnidades(v.getUnidades() + (int) linea[1]);
+			v.setImporte(v.getImporte() + (double) linea[2] * (int) linea[1]);
+		}
+		return new VentasPedido(pedidoId, p.fecha, d, new ArrayList<>(porProducto.values()));
+	}
+
+	@Override
+	public void sumar(Connection c, Collection<Long> pedidoIds) {
+		for (Long id : pedidoIds) {
+			aplicar(findVentasPedido(c, id), 1);
+		}
+	}
+
+	@Override
+	public void restar(Connection c, VentasPedido ventas) {
+		if (ventas.getDiaria() == null) {
+			return;
+		}
+		aplicar(ventas, -1);
+		String dia = ventas.getFecha() + "|";
+		diaria.entrySet().removeIf(e -> e.getKey().startsWith(dia) && e.getValue()[0] <= 0);
+		productos.entrySet().removeIf(e -> e.getKey().startsWith(dia) && e.getValue()[2] <= 0);
+	}
+
+	@Override
+	public void recalcular(Connection c, LocalDate desde, LocalDate hasta) {
+		recalculados.add(new LocalDate[] { desde, hasta });
+		diaria.keySet().removeIf(k -> enPeriodo(k, desde, hasta));
+		productos.keySet().removeIf(k -> enPeriodo(k, desde, hasta));
+		for (Map.Entry<Long, PedidoSimulado> e : pedidos.entrySet()) {
+			if (!e.getValue().fecha.isBefore(desde) && !e.getValue().fecha.isAfter(hasta)) {
+				aplicar(findVentasPedido(c, e.getKey()), 1);
+			}
+		}
+	}
+
+	@Override
+	public LocalDate[] findRangoFechas(Connection c) {
+		List<LocalDate> fechas = new ArrayList<>();
+		for (PedidoSimulado p : pedidos.values()) {
+			fechas.add(p.fecha);
+		}
+		for (String k : diaria.keySet()) {
+			fechas.add(fecha(k));
+		}
+		for (String k : productos.keySet()) {
+			fechas.add(fecha(k));
+		}
+		if (fechas.isEmpty()) {
+			return null;
+		}
+		fechas.sort(null);
+		return new LocalDate[] { fechas.get(0), fechas.get(fechas.size() - 1) };
+	}
+
+	private void aplicar(VentasPedido ventas, int signo) {
+		VentaAgregada d = ventas.getDiaria();
+		if (d == null) {
+			return;
+		}
+		double[] fila = diaria.computeIfAbsent(
+				d.getFecha() + "|" + d.getTipoEstadoPedidoId() + "|" + d.getTipoEntregaId(), k -> new double[2]);
+		fila[0] += signo * d.getPedidos();
+		fila[1] += signo * d.getImporte();
+		for (VentaAgregada v : ventas.getProductos()) {
+			double[] p = productos.computeIfAbsent(v.getFecha() + "|" + v.getProductoId(), k -> new double[3]);
+			p[0] += signo * v.getUnidades();
+			p[1] += signo * v.getImporte();
+			p[2] += signo * v.getPedidos();
+		}
+	}
+
+	private static LocalDate fecha(String clave) {
+		return LocalDate.parse(clave.substring(0, clave.indexOf('|')));
+	}
+
+	private static boolean enPeriodo(String clave, LocalDate desde, LocalDate hasta) {
+		LocalDate fecha = fecha(clave);
+		return !fecha.isBefore(desde) && !fecha.isAfter(hasta);
+	}
+}
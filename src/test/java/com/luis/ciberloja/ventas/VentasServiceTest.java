@@ -0,0 +1,152 @@
+package com.luis.ciberloja.ventas;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import com.luis.ciberloja.ventas.VentasDAOSimulado.PedidoSimulado;
+
+public class VentasServiceTest {
+
+	private final VentasDAOSimulado dao = new VentasDAOSimulado();
+	private final VentasService service = new VentasService(dao);
+	private final Connection c = VentasDAOSimulado.conexion();
+
+	private static LocalDate dia(String fecha) {
+		return LocalDate.parse(fecha);
+	}
+
+	private void crear(long id, PedidoSimulado pedido) throws Exception {
+		dao.pedidos.put(id, pedido);
+		service.pedidoModificado(c, id, null);
+	}
+
+	private void modificar(long id, PedidoSimulado pedido) throws Exception {
+		VentasPedido anterior = dao.findVentasPedido(c, id);
+		if (pedido != null) {
+			dao.pedidos.put(id, pedido);
+		} else {
+			dao.pedidos.remove(id);
+		}
+		service.pedidoModificado(c, id, anterior);
+	}
+
+	private static Map<String, double[]> copia(Map<String, double[]> filas) {
+		Map<String, double[]> copia = new TreeMap<>();
+		filas.forEach((k, v) -> copia.put(k, v.clone()));
+		return copia;
+	}
+
+	private static void assertFilas(Map<String, double[]> esperadas, Map<String, double[]> filas) {
+		assertEquals(esperadas.keySet(), filas.keySet());
+		for (String k : esperadas.keySet()) {
+			assertArrayEquals(k, esperadas.get(k), filas.get(k), 1e-9);
+		}
+	}
+
+	/**
+	 * Los agregados tras aplicar los cambios uno a uno deben ser los mismos que
+	 * los de recalcularlo todo desde los pedidos.
+	 */
+	private void assertIgualQueRecalcular() throws Exception {
+		Map<String, double[]> diaria = copia(dao.diaria);
+		Map<String, double[]> productos = copia(dao.productos);
+		service.recalcular(c, null, null);
+		assertFilas(dao.diaria, diaria);
+		assertFilas(dao.productos, productos);
+	}
+
+	@Test
+	public void sumarYRestarDejaLoMismoQueRecalcular() throws Exception {
+		crear(1, new PedidoSimulado(dia("2025-01-10"), 1, 1, 30.5).linea("A", 2, 10.25).linea("B", 1, 10.0));
+		crear(2, new PedidoSimulado(dia("2025-01-10"), 1, 1, 12.0).linea("A", 1, 12.0));
+		crear(3, new PedidoSimulado(dia("2025-01-11"), null, 2, 7.5).linea("C", 3, 2.5));
+		crear(4, new PedidoSimulado(dia("2025-02-03"), 2, null, 40.0).linea("B", 4, 10.0));
+		assertIgualQueRecalcular();
+
+		// Cambian la fecha, el estado y las líneas
+		modificar(1, new PedidoSimulado(dia("2025-01-12"), 2, 1, 20.5).linea("A", 1, 10.25).linea("C", 4, 2.5));
+		assertIgualQueRecalcular();
+
+		// Sólo cambian las líneas, repitiendo producto
+		modificar(2, new PedidoSimulado(dia("2025-01-10"), 1, 1, 36.0).linea("A", 1, 12.0).linea("A", 2, 12.0));
+		assertIgualQueRecalcular();
+
+		// Borrado: su día se queda sin pedidos y desaparecen sus filas
+		modificar(4, null);
+		assertIgualQueRecalcular();
+		assertFalse(dao.diaria.keySet().stream().anyMatch(k -> k.startsWith("2025-02-03|")));
+		assertFalse(dao.productos.keySet().stream().anyMatch(k -> k.startsWith("2025-02-03|")));
+
+		assertArrayEquals(new double[] { 1, 36.0 }, dao.diaria.get("2025-01-10|1|1"), 1e-9);
+		assertArrayEquals(new double[] { 3, 36.0, 1 }, dao.productos.get("2025-01-10|A"), 1e-9);
+		assertArrayEquals(new double[] { 3, 7.5, 1 }, dao.productos.get("2025-01-11|C"), 0);
+	}
+
+	@Test
+	public void unPedidoQueNoExistiaSoloSuma() throws Exception {
+		VentasPedido anterior = dao.findVentasPedido(c, 5L);
+		assertTrue(anterior.isLeido());
+		dao.pedidos.put(5L, new PedidoSimulado(dia("2025-03-01"), 1, 1, 5.0).linea("A", 1, 5.0));
+		service.pedidoModificado(c, 5L, anterior);
+
+		assertArrayEquals(new double[] { 1, 5.0 }, dao.diaria.get("2025-03-01|1|1"), 0);
+		assertIgualQueRecalcular();
+	}
+
+	@Test
+	public void sinLasVentasAnterioresNoSeTocaNada() throws Exception {
+		crear(1, new PedidoSimulado(dia("2025-01-10"), 1, 1, 10.0).linea("A", 1, 10.0));
+		Map<String, double[]> diaria = copia(dao.diaria);
+		Map<String, double[]> productos = copia(dao.productos);
+
+		dao.pedidos.put(1L, new PedidoSimulado(dia("2025-01-10"), 1, 1, 20.0).linea("A", 2, 10.0));
+		service.pedidoModificado(1L, VentasPedido.sinLeer(1L));
+
+		assertFilas(diaria, dao.diaria);
+		assertFilas(productos, dao.productos);
+	}
+
+	@Test
+	public void recalculaMesAMes() throws Exception {
+		service.recalcular(c, dia("2025-01-15"), dia("2025-03-10"));
+		List<String> periodos = dao.recalculados.stream().map(p -> p[0] + ".." + p[1]).collect(Collectors.toList());
+		assertEquals(List.of("2025-01-15..2025-01-31", "2025-02-01..2025-02-28", "2025-03-01..2025-03-10"),
+				periodos);
+
+		dao.recalculados.clear();
+		service.recalcular(c, dia("2025-04-03"), dia("2025-04-03"));
+		assertEquals(1, dao.recalculados.size());
+		assertEquals(dia("2025-04-03"), dao.recalculados.get(0)[0]);
+		assertEquals(dia("2025-04-03"), dao.recalculados.get(0)[1]);
+	}
+
+	@Test
+	public void recalcularTodoQuitaLosDiasSinPedidos() throws Exception {
+		crear(1, new PedidoSimulado(dia("2025-02-10"), 1, 1, 10.0).linea("A", 1, 10.0));
+		// Filas de un pedido borrado sin pasar por pedidoModificado
+		dao.diaria.put("2024-12-31|1|1", new double[] { 1, 99.0 });
+		dao.productos.put("2024-12-31|Z", new double[] { 1, 99.0, 1 });
+
+		service.recalcular(c, null, null);
+		assertEquals(List.of("2025-02-10|1|1"), List.copyOf(dao.diaria.keySet()));
+		assertEquals(List.of("2025-02-10|A"), List.copyOf(dao.productos.keySet()));
+
+		// Sin pedidos ni filas no hay nada que recalcular
+		dao.pedidos.clear();
+		service.recalcular(c, null, null);
+		dao.recalculados.clear();
+		service.recalcular(c, null, null);
+		assertTrue(dao.recalculados.isEmpty());
+	}
+}
@@ -0,0 +1,22 @@
+package com.luis.ciberloja.ventas;
+
+import java.sql.Connection;
+import java.util.Collection;
+
+/**
+ * VentasService sin BD para las pruebas de otros paquetes: sumar() no hace
+ * nada.
+ */
+public final class VentasSimuladas {
+
+	private VentasSimuladas() {
+	}
+
+	public static VentasService crear() {
+		return new VentasService(new VentasDAO() {
+			@Override
+			public void sumar(Connection c, Collection<Long> pedidoIds) {
+			}
+		});
+	}
+}